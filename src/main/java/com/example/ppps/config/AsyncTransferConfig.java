@@ -0,0 +1,34 @@
+package com.example.ppps.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class AsyncTransferConfig {
+
+    // bounded on both threads and queue: when full, submissions are rejected with 503 instead of piling up.
+    // In virtual-thread mode the workers become virtual threads but the bounds stay -- they are what caps
+    // concurrent transfers against the connection pool, not the thread cost.
+    @Bean
+    public ThreadPoolTaskExecutor transferExecutor(
+            @Value("${app.transfer.async.core-pool-size:8}") int corePoolSize,
+            @Value("${app.transfer.async.max-pool-size:32}") int maxPoolSize,
+            @Value("${app.transfer.async.queue-capacity:500}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("transfer-");
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("transfer-", 0).factory());
+        }
+        executor.setTaskDecorator(new MdcTaskDecorator());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
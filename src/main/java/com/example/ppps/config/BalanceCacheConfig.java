@@ -0,0 +1,22 @@
+package com.example.ppps.config;
+
+import com.example.ppps.service.BalanceCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class BalanceCacheConfig {
+
+    // balance invalidations published by other nodes; the container resubscribes on its own if Redis drops
+    @Bean
+    public RedisMessageListenerContainer balanceInvalidationListener(RedisConnectionFactory connectionFactory,
+                                                                     BalanceCache balanceCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(balanceCache, new ChannelTopic(BalanceCache.CHANNEL));
+        return container;
+    }
+}
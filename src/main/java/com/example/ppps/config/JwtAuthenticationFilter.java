@@ -1,30 +1,26 @@
 package com.example.ppps.config;
 
-import io.jsonwebtoken.Claims;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
+import com.example.ppps.service.JwtTokenService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
-import javax.crypto.SecretKey;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
 
 @Component
+@Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    private final JwtTokenService jwtTokenService;
+
+    public JwtAuthenticationFilter(JwtTokenService jwtTokenService) {
+        this.jwtTokenService = jwtTokenService;
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -35,43 +31,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (header != null && header.startsWith("Bearer ")) {
             String token = header.substring(7);
             try {
-                SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
-                Claims claims = Jwts.parser()
-                        .verifyWith(key)
-                        .build()
-                        .parseSignedClaims(token)
-                        .getPayload();
-
-                if (claims.getExpiration().before(new Date())) {
-                    throw new SecurityException("Token has expired");
-                }
-
-                String userId = claims.getSubject();
-
-                //Extract role from JWT claims
-                String role = claims.get("role", String.class);
-                System.out.println("JWT Role extracted: " + role + " for user: " + userId);
-
-                List<SimpleGrantedAuthority> authorities = new ArrayList<>();
-
-                if (role != null) {
-                    // Add ROLE_ prefix for Spring Security
-                    authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
-                } else {
-                    // Default to USER if no role found
-                    authorities.add(new SimpleGrantedAuthority("ROLE_USER"));
-                    System.out.println("No role found in JWT, defaulting to ROLE_USER");
-                }
+                // signature, expiry and revocation; repeat tokens come from JwtTokenService's cache
+                JwtTokenService.VerifiedToken verified = jwtTokenService.verify(token);
+                log.debug("JWT role {} for user {}", verified.role(), verified.userId());
 
                 // Use custom JwtAuthenticationToken
                 JwtAuthenticationToken authentication =
-                        new JwtAuthenticationToken(userId, null, authorities);
+                        new JwtAuthenticationToken(verified.userId(), null, verified.authorities());
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
 
             } catch (Exception e) {
-                System.err.println("❌ JWT Validation Failed: " + e.getMessage());
+                log.warn("❌ JWT Validation Failed: {}", e.getMessage());
                 SecurityContextHolder.clearContext();
                 response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "Invalid or expired token");
                 return;
@@ -80,4 +51,4 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+}
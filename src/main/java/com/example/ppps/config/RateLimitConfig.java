@@ -0,0 +1,61 @@
+package com.example.ppps.config;
+
+import com.example.ppps.service.RateLimiter;
+import com.example.ppps.service.RedisRateLimiter;
+import com.example.ppps.service.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+
+@Configuration
+public class RateLimitConfig {
+
+    @Bean
+    public TokenBucketRateLimiter localRateLimiter(
+            MeterRegistry meterRegistry,
+            @Value("${app.rate-limit.expiry-tick-ms:1000}") long tickMillis,
+            @Value("${app.rate-limit.expiry-wheel-slots:512}") int wheelSlots) {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(Duration.ofMillis(tickMillis).toNanos(), wheelSlots);
+        Gauge.builder("ppps.ratelimit.buckets", limiter, TokenBucketRateLimiter::activeBuckets)
+                .description("Rate-limit buckets held in memory on this node")
+                .register(meterRegistry);
+        return limiter;
+    }
+
+    // local keeps buckets per node; redis shares them across nodes and falls back to local if Redis is down
+    @Bean
+    @Primary
+    public RateLimiter rateLimiter(
+            TokenBucketRateLimiter localRateLimiter,
+            StringRedisTemplate redisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.rate-limit.mode:local}") String mode) {
+        if ("redis".equalsIgnoreCase(mode)) {
+            return new RedisRateLimiter(redisTemplate, localRateLimiter, meterRegistry);
+        }
+        return localRateLimiter;
+    }
+
+    @Bean
+    public RateLimitingFilter.Rules rateLimitRules(
+            @Value("${app.rate-limit.transfers.requests-per-minute:60}") long transfersPerMinute,
+            @Value("${app.rate-limit.transfers.burst:10}") long transfersBurst,
+            @Value("${app.rate-limit.login.requests-per-minute:10}") long loginPerMinute,
+            @Value("${app.rate-limit.login.burst:5}") long loginBurst,
+            @Value("${app.rate-limit.webhooks.requests-per-minute:600}") long webhooksPerMinute,
+            @Value("${app.rate-limit.webhooks.burst:100}") long webhooksBurst,
+            @Value("${app.rate-limit.default.requests-per-minute:1000}") long defaultPerMinute,
+            @Value("${app.rate-limit.default.burst:1000}") long defaultBurst) {
+        return new RateLimitingFilter.Rules(
+                new RateLimiter.Rule("transfers", transfersPerMinute, transfersBurst),
+                new RateLimiter.Rule("login", loginPerMinute, loginBurst),
+                new RateLimiter.Rule("webhooks", webhooksPerMinute, webhooksBurst),
+                new RateLimiter.Rule("default", defaultPerMinute, defaultBurst));
+    }
+}
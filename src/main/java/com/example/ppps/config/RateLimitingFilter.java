@@ -1,23 +1,46 @@
 package com.example.ppps.config;
 
+import com.example.ppps.service.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
+// Runs after JwtAuthenticationFilter, so authenticated callers are limited per user id and everyone else per
+// IP. Each route group has its own token bucket rule; see RateLimitConfig.
 @Component
 public class RateLimitingFilter extends OncePerRequestFilter {
 
-    // Increased limit for development purpose
-    private static final int MAX_REQUESTS_PER_MINUTE = 1000;
-    private final ConcurrentHashMap<String, Integer> requestCounts = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<String, Long> requestTimestamps = new ConcurrentHashMap<>();
+    private final RateLimiter rateLimiter;
+    private final Rules rules;
+    private final Counter transfersRejected;
+    private final Counter loginRejected;
+    private final Counter webhooksRejected;
+    private final Counter defaultRejected;
+
+    public RateLimitingFilter(RateLimiter rateLimiter, Rules rules, MeterRegistry meterRegistry) {
+        this.rateLimiter = rateLimiter;
+        this.rules = rules;
+        this.transfersRejected = rejectedCounter(meterRegistry, rules.transfers());
+        this.loginRejected = rejectedCounter(meterRegistry, rules.login());
+        this.webhooksRejected = rejectedCounter(meterRegistry, rules.webhooks());
+        this.defaultRejected = rejectedCounter(meterRegistry, rules.defaults());
+    }
+
+    public record Rules(RateLimiter.Rule transfers, RateLimiter.Rule login,
+                        RateLimiter.Rule webhooks, RateLimiter.Rule defaults) {
+    }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
@@ -31,30 +54,63 @@ public class RateLimitingFilter extends OncePerRequestFilter {
             return;
         }
 
-        String clientIp = request.getRemoteAddr();
-        long currentTime = System.currentTimeMillis();
-        long minuteAgo = currentTime - 60000;
-
-        // Clean up the old entries you've got
-        requestTimestamps.entrySet().removeIf(entry -> entry.getValue() < minuteAgo);
-        requestCounts.entrySet().removeIf(entry -> entry.getValue() == 0);
-
-        int count = requestCounts.getOrDefault(clientIp, 0);
-        long lastRequestTime = requestTimestamps.getOrDefault(clientIp, 0L);
+        RateLimiter.Rule rule = ruleFor(requestURI);
+        RateLimiter.Decision decision = rateLimiter.tryAcquire(rule.name() + ":" + clientKey(request), rule);
 
-        if (count >= MAX_REQUESTS_PER_MINUTE && currentTime - lastRequestTime < 60000) {
+        if (!decision.allowed()) {
+            rejectedCounterFor(rule).increment();
+            response.setHeader("Retry-After",
+                    String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(decision.retryAfterNanos() + 999_999_999))));
             response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Rate limit exceeded");
             return;
         }
 
-        if (count == 0 || currentTime - lastRequestTime >= 60000) {
-            requestCounts.put(clientIp, 1);
-            requestTimestamps.put(clientIp, currentTime);
-        } else {
-            requestCounts.put(clientIp, count + 1);
+        response.setHeader("X-RateLimit-Remaining", String.valueOf(decision.remaining()));
+        filterChain.doFilter(request, response);
+    }
+
+    private RateLimiter.Rule ruleFor(String requestURI) {
+        if (requestURI.startsWith("/api/v1/transfers")) {
+            return rules.transfers();
+        }
+        if (requestURI.startsWith("/api/v1/webhooks/")) {
+            return rules.webhooks();
+        }
+        if (requestURI.equals("/api/v1/auth/login") ||
+                requestURI.equals("/api/v1/auth/admin/login") ||
+                requestURI.equals("/api/v1/register")) {
+            return rules.login();
         }
+        return rules.defaults();
+    }
 
-        filterChain.doFilter(request, response);
+    private Counter rejectedCounterFor(RateLimiter.Rule rule) {
+        if (rule == rules.transfers()) {
+            return transfersRejected;
+        }
+        if (rule == rules.login()) {
+            return loginRejected;
+        }
+        if (rule == rules.webhooks()) {
+            return webhooksRejected;
+        }
+        return defaultRejected;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private static Counter rejectedCounter(MeterRegistry meterRegistry, RateLimiter.Rule rule) {
+        return Counter.builder("ppps.ratelimit.rejected")
+                .description("Requests refused by the rate limiter")
+                .tag("route", rule.name())
+                .register(meterRegistry);
     }
 
     //kindly determine if rate limiting shouldbe skipped
@@ -73,4 +129,4 @@ public class RateLimitingFilter extends OncePerRequestFilter {
                 requestURI.equals("/dashboard") ||
                 requestURI.equals("/error");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package com.example.ppps.config;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// Flyway refuses edited migrations and ddl-auto=validate refuses missing tables and columns, but neither
+// notices an index dropped by hand or a CREATE INDEX CONCURRENTLY that failed halfway -- the queries still
+// run, as sequential scans. This runs once every bean is up, before the application takes traffic, and
+// fails startup when an index db/migration defines is missing or invalid.
+@Component
+@Slf4j
+public class SchemaDriftCheck implements SmartInitializingSingleton {
+
+    // the indexes (and unique constraints) the query paths rely on, by table
+    private static final Map<String, List<String>> EXPECTED_INDEXES = Map.of(
+            "wallets", List.of("idx_user_id", "idx_wallets_created_at_id"),
+            "users", List.of("uk_users_phone_number", "uk_users_email", "uk_users_wallet_id",
+                    "idx_users_phone_number_pattern"),
+            "transactions", List.of("idx_sender_wallet_initiated_at_id", "idx_receiver_wallet_initiated_at_id",
+                    "idx_initiated_at", "idx_status_initiated_at_id", "idx_transfer_state_changed_at",
+                    "idx_transactions_pending_initiated_at"),
+            "ledger_entries", List.of("idx_ledger_entries_wallet_created_at", "idx_ledger_entries_transaction_id"),
+            "audit_log", List.of("idx_audit_log_timestamp_id", "idx_audit_log_actor_timestamp",
+                    "idx_audit_log_action_timestamp", "idx_audit_log_entity_timestamp"),
+            "wallet_activity", List.of("uk_wallet_activity_wallet_transaction",
+                    "idx_wallet_activity_wallet_occurred_at_tx"),
+            "escrow_holds", List.of("idx_escrow_holds_release_at"),
+            "ledger_reconciliation_runs", List.of("idx_ledger_reconciliation_runs_business_date"),
+            "ledger_reconciliation_issues", List.of("idx_ledger_reconciliation_issues_run_type"),
+            "outbox_events", List.of("idx_outbox_sent_at_created_at", "idx_outbox_due_next_attempt_at"));
+
+    // a partitioned table's index is only valid once every partition has its copy
+    private static final String VALID_INDEXES = "SELECT CAST(t.relname AS text), CAST(i.relname AS text)"
+            + " FROM pg_index x"
+            + " JOIN pg_class i ON i.oid = x.indexrelid"
+            + " JOIN pg_class t ON t.oid = x.indrelid"
+            + " JOIN pg_namespace n ON n.oid = t.relnamespace"
+            + " WHERE n.nspname = current_schema() AND x.indisvalid AND t.relname IN (:tables)";
+
+    private static final String AUDIT_LOG_KIND = "SELECT CAST(c.relkind AS text) FROM pg_class c"
+            + " JOIN pg_namespace n ON n.oid = c.relnamespace"
+            + " WHERE n.nspname = current_schema() AND c.relname = 'audit_log'";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final boolean enabled;
+
+    public SchemaDriftCheck(@Value("${app.schema.drift-check.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            log.warn("⚠️ Schema drift check disabled");
+            return;
+        }
+
+        Set<String> present = new HashSet<>();
+        for (Object row : entityManager.createNativeQuery(VALID_INDEXES)
+                .setParameter("tables", EXPECTED_INDEXES.keySet())
+                .getResultList()) {
+            Object[] columns = (Object[]) row;
+            present.add(columns[0] + "." + columns[1]);
+        }
+
+        // a plain audit_log gets its indexes from AuditLogPartitionService when it converts the table
+        List<?> auditLogKind = entityManager.createNativeQuery(AUDIT_LOG_KIND).getResultList();
+        boolean auditLogPartitioned = !auditLogKind.isEmpty() && "p".equals(auditLogKind.get(0));
+
+        Set<String> missing = new TreeSet<>();
+        EXPECTED_INDEXES.forEach((table, indexes) -> {
+            if (table.equals("audit_log") && !auditLogPartitioned) {
+                return;
+            }
+            for (String index : indexes) {
+                if (!present.contains(table + "." + index)) {
+                    missing.add(table + "." + index);
+                }
+            }
+        });
+
+        if (!missing.isEmpty()) {
+            throw new IllegalStateException("Schema drift: missing or invalid indexes " + missing
+                    + " -- the database no longer matches db/migration");
+        }
+        log.info("✅ Schema matches db/migration - {} tables checked", EXPECTED_INDEXES.size());
+    }
+}
@@ -1,19 +1,32 @@
 package com.example.ppps.controller;
 
-import com.example.ppps.entity.User;
-import com.example.ppps.entity.Wallet;
+import com.example.ppps.dto.AdminPage;
+import com.example.ppps.dto.AdminStats;
+import com.example.ppps.dto.AdminTransactionView;
+import com.example.ppps.dto.AdminUserView;
+import com.example.ppps.dto.AdminWalletView;
 import com.example.ppps.entity.Transaction;
 import com.example.ppps.enums.TransactionStatus;
-import com.example.ppps.repository.UserRepository;
-import com.example.ppps.repository.WalletRepository;
 import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.service.AdminViewService;
+import com.example.ppps.entity.LedgerReconciliationIssue;
+import com.example.ppps.entity.LedgerReconciliationRun;
+import com.example.ppps.repository.LedgerReconciliationIssueRepository;
+import com.example.ppps.service.LedgerBalanceService;
+import com.example.ppps.service.LedgerReconciliationService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import com.example.ppps.service.WalletActivityBackfillService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.*;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/v1/admin")
@@ -21,94 +34,74 @@ import java.util.stream.Collectors;
 public class AdminApiController {
 
     @Autowired
-    private UserRepository userRepository;
+    private TransactionRepository transactionRepository;
 
     @Autowired
-    private WalletRepository walletRepository;
+    private AdminViewService adminViewService;
 
     @Autowired
-    private TransactionRepository transactionRepository;
+    private WalletActivityBackfillService walletActivityBackfillService;
+
+    @Autowired
+    private LedgerBalanceService ledgerBalanceService;
+
+    @Autowired
+    private LedgerReconciliationService ledgerReconciliationService;
+
+    @Autowired
+    private LedgerReconciliationIssueRepository ledgerReconciliationIssueRepository;
 
+    // every listing is a keyset page: pass the X-Next-Page-Token response header back as pageToken
     @GetMapping("/users")
-    public ResponseEntity<List<Map<String, Object>>> getAllUsers() {
-        List<User> users = userRepository.findAll();
-        List<Map<String, Object>> userDtos = users.stream().map(user -> {
-            Map<String, Object> dto = new HashMap<>();
-            dto.put("id", user.getUserId());
-            dto.put("phoneNumber", user.getPhoneNumber());
-            dto.put("role", user.getRole());
-            dto.put("walletId", user.getWallet() != null ? user.getWallet().getId() : null);
-            dto.put("active", true);
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(userDtos);
+    public ResponseEntity<List<AdminUserView>> getAllUsers(
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) String phonePrefix,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer pageSize) {
+        return page(adminViewService.users(role, phonePrefix, sort, order, pageToken, pageSize));
     }
 
     @GetMapping("/wallets")
-    public ResponseEntity<List<Map<String, Object>>> getAllWallets() {
-        List<Wallet> wallets = walletRepository.findAll();
-        List<Map<String, Object>> walletDtos = wallets.stream().map(wallet -> {
-            Map<String, Object> dto = new HashMap<>();
-            dto.put("id", wallet.getId());
-            dto.put("userId", wallet.getUserId().toString());
-            dto.put("balance", wallet.getBalance());
-            dto.put("currency", wallet.getCurrency());
-            String userPhone = userRepository.findById(wallet.getUserId().toString())
-                    .map(User::getPhoneNumber)
-                    .orElse("Unknown");
-            dto.put("userPhone", userPhone);
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(walletDtos);
+    public ResponseEntity<List<AdminWalletView>> getAllWallets(
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) BigDecimal minBalance,
+            @RequestParam(required = false) BigDecimal maxBalance,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer pageSize) {
+        return page(adminViewService.wallets(currency, minBalance, maxBalance, sort, order, pageToken, pageSize));
     }
 
     @GetMapping("/transactions")
-    public ResponseEntity<List<Map<String, Object>>> getAllTransactions() {
-        List<Transaction> transactions = transactionRepository.findAll();
-        List<Map<String, Object>> transactionDtos = transactions.stream().map(transaction -> {
-            Map<String, Object> dto = new HashMap<>();
-            dto.put("id", transaction.getId());
-            String senderUserId = getUserIdFromWallet(transaction.getSenderWalletId());
-            String senderPhone = getPhoneFromWallet(transaction.getSenderWalletId());
-            dto.put("userId", senderUserId);
-            dto.put("userPhone", senderPhone);
-            dto.put("amount", transaction.getAmount());
-            dto.put("status", transaction.getStatus());
-            dto.put("type", "TRANSFER");
-            dto.put("createdAt", transaction.getInitiatedAt());
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(transactionDtos);
+    public ResponseEntity<List<AdminTransactionView>> getAllTransactions(
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) UUID walletId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer pageSize) {
+        return page(adminViewService.transactions(status, walletId, from, to, sort, order, pageToken, pageSize));
     }
 
+    // the approval queue: pending transactions unless another status is asked for
     @GetMapping("/withdrawals")
-    public ResponseEntity<List<Map<String, Object>>> getWithdrawals(@RequestParam(required = false) String status) {
-        List<Transaction> transactions;
-        if (status != null && !status.isEmpty()) {
-            try {
-                TransactionStatus transactionStatus = TransactionStatus.valueOf(status.toUpperCase());
-                transactions = transactionRepository.findByStatus(transactionStatus);
-            } catch (IllegalArgumentException e) {
-                // If it has an invalid status, return empty list
-                transactions = Collections.emptyList();
-            }
-        } else {
-            // Get all pending transactions for withdrawals view
-            transactions = transactionRepository.findByStatus(TransactionStatus.PENDING);
-        }
-        List<Map<String, Object>> withdrawalDtos = transactions.stream().map(transaction -> {
-            Map<String, Object> dto = new HashMap<>();
-            dto.put("id", transaction.getId().toString());
-            String senderUserId = getUserIdFromWallet(transaction.getSenderWalletId());
-            String senderPhone = getPhoneFromWallet(transaction.getSenderWalletId());
-            dto.put("userId", senderUserId);
-            dto.put("userPhone", senderPhone);
-            dto.put("amount", transaction.getAmount());
-            dto.put("status", transaction.getStatus());
-            dto.put("createdAt", transaction.getInitiatedAt());
-            return dto;
-        }).collect(Collectors.toList());
-        return ResponseEntity.ok(withdrawalDtos);
+    public ResponseEntity<List<AdminTransactionView>> getWithdrawals(
+            @RequestParam(defaultValue = "PENDING") String status,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer pageSize) {
+        return page(adminViewService.transactions(status, null, null, null, sort, order, pageToken, pageSize));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<AdminStats> getStats() {
+        return ResponseEntity.ok(adminViewService.stats());
     }
 
     @PutMapping("/withdrawals/{id}")
@@ -133,25 +126,54 @@ public class AdminApiController {
         }
     }
 
-    // H.methods -- get user info from wallet
-    private String getUserIdFromWallet(UUID walletId) {
-        if (walletId == null) return "Unknown";
-        Wallet wallet = walletRepository.findById(walletId).orElse(null);
-        if (wallet != null) {
-            return wallet.getUserId().toString();
-        }
-        return "Unknown";
+    // rebuilds missing wallet_activity rows from the ledger; blocks until every chunk is done
+    @PostMapping("/wallet-activity/backfill")
+    public ResponseEntity<Map<String, Object>> backfillWalletActivity() {
+        WalletActivityBackfillService.Result result = walletActivityBackfillService.backfill();
+        return ResponseEntity.ok(Map.of(
+                "chunks", result.chunks(),
+                "rowsInserted", result.rowsInserted(),
+                "elapsedMs", result.elapsed().toMillis()
+        ));
+    }
+
+    // the wallet's balance as its ledger has it: latest snapshot plus the entries since
+    @GetMapping("/ledger/balances/{walletId}")
+    public ResponseEntity<Map<String, Object>> getLedgerBalance(@PathVariable UUID walletId) {
+        return ResponseEntity.ok(Map.of(
+                "walletId", walletId,
+                "derivedBalance", ledgerBalanceService.derivedBalance(walletId)
+        ));
+    }
+
+    // compares every wallet's stored balance with its ledger; blocks until every range is checked
+    @PostMapping("/ledger/verify")
+    public ResponseEntity<LedgerBalanceService.DriftReport> verifyLedgerBalances() {
+        return ResponseEntity.ok(ledgerBalanceService.verify());
+    }
+
+    // reconciles every transaction initiated up to the end of date (UTC, default yesterday); blocks until done
+    @PostMapping("/ledger/reconciliations")
+    public ResponseEntity<LedgerReconciliationRun> reconcileLedger(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        LocalDate businessDate = date != null ? date : LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        return ResponseEntity.ok(ledgerReconciliationService.reconcile(businessDate));
+    }
+
+    @GetMapping("/ledger/reconciliations/{runId}/issues")
+    public ResponseEntity<List<LedgerReconciliationIssue>> getReconciliationIssues(
+            @PathVariable UUID runId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        return ResponseEntity.ok(ledgerReconciliationIssueRepository.findByRunIdOrderByTypeAscTransactionIdAsc(
+                runId, PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), 500))));
     }
 
-    private String getPhoneFromWallet(UUID walletId) {
-        if (walletId == null) return "Unknown";
-        Wallet wallet = walletRepository.findById(walletId).orElse(null);
-        if (wallet != null) {
-            User user = userRepository.findById(wallet.getUserId().toString()).orElse(null);
-            if (user != null) {
-                return user.getPhoneNumber();
-            }
+    private static <T> ResponseEntity<List<T>> page(AdminPage<T> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextPageToken() != null) {
+            response.header("X-Next-Page-Token", page.nextPageToken());
         }
-        return "Unknown";
+        return response.body(page.items());
     }
-}
\ No newline at end of file
+}
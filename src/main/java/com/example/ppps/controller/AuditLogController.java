@@ -1,21 +1,75 @@
 package com.example.ppps.controller;
 
-import com.example.ppps.entity.AuditLog;
-import com.example.ppps.repository.AuditLogRepository;
+import com.example.ppps.dto.AdminPage;
+import com.example.ppps.dto.AuditLogEntry;
+import com.example.ppps.dto.AuditLogFilter;
+import com.example.ppps.enums.StatementFormat;
+import com.example.ppps.service.AuditLogService;
+import com.example.ppps.service.StatementExportService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.List;
 
+// Audit log search (newest first, keyset paged) and streaming export. Give a time range where you can:
+// audit_log is partitioned by month and the range decides how many partitions a query touches.
 @RestController
-@RequestMapping("/api/audit-logs")
+@RequestMapping({"/api/v1/admin/audit-logs", "/api/audit-logs"})
+@PreAuthorize("hasRole('ADMIN')")
 @RequiredArgsConstructor
 public class AuditLogController {
 
-    private final AuditLogRepository auditLogRepository;
+    private final AuditLogService auditLogService;
+    private final StatementExportService statementExportService;
 
+    // pass the X-Next-Page-Token response header back as pageToken for the next page
     @GetMapping
-    public List<AuditLog> getAll() {
-        return auditLogRepository.findAll();
+    public ResponseEntity<List<AuditLogEntry>> search(
+            @RequestParam(required = false) String actorId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String entityName,
+            @RequestParam(required = false) String entityId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) String pageToken,
+            @RequestParam(required = false) Integer pageSize) {
+        AdminPage<AuditLogEntry> page = auditLogService.search(
+                new AuditLogFilter(actorId, action, entityName, entityId, from, to), pageToken, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextPageToken() != null) {
+            response.header("X-Next-Page-Token", page.nextPageToken());
+        }
+        return response.body(page.items());
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) String actorId,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) String entityName,
+            @RequestParam(required = false) String entityId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        StatementFormat exportFormat = StatementExportService.format(format);
+        StreamingResponseBody body = statementExportService.auditLogExport(
+                new AuditLogFilter(actorId, action, entityName, entityId, from, to), exportFormat, gzip);
+        String filename = "audit-log-" + LocalDate.now(ZoneOffset.UTC) + "." + exportFormat.extension()
+                + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : exportFormat.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
     }
 }
@@ -1,9 +1,6 @@
 package com.example.ppps.controller;
 
-import com.example.ppps.entity.User;
-import com.example.ppps.entity.Wallet;
 import com.example.ppps.repository.UserRepository;
-import com.example.ppps.repository.WalletRepository;
 import com.example.ppps.service.BalanceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +8,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -23,7 +21,6 @@ public class BalanceController {
 
     private final BalanceService balanceService;
     private final UserRepository userRepository;
-    private final WalletRepository walletRepository;
 
     @GetMapping("/balance")
     public ResponseEntity<?> getBalance(Authentication authentication) {
@@ -32,32 +29,32 @@ public class BalanceController {
             String userId = authentication.getName();
             log.info("Fetching balance for user: {}", userId);
 
-            //find the User in database
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> new IllegalArgumentException("User not found: " + userId));
-
-            // then you get Wallet from User
-            Wallet wallet = user.getWallet();
-            if (wallet == null) {
+            // the wallet id is cached per user and the balance comes from the balance cache,
+            // so a repeated poll touches neither the users nor the wallets table
+            UUID walletId = balanceService.walletIdForUser(userId).orElse(null);
+            if (walletId == null) {
+                if (!userRepository.existsById(userId)) {
+                    throw new IllegalArgumentException("User not found: " + userId);
+                }
                 log.error("User {} has no wallet", userId);
                 return ResponseEntity.badRequest().body(createErrorResponse("User wallet not found"));
             }
-
-            // get balance directly from wallet, avoid service all issues
-            UUID walletId = wallet.getId();
+            BalanceResponse balance = balanceService.getBalance(walletId);
+            BigDecimal amount = balance.getBalance();
 
             // create response manually to avoid serialization issues
             Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
 
             Map<String, Object> balanceData = new HashMap<>();
-            balanceData.put("amount", wallet.getBalance()); // Get directly from entity
-            balanceData.put("currency", wallet.getCurrency());
+            balanceData.put("amount", amount);
+            balanceData.put("held", balance.getHeldBalance());
+            balanceData.put("currency", balance.getCurrency());
             balanceData.put("walletId", walletId.toString());
 
             response.put("balance", balanceData);
             log.info("Balance fetched successfully for user {}: {} {}",
-                    userId, wallet.getBalance(), wallet.getCurrency());
+                    userId, amount, balance.getCurrency());
             return ResponseEntity.ok(response);
 
         } catch (IllegalArgumentException e) {
@@ -7,6 +7,8 @@ import java.math.BigDecimal;
 
 @Data
 public class BalanceResponse implements Serializable {
+    // what can be spent now; escrow funds still on hold are reported separately
     private BigDecimal balance;
+    private BigDecimal heldBalance;
     private String currency;
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+package com.example.ppps.controller;
+
+import com.example.ppps.entity.User;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.StatementFormat;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.UserRepository;
+import com.example.ppps.service.StatementExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+// Statement downloads. The body is streamed from a database cursor after the handler returns, so a
+// statement of any size is written in constant memory; gzip=true compresses it on the way out.
+@RestController
+public class StatementController {
+
+    @Autowired
+    private StatementExportService statementExportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    // the signed-in user's own wallet, oldest first, with the running balance after each transaction
+    @GetMapping("/api/v1/statements/export")
+    public ResponseEntity<StreamingResponseBody> exportMyStatement(
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            Authentication authentication) {
+        Wallet wallet = userRepository.findById(authentication.getName())
+                .map(User::getWallet)
+                .orElseThrow(() -> new PppsException(HttpStatus.NOT_FOUND, "Wallet not found"));
+        StatementFormat statementFormat = StatementExportService.format(format);
+        return download("statement-" + wallet.getId(), statementFormat, gzip,
+                statementExportService.walletStatement(wallet.getId(), from, to, statementFormat, gzip));
+    }
+
+    // finance: one wallet's statement, or every transaction in the range when no wallet is given
+    @GetMapping("/api/v1/admin/statements/export")
+    public ResponseEntity<StreamingResponseBody> exportForFinance(
+            @RequestParam(required = false) UUID walletId,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+        StatementFormat statementFormat = StatementExportService.format(format);
+        if (walletId != null) {
+            return download("statement-" + walletId, statementFormat, gzip,
+                    statementExportService.walletStatement(walletId, from, to, statementFormat, gzip));
+        }
+        return download("transactions", statementFormat, gzip,
+                statementExportService.transactionsExport(from, to, statementFormat, gzip));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> download(String name, StatementFormat format, boolean gzip,
+                                                                  StreamingResponseBody body) {
+        String filename = name + "-" + LocalDate.now(ZoneOffset.UTC) + "." + format.extension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.contentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+}
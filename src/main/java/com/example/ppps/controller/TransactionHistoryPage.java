@@ -0,0 +1,15 @@
+package com.example.ppps.controller;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionHistoryPage {
+    private List<TransactionHistoryResponse> transactions;
+    // null on the last page
+    private String nextPageToken;
+}
@@ -17,4 +17,10 @@ public class TransactionHistoryResponse {
     private BigDecimal amount;
     private String status;
     private Instant initiatedAt;
+    // the requesting wallet's view of the transaction, from wallet_activity
+    private String direction;
+    private UUID counterpartyWalletId;
+    private BigDecimal signedAmount;
+    private BigDecimal balanceAfter;
+    private Instant occurredAt;
 }
\ No newline at end of file
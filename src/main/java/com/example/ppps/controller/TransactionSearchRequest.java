@@ -13,4 +13,6 @@ public class TransactionSearchRequest {
     private BigDecimal maxAmount;
     private Integer pageNumber;
     private Integer pageSize;
+    // opaque cursor from the previous page; takes precedence over pageNumber
+    private String pageToken;
 }
\ No newline at end of file
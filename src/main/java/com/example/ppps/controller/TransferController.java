@@ -1,21 +1,34 @@
 package com.example.ppps.controller;
 
+import com.example.ppps.dto.TransferSubmission;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferSubmissionStatus;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.service.AsyncTransferService;
 import com.example.ppps.service.BalanceService;
 import com.example.ppps.service.TransactionHistoryService;
 import com.example.ppps.service.TransferService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/v1")
 public class TransferController {
 
+    private static final long MAX_WAIT_SECONDS = 30;
+
     @Autowired
     private TransferService transferService;
 
@@ -25,18 +38,38 @@ public class TransferController {
     @Autowired
     private BalanceService balanceService;
 
+    @Autowired
+    private AsyncTransferService asyncTransferService;
+
+    // with an Idempotency-Key the transfer runs in the background: 202 now, poll /transfers/{transferId} for the result
     @PostMapping("/transfers")
-    public ResponseEntity<?> transfer(@RequestBody TransferRequest request) {
+    public ResponseEntity<?> transfer(@RequestBody TransferRequest request,
+                                      @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                      Authentication authentication) {
+        if (idempotencyKey != null) {
+            return submitAsync(request, idempotencyKey, authentication);
+        }
         try {
-            transferService.executeP2PTransfer(
+            Transaction transaction = transferService.executeP2PTransfer(
                     request.getReceiverPhoneNumber(),
                     request.getAmount(),
                     request.getSecurePin(),
                     request.getNarration()
             );
+            if (transaction.getStatus() == TransactionStatus.FAILED) {
+                return ResponseEntity.badRequest().body(Map.of(
+                        "status", "error",
+                        "message", "Transfer was declined by the payment gateway and has been reversed",
+                        "transactionId", transaction.getId()
+                ));
+            }
             return ResponseEntity.ok(Map.of(
                     "status", "success",
-                    "message", "Transfer completed successfully"
+                    "message", transaction.getStatus() == TransactionStatus.SUCCESS
+                            ? "Transfer completed successfully"
+                            : "Transfer accepted and is being processed",
+                    "transactionId", transaction.getId(),
+                    "transactionStatus", transaction.getStatus()
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
@@ -46,13 +79,76 @@ public class TransferController {
         }
     }
 
+    // long-poll: waitSeconds > 0 holds the request (not the servlet thread) until the transfer finishes or time runs out
+    @GetMapping("/transfers/{transferId}")
+    public DeferredResult<ResponseEntity<?>> getTransferStatus(@PathVariable UUID transferId,
+                                                               @RequestParam(defaultValue = "0") long waitSeconds,
+                                                               Authentication authentication) {
+        TransferSubmission current = asyncTransferService.find(transferId)
+                .filter(submission -> submission.getUserId().equals(authentication.getName()))
+                .orElseThrow(() -> new PppsException(HttpStatus.NOT_FOUND, "Transfer not found: " + transferId));
+
+        long wait = Math.min(Math.max(waitSeconds, 0), MAX_WAIT_SECONDS);
+        DeferredResult<ResponseEntity<?>> result = new DeferredResult<>(wait * 1000 + 1000);
+        result.onTimeout(() -> result.setResult(submissionResponse(
+                asyncTransferService.find(transferId).orElse(current))));
+
+        if (wait == 0) {
+            result.setResult(submissionResponse(current));
+        } else {
+            asyncTransferService.awaitCompletion(current)
+                    .completeOnTimeout(current, wait, TimeUnit.SECONDS)
+                    .thenAccept(latest -> result.setResult(submissionResponse(
+                            latest.isFinished() ? latest : asyncTransferService.find(transferId).orElse(latest))));
+        }
+        return result;
+    }
+
+    private ResponseEntity<?> submitAsync(TransferRequest request, String idempotencyKey, Authentication authentication) {
+        try {
+            AsyncTransferService.Submission submission =
+                    asyncTransferService.submit(authentication.getName(), idempotencyKey, request);
+            return submissionResponse(submission.submission());
+        } catch (PppsException e) {
+            return ResponseEntity.status(e.getStatus()).body(Map.of(
+                    "status", "error",
+                    "message", e.getMessage()
+            ));
+        }
+    }
+
+    // 202 while running; once finished, the same answer the synchronous endpoint would have given
+    private ResponseEntity<?> submissionResponse(TransferSubmission submission) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", submission.getStatus() == TransferSubmissionStatus.FAILED ? "error"
+                : submission.isFinished() ? "success" : "accepted");
+        body.put("message", submission.getMessage());
+        body.put("transferId", submission.getTransferId());
+        body.put("transferStatus", submission.getStatus());
+        body.put("statusUrl", "/api/v1/transfers/" + submission.getTransferId());
+        if (submission.getTransactionId() != null) {
+            body.put("transactionId", submission.getTransactionId());
+            body.put("transactionStatus", submission.getTransactionStatus());
+        }
+
+        if (!submission.isFinished()) {
+            return ResponseEntity.accepted().body(body);
+        }
+        if (submission.getStatus() == TransferSubmissionStatus.FAILED) {
+            return ResponseEntity.status(submission.getErrorStatus() != null
+                    ? submission.getErrorStatus() : HttpStatus.BAD_REQUEST.value()).body(body);
+        }
+        return ResponseEntity.ok(body);
+    }
+
     @GetMapping("/balance/{walletId}")
     public BalanceResponse getBalance(@PathVariable UUID walletId) {
         return balanceService.getBalance(walletId);
     }
 
+    // newest first; pass the X-Next-Page-Token response header back as pageToken for the next page
     @GetMapping("/transactions/{walletId}")
-    public List<TransactionHistoryResponse> getTransactionHistory(
+    public ResponseEntity<List<TransactionHistoryResponse>> getTransactionHistory(
             @PathVariable UUID walletId,
             @RequestParam(required = false) Instant startDate,
             @RequestParam(required = false) Instant endDate,
@@ -60,7 +156,8 @@ public class TransferController {
             @RequestParam(required = false) BigDecimal minAmount,
             @RequestParam(required = false) BigDecimal maxAmount,
             @RequestParam(defaultValue = "0") Integer pageNumber,
-            @RequestParam(defaultValue = "10") Integer pageSize) {
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String pageToken) {
         TransactionSearchRequest filters = new TransactionSearchRequest();
         filters.setStartDate(startDate);
         filters.setEndDate(endDate);
@@ -69,6 +166,12 @@ public class TransferController {
         filters.setMaxAmount(maxAmount);
         filters.setPageNumber(pageNumber);
         filters.setPageSize(pageSize);
-        return transactionHistoryService.getTransactionsForWallet(walletId, filters);
+        filters.setPageToken(pageToken);
+        TransactionHistoryPage page = transactionHistoryService.getTransactionHistory(walletId, filters);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextPageToken() != null) {
+            response.header("X-Next-Page-Token", page.getNextPageToken());
+        }
+        return response.body(page.getTransactions());
     }
 }
\ No newline at end of file
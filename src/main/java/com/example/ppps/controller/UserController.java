@@ -166,7 +166,8 @@ public class UserController {
             @RequestParam(required = false) BigDecimal minAmount,
             @RequestParam(required = false) BigDecimal maxAmount,
             @RequestParam(defaultValue = "0") Integer pageNumber,
-            @RequestParam(defaultValue = "10") Integer pageSize) {
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String pageToken) {
 
         Authentication auth = SecurityContextHolder.getContext().getAuthentication();
         if (auth == null || auth.getName() == null) {
@@ -203,10 +204,14 @@ public class UserController {
             filters.setMaxAmount(maxAmount);
             filters.setPageNumber(pageNumber);
             filters.setPageSize(pageSize);
+            filters.setPageToken(pageToken);
 
             List<TransactionHistoryResponse> transactions;
+            String nextPageToken = null;
             try {
-                transactions = transactionHistoryService.getTransactionsForWallet(wallet.getId(), filters);
+                TransactionHistoryPage page = transactionHistoryService.getTransactionHistory(wallet.getId(), filters);
+                transactions = page.getTransactions();
+                nextPageToken = page.getNextPageToken();
             } catch (Exception queryEx) {
                 // If query fails, return empty list
                 logger.warn("Transaction query failed, returning empty list: {}", queryEx.getMessage());
@@ -216,9 +221,8 @@ public class UserController {
             // let's format transactions for frontend
             List<Map<String, Object>> formattedTransactions = transactions.stream()
                     .map(t -> {
-                        //let's determine transaction type based on sender/receiver
-                        boolean isSender = t.getSenderWalletId() != null &&
-                                t.getSenderWalletId().equals(wallet.getId());
+                        // the projection already knows which side of the transaction this wallet is on
+                        boolean isSender = "SENT".equals(t.getDirection());
                         String type = isSender ? "P2P_SENT" : "P2P_RECEIVED";
 
                         Map<String, Object> map = new HashMap<>();
@@ -226,10 +230,12 @@ public class UserController {
                         map.put("type", type);
                         map.put("amount", t.getAmount());
                         map.put("status", t.getStatus());
+                        map.put("signedAmount", t.getSignedAmount());
+                        map.put("balanceAfter", t.getBalanceAfter());
                         map.put("createdAt", t.getInitiatedAt() != null ? t.getInitiatedAt().toString() : "");
                         map.put("narration", isSender ?
-                                "Sent to wallet " + (t.getReceiverWalletId() != null ? t.getReceiverWalletId().toString() : "Unknown") :
-                                "Received from wallet " + (t.getSenderWalletId() != null ? t.getSenderWalletId().toString() : "Unknown"));
+                                "Sent to wallet " + (t.getCounterpartyWalletId() != null ? t.getCounterpartyWalletId().toString() : "Unknown") :
+                                "Received from wallet " + (t.getCounterpartyWalletId() != null ? t.getCounterpartyWalletId().toString() : "Unknown"));
                         return map;
                     })
                     .collect(Collectors.toList());
@@ -237,6 +243,7 @@ public class UserController {
             Map<String, Object> response = new HashMap<>();
             response.put("status", "success");
             response.put("transactions", formattedTransactions);
+            response.put("nextPageToken", nextPageToken);
             logger.info("Retrieved {} transactions for user: {}",
                     formattedTransactions.size(), userId);
             return ResponseEntity.ok(response);
@@ -0,0 +1,7 @@
+package com.example.ppps.dto;
+
+import java.util.List;
+
+// a page of an admin listing; nextPageToken is null on the last page
+public record AdminPage<T>(List<T> items, String nextPageToken) {
+}
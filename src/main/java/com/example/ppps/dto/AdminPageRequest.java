@@ -0,0 +1,13 @@
+package com.example.ppps.dto;
+
+import com.example.ppps.enums.AdminSort;
+
+// one keyset page of an admin listing: rows strictly after (afterValue, afterId) in the given order,
+// or the first page when afterId is null
+public record AdminPageRequest(
+        AdminSort sort,
+        boolean descending,
+        Object afterValue,
+        String afterId,
+        int limit) {
+}
@@ -0,0 +1,11 @@
+package com.example.ppps.dto;
+
+import java.math.BigDecimal;
+
+// dashboard totals, computed in the database rather than by downloading every list
+public record AdminStats(
+        long users,
+        long wallets,
+        BigDecimal totalBalance,
+        long pendingTransactions) {
+}
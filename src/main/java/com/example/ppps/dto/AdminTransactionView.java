@@ -0,0 +1,32 @@
+package com.example.ppps.dto;
+
+import com.example.ppps.enums.AdminSort;
+import com.example.ppps.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// one row of the admin transaction and withdrawal lists; userId/userPhone belong to the sender, joined in
+// the page query, while receiverPhone is filled in afterwards from WalletOwnerDirectory
+public record AdminTransactionView(
+        UUID id,
+        String userId,
+        String userPhone,
+        UUID senderWalletId,
+        UUID receiverWalletId,
+        String receiverPhone,
+        BigDecimal amount,
+        BigDecimal fee,
+        TransactionStatus status,
+        Instant createdAt) {
+
+    public Object sortValue(AdminSort sort) {
+        return sort == AdminSort.AMOUNT ? amount : createdAt;
+    }
+
+    public AdminTransactionView withReceiverPhone(String phone) {
+        return new AdminTransactionView(id, userId, userPhone, senderWalletId, receiverWalletId, phone,
+                amount, fee, status, createdAt);
+    }
+}
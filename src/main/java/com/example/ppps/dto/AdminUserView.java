@@ -0,0 +1,19 @@
+package com.example.ppps.dto;
+
+import com.example.ppps.entity.User;
+import com.example.ppps.enums.AdminSort;
+
+import java.util.UUID;
+
+// one row of the admin user list, read straight from the users table without loading the wallet
+public record AdminUserView(
+        String id,
+        String phoneNumber,
+        User.UserRole role,
+        UUID walletId,
+        boolean active) {
+
+    public Object sortValue(AdminSort sort) {
+        return phoneNumber;
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ppps.dto;
+
+import com.example.ppps.enums.AdminSort;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// one row of the admin wallet list, joined to the owning user for the phone number
+public record AdminWalletView(
+        UUID id,
+        String userId,
+        BigDecimal balance,
+        String currency,
+        String userPhone,
+        Instant createdAt) {
+
+    public Object sortValue(AdminSort sort) {
+        return sort == AdminSort.BALANCE ? balance : createdAt;
+    }
+
+    public AdminWalletView withBalance(BigDecimal reported) {
+        return new AdminWalletView(id, userId, reported, currency, userPhone, createdAt);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.ppps.dto;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// one audit_log row as returned by search and export, read as scalars rather than entities
+public record AuditLogEntry(
+        UUID id,
+        Instant timestamp,
+        String actorId,
+        String action,
+        String entityName,
+        String entityId,
+        String details) {
+}
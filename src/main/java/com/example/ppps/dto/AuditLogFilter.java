@@ -0,0 +1,13 @@
+package com.example.ppps.dto;
+
+import java.time.Instant;
+
+// audit log search criteria; null fields match everything, the time range is [from, to)
+public record AuditLogFilter(
+        String actorId,
+        String action,
+        String entityName,
+        String entityId,
+        Instant from,
+        Instant to) {
+}
@@ -0,0 +1,13 @@
+package com.example.ppps.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// a wallet whose stored balance disagrees with the balance derived from its ledger entries
+public record BalanceDrift(UUID walletId, BigDecimal storedBalance, BigDecimal derivedBalance) {
+
+    // positive when the wallet holds more than its ledger accounts for
+    public BigDecimal drift() {
+        return storedBalance.subtract(derivedBalance);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.ppps.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// a wallet's balances as held by BalanceCache. generation is the wallet's invalidation count in Redis when
+// the row was read; a cached copy whose generation is behind the current one is never served
+public record CachedBalance(UUID walletId, BigDecimal balance, BigDecimal heldBalance, String currency,
+                            long generation, Instant loadedAt) {
+
+    public BigDecimal available() {
+        return balance.subtract(heldBalance);
+    }
+
+    public CachedBalance withGeneration(long generation) {
+        return new CachedBalance(walletId, balance, heldBalance, currency, generation, loadedAt);
+    }
+}
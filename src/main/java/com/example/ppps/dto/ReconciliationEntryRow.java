@@ -0,0 +1,7 @@
+package com.example.ppps.dto;
+
+import java.util.UUID;
+
+// one ledger entry as the reconciliation stream reads it: kobo, debits negative
+public record ReconciliationEntryRow(UUID transactionId, long signedMinorUnits) {
+}
@@ -0,0 +1,26 @@
+package com.example.ppps.dto;
+
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferState;
+import java.time.Instant;
+import java.util.UUID;
+
+// what reconciliation needs of a transaction to know how its entries should net out; amounts in kobo
+public record ReconciliationTransactionRow(
+        UUID id,
+        Kind kind,
+        long amountMinorUnits,
+        long reservedMinorUnits,
+        TransactionStatus status,
+        TransferState transferState,
+        Instant initiatedAt) {
+
+    // from the wallets on either side: a deposit has the same wallet on both, a withdrawal pays out to the
+    // platform wallet. Without a platform wallet, withdrawals also stay on the user's wallet, so neither
+    // can be told from the other and both come through as OTHER, along with transfers
+    public enum Kind {
+        DEPOSIT,
+        WITHDRAWAL,
+        OTHER
+    }
+}
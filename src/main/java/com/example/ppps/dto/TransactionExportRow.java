@@ -0,0 +1,17 @@
+package com.example.ppps.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// one transactions row as written by the finance export
+public record TransactionExportRow(
+        UUID transactionId,
+        UUID senderWalletId,
+        UUID receiverWalletId,
+        BigDecimal amount,
+        BigDecimal fee,
+        String status,
+        String transferState,
+        Instant initiatedAt) {
+}
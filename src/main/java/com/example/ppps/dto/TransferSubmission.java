@@ -0,0 +1,39 @@
+package com.example.ppps.dto;
+
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferSubmissionStatus;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// What the idempotency store keeps for an async transfer; replayed verbatim for duplicate Idempotency-Keys
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferSubmission {
+    private UUID transferId;
+    private String userId;
+    private String idempotencyKey;
+    private String requestHash;
+    private String receiverPhoneNumber;
+    private BigDecimal amount;
+    private TransferSubmissionStatus status;
+    private UUID transactionId;
+    private TransactionStatus transactionStatus;
+    private String message;
+    // HTTP status the synchronous endpoint would have answered with, for failed submissions
+    private Integer errorStatus;
+    private Instant submittedAt;
+    private Instant updatedAt;
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status != null && status.isFinished();
+    }
+}
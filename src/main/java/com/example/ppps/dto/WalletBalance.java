@@ -0,0 +1,12 @@
+package com.example.ppps.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// a wallet's balances straight from a conditional UPDATE .. RETURNING; balance includes what is held
+public record WalletBalance(UUID walletId, BigDecimal balance, BigDecimal heldBalance) {
+
+    public BigDecimal available() {
+        return balance.subtract(heldBalance);
+    }
+}
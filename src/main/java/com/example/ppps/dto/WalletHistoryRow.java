@@ -0,0 +1,22 @@
+package com.example.ppps.dto;
+
+import com.example.ppps.enums.ActivityDirection;
+import com.example.ppps.enums.TransactionStatus;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// one wallet_activity row joined to its transaction, as read by the history page query
+public record WalletHistoryRow(
+        UUID transactionId,
+        UUID senderWalletId,
+        UUID receiverWalletId,
+        BigDecimal amount,
+        TransactionStatus status,
+        Instant initiatedAt,
+        ActivityDirection direction,
+        UUID counterpartyWalletId,
+        BigDecimal signedAmount,
+        BigDecimal balanceAfter,
+        Instant occurredAt) {
+}
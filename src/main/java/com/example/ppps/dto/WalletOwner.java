@@ -0,0 +1,7 @@
+package com.example.ppps.dto;
+
+import java.util.UUID;
+
+// who holds a wallet; userId and phoneNumber are null for wallets no user owns (platform, fee shards)
+public record WalletOwner(UUID walletId, String userId, String phoneNumber) {
+}
@@ -5,6 +5,8 @@ import lombok.*;
 import java.time.Instant;
 import java.util.UUID;
 
+// audit_log is range-partitioned by month on timestamp (AuditLogPartitionService), so the table's primary
+// key is (id, timestamp); id is still unique on its own. Indexes are declared on the partitioned parent there.
 @Entity
 @Table(name = "audit_log")
 @Getter
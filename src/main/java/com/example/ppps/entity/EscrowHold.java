@@ -0,0 +1,46 @@
+package com.example.ppps.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import java.time.Instant;
+import java.util.UUID;
+
+// One row per escrow transfer whose principal is still held. The row is deleted in the same database
+// transaction that releases, cancels or compensates the transfer, so the table only ever holds live holds
+// and the release sweep reads a short index range instead of the transactions table.
+@Entity
+@Table(name = "escrow_holds",
+        indexes = @Index(name = "idx_escrow_holds_release_at", columnList = "releaseAt"))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EscrowHold {
+
+    @Id
+    private UUID transactionId;
+
+    // the transaction's partition key: the release claim joins on it so each hold opens a single month of
+    // transactions. Null only on holds written before it existed, until the startup backfill fills them in
+    @Column(updatable = false)
+    private Instant transactionInitiatedAt;
+
+    @Column(nullable = false)
+    private Instant releaseAt;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    // the principal sits in the sender's heldBalance. False only for holds backfilled from before held
+    // balances existed, whose principal was merely checked, never reserved
+    @ColumnDefault("false")
+    @Column(nullable = false)
+    private boolean fundsHeld;
+
+    // releases that failed so far; each one pushes releaseAt further back so the hold stops heading the claim
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private int releaseAttempts;
+}
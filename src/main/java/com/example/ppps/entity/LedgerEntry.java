@@ -12,7 +12,12 @@ import java.util.UUID;
 @Getter
 @Setter
 @AllArgsConstructor
-@Table(name = "ledger_entries")
+@Table(name = "ledger_entries", indexes = {
+        // per-wallet scans: the wallet_activity backfill and balance checks
+        @Index(name = "idx_ledger_entries_wallet_created_at", columnList = "walletId, createdAt"),
+        // reconciliation reads the entries of one transaction id range at a time
+        @Index(name = "idx_ledger_entries_transaction_id", columnList = "transactionId")
+})
 public class LedgerEntry {
 
     @Id
@@ -34,6 +39,8 @@ public class LedgerEntry {
     @Column(nullable = false, columnDefinition = "Decimal(15,2)")
     private BigDecimal amount;
 
+    // the partition key: ledger_entries is partitioned by month on it
+    @Column(nullable = false)
     private Instant createdAt;
 
     // constructor for JPA
@@ -0,0 +1,43 @@
+package com.example.ppps.entity;
+
+import com.example.ppps.enums.LedgerImbalanceType;
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// a transaction that failed reconciliation in one run
+@Entity
+@Table(name = "ledger_reconciliation_issues",
+        indexes = @Index(name = "idx_ledger_reconciliation_issues_run_type", columnList = "runId, type"))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerReconciliationIssue {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID runId;
+
+    @Column(nullable = false)
+    private UUID transactionId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private LedgerImbalanceType type;
+
+    // signed sum of the transaction's entries: credits and fee revenue positive, debits negative
+    @Column(nullable = false, columnDefinition = "Decimal(15,2)")
+    private BigDecimal netAmount;
+
+    // the transaction's own amount; null for orphan entries
+    @Column(columnDefinition = "Decimal(15,2)")
+    private BigDecimal transactionAmount;
+
+    private int entryCount;
+}
@@ -0,0 +1,63 @@
+package com.example.ppps.entity;
+
+import com.example.ppps.enums.ReconciliationRunStatus;
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.UUID;
+
+// One end-of-day reconciliation: what was scanned and how many transactions failed each check.
+// The counts are complete; the issue rows behind them are capped (app.ledger.reconciliation.max-issues)
+@Entity
+@Table(name = "ledger_reconciliation_runs",
+        indexes = @Index(name = "idx_ledger_reconciliation_runs_business_date", columnList = "businessDate"))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LedgerReconciliationRun {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private LocalDate businessDate;
+
+    // transactions initiated at or after this are left for the next run
+    @Column(nullable = false)
+    private Instant cutoff;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ReconciliationRunStatus status;
+
+    @Column(nullable = false)
+    private Instant startedAt;
+
+    private Instant finishedAt;
+
+    private int partitions;
+
+    private long entriesScanned;
+
+    private long transactionsScanned;
+
+    private long missingEntries;
+
+    private long orphanEntries;
+
+    private long unbalancedTransfers;
+
+    private long unbalancedExternal;
+
+    private long stuckInFlight;
+
+    private String failureReason;
+
+    public long totalIssues() {
+        return missingEntries + orphanEntries + unbalancedTransfers + unbalancedExternal + stuckInFlight;
+    }
+}
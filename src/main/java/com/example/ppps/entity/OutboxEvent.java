@@ -0,0 +1,58 @@
+package com.example.ppps.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+import java.util.UUID;
+
+// A Kafka event written in the same database transaction as the money movement it describes.
+// OutboxRelay publishes unsent rows and stamps sentAt. A failed send pushes nextAttemptAt back; after
+// too many attempts the row is dead-lettered with failedAt and left for an operator.
+// The relay's claim index is partial -- see V2__outbox_retry_backoff.sql.
+@Entity
+@Table(name = "outbox_events", indexes = {
+        @Index(name = "idx_outbox_sent_at_created_at", columnList = "sentAt, createdAt")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(nullable = false)
+    private String eventKey;
+
+    // fully-qualified event class, so the relay can hand Kafka the same object type the producer would have
+    @Column(nullable = false)
+    private String eventType;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(nullable = false, updatable = false)
+    private Instant createdAt;
+
+    private Instant sentAt;
+
+    // not claimed before this; createdAt until the first failure
+    @Column(nullable = false)
+    private Instant nextAttemptAt;
+
+    // dead-lettered: never claimed again
+    private Instant failedAt;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private int attempts = 0;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+}
@@ -1,6 +1,7 @@
 package com.example.ppps.entity;
 
 import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferState;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.GenericGenerator;
@@ -8,12 +9,19 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
+// partitioned by month on initiatedAt (see LedgerPartitionService): the table's primary key is
+// (id, initiated_at), and reads that bound initiatedAt only open the months they need
 @Entity
 @Data
 @Table(name = "transactions", indexes = {
-        @Index(name = "idx_sender_wallet_id", columnList = "senderWalletId"),
-        @Index(name = "idx_receiver_wallet_id", columnList = "receiverWalletId"),
-        @Index(name = "idx_initiated_at", columnList = "initiatedAt")
+        // per-wallet lookups on either side, newest first; paged history reads wallet_activity instead
+        @Index(name = "idx_sender_wallet_initiated_at_id", columnList = "senderWalletId, initiatedAt, id"),
+        @Index(name = "idx_receiver_wallet_initiated_at_id", columnList = "receiverWalletId, initiatedAt, id"),
+        @Index(name = "idx_initiated_at", columnList = "initiatedAt"),
+        // admin queues (pending first page, newest first) seek by status without sorting
+        @Index(name = "idx_status_initiated_at_id", columnList = "status, initiatedAt, id"),
+        @Index(name = "idx_transfer_state_changed_at", columnList = "transferState, stateChangedAt")
+        // plus idx_transactions_pending_initiated_at, partial on status = 'PENDING': see V1__baseline_schema.sql
 })
 public class Transaction {
     @Id
@@ -37,4 +45,36 @@ public class Transaction {
 
     @Column(nullable = false)
     private Instant initiatedAt;
-}
\ No newline at end of file
+
+    // two-phase transfer bookkeeping -- null for deposits, withdrawals and legacy transfers
+    @Enumerated(EnumType.STRING)
+    private TransferState transferState;
+
+    private Instant stateChangedAt;
+
+    private BigDecimal fee;
+
+    private Boolean escrow;
+
+    private Integer recoveryAttempts;
+
+    // moves the transfer along its state machine, rejecting illegal jumps (e.g. COMPENSATED -> COMPLETED)
+    public void transitionTo(TransferState next) {
+        if (transferState != null && !transferState.canTransitionTo(next)) {
+            throw new IllegalStateException(String.format(
+                    "Illegal transfer state transition %s -> %s for transaction %s", transferState, next, id));
+        }
+        this.transferState = next;
+        this.stateChangedAt = Instant.now();
+    }
+
+    public boolean isEscrowTransfer() {
+        return Boolean.TRUE.equals(escrow);
+    }
+
+    // what phase one took from the sender: the fee only for escrow, amount + fee otherwise
+    public BigDecimal reservedDebit() {
+        BigDecimal safeFee = fee == null ? BigDecimal.ZERO : fee;
+        return isEscrowTransfer() ? safeFee : amount.add(safeFee);
+    }
+}
@@ -2,6 +2,7 @@ package com.example.ppps.entity;
 
 import jakarta.persistence.*;
 import lombok.Data;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.UpdateTimestamp;
@@ -12,7 +13,9 @@ import java.util.UUID;
 @Entity
 @Data
 @Table(name = "wallets", indexes = {
-        @Index(name = "idx_user_id", columnList = "userId")
+        @Index(name = "idx_user_id", columnList = "userId"),
+        // admin wallet listing pages by (createdAt, id); balance is deliberately not indexed, it changes on every transfer
+        @Index(name = "idx_wallets_created_at_id", columnList = "createdAt, id")
 })
 public class Wallet {
 
@@ -24,9 +27,16 @@ public class Wallet {
     @Column(nullable = false)
     private UUID userId;
 
+    // everything in the wallet, held funds included -- the ledger's running balance
     @Column(nullable = false)
     private BigDecimal balance;
 
+    // part of balance reserved for pending escrow holds; spendable funds are balance - heldBalance.
+    // Changed only by the conditional updates in WalletBalanceQueries or under a wallet row lock
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private BigDecimal heldBalance;
+
     @Column(nullable = false)
     private String currency;
 
@@ -41,6 +51,11 @@ public class Wallet {
     // default constructor, JPA needs it
     public Wallet() {
         this.balance = BigDecimal.ZERO;
+        this.heldBalance = BigDecimal.ZERO;
         this.currency = "NGN";
     }
+
+    public BigDecimal getAvailableBalance() {
+        return balance.subtract(heldBalance);
+    }
 }
\ No newline at end of file
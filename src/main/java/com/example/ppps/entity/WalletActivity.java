@@ -0,0 +1,57 @@
+package com.example.ppps.entity;
+
+import com.example.ppps.enums.ActivityDirection;
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// Read-side projection of the ledger: one row per wallet per transaction, written in the same database
+// transaction as the ledger entries it summarises. Wallet history is a single range scan of
+// (walletId, occurredAt, transactionId) instead of a union over the sender and receiver columns.
+@Entity
+@Table(name = "wallet_activity",
+        uniqueConstraints = @UniqueConstraint(name = "uk_wallet_activity_wallet_transaction",
+                columnNames = {"walletId", "transactionId"}),
+        indexes = @Index(name = "idx_wallet_activity_wallet_occurred_at_tx",
+                columnList = "walletId, occurredAt, transactionId"))
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletActivity {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(nullable = false)
+    private UUID walletId;
+
+    @Column(nullable = false)
+    private UUID transactionId;
+
+    // the transaction's partition key, so reads join transactions on (id, initiated_at); null for sweeps
+    @Column(updatable = false)
+    private Instant transactionInitiatedAt;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ActivityDirection direction;
+
+    // null for fee revenue, sweeps and withdrawals paid out of the wallet itself
+    private UUID counterpartyWalletId;
+
+    // net effect of the transaction on this wallet: credits positive, debits negative
+    @Column(nullable = false, columnDefinition = "Decimal(15,2)")
+    private BigDecimal signedAmount;
+
+    // wallet balance once the transaction's latest entry for this wallet was applied
+    @Column(nullable = false, columnDefinition = "Decimal(15,2)")
+    private BigDecimal balanceAfter;
+
+    @Column(nullable = false, updatable = false)
+    private Instant occurredAt;
+}
@@ -0,0 +1,33 @@
+package com.example.ppps.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+// A wallet's ledger balance folded up to asOf: the signed sum of every ledger entry created at or before it.
+// The derived balance is this plus the entries created since, one short range scan of
+// idx_ledger_entries_wallet_created_at. Only the latest snapshot per wallet is kept.
+@Entity
+@Table(name = "wallet_balance_snapshots")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WalletBalanceSnapshot {
+
+    @Id
+    private UUID walletId;
+
+    @Column(nullable = false, columnDefinition = "Decimal(15,2)")
+    private BigDecimal balance;
+
+    // entries created after this instant are not in the snapshot yet
+    @Column(nullable = false)
+    private Instant asOf;
+
+    @Column(nullable = false)
+    private Instant takenAt;
+}
@@ -0,0 +1,7 @@
+package com.example.ppps.enums;
+
+// which side of the transaction a wallet_activity row is on; fixed by the wallet's first entry
+public enum ActivityDirection {
+    SENT,
+    RECEIVED
+}
@@ -0,0 +1,22 @@
+package com.example.ppps.enums;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// Sort keys offered by the admin listings. Every listing breaks ties on its id, so (key, id) is unique
+// and a page token only has to carry the last row's pair.
+public enum AdminSort {
+    CREATED_AT,
+    AMOUNT,
+    BALANCE,
+    PHONE;
+
+    // turns the key as written into a page token back into the value the SQL compares against
+    public Object parse(String value) {
+        return switch (this) {
+            case CREATED_AT -> Instant.parse(value);
+            case AMOUNT, BALANCE -> new BigDecimal(value);
+            case PHONE -> value;
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.ppps.enums;
+
+// what the async audit writer does with a record when its buffer is full
+public enum AuditOverflowPolicy {
+    // discard the record and count it
+    DROP,
+    // wait up to the offer timeout for room, then discard and count it
+    BLOCK,
+    // write the record on the caller's thread, inside the caller's transaction
+    CALLER_WRITES
+}
@@ -0,0 +1,9 @@
+package com.example.ppps.enums;
+
+// how a money-moving operation changes a wallet balance; chosen per operation under app.wallet.balance-strategy
+public enum BalanceUpdateStrategy {
+    // SELECT ... FOR UPDATE, arithmetic in Java, then UPDATE: two round trips, row locked across application code
+    LOCKED,
+    // one UPDATE ... WHERE <funds suffice> RETURNING: the check and the change are a single statement
+    CONDITIONAL
+}
@@ -0,0 +1,15 @@
+package com.example.ppps.enums;
+
+// why a transaction's ledger entries do not add up to what the transaction says happened
+public enum LedgerImbalanceType {
+    // settled (SUCCESS) but no ledger entries at all
+    MISSING_ENTRIES,
+    // entries under an id with no transaction row that do not net to zero (sweeps do, so they never show up here)
+    ORPHAN_ENTRIES,
+    // a two-phase transfer whose entries do not net to zero
+    UNBALANCED_TRANSFER,
+    // a deposit or withdrawal whose entries net to neither zero nor the amount that entered or left
+    UNBALANCED_EXTERNAL,
+    // a transfer from before the cutoff still reserved: its entries match, but it never completed or compensated
+    STUCK_IN_FLIGHT
+}
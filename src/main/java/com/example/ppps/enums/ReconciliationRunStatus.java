@@ -0,0 +1,7 @@
+package com.example.ppps.enums;
+
+public enum ReconciliationRunStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,29 @@
+package com.example.ppps.enums;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// lifecycle of a two-phase P2P transfer: funds are reserved first, the gateway is called
+// with no wallet locks held, then the transfer is either completed or compensated
+public enum TransferState {
+    RESERVED,
+    GATEWAY_PENDING,
+    COMPLETED,
+    COMPENSATED;
+
+    public Set<TransferState> allowedTransitions() {
+        return switch (this) {
+            case RESERVED -> EnumSet.of(GATEWAY_PENDING, COMPLETED, COMPENSATED);
+            case GATEWAY_PENDING -> EnumSet.of(COMPLETED, COMPENSATED);
+            case COMPLETED, COMPENSATED -> EnumSet.noneOf(TransferState.class);
+        };
+    }
+
+    public boolean canTransitionTo(TransferState next) {
+        return allowedTransitions().contains(next);
+    }
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == COMPENSATED;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.ppps.enums;
+
+// lifecycle of an asynchronously submitted transfer, as seen by the polling client
+public enum TransferSubmissionStatus {
+    ACCEPTED,
+    PROCESSING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.AdminPageRequest;
+import com.example.ppps.dto.AdminStats;
+import com.example.ppps.dto.AdminTransactionView;
+import com.example.ppps.dto.AdminUserView;
+import com.example.ppps.dto.AdminWalletView;
+import com.example.ppps.entity.User;
+import com.example.ppps.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// Native SQL behind the admin listings. Each page is a single statement that joins rows to their owning
+// user, filters, and seeks past the (sort key, id) cursor; no entities are loaded, so nothing lazy or EAGER
+// fires per row. Null filters are ignored.
+public interface AdminViewQueries {
+
+    // sorts: PHONE
+    List<AdminUserView> findUserPage(User.UserRole role, String phonePrefix, AdminPageRequest page);
+
+    // sorts: CREATED_AT, BALANCE. excludedWalletIds hides internal wallets (fee shards)
+    List<AdminWalletView> findWalletPage(String currency, BigDecimal minBalance, BigDecimal maxBalance,
+                                         Collection<UUID> excludedWalletIds, AdminPageRequest page);
+
+    // sorts: CREATED_AT, AMOUNT. walletId matches either side; from/to bound initiatedAt as [from, to)
+    List<AdminTransactionView> findTransactionPage(TransactionStatus status, UUID walletId, Instant from, Instant to,
+                                                   AdminPageRequest page);
+
+    // one round trip for every dashboard counter
+    AdminStats stats(Collection<UUID> excludedWalletIds);
+}
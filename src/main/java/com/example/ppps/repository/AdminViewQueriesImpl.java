@@ -0,0 +1,216 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.AdminPageRequest;
+import com.example.ppps.dto.AdminStats;
+import com.example.ppps.dto.AdminTransactionView;
+import com.example.ppps.dto.AdminUserView;
+import com.example.ppps.dto.AdminWalletView;
+import com.example.ppps.entity.User;
+import com.example.ppps.enums.TransactionStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Spring Data picks this up as the implementation of AdminViewQueries for UserRepository.
+class AdminViewQueriesImpl implements AdminViewQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<AdminUserView> findUserPage(User.UserRole role, String phonePrefix, AdminPageRequest page) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder(
+                "SELECT u.user_id, u.phone_number, u.role, u.wallet_id FROM users u WHERE 1 = 1");
+        if (role != null) {
+            sql.append(" AND u.role = :role");
+            params.put("role", role.name());
+        }
+        if (phonePrefix != null) {
+            sql.append(" AND u.phone_number LIKE :phonePrefix");
+            params.put("phonePrefix", escapeLike(phonePrefix) + "%");
+        }
+        seek(sql, params, switch (page.sort()) {
+            case PHONE -> "u.phone_number";
+            default -> throw unsupported(page);
+        }, "u.user_id", page.afterId(), page);
+
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class)
+                .addScalar("user_id", StandardBasicTypes.STRING)
+                .addScalar("phone_number", StandardBasicTypes.STRING)
+                .addScalar("role", StandardBasicTypes.STRING)
+                .addScalar("wallet_id", StandardBasicTypes.UUID);
+        params.forEach(query::setParameter);
+        return query.getResultList().stream()
+                .map(row -> new AdminUserView(
+                        (String) row[0],
+                        (String) row[1],
+                        User.UserRole.valueOf((String) row[2]),
+                        (UUID) row[3],
+                        true))
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<AdminWalletView> findWalletPage(String currency, BigDecimal minBalance, BigDecimal maxBalance,
+                                                Collection<UUID> excludedWalletIds, AdminPageRequest page) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT w.id, w.user_id, w.balance, w.currency, u.phone_number,"
+                + " w.created_at FROM wallets w LEFT JOIN users u ON u.wallet_id = w.id WHERE 1 = 1");
+        excludeWallets(sql, params, "w.id", excludedWalletIds);
+        if (currency != null) {
+            sql.append(" AND w.currency = :currency");
+            params.put("currency", currency);
+        }
+        if (minBalance != null) {
+            sql.append(" AND w.balance >= :minBalance");
+            params.put("minBalance", minBalance);
+        }
+        if (maxBalance != null) {
+            sql.append(" AND w.balance <= :maxBalance");
+            params.put("maxBalance", maxBalance);
+        }
+        seek(sql, params, switch (page.sort()) {
+            case CREATED_AT -> "w.created_at";
+            case BALANCE -> "w.balance";
+            default -> throw unsupported(page);
+        }, "w.id", page.afterId() == null ? null : UUID.fromString(page.afterId()), page);
+
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("user_id", StandardBasicTypes.UUID)
+                .addScalar("balance", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("currency", StandardBasicTypes.STRING)
+                .addScalar("phone_number", StandardBasicTypes.STRING)
+                .addScalar("created_at", StandardBasicTypes.INSTANT);
+        params.forEach(query::setParameter);
+        return query.getResultList().stream()
+                .map(row -> new AdminWalletView(
+                        (UUID) row[0],
+                        row[1] == null ? null : row[1].toString(),
+                        (BigDecimal) row[2],
+                        (String) row[3],
+                        (String) row[4],
+                        (Instant) row[5]))
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<AdminTransactionView> findTransactionPage(TransactionStatus status, UUID walletId, Instant from,
+                                                          Instant to, AdminPageRequest page) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder("SELECT t.id, su.user_id, su.phone_number, t.sender_wallet_id,"
+                + " t.receiver_wallet_id, t.amount, t.fee, t.status, t.initiated_at"
+                + " FROM transactions t LEFT JOIN users su ON su.wallet_id = t.sender_wallet_id WHERE 1 = 1");
+        if (status != null) {
+            sql.append(" AND t.status = :status");
+            params.put("status", status.name());
+        }
+        if (walletId != null) {
+            sql.append(" AND (t.sender_wallet_id = :walletId OR t.receiver_wallet_id = :walletId)");
+            params.put("walletId", walletId);
+        }
+        if (from != null) {
+            sql.append(" AND t.initiated_at >= :from");
+            params.put("from", from);
+        }
+        if (to != null) {
+            sql.append(" AND t.initiated_at < :to");
+            params.put("to", to);
+        }
+        seek(sql, params, switch (page.sort()) {
+            case CREATED_AT -> "t.initiated_at";
+            case AMOUNT -> "t.amount";
+            default -> throw unsupported(page);
+        }, "t.id", page.afterId() == null ? null : UUID.fromString(page.afterId()), page);
+
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("user_id", StandardBasicTypes.STRING)
+                .addScalar("phone_number", StandardBasicTypes.STRING)
+                .addScalar("sender_wallet_id", StandardBasicTypes.UUID)
+                .addScalar("receiver_wallet_id", StandardBasicTypes.UUID)
+                .addScalar("amount", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("fee", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("status", StandardBasicTypes.STRING)
+                .addScalar("initiated_at", StandardBasicTypes.INSTANT);
+        params.forEach(query::setParameter);
+        return query.getResultList().stream()
+                .map(row -> new AdminTransactionView(
+                        (UUID) row[0],
+                        (String) row[1],
+                        (String) row[2],
+                        (UUID) row[3],
+                        (UUID) row[4],
+                        null,
+                        (BigDecimal) row[5],
+                        (BigDecimal) row[6],
+                        TransactionStatus.valueOf((String) row[7]),
+                        (Instant) row[8]))
+                .toList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public AdminStats stats(Collection<UUID> excludedWalletIds) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder wallets = new StringBuilder("SELECT count(*) FROM wallets w WHERE 1 = 1");
+        excludeWallets(wallets, params, "w.id", excludedWalletIds);
+        String sql = "SELECT (SELECT count(*) FROM users) AS users,"
+                + " (" + wallets + ") AS wallets,"
+                + " (SELECT COALESCE(SUM(balance), 0) FROM wallets) AS total_balance,"
+                + " (SELECT count(*) FROM transactions WHERE status = 'PENDING') AS pending";
+
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class)
+                .addScalar("users", StandardBasicTypes.LONG)
+                .addScalar("wallets", StandardBasicTypes.LONG)
+                .addScalar("total_balance", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("pending", StandardBasicTypes.LONG);
+        params.forEach(query::setParameter);
+        Object[] row = query.getSingleResult();
+        return new AdminStats((Long) row[0], (Long) row[1], (BigDecimal) row[2], (Long) row[3]);
+    }
+
+    // row comparison on (key, id) so the scan starts right after the cursor, then the matching ORDER BY
+    private static void seek(StringBuilder sql, Map<String, Object> params, String keyColumn, String idColumn,
+                             Object afterId, AdminPageRequest page) {
+        if (afterId != null) {
+            sql.append(" AND (").append(keyColumn).append(", ").append(idColumn).append(')')
+                    .append(page.descending() ? " < " : " > ").append("(:afterValue, :afterId)");
+            params.put("afterValue", page.afterValue());
+            params.put("afterId", afterId);
+        }
+        String direction = page.descending() ? " DESC" : " ASC";
+        sql.append(" ORDER BY ").append(keyColumn).append(direction).append(", ").append(idColumn).append(direction)
+                .append(" LIMIT :limit");
+        params.put("limit", page.limit());
+    }
+
+    private static void excludeWallets(StringBuilder sql, Map<String, Object> params, String column,
+                                       Collection<UUID> excludedWalletIds) {
+        if (excludedWalletIds != null && !excludedWalletIds.isEmpty()) {
+            sql.append(" AND ").append(column).append(" NOT IN (:excludedWalletIds)");
+            params.put("excludedWalletIds", excludedWalletIds);
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static IllegalArgumentException unsupported(AdminPageRequest page) {
+        return new IllegalArgumentException("Unsupported sort: " + page.sort());
+    }
+}
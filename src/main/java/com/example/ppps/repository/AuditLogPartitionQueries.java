@@ -0,0 +1,28 @@
+package com.example.ppps.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+// DDL for the monthly partitions of audit_log. Bounds are [from, to) on the timestamp column; partition
+// names are generated by AuditLogPartitionService and must be plain lower-case identifiers.
+public interface AuditLogPartitionQueries {
+
+    // transaction-scoped, so two nodes never run partition maintenance at once
+    boolean tryMaintenanceLock();
+
+    boolean isPartitioned();
+
+    // turns audit_log into a table partitioned by month. An existing plain table becomes the partition
+    // legacyPartition, covering everything before legacyUpperBound, so no row is copied
+    void convertToPartitioned(String legacyPartition, Instant legacyUpperBound);
+
+    // no-op when the partition already exists
+    void createPartition(String name, Instant from, Instant to);
+
+    List<String> partitionNames();
+
+    // detaches the partition and keeps it as a standalone table, out of every audit_log query
+    void archivePartition(String name, String archiveName);
+
+    void dropPartition(String name);
+}
@@ -0,0 +1,117 @@
+package com.example.ppps.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.regex.Pattern;
+
+// Spring Data picks this up as the implementation of AuditLogPartitionQueries for AuditLogRepository.
+// DDL takes no bind parameters, so names are checked against a strict pattern and bounds are rendered
+// from Instants rather than taken from callers as text.
+class AuditLogPartitionQueriesImpl implements AuditLogPartitionQueries {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z][a-z0-9_]{0,62}");
+    // arbitrary but fixed: every node contends for the same advisory lock
+    private static final long MAINTENANCE_LOCK_KEY = 0x61756469746c6fL;
+
+    // the primary key has to carry the partition column; ids stay unique on their own
+    private static final String PARENT_DDL = """
+            CREATE TABLE audit_log (
+                id uuid NOT NULL,
+                actor_id varchar(255) NOT NULL,
+                action varchar(255) NOT NULL,
+                entity_name varchar(255) NOT NULL,
+                entity_id varchar(255) NOT NULL,
+                details text,
+                "timestamp" timestamp(6) with time zone NOT NULL,
+                CONSTRAINT pk_audit_log PRIMARY KEY (id, "timestamp")
+            ) PARTITION BY RANGE ("timestamp")
+            """;
+
+    // created on the parent, so every partition gets them, including ones attached later
+    private static final List<String> INDEX_DDL = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_audit_log_timestamp_id ON audit_log (\"timestamp\", id)",
+            "CREATE INDEX IF NOT EXISTS idx_audit_log_actor_timestamp ON audit_log (actor_id, \"timestamp\")",
+            "CREATE INDEX IF NOT EXISTS idx_audit_log_action_timestamp ON audit_log (action, \"timestamp\")",
+            "CREATE INDEX IF NOT EXISTS idx_audit_log_entity_timestamp"
+                    + " ON audit_log (entity_name, entity_id, \"timestamp\")");
+
+    private static final String TABLE_KIND = "SELECT CAST(c.relkind AS text) FROM pg_class c"
+            + " JOIN pg_namespace n ON n.oid = c.relnamespace"
+            + " WHERE n.nspname = current_schema() AND c.relname = 'audit_log'";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public boolean tryMaintenanceLock() {
+        return (Boolean) entityManager.createNativeQuery("SELECT pg_try_advisory_xact_lock(:key)")
+                .setParameter("key", MAINTENANCE_LOCK_KEY)
+                .getSingleResult();
+    }
+
+    @Override
+    public boolean isPartitioned() {
+        List<?> kind = entityManager.createNativeQuery(TABLE_KIND).getResultList();
+        return !kind.isEmpty() && "p".equals(kind.get(0));
+    }
+
+    @Override
+    public void convertToPartitioned(String legacyPartition, Instant legacyUpperBound) {
+        boolean plainTableExists = !entityManager.createNativeQuery(TABLE_KIND).getResultList().isEmpty();
+        if (plainTableExists) {
+            execute("ALTER TABLE audit_log RENAME TO " + identifier(legacyPartition));
+        }
+        execute(PARENT_DDL);
+        if (plainTableExists) {
+            // Postgres checks the bound against existing rows here; it scans, it does not rewrite
+            execute("ALTER TABLE audit_log ATTACH PARTITION " + identifier(legacyPartition)
+                    + " FOR VALUES FROM (MINVALUE) TO ('" + legacyUpperBound + "')");
+        }
+        // rows outside every monthly range land here instead of failing the insert
+        execute("CREATE TABLE IF NOT EXISTS audit_log_default PARTITION OF audit_log DEFAULT");
+        INDEX_DDL.forEach(this::execute);
+    }
+
+    @Override
+    public void createPartition(String name, Instant from, Instant to) {
+        execute("CREATE TABLE IF NOT EXISTS " + identifier(name) + " PARTITION OF audit_log"
+                + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> partitionNames() {
+        return entityManager.createNativeQuery("SELECT c.relname FROM pg_inherits i"
+                        + " JOIN pg_class c ON c.oid = i.inhrelid"
+                        + " JOIN pg_class p ON p.oid = i.inhparent"
+                        + " JOIN pg_namespace n ON n.oid = p.relnamespace"
+                        + " WHERE n.nspname = current_schema() AND p.relname = 'audit_log'"
+                        + " ORDER BY c.relname")
+                .getResultList();
+    }
+
+    @Override
+    public void archivePartition(String name, String archiveName) {
+        execute("ALTER TABLE audit_log DETACH PARTITION " + identifier(name));
+        execute("ALTER TABLE " + identifier(name) + " RENAME TO " + identifier(archiveName));
+    }
+
+    @Override
+    public void dropPartition(String name) {
+        execute("DROP TABLE IF EXISTS " + identifier(name));
+    }
+
+    private void execute(String ddl) {
+        entityManager.createNativeQuery(ddl).executeUpdate();
+    }
+
+    private static String identifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a valid partition name: " + name);
+        }
+        return name;
+    }
+}
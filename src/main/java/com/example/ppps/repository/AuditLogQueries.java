@@ -0,0 +1,26 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.AuditLogEntry;
+import com.example.ppps.dto.AuditLogFilter;
+import com.example.ppps.entity.AuditLog;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Native SQL for audit log writes, search and export. A time range in the filter lets Postgres skip every
+// monthly partition outside it.
+public interface AuditLogQueries {
+
+    // one multi-row INSERT for the async writer. Rows must carry their id and timestamp; a row already
+    // written (a spool replayed after a crash) is skipped, so replays are harmless
+    int insertBatch(Collection<AuditLog> rows);
+
+    // newest first, strictly after the (timestamp, id) cursor; pass a null cursor for the first page
+    List<AuditLogEntry> search(AuditLogFilter filter, Instant afterTimestamp, UUID afterId, int limit);
+
+    // oldest first. Must be consumed and closed inside a transaction
+    Stream<AuditLogEntry> stream(AuditLogFilter filter, int fetchSize);
+}
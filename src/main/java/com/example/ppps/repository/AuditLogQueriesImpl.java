@@ -0,0 +1,142 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.AuditLogEntry;
+import com.example.ppps.dto.AuditLogFilter;
+import com.example.ppps.entity.AuditLog;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Spring Data picks this up as the implementation of AuditLogQueries for AuditLogRepository.
+class AuditLogQueriesImpl implements AuditLogQueries {
+
+    private static final String SELECT = "SELECT a.id, a.timestamp, a.actor_id, a.action, a.entity_name,"
+            + " a.entity_id, a.details FROM audit_log a WHERE 1 = 1";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int insertBatch(Collection<AuditLog> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder values = new StringBuilder();
+        int i = 0;
+        for (AuditLog row : rows) {
+            if (i > 0) {
+                values.append(", ");
+            }
+            values.append("(:id").append(i).append(", :actorId").append(i).append(", :action").append(i)
+                    .append(", :entityName").append(i).append(", :entityId").append(i)
+                    .append(", CAST(:details").append(i).append(" AS text), :timestamp").append(i).append(")");
+            params.put("id" + i, row.getId());
+            params.put("actorId" + i, row.getActorId());
+            params.put("action" + i, row.getAction());
+            params.put("entityName" + i, row.getEntityName());
+            params.put("entityId" + i, row.getEntityId());
+            params.put("details" + i, row.getDetails());
+            params.put("timestamp" + i, row.getTimestamp());
+            i++;
+        }
+
+        Query query = entityManager.createNativeQuery("INSERT INTO audit_log (id, actor_id, action, entity_name,"
+                + " entity_id, details, timestamp) VALUES " + values + " ON CONFLICT DO NOTHING");
+        params.forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    @Override
+    public List<AuditLogEntry> search(AuditLogFilter filter, Instant afterTimestamp, UUID afterId, int limit) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder(SELECT);
+        where(sql, params, filter);
+        if (afterTimestamp != null && afterId != null) {
+            sql.append(" AND (a.timestamp, a.id) < (:afterTimestamp, :afterId)");
+            params.put("afterTimestamp", afterTimestamp);
+            params.put("afterId", afterId);
+        }
+        sql.append(" ORDER BY a.timestamp DESC, a.id DESC LIMIT :limit");
+        params.put("limit", limit);
+
+        NativeQuery<Object[]> query = entryQuery(sql.toString());
+        params.forEach(query::setParameter);
+        return query.getResultList().stream().map(AuditLogQueriesImpl::toEntry).toList();
+    }
+
+    @Override
+    public Stream<AuditLogEntry> stream(AuditLogFilter filter, int fetchSize) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder sql = new StringBuilder(SELECT);
+        where(sql, params, filter);
+        sql.append(" ORDER BY a.timestamp, a.id");
+
+        NativeQuery<Object[]> query = entryQuery(sql.toString());
+        params.forEach(query::setParameter);
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        return query.getResultStream().map(AuditLogQueriesImpl::toEntry);
+    }
+
+    private static void where(StringBuilder sql, Map<String, Object> params, AuditLogFilter filter) {
+        if (filter.actorId() != null) {
+            sql.append(" AND a.actor_id = :actorId");
+            params.put("actorId", filter.actorId());
+        }
+        if (filter.action() != null) {
+            sql.append(" AND a.action = :action");
+            params.put("action", filter.action());
+        }
+        if (filter.entityName() != null) {
+            sql.append(" AND a.entity_name = :entityName");
+            params.put("entityName", filter.entityName());
+        }
+        if (filter.entityId() != null) {
+            sql.append(" AND a.entity_id = :entityId");
+            params.put("entityId", filter.entityId());
+        }
+        if (filter.from() != null) {
+            sql.append(" AND a.timestamp >= :from");
+            params.put("from", filter.from());
+        }
+        if (filter.to() != null) {
+            sql.append(" AND a.timestamp < :to");
+            params.put("to", filter.to());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object[]> entryQuery(String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("timestamp", StandardBasicTypes.INSTANT)
+                .addScalar("actor_id", StandardBasicTypes.STRING)
+                .addScalar("action", StandardBasicTypes.STRING)
+                .addScalar("entity_name", StandardBasicTypes.STRING)
+                .addScalar("entity_id", StandardBasicTypes.STRING)
+                .addScalar("details", StandardBasicTypes.STRING);
+    }
+
+    private static AuditLogEntry toEntry(Object[] row) {
+        return new AuditLogEntry(
+                (UUID) row[0],
+                (Instant) row[1],
+                (String) row[2],
+                (String) row[3],
+                (String) row[4],
+                (String) row[5],
+                (String) row[6]);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.entity.EscrowHold;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface EscrowHoldRepository extends JpaRepository<EscrowHold, UUID> {
+
+    long countByReleaseAtLessThanEqual(Instant releaseAt);
+
+    // pending escrow transfers from before escrow_holds existed; legacy rows predate the escrow flag too.
+    // Their principal was never moved into heldBalance, so they are released the old way
+    @Modifying
+    @Query(value = "INSERT INTO escrow_holds (transaction_id, transaction_initiated_at, release_at, created_at, " +
+            "funds_held) " +
+            "SELECT t.id, t.initiated_at, t.initiated_at + :holdSeconds * interval '1 second', now(), false " +
+            "FROM transactions t WHERE t.status = 'PENDING' " +
+            "AND (t.escrow = true OR (t.escrow IS NULL AND t.transfer_state IS NULL AND t.amount >= :threshold " +
+            "AND t.sender_wallet_id <> t.receiver_wallet_id)) " +
+            "ON CONFLICT (transaction_id) DO NOTHING", nativeQuery = true)
+    int backfillLegacyHolds(@Param("threshold") BigDecimal threshold, @Param("holdSeconds") long holdSeconds);
+
+    // holds written before transaction_initiated_at existed; the release claim cannot see them until filled in
+    @Modifying
+    @Query(value = "UPDATE escrow_holds h SET transaction_initiated_at = t.initiated_at FROM transactions t " +
+            "WHERE t.id = h.transaction_id AND h.transaction_initiated_at IS NULL", nativeQuery = true)
+    int fillTransactionInitiatedAt();
+}
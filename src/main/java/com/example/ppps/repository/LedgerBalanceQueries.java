@@ -0,0 +1,24 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.BalanceDrift;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Native SQL deriving wallet balances from ledger_entries: the latest snapshot plus the signed sum of entries
+// created since. Range methods cover wallet ids in [from, to); a null to means up to the last wallet.
+public interface LedgerBalanceQueries {
+
+    // empty when the wallet does not exist
+    Optional<BigDecimal> derivedBalance(UUID walletId);
+
+    // moves the snapshot of every wallet in range with entries in (its asOf, asOf] forward to asOf; idle wallets
+    // are left alone. Entries created at or before asOf must all be committed, or they are never counted
+    int snapshot(UUID from, UUID to, Instant asOf);
+
+    // wallets in range whose stored balance differs from the derived one, both read in one statement
+    List<BalanceDrift> findDrift(UUID from, UUID to);
+}
@@ -0,0 +1,99 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.BalanceDrift;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Spring Data picks this up as the implementation of LedgerBalanceQueries for WalletBalanceSnapshotRepository.
+// Every query joins a wallet to its snapshot and sums its newer entries in a LATERAL subquery, so each wallet
+// costs one index range scan of (wallet_id, created_at) however long its history is.
+class LedgerBalanceQueriesImpl implements LedgerBalanceQueries {
+
+    // %s: extra bound on created_at, empty for "everything after the snapshot"
+    private static final String DELTA = """
+            LEFT JOIN wallet_balance_snapshots s ON s.wallet_id = w.id
+            LEFT JOIN LATERAL (
+                SELECT SUM(CASE WHEN e.entry_type = 'DEBIT' THEN -e.amount ELSE e.amount END) AS amount
+                FROM ledger_entries e
+                WHERE e.wallet_id = w.id
+                  AND (s.as_of IS NULL OR e.created_at > s.as_of)%s
+            ) d ON TRUE
+            """;
+
+    private static final String DERIVED = "COALESCE(s.balance, 0) + COALESCE(d.amount, 0)";
+
+    private static final String DERIVED_SQL = "SELECT " + DERIVED + " AS derived FROM wallets w "
+            + DELTA.formatted("") + "WHERE w.id = :walletId";
+
+    private static final String SNAPSHOT_SQL = """
+            INSERT INTO wallet_balance_snapshots (wallet_id, balance, as_of, taken_at)
+            SELECT w.id, %s, :asOf, now()
+            FROM wallets w
+            %sWHERE w.id >= :from%%s AND d.amount IS NOT NULL
+            ON CONFLICT (wallet_id) DO UPDATE
+                SET balance = EXCLUDED.balance, as_of = EXCLUDED.as_of, taken_at = EXCLUDED.taken_at
+                WHERE wallet_balance_snapshots.as_of < EXCLUDED.as_of
+            """.formatted(DERIVED, DELTA.formatted(" AND e.created_at <= :asOf"));
+
+    private static final String DRIFT_SQL = """
+            SELECT v.id, v.stored, v.derived
+            FROM (SELECT w.id, w.balance AS stored, %s AS derived
+                  FROM wallets w
+                  %sWHERE w.id >= :from%%s) v
+            WHERE v.stored <> v.derived
+            ORDER BY v.id
+            """.formatted(DERIVED, DELTA.formatted(""));
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<BigDecimal> derivedBalance(UUID walletId) {
+        List<?> rows = entityManager.createNativeQuery(DERIVED_SQL)
+                .setParameter("walletId", walletId)
+                .getResultList();
+        return rows.isEmpty() ? Optional.empty() : Optional.of((BigDecimal) rows.get(0));
+    }
+
+    @Override
+    public int snapshot(UUID from, UUID to, Instant asOf) {
+        Query query = entityManager.createNativeQuery(SNAPSHOT_SQL.formatted(upperBound(to)))
+                .setParameter("from", from)
+                .setParameter("asOf", asOf);
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        return query.executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<BalanceDrift> findDrift(UUID from, UUID to) {
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(DRIFT_SQL.formatted(upperBound(to)))
+                .unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("stored", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("derived", StandardBasicTypes.BIG_DECIMAL);
+        query.setParameter("from", from);
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        return query.getResultList().stream()
+                .map(row -> new BalanceDrift((UUID) row[0], (BigDecimal) row[1], (BigDecimal) row[2]))
+                .toList();
+    }
+
+    // the last range is open-ended; binding a null uuid would leave its type to guesswork
+    private static String upperBound(UUID to) {
+        return to == null ? "" : " AND w.id < :to";
+    }
+}
@@ -7,5 +7,5 @@ import java.util.UUID;
 
 
 @Repository
-public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID> {
-}
\ No newline at end of file
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, UUID>, LedgerReconciliationQueries {
+}
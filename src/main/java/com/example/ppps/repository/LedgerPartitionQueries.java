@@ -0,0 +1,64 @@
+package com.example.ppps.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+// DDL for the monthly partitions of transactions and ledger_entries. Bounds are [from, to) on the table's
+// partition column; partition names are generated by LedgerPartitionService and must be plain lower-case
+// identifiers.
+public interface LedgerPartitionQueries {
+
+    enum PartitionedTable {
+        TRANSACTIONS("transactions", "initiated_at"),
+        LEDGER_ENTRIES("ledger_entries", "created_at");
+
+        private final String tableName;
+        private final String partitionColumn;
+
+        PartitionedTable(String tableName, String partitionColumn) {
+            this.tableName = tableName;
+            this.partitionColumn = partitionColumn;
+        }
+
+        public String tableName() {
+            return tableName;
+        }
+
+        public String partitionColumn() {
+            return partitionColumn;
+        }
+    }
+
+    // transaction-scoped, so two nodes never run partition maintenance at once
+    boolean tryLedgerMaintenanceLock();
+
+    boolean isPartitioned(PartitionedTable table);
+
+    // Conversion runs as three transactions, so the long scan never holds the table's exclusive lock:
+    // addPartitionBoundCheck, validatePartitionBoundCheck, then convertToPartitioned with the same bound.
+
+    // CHECK (column IS NOT NULL AND column < legacyUpperBound) NOT VALID on the plain table: no scan, new
+    // rows are checked from here on. Replaces an earlier bound check
+    void addPartitionBoundCheck(PartitionedTable table, Instant legacyUpperBound);
+
+    // scans the plain table under a lock that lets reads and writes through
+    void validatePartitionBoundCheck(PartitionedTable table);
+
+    // after a failed conversion, so the plain table takes any row again
+    void dropPartitionBoundCheck(PartitionedTable table);
+
+    // turns the table into one partitioned by month. The existing plain table becomes the partition
+    // legacyPartition, covering everything before legacyUpperBound, so no row is copied. Expects the
+    // validated bound check, which spares SET NOT NULL and ATTACH their scans
+    void convertToPartitioned(PartitionedTable table, String legacyPartition, Instant legacyUpperBound);
+
+    // no-op when the partition already exists
+    void createPartition(PartitionedTable table, String name, Instant from, Instant to);
+
+    List<String> partitionNames(PartitionedTable table);
+
+    // detaches the partition and keeps it as a standalone table, out of every query on the parent
+    void archivePartition(PartitionedTable table, String name, String archiveName);
+
+    void dropPartition(String name);
+}
@@ -0,0 +1,167 @@
+package com.example.ppps.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Spring Data picks this up as the implementation of LedgerPartitionQueries for TransactionRepository.
+// DDL takes no bind parameters, so names are checked against a strict pattern and bounds are rendered
+// from Instants rather than taken from callers as text.
+class LedgerPartitionQueriesImpl implements LedgerPartitionQueries {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[a-z][a-z0-9_]{0,62}");
+    // arbitrary but fixed, and apart from the audit_log key: every node contends for the same advisory lock
+    private static final long MAINTENANCE_LOCK_KEY = 0x6c6564676572L;
+    // how long the conversion waits for the table's exclusive lock before giving up, rather than queueing
+    // every other query on the table behind it
+    private static final String SWAP_LOCK_TIMEOUT = "10s";
+
+    // the indexes V1__baseline_schema.sql defines, by name, created on the parent so every partition gets
+    // them. The plain table carries the same names, so conversion renames its copies first; ATTACH then
+    // adopts them unchanged
+    private static final Map<PartitionedTable, Map<String, String>> INDEXES = Map.of(
+            PartitionedTable.TRANSACTIONS, Map.of(
+                    "idx_sender_wallet_initiated_at_id", "(sender_wallet_id, initiated_at, id)",
+                    "idx_receiver_wallet_initiated_at_id", "(receiver_wallet_id, initiated_at, id)",
+                    "idx_initiated_at", "(initiated_at)",
+                    "idx_status_initiated_at_id", "(status, initiated_at, id)",
+                    "idx_transfer_state_changed_at", "(transfer_state, state_changed_at)",
+                    "idx_transactions_pending_initiated_at", "(initiated_at) WHERE status = 'PENDING'"),
+            PartitionedTable.LEDGER_ENTRIES, Map.of(
+                    "idx_ledger_entries_wallet_created_at", "(wallet_id, created_at)",
+                    "idx_ledger_entries_transaction_id", "(transaction_id)"));
+
+    private static final String TABLE_KIND = "SELECT CAST(c.relkind AS text) FROM pg_class c"
+            + " JOIN pg_namespace n ON n.oid = c.relnamespace"
+            + " WHERE n.nspname = current_schema() AND c.relname = :name";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public boolean tryLedgerMaintenanceLock() {
+        return (Boolean) entityManager.createNativeQuery("SELECT pg_try_advisory_xact_lock(:key)")
+                .setParameter("key", MAINTENANCE_LOCK_KEY)
+                .getSingleResult();
+    }
+
+    @Override
+    public boolean isPartitioned(PartitionedTable table) {
+        List<?> kind = tableKind(table.tableName());
+        return !kind.isEmpty() && "p".equals(kind.get(0));
+    }
+
+    @Override
+    public void addPartitionBoundCheck(PartitionedTable table, Instant legacyUpperBound) {
+        String name = table.tableName();
+        String column = table.partitionColumn();
+        if (tableKind(name).isEmpty()) {
+            throw new IllegalStateException(name + " does not exist yet, so there is nothing to partition");
+        }
+        execute("ALTER TABLE " + name + " DROP CONSTRAINT IF EXISTS " + boundCheck(table));
+        execute("ALTER TABLE " + name + " ADD CONSTRAINT " + boundCheck(table) + " CHECK (" + column
+                + " IS NOT NULL AND " + column + " < '" + legacyUpperBound + "') NOT VALID");
+    }
+
+    // a null or out-of-range row fails it here, before anything is renamed
+    @Override
+    public void validatePartitionBoundCheck(PartitionedTable table) {
+        execute("ALTER TABLE " + table.tableName() + " VALIDATE CONSTRAINT " + boundCheck(table));
+    }
+
+    @Override
+    public void dropPartitionBoundCheck(PartitionedTable table) {
+        if (!tableKind(table.tableName()).isEmpty() && !isPartitioned(table)) {
+            execute("ALTER TABLE " + table.tableName() + " DROP CONSTRAINT IF EXISTS " + boundCheck(table));
+        }
+    }
+
+    // The parent copies its columns, defaults and checks from the plain table it replaces, so the two
+    // cannot disagree and ATTACH accepts it. The primary key has to carry the partition column; ids stay
+    // unique on their own. With the bound check validated beforehand, SET NOT NULL and ATTACH only read
+    // the catalog; what is left under the exclusive lock is ATTACH building that one key index
+    @Override
+    public void convertToPartitioned(PartitionedTable table, String legacyPartition, Instant legacyUpperBound) {
+        String name = table.tableName();
+        String column = table.partitionColumn();
+        if (tableKind(name).isEmpty()) {
+            throw new IllegalStateException(name + " does not exist yet, so there is nothing to partition");
+        }
+
+        execute("SET LOCAL lock_timeout = '" + SWAP_LOCK_TIMEOUT + "'");
+        String legacy = identifier(legacyPartition);
+        execute("ALTER TABLE " + name + " RENAME TO " + legacy);
+        INDEXES.get(table).keySet().forEach(index ->
+                execute("ALTER INDEX IF EXISTS " + index + " RENAME TO " + identifier("legacy_" + index)));
+        // the key column must be NOT NULL on every partition; the bound check already proves it
+        execute("ALTER TABLE " + legacy + " ALTER COLUMN " + column + " SET NOT NULL");
+
+        execute("CREATE TABLE " + name + " (LIKE " + legacy + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)"
+                + " PARTITION BY RANGE (" + column + ")");
+        // copied along with the other checks, but it only describes the legacy partition
+        execute("ALTER TABLE " + name + " DROP CONSTRAINT " + boundCheck(table));
+        execute("ALTER TABLE " + name + " ADD CONSTRAINT pk_" + name + " PRIMARY KEY (id, " + column + ")");
+        INDEXES.get(table).forEach((index, definition) ->
+                execute("CREATE INDEX IF NOT EXISTS " + index + " ON " + name + " " + definition));
+
+        // the bound check implies the partition constraint, so Postgres skips its own scan of the rows
+        execute("ALTER TABLE " + name + " ATTACH PARTITION " + legacy
+                + " FOR VALUES FROM (MINVALUE) TO ('" + legacyUpperBound + "')");
+        execute("ALTER TABLE " + legacy + " DROP CONSTRAINT " + boundCheck(table));
+        // rows outside every monthly range land here instead of failing the insert
+        execute("CREATE TABLE IF NOT EXISTS " + name + "_default PARTITION OF " + name + " DEFAULT");
+    }
+
+    @Override
+    public void createPartition(PartitionedTable table, String name, Instant from, Instant to) {
+        execute("CREATE TABLE IF NOT EXISTS " + identifier(name) + " PARTITION OF " + table.tableName()
+                + " FOR VALUES FROM ('" + from + "') TO ('" + to + "')");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> partitionNames(PartitionedTable table) {
+        return entityManager.createNativeQuery("SELECT c.relname FROM pg_inherits i"
+                        + " JOIN pg_class c ON c.oid = i.inhrelid"
+                        + " JOIN pg_class p ON p.oid = i.inhparent"
+                        + " JOIN pg_namespace n ON n.oid = p.relnamespace"
+                        + " WHERE n.nspname = current_schema() AND p.relname = :name"
+                        + " ORDER BY c.relname")
+                .setParameter("name", table.tableName())
+                .getResultList();
+    }
+
+    @Override
+    public void archivePartition(PartitionedTable table, String name, String archiveName) {
+        execute("ALTER TABLE " + table.tableName() + " DETACH PARTITION " + identifier(name));
+        execute("ALTER TABLE " + identifier(name) + " RENAME TO " + identifier(archiveName));
+    }
+
+    @Override
+    public void dropPartition(String name) {
+        execute("DROP TABLE IF EXISTS " + identifier(name));
+    }
+
+    private static String boundCheck(PartitionedTable table) {
+        return table.tableName() + "_partition_bound";
+    }
+
+    private List<?> tableKind(String name) {
+        return entityManager.createNativeQuery(TABLE_KIND).setParameter("name", name).getResultList();
+    }
+
+    private void execute(String ddl) {
+        entityManager.createNativeQuery(ddl).executeUpdate();
+    }
+
+    private static String identifier(String name) {
+        if (!IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a valid partition name: " + name);
+        }
+        return name;
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.entity.LedgerReconciliationIssue;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface LedgerReconciliationIssueRepository extends JpaRepository<LedgerReconciliationIssue, UUID> {
+
+    List<LedgerReconciliationIssue> findByRunIdOrderByTypeAscTransactionIdAsc(UUID runId, Pageable pageable);
+}
@@ -0,0 +1,19 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.ReconciliationEntryRow;
+import com.example.ppps.dto.ReconciliationTransactionRow;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Forward-only streams over one transaction id range [from, to) -- a null to means up to the last id -- for the
+// end-of-day reconciliation. Amounts come back as whole kobo so nothing but primitives is kept per row.
+// Both must be consumed and closed inside a transaction; read them in the same REPEATABLE READ transaction
+// to see transactions and entries as of one snapshot.
+public interface LedgerReconciliationQueries {
+
+    // platformWalletId tells withdrawals (paid out to it) from transfers
+    Stream<ReconciliationTransactionRow> streamTransactions(UUID from, UUID to, UUID platformWalletId, int fetchSize);
+
+    Stream<ReconciliationEntryRow> streamEntries(UUID from, UUID to, int fetchSize);
+}
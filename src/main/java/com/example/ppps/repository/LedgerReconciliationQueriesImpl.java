@@ -0,0 +1,95 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.ReconciliationEntryRow;
+import com.example.ppps.dto.ReconciliationTransactionRow;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferState;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Spring Data picks this up as the implementation of LedgerReconciliationQueries for LedgerEntryRepository.
+class LedgerReconciliationQueriesImpl implements LedgerReconciliationQueries {
+
+    // reserved: what phase one of a transfer takes from the sender, as Transaction.reservedDebit()
+    private static final String TRANSACTIONS_SQL = """
+            SELECT t.id,
+                   CASE WHEN CAST(:platformWalletId AS uuid) IS NULL THEN 'OTHER'
+                        WHEN t.receiver_wallet_id = CAST(:platformWalletId AS uuid) THEN 'WITHDRAWAL'
+                        WHEN t.sender_wallet_id = t.receiver_wallet_id THEN 'DEPOSIT'
+                        ELSE 'OTHER' END AS kind,
+                   CAST(ROUND(t.amount * 100) AS bigint) AS amount_minor,
+                   CAST(ROUND((CASE WHEN t.escrow IS TRUE THEN 0 ELSE t.amount END + COALESCE(t.fee, 0)) * 100)
+                        AS bigint) AS reserved_minor,
+                   t.status,
+                   t.transfer_state,
+                   t.initiated_at
+            FROM transactions t
+            WHERE t.id >= :from%s
+            """;
+
+    private static final String ENTRIES_SQL = """
+            SELECT e.transaction_id,
+                   CAST(ROUND(CASE WHEN e.entry_type = 'DEBIT' THEN -e.amount ELSE e.amount END * 100) AS bigint)
+                        AS signed_minor
+            FROM ledger_entries e
+            WHERE e.transaction_id >= :from%s
+            """;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<ReconciliationTransactionRow> streamTransactions(UUID from, UUID to, UUID platformWalletId,
+                                                                   int fetchSize) {
+        NativeQuery<Object[]> query = entityManager
+                .createNativeQuery(TRANSACTIONS_SQL.formatted(to == null ? "" : " AND t.id < :to"))
+                .unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("kind", StandardBasicTypes.STRING)
+                .addScalar("amount_minor", StandardBasicTypes.LONG)
+                .addScalar("reserved_minor", StandardBasicTypes.LONG)
+                .addScalar("status", StandardBasicTypes.STRING)
+                .addScalar("transfer_state", StandardBasicTypes.STRING)
+                .addScalar("initiated_at", StandardBasicTypes.INSTANT);
+        query.setParameter("platformWalletId", platformWalletId == null ? null : platformWalletId.toString(),
+                StandardBasicTypes.STRING);
+        return stream(query, from, to, fetchSize).map(row -> new ReconciliationTransactionRow(
+                (UUID) row[0],
+                ReconciliationTransactionRow.Kind.valueOf((String) row[1]),
+                (Long) row[2],
+                (Long) row[3],
+                TransactionStatus.valueOf((String) row[4]),
+                row[5] == null ? null : TransferState.valueOf((String) row[5]),
+                (Instant) row[6]));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<ReconciliationEntryRow> streamEntries(UUID from, UUID to, int fetchSize) {
+        NativeQuery<Object[]> query = entityManager
+                .createNativeQuery(ENTRIES_SQL.formatted(to == null ? "" : " AND e.transaction_id < :to"))
+                .unwrap(NativeQuery.class)
+                .addScalar("transaction_id", StandardBasicTypes.UUID)
+                .addScalar("signed_minor", StandardBasicTypes.LONG);
+        return stream(query, from, to, fetchSize)
+                .map(row -> new ReconciliationEntryRow((UUID) row[0], (Long) row[1]));
+    }
+
+    // forward-only cursor: the driver holds fetchSize rows at a time, nothing enters the persistence context
+    private static Stream<Object[]> stream(NativeQuery<Object[]> query, UUID from, UUID to, int fetchSize) {
+        query.setParameter("from", from);
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        return query.getResultStream();
+    }
+}
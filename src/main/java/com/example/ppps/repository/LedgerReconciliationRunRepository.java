@@ -0,0 +1,13 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.entity.LedgerReconciliationRun;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Repository
+public interface LedgerReconciliationRunRepository extends JpaRepository<LedgerReconciliationRun, UUID> {
+
+    boolean existsByBusinessDate(LocalDate businessDate);
+}
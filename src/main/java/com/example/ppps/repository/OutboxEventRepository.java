@@ -0,0 +1,39 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.entity.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+
+    // rows claimed by another relay instance are skipped rather than waited on; rows backing off after a
+    // failed send, and dead-lettered ones, are not due, so they never hold back the events behind them
+    @Query(value = "SELECT * FROM outbox_events WHERE sent_at IS NULL AND failed_at IS NULL " +
+            "AND next_attempt_at <= :now ORDER BY next_attempt_at " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> claimUnsentBatch(@Param("now") Instant now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e SET e.sentAt = :sentAt WHERE e.id IN :ids")
+    int markSent(@Param("ids") Collection<UUID> ids, @Param("sentAt") Instant sentAt);
+
+    long countBySentAtIsNullAndFailedAtIsNull();
+
+    long countByFailedAtIsNotNull();
+
+    @Query("SELECT MIN(e.createdAt) FROM OutboxEvent e WHERE e.sentAt IS NULL AND e.failedAt IS NULL")
+    Instant findOldestUnsentCreatedAt();
+
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.sentAt < :before")
+    int deleteSentBefore(@Param("before") Instant before);
+}
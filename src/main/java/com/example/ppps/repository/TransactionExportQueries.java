@@ -0,0 +1,13 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.TransactionExportRow;
+
+import java.time.Instant;
+import java.util.stream.Stream;
+
+// Server-side cursor over the whole transactions table for exports.
+public interface TransactionExportQueries {
+
+    // oldest first over [from, to); either bound may be null. Must be consumed and closed inside a transaction
+    Stream<TransactionExportRow> streamTransactions(Instant from, Instant to, int fetchSize);
+}
@@ -0,0 +1,61 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.TransactionExportRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Spring Data picks this up as the implementation of TransactionExportQueries for TransactionRepository.
+class TransactionExportQueriesImpl implements TransactionExportQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Stream<TransactionExportRow> streamTransactions(Instant from, Instant to, int fetchSize) {
+        StringBuilder sql = new StringBuilder("SELECT t.id, t.sender_wallet_id, t.receiver_wallet_id, t.amount,"
+                + " t.fee, t.status, t.transfer_state, t.initiated_at FROM transactions t WHERE 1 = 1");
+        if (from != null) {
+            sql.append(" AND t.initiated_at >= :from");
+        }
+        if (to != null) {
+            sql.append(" AND t.initiated_at < :to");
+        }
+        sql.append(" ORDER BY t.initiated_at, t.id");
+
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql.toString()).unwrap(NativeQuery.class)
+                .addScalar("id", StandardBasicTypes.UUID)
+                .addScalar("sender_wallet_id", StandardBasicTypes.UUID)
+                .addScalar("receiver_wallet_id", StandardBasicTypes.UUID)
+                .addScalar("amount", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("fee", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("status", StandardBasicTypes.STRING)
+                .addScalar("transfer_state", StandardBasicTypes.STRING)
+                .addScalar("initiated_at", StandardBasicTypes.INSTANT);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        // forward-only cursor: the driver holds fetchSize rows at a time, nothing enters the persistence context
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        return query.getResultStream().map(row -> new TransactionExportRow(
+                (UUID) row[0],
+                (UUID) row[1],
+                (UUID) row[2],
+                (BigDecimal) row[3],
+                (BigDecimal) row[4],
+                (String) row[5],
+                (String) row[6],
+                (Instant) row[7]));
+    }
+}
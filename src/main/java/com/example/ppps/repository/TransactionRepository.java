@@ -2,47 +2,68 @@ package com.example.ppps.repository;
 
 import com.example.ppps.entity.Transaction;
 import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferState;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
-
-    List<Transaction> findByStatus(TransactionStatus status);
-
-    // find transactions by wallet ID with optional filters
-    @Query("SELECT t FROM Transaction t WHERE " +
-            "(t.senderWalletId = :walletId OR t.receiverWalletId = :walletId) " +
-            "AND t.initiatedAt >= COALESCE(:startDate, t.initiatedAt) " +
-            "AND t.initiatedAt <= COALESCE(:endDate, t.initiatedAt) " +
-            "AND (COALESCE(:status, '') = '' OR CAST(t.status AS string) = :status) " +
-            "AND t.amount >= COALESCE(:minAmount, t.amount) " +
-            "AND t.amount <= COALESCE(:maxAmount, t.amount) " +
-            "ORDER BY t.initiatedAt DESC")
-    Page<Transaction> findByWalletIdWithFilters(
-            @Param("walletId") UUID walletId,
-            @Param("startDate") Instant startDate,
-            @Param("endDate") Instant endDate,
-            @Param("status") String status,
-            @Param("minAmount") BigDecimal minAmount,
-            @Param("maxAmount") BigDecimal maxAmount,
-            Pageable pageable);
-
-    //find all transactions for a wallet without filters
-    @Query("SELECT t FROM Transaction t WHERE t.senderWalletId = :walletId OR t.receiverWalletId = :walletId ORDER BY t.initiatedAt DESC")
-    Page<Transaction> findByWalletId(@Param("walletId") UUID walletId, Pageable pageable);
-
-    //find pending transactions initiated before a certain time
-    List<Transaction> findByStatusAndInitiatedAtBefore(
-            @Param("status") TransactionStatus status,
-            @Param("initiatedAt") Instant initiatedAt
+public interface TransactionRepository extends JpaRepository<Transaction, UUID>, TransactionExportQueries,
+        LedgerPartitionQueries {
+
+    // Every time-based read is bounded on initiatedAt, the column transactions is partitioned by, so the planner
+    // only opens the months in range. Lookups by id alone still probe each attached partition's key index
+
+    //find a wallet's transactions since a point in time, without filters
+    @Query("SELECT t FROM Transaction t WHERE (t.senderWalletId = :walletId OR t.receiverWalletId = :walletId) " +
+            "AND t.initiatedAt >= :since ORDER BY t.initiatedAt DESC")
+    Page<Transaction> findByWalletIdSince(@Param("walletId") UUID walletId, @Param("since") Instant since,
+                                          Pageable pageable);
+
+    //find transactions in a status initiated within [from, to)
+    List<Transaction> findByStatusAndInitiatedAtGreaterThanEqualAndInitiatedAtLessThan(
+            TransactionStatus status,
+            Instant from,
+            Instant to
+    );
+
+    // serializes phase-two work (complete / compensate) on a single transfer
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM Transaction t WHERE t.id = :id")
+    Optional<Transaction> findByIdWithLock(@Param("id") UUID id);
+
+    // transfers stuck between phase one and phase two, oldest first, among those initiated after a lookback
+    List<Transaction> findTop100ByTransferStateInAndStateChangedAtBeforeAndInitiatedAtAfterOrderByStateChangedAtAsc(
+            Collection<TransferState> states,
+            Instant stateChangedAt,
+            Instant initiatedAt
     );
-}
\ No newline at end of file
+
+    // due escrow holds whose gateway leg has settled (legacy rows carry no transfer state), earliest first.
+    // Rows another release worker -- on this node or any other -- has claimed are skipped, not waited on.
+    // Joining on the hold's copy of initiated_at lets each hold probe one partition instead of all of them
+    @Query(value = "SELECT t.* FROM escrow_holds h JOIN transactions t " +
+            "ON t.id = h.transaction_id AND t.initiated_at = h.transaction_initiated_at " +
+            "WHERE h.release_at <= :now AND t.status = 'PENDING' " +
+            "AND (t.transfer_state IS NULL OR t.transfer_state = 'COMPLETED') " +
+            "ORDER BY h.release_at LIMIT :limit FOR UPDATE OF t SKIP LOCKED", nativeQuery = true)
+    List<Transaction> claimReleasableEscrow(@Param("now") Instant now, @Param("limit") int limit);
+
+    // the same claim restricted to holds the timer wheel has just fired
+    @Query(value = "SELECT t.* FROM escrow_holds h JOIN transactions t " +
+            "ON t.id = h.transaction_id AND t.initiated_at = h.transaction_initiated_at " +
+            "WHERE h.transaction_id IN (:ids) AND h.release_at <= :now AND t.status = 'PENDING' " +
+            "AND (t.transfer_state IS NULL OR t.transfer_state = 'COMPLETED') " +
+            "FOR UPDATE OF t SKIP LOCKED", nativeQuery = true)
+    List<Transaction> claimReleasableEscrowIn(@Param("ids") Collection<UUID> ids, @Param("now") Instant now);
+}
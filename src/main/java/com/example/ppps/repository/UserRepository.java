@@ -1,14 +1,29 @@
 package com.example.ppps.repository;
 
+import com.example.ppps.dto.WalletOwner;
 import com.example.ppps.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, String> {
+public interface UserRepository extends JpaRepository<User, String>, AdminViewQueries {
     Optional<User> findById(String userId);
     Optional<User> findByPhoneNumber(String phoneNumber);
     Optional<User> findByEmail(String email); // Add email lookup
     boolean existsByEmail(String email); // Check if email exists
-}
\ No newline at end of file
+
+    // just the id, so the balance endpoint never loads the user or its EAGER wallet
+    @Query("SELECT u.wallet.id FROM User u WHERE u.userId = :userId")
+    Optional<UUID> findWalletIdByUserId(@Param("userId") String userId);
+
+    // owners of many wallets in one query, as DTOs so the EAGER wallet association is never loaded
+    @Query("SELECT new com.example.ppps.dto.WalletOwner(w.id, u.userId, u.phoneNumber) " +
+            "FROM User u JOIN u.wallet w WHERE w.id IN :walletIds")
+    List<WalletOwner> findOwnersByWalletIdIn(@Param("walletIds") Collection<UUID> walletIds);
+}
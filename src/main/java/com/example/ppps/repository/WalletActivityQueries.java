@@ -0,0 +1,43 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.WalletHistoryRow;
+import com.example.ppps.entity.WalletActivity;
+import com.example.ppps.enums.TransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Native SQL around wallet_activity: the commit-time upsert, the backfill from the ledger, the history page
+// and the statement stream.
+public interface WalletActivityQueries {
+
+    // one multi-row INSERT .. ON CONFLICT; rows must be unique per (walletId, transactionId).
+    // An existing row adds the signed amount and takes the newer balance; direction and occurredAt stay as first written
+    int upsert(Collection<WalletActivity> rows);
+
+    // rebuilds the missing rows of these wallets from ledger_entries + transactions. Rows already present
+    // are left alone, so it is safe to run next to live traffic. balanceAfter is worked backwards from the
+    // wallet's current balance
+    int backfill(Collection<UUID> walletIds);
+
+    // rows strictly after the cursor (occurredAt DESC, transactionId DESC); pass a null cursor for the first page.
+    // offset is only for legacy page-number callers -- keyset callers pass 0
+    List<WalletHistoryRow> findHistoryPage(
+            UUID walletId,
+            Instant startDate,
+            Instant endDate,
+            TransactionStatus status,
+            BigDecimal minAmount,
+            BigDecimal maxAmount,
+            Instant cursorOccurredAt,
+            UUID cursorTransactionId,
+            int offset,
+            int limit);
+
+    // oldest first over [from, to); either bound may be null. Must be consumed and closed inside a transaction
+    Stream<WalletHistoryRow> streamStatement(UUID walletId, Instant from, Instant to, int fetchSize);
+}
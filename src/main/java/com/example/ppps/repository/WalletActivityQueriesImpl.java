@@ -0,0 +1,228 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.WalletHistoryRow;
+import com.example.ppps.entity.WalletActivity;
+import com.example.ppps.enums.ActivityDirection;
+import com.example.ppps.enums.TransactionStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+// Spring Data picks this up as the implementation of WalletActivityQueries for WalletActivityRepository.
+class WalletActivityQueriesImpl implements WalletActivityQueries {
+
+    private static final String BACKFILL_SQL = """
+            INSERT INTO wallet_activity (id, wallet_id, transaction_id, transaction_initiated_at, direction,
+                                         counterparty_wallet_id, signed_amount, balance_after, occurred_at)
+            SELECT gen_random_uuid(),
+                   a.wallet_id,
+                   a.transaction_id,
+                   t.initiated_at,
+                   CASE WHEN t.sender_wallet_id = a.wallet_id THEN 'SENT'
+                        WHEN t.id IS NULL AND a.signed_amount < 0 THEN 'SENT'
+                        ELSE 'RECEIVED' END,
+                   CASE WHEN t.sender_wallet_id = a.wallet_id THEN NULLIF(t.receiver_wallet_id, a.wallet_id)
+                        WHEN t.receiver_wallet_id = a.wallet_id THEN t.sender_wallet_id END,
+                   a.signed_amount,
+                   w.balance - COALESCE(SUM(a.signed_amount) OVER (
+                           PARTITION BY a.wallet_id ORDER BY a.occurred_at DESC, a.transaction_id DESC
+                           ROWS BETWEEN UNBOUNDED PRECEDING AND 1 PRECEDING), 0),
+                   a.occurred_at
+            FROM (SELECT le.wallet_id,
+                         le.transaction_id,
+                         SUM(CASE WHEN le.entry_type = 'DEBIT' THEN -le.amount ELSE le.amount END) AS signed_amount,
+                         MIN(le.created_at) AS occurred_at
+                  FROM ledger_entries le
+                  WHERE le.wallet_id IN (:walletIds)
+                  GROUP BY le.wallet_id, le.transaction_id) a
+            JOIN wallets w ON w.id = a.wallet_id
+            LEFT JOIN transactions t ON t.id = a.transaction_id
+            ON CONFLICT (wallet_id, transaction_id) DO NOTHING
+            """;
+
+    private static final String HISTORY_SELECT = "SELECT a.transaction_id, t.sender_wallet_id, t.receiver_wallet_id,"
+            + " t.amount, t.status, t.initiated_at, a.direction, a.counterparty_wallet_id, a.signed_amount,"
+            + " a.balance_after, a.occurred_at"
+            + " FROM wallet_activity a JOIN transactions t"
+            + " ON t.id = a.transaction_id AND t.initiated_at = a.transaction_initiated_at";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int upsert(Collection<WalletActivity> rows) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        StringBuilder values = new StringBuilder();
+        int i = 0;
+        for (WalletActivity row : rows) {
+            if (i > 0) {
+                values.append(", ");
+            }
+            values.append("(:id").append(i).append(", :walletId").append(i).append(", :transactionId").append(i)
+                    .append(", CAST(:initiatedAt").append(i).append(" AS timestamptz)")
+                    .append(", :direction").append(i).append(", :counterparty").append(i)
+                    .append(", :signedAmount").append(i).append(", :balanceAfter").append(i)
+                    .append(", :occurredAt").append(i).append(")");
+            params.put("id" + i, row.getId() != null ? row.getId() : UUID.randomUUID());
+            params.put("walletId" + i, row.getWalletId());
+            params.put("transactionId" + i, row.getTransactionId());
+            params.put("initiatedAt" + i, row.getTransactionInitiatedAt());
+            params.put("direction" + i, row.getDirection().name());
+            params.put("counterparty" + i, row.getCounterpartyWalletId());
+            params.put("signedAmount" + i, row.getSignedAmount());
+            params.put("balanceAfter" + i, row.getBalanceAfter());
+            params.put("occurredAt" + i, row.getOccurredAt());
+            i++;
+        }
+
+        String sql = "INSERT INTO wallet_activity (id, wallet_id, transaction_id, transaction_initiated_at, direction,"
+                + " counterparty_wallet_id, signed_amount, balance_after, occurred_at) VALUES " + values
+                + " ON CONFLICT (wallet_id, transaction_id) DO UPDATE SET"
+                + " signed_amount = wallet_activity.signed_amount + EXCLUDED.signed_amount,"
+                + " balance_after = EXCLUDED.balance_after,"
+                + " counterparty_wallet_id = COALESCE(wallet_activity.counterparty_wallet_id,"
+                + " EXCLUDED.counterparty_wallet_id),"
+                + " transaction_initiated_at = COALESCE(wallet_activity.transaction_initiated_at,"
+                + " EXCLUDED.transaction_initiated_at)";
+
+        Query query = entityManager.createNativeQuery(sql);
+        params.forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    @Override
+    public int backfill(Collection<UUID> walletIds) {
+        if (walletIds.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createNativeQuery(BACKFILL_SQL)
+                .setParameter("walletIds", walletIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<WalletHistoryRow> findHistoryPage(
+            UUID walletId,
+            Instant startDate,
+            Instant endDate,
+            TransactionStatus status,
+            BigDecimal minAmount,
+            BigDecimal maxAmount,
+            Instant cursorOccurredAt,
+            UUID cursorTransactionId,
+            int offset,
+            int limit) {
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("walletId", walletId);
+        StringBuilder filters = new StringBuilder();
+        if (startDate != null) {
+            filters.append(" AND a.occurred_at >= :startDate");
+            params.put("startDate", startDate);
+        }
+        if (endDate != null) {
+            filters.append(" AND a.occurred_at <= :endDate");
+            params.put("endDate", endDate);
+        }
+        if (status != null) {
+            filters.append(" AND t.status = :status");
+            params.put("status", status.name());
+        }
+        if (minAmount != null) {
+            filters.append(" AND t.amount >= :minAmount");
+            params.put("minAmount", minAmount);
+        }
+        if (maxAmount != null) {
+            filters.append(" AND t.amount <= :maxAmount");
+            params.put("maxAmount", maxAmount);
+        }
+        if (cursorOccurredAt != null && cursorTransactionId != null) {
+            // row comparison, so the index range scan starts right after the cursor
+            filters.append(" AND (a.occurred_at, a.transaction_id) < (:cursorOccurredAt, :cursorTransactionId)");
+            params.put("cursorOccurredAt", cursorOccurredAt);
+            params.put("cursorTransactionId", cursorTransactionId);
+        }
+        params.put("offset", offset);
+        params.put("limit", limit);
+
+        // fee sweeps booked before sweeps had a transactions row are dropped by the inner join. The join on
+        // initiated_at opens one transactions partition per row instead of probing every month
+        String sql = HISTORY_SELECT + " WHERE a.wallet_id = :walletId" + filters
+                + " ORDER BY a.occurred_at DESC, a.transaction_id DESC OFFSET :offset LIMIT :limit";
+
+        NativeQuery<Object[]> query = historyQuery(sql);
+        params.forEach(query::setParameter);
+        return query.getResultList().stream().map(WalletActivityQueriesImpl::toRow).toList();
+    }
+
+    @Override
+    public Stream<WalletHistoryRow> streamStatement(UUID walletId, Instant from, Instant to, int fetchSize) {
+        StringBuilder sql = new StringBuilder(HISTORY_SELECT).append(" WHERE a.wallet_id = :walletId");
+        if (from != null) {
+            sql.append(" AND a.occurred_at >= :from");
+        }
+        if (to != null) {
+            sql.append(" AND a.occurred_at < :to");
+        }
+        sql.append(" ORDER BY a.occurred_at, a.transaction_id");
+
+        NativeQuery<Object[]> query = historyQuery(sql.toString());
+        query.setParameter("walletId", walletId);
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        // forward-only cursor: the driver holds fetchSize rows at a time, nothing enters the persistence context
+        query.setFetchSize(fetchSize);
+        query.setReadOnly(true);
+        return query.getResultStream().map(WalletActivityQueriesImpl::toRow);
+    }
+
+    @SuppressWarnings("unchecked")
+    private NativeQuery<Object[]> historyQuery(String sql) {
+        return entityManager.createNativeQuery(sql).unwrap(NativeQuery.class)
+                .addScalar("transaction_id", StandardBasicTypes.UUID)
+                .addScalar("sender_wallet_id", StandardBasicTypes.UUID)
+                .addScalar("receiver_wallet_id", StandardBasicTypes.UUID)
+                .addScalar("amount", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("status", StandardBasicTypes.STRING)
+                .addScalar("initiated_at", StandardBasicTypes.INSTANT)
+                .addScalar("direction", StandardBasicTypes.STRING)
+                .addScalar("counterparty_wallet_id", StandardBasicTypes.UUID)
+                .addScalar("signed_amount", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("balance_after", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("occurred_at", StandardBasicTypes.INSTANT);
+    }
+
+    private static WalletHistoryRow toRow(Object[] row) {
+        return new WalletHistoryRow(
+                (UUID) row[0],
+                (UUID) row[1],
+                (UUID) row[2],
+                (BigDecimal) row[3],
+                TransactionStatus.valueOf((String) row[4]),
+                (Instant) row[5],
+                ActivityDirection.valueOf((String) row[6]),
+                (UUID) row[7],
+                (BigDecimal) row[8],
+                (BigDecimal) row[9],
+                (Instant) row[10]);
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.entity.WalletActivity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.UUID;
+
+@Repository
+public interface WalletActivityRepository extends JpaRepository<WalletActivity, UUID>, WalletActivityQueries {
+}
@@ -0,0 +1,26 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.WalletBalance;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+// Balance changes as single conditional UPDATEs: the check and the change happen in one statement, so no
+// caller reads a balance, does the arithmetic in Java and writes it back, and the row lock is only taken
+// by the write itself. Each returns the row as updated, or empty when the wallet does not exist or the
+// condition failed. available = balance - heldBalance.
+//
+// These bypass the persistence context: a Wallet entity already loaded in the same transaction is stale
+// afterwards and must not be modified and saved.
+public interface WalletBalanceQueries {
+
+    // takes debit out of the balance and moves hold into held funds, only if available covers both
+    Optional<WalletBalance> reserveAvailable(UUID walletId, BigDecimal debit, BigDecimal hold);
+
+    // returns held funds to the available balance (escrow cancelled or compensated)
+    Optional<WalletBalance> releaseHeld(UUID walletId, BigDecimal amount);
+
+    // unconditional credit, e.g. reversing a debit taken earlier in the same transaction
+    Optional<WalletBalance> credit(UUID walletId, BigDecimal amount);
+}
@@ -0,0 +1,64 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.dto.WalletBalance;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.StandardBasicTypes;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Spring Data picks this up as the implementation of WalletBalanceQueries for WalletRepository.
+class WalletBalanceQueriesImpl implements WalletBalanceQueries {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Optional<WalletBalance> reserveAvailable(UUID walletId, BigDecimal debit, BigDecimal hold) {
+        return update(walletId,
+                "balance = balance - :debit, held_balance = held_balance + :hold",
+                "balance - held_balance >= :debit + :hold",
+                debit, hold);
+    }
+
+    @Override
+    public Optional<WalletBalance> releaseHeld(UUID walletId, BigDecimal amount) {
+        return update(walletId, "held_balance = held_balance - :amount", "held_balance >= :amount", amount, null);
+    }
+
+    @Override
+    public Optional<WalletBalance> credit(UUID walletId, BigDecimal amount) {
+        return update(walletId, "balance = balance + :amount", "TRUE", amount, null);
+    }
+
+    // first/second bind :debit/:hold when the assignment names them, :amount otherwise
+    @SuppressWarnings("unchecked")
+    private Optional<WalletBalance> update(UUID walletId, String assignments, String condition,
+                                           BigDecimal first, BigDecimal second) {
+        String sql = "UPDATE wallets SET " + assignments + ", updated_at = now()"
+                + " WHERE id = :walletId AND " + condition
+                + " RETURNING balance, held_balance";
+
+        NativeQuery<Object[]> query = entityManager.createNativeQuery(sql).unwrap(NativeQuery.class)
+                .addScalar("balance", StandardBasicTypes.BIG_DECIMAL)
+                .addScalar("held_balance", StandardBasicTypes.BIG_DECIMAL);
+        query.setParameter("walletId", walletId);
+        if (second != null) {
+            query.setParameter("debit", first);
+            query.setParameter("hold", second);
+        } else {
+            query.setParameter("amount", first);
+        }
+
+        List<Object[]> rows = query.getResultList();
+        if (rows.isEmpty()) {
+            return Optional.empty();
+        }
+        Object[] row = rows.get(0);
+        return Optional.of(new WalletBalance(walletId, (BigDecimal) row[0], (BigDecimal) row[1]));
+    }
+}
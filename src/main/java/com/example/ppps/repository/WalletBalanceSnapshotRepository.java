@@ -0,0 +1,10 @@
+package com.example.ppps.repository;
+
+import com.example.ppps.entity.WalletBalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.UUID;
+
+@Repository
+public interface WalletBalanceSnapshotRepository extends JpaRepository<WalletBalanceSnapshot, UUID>, LedgerBalanceQueries {
+}
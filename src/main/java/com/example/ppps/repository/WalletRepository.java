@@ -3,14 +3,43 @@ package com.example.ppps.repository;
 import com.example.ppps.entity.Wallet;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import jakarta.persistence.LockModeType;
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface WalletRepository extends JpaRepository<Wallet, UUID> {
+public interface WalletRepository extends JpaRepository<Wallet, UUID>, WalletBalanceQueries {
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT w FROM Wallet w WHERE w.id = :id")
     Wallet findByIdWithLock(UUID id);
-}
\ No newline at end of file
+
+    // rows are locked in id order, so any two callers locking overlapping sets queue instead of deadlocking
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT w FROM Wallet w WHERE w.id IN :ids ORDER BY w.id")
+    List<Wallet> findAllByIdInWithLockOrderById(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT COALESCE(SUM(w.balance), 0) FROM Wallet w WHERE w.id IN :ids")
+    BigDecimal sumBalanceByIdIn(@Param("ids") Collection<UUID> ids);
+
+    // platform fee shards have deterministic ids, so they are inserted directly rather than generated
+    @Modifying
+    @Query(value = "INSERT INTO wallets (id, user_id, balance, held_balance, currency, created_at, updated_at) " +
+            "VALUES (:id, :userId, 0, 0, :currency, now(), now()) ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") UUID id, @Param("userId") UUID userId, @Param("currency") String currency);
+
+    // keyset walk over wallet ids for batch jobs; start from the nil UUID
+    @Query(value = "SELECT id FROM wallets WHERE id > :after ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<UUID> findIdsAfter(@Param("after") UUID after, @Param("limit") int limit);
+
+    // the first id of every run of rangeSize wallets, in id order: one index-only pass splits all wallets
+    // into ranges [start(i), start(i + 1)) that parallel jobs can take without walking ids one chunk at a time
+    @Query(value = "SELECT r.id FROM (SELECT id, row_number() OVER (ORDER BY id) AS rn FROM wallets) r " +
+            "WHERE MOD(r.rn - 1, :rangeSize) = 0 ORDER BY r.id", nativeQuery = true)
+    List<UUID> findRangeStarts(@Param("rangeSize") int rangeSize);
+}
@@ -0,0 +1,209 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.AdminPage;
+import com.example.ppps.dto.AdminPageRequest;
+import com.example.ppps.dto.AdminStats;
+import com.example.ppps.dto.AdminTransactionView;
+import com.example.ppps.dto.AdminUserView;
+import com.example.ppps.dto.AdminWalletView;
+import com.example.ppps.dto.WalletOwner;
+import com.example.ppps.entity.User;
+import com.example.ppps.enums.AdminSort;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.UserRepository;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+// Admin listings as keyset pages: each page is one projection query (rows already joined to their user)
+// plus at most one batched owner lookup, however many rows the table holds. Page tokens are opaque and
+// carry the listing, sort and last (key, id), so a token cannot be replayed against a different ordering.
+@Service
+public class AdminViewService {
+
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final String TOKEN_VERSION = "v1";
+
+    private static final Set<AdminSort> USER_SORTS = Set.of(AdminSort.PHONE);
+    private static final Set<AdminSort> WALLET_SORTS = Set.of(AdminSort.CREATED_AT, AdminSort.BALANCE);
+    private static final Set<AdminSort> TRANSACTION_SORTS = Set.of(AdminSort.CREATED_AT, AdminSort.AMOUNT);
+
+    private final UserRepository userRepository;
+    private final PlatformWalletService platformWalletService;
+    private final WalletOwnerDirectory walletOwnerDirectory;
+
+    public AdminViewService(UserRepository userRepository,
+                            PlatformWalletService platformWalletService,
+                            WalletOwnerDirectory walletOwnerDirectory) {
+        this.userRepository = userRepository;
+        this.platformWalletService = platformWalletService;
+        this.walletOwnerDirectory = walletOwnerDirectory;
+    }
+
+    // by phone number, ascending unless order=desc
+    public AdminPage<AdminUserView> users(String role, String phonePrefix, String sort, String order,
+                                          String pageToken, Integer pageSize) {
+        AdminPageRequest page = pageRequest("users", USER_SORTS, AdminSort.PHONE, false,
+                sort, order, pageToken, pageSize);
+        List<AdminUserView> rows = userRepository.findUserPage(role(role), blankToNull(phonePrefix), page);
+        return toPage("users", page, rows, AdminUserView::id, AdminUserView::sortValue, Function.identity());
+    }
+
+    // newest first by default. Fee shards are hidden and the platform wallet reports their balance folded in
+    public AdminPage<AdminWalletView> wallets(String currency, BigDecimal minBalance, BigDecimal maxBalance,
+                                              String sort, String order, String pageToken, Integer pageSize) {
+        AdminPageRequest page = pageRequest("wallets", WALLET_SORTS, AdminSort.CREATED_AT, true,
+                sort, order, pageToken, pageSize);
+        List<AdminWalletView> rows = userRepository.findWalletPage(blankToNull(currency), minBalance, maxBalance,
+                platformWalletService.getShardWalletIds(), page);
+        return toPage("wallets", page, rows, view -> view.id().toString(), AdminWalletView::sortValue,
+                view -> platformWalletService.isPlatformWallet(view.id())
+                        ? view.withBalance(platformWalletService.aggregateBalance())
+                        : view);
+    }
+
+    // newest first by default; the sender is joined in the page query, receivers come from the owner cache
+    public AdminPage<AdminTransactionView> transactions(String status, UUID walletId, Instant from, Instant to,
+                                                        String sort, String order, String pageToken,
+                                                        Integer pageSize) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+        AdminPageRequest page = pageRequest("transactions", TRANSACTION_SORTS, AdminSort.CREATED_AT, true,
+                sort, order, pageToken, pageSize);
+        List<AdminTransactionView> rows = userRepository.findTransactionPage(status(status), walletId, from, to, page);
+        Map<UUID, WalletOwner> receivers = walletOwnerDirectory.lookup(
+                rows.stream().map(AdminTransactionView::receiverWalletId).toList());
+        return toPage("transactions", page, rows, view -> view.id().toString(), AdminTransactionView::sortValue,
+                view -> {
+                    WalletOwner receiver = receivers.get(view.receiverWalletId());
+                    return view.withReceiverPhone(receiver == null ? null : receiver.phoneNumber());
+                });
+    }
+
+    public AdminStats stats() {
+        return userRepository.stats(platformWalletService.getShardWalletIds());
+    }
+
+    // the token is cut from the raw last row, before any display-only adjustment
+    private static <T> AdminPage<T> toPage(String listing, AdminPageRequest page, List<T> rows,
+                                           Function<T, String> id, SortValue<T> sortValue, Function<T, T> present) {
+        boolean hasMore = rows.size() > page.limit() - 1;
+        List<T> items = hasMore ? rows.subList(0, page.limit() - 1) : rows;
+        String nextPageToken = null;
+        if (hasMore) {
+            T last = items.get(items.size() - 1);
+            nextPageToken = encode(listing, page, id.apply(last), sortValue.of(last, page.sort()));
+        }
+        return new AdminPage<>(items.stream().map(present).toList(), nextPageToken);
+    }
+
+    // limit is pageSize + 1: the extra row only tells us whether there is a next page
+    private static AdminPageRequest pageRequest(String listing, Set<AdminSort> allowed, AdminSort defaultSort,
+                                                boolean defaultDescending, String sort, String order,
+                                                String pageToken, Integer pageSize) {
+        AdminSort sortKey = sort(sort, allowed, defaultSort);
+        boolean descending = order == null || order.isBlank() ? defaultDescending : descending(order);
+        int size = pageSize == null || pageSize <= 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+
+        if (pageToken == null || pageToken.isBlank()) {
+            return new AdminPageRequest(sortKey, descending, null, null, size + 1);
+        }
+        String[] parts = decode(pageToken);
+        if (!listing.equals(parts[1]) || !sortKey.name().equals(parts[2])
+                || descending != "DESC".equals(parts[3])) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Page token does not match the requested listing or sort");
+        }
+        try {
+            if (!"users".equals(listing)) {
+                UUID.fromString(parts[4]);
+            }
+            return new AdminPageRequest(sortKey, descending, sortKey.parse(parts[5]), parts[4], size + 1);
+        } catch (RuntimeException e) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Invalid page token");
+        }
+    }
+
+    private static AdminSort sort(String sort, Set<AdminSort> allowed, AdminSort defaultSort) {
+        if (sort == null || sort.isBlank()) {
+            return defaultSort;
+        }
+        try {
+            AdminSort parsed = AdminSort.valueOf(sort.trim().toUpperCase().replace('-', '_'));
+            if (allowed.contains(parsed)) {
+                return parsed;
+            }
+        } catch (IllegalArgumentException ignored) {
+            // reported below
+        }
+        throw new PppsException(HttpStatus.BAD_REQUEST, "Unsupported sort: " + sort + ", expected one of " + allowed);
+    }
+
+    private static boolean descending(String order) {
+        return switch (order.trim().toLowerCase()) {
+            case "desc" -> true;
+            case "asc" -> false;
+            default -> throw new PppsException(HttpStatus.BAD_REQUEST, "order must be asc or desc");
+        };
+    }
+
+    private static TransactionStatus status(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        try {
+            return TransactionStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Unknown transaction status: " + status);
+        }
+    }
+
+    private static User.UserRole role(String role) {
+        if (role == null || role.isBlank()) {
+            return null;
+        }
+        try {
+            return User.UserRole.valueOf(role.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Unknown role: " + role);
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    // the value goes last so a phone number containing the separator still splits cleanly
+    private static String encode(String listing, AdminPageRequest page, String lastId, Object lastValue) {
+        String value = lastValue instanceof BigDecimal decimal ? decimal.toPlainString() : String.valueOf(lastValue);
+        String raw = String.join("|", TOKEN_VERSION, listing, page.sort().name(),
+                page.descending() ? "DESC" : "ASC", lastId, value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|", 6);
+            if (parts.length != 6 || !TOKEN_VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("unexpected token layout");
+            }
+            return parts;
+        } catch (RuntimeException e) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Invalid page token");
+        }
+    }
+
+    private interface SortValue<T> {
+        Object of(T row, AdminSort sort);
+    }
+}
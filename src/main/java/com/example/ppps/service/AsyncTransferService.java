@@ -0,0 +1,168 @@
+package com.example.ppps.service;
+
+import com.example.ppps.controller.TransferRequest;
+import com.example.ppps.dto.TransferSubmission;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferSubmissionStatus;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.exception.TransferException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Accepts a transfer under a client Idempotency-Key, answers straight away and runs TransferService on the
+// bounded transferExecutor. Duplicate keys get the stored submission back and never execute again.
+@Service
+@Slf4j
+public class AsyncTransferService {
+
+    private final TransferService transferService;
+    private final TransferIdempotencyStore idempotencyStore;
+    private final ThreadPoolTaskExecutor transferExecutor;
+
+    // long-poll waiters on this node; other nodes fall back to re-reading the store when their wait times out
+    private final Map<UUID, CompletableFuture<TransferSubmission>> completions = new ConcurrentHashMap<>();
+
+    public AsyncTransferService(
+            TransferService transferService,
+            TransferIdempotencyStore idempotencyStore,
+            ThreadPoolTaskExecutor transferExecutor) {
+        this.transferService = transferService;
+        this.idempotencyStore = idempotencyStore;
+        this.transferExecutor = transferExecutor;
+    }
+
+    public record Submission(TransferSubmission submission, boolean duplicate) {
+    }
+
+    public Submission submit(String userId, String idempotencyKey, TransferRequest request) {
+        if (idempotencyKey == null || idempotencyKey.isBlank() || idempotencyKey.length() > 255) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Idempotency-Key must be 1-255 characters");
+        }
+
+        Instant now = Instant.now();
+        TransferSubmission submission = TransferSubmission.builder()
+                .transferId(UUID.randomUUID())
+                .userId(userId)
+                .idempotencyKey(idempotencyKey)
+                .requestHash(hash(request))
+                .receiverPhoneNumber(request.getReceiverPhoneNumber())
+                .amount(request.getAmount())
+                .status(TransferSubmissionStatus.ACCEPTED)
+                .message("Transfer accepted and is being processed")
+                .submittedAt(now)
+                .updatedAt(now)
+                .build();
+
+        Optional<TransferSubmission> existing = idempotencyStore.claim(submission);
+        if (existing.isPresent()) {
+            if (!existing.get().getRequestHash().equals(submission.getRequestHash())) {
+                throw new PppsException(HttpStatus.UNPROCESSABLE_ENTITY,
+                        "Idempotency-Key was already used for a different transfer");
+            }
+            log.info("🔁 Duplicate transfer submission - Key: {} | Transfer: {}",
+                    idempotencyKey, existing.get().getTransferId());
+            return new Submission(existing.get(), true);
+        }
+
+        completions.put(submission.getTransferId(), new CompletableFuture<>());
+        try {
+            transferExecutor.execute(() -> run(submission, request));
+        } catch (TaskRejectedException e) {
+            completions.remove(submission.getTransferId());
+            idempotencyStore.release(submission);
+            log.warn("⚠️ Transfer executor saturated - rejecting submission {}", submission.getTransferId());
+            throw new PppsException(HttpStatus.SERVICE_UNAVAILABLE, "Too many transfers in progress, retry shortly");
+        }
+
+        log.info("📥 Transfer accepted - Transfer: {} | Key: {}", submission.getTransferId(), idempotencyKey);
+        return new Submission(submission, false);
+    }
+
+    public Optional<TransferSubmission> find(UUID transferId) {
+        return idempotencyStore.find(transferId);
+    }
+
+    // finished submissions, or ones running on another node, come back already completed
+    public CompletableFuture<TransferSubmission> awaitCompletion(TransferSubmission current) {
+        if (current.isFinished()) {
+            return CompletableFuture.completedFuture(current);
+        }
+        CompletableFuture<TransferSubmission> local = completions.get(current.getTransferId());
+        return local != null ? local : CompletableFuture.completedFuture(current);
+    }
+
+    private void run(TransferSubmission submission, TransferRequest request) {
+        update(submission, TransferSubmissionStatus.PROCESSING, "Transfer is being processed");
+        try {
+            Transaction transaction = transferService.executeP2PTransfer(
+                    submission.getUserId(),
+                    request.getReceiverPhoneNumber(),
+                    request.getAmount(),
+                    request.getSecurePin(),
+                    request.getNarration());
+
+            submission.setTransactionId(transaction.getId());
+            submission.setTransactionStatus(transaction.getStatus());
+            if (transaction.getStatus() == TransactionStatus.FAILED) {
+                submission.setErrorStatus(HttpStatus.BAD_REQUEST.value());
+                update(submission, TransferSubmissionStatus.FAILED,
+                        "Transfer was declined by the payment gateway and has been reversed");
+            } else {
+                update(submission, TransferSubmissionStatus.COMPLETED,
+                        transaction.getStatus() == TransactionStatus.SUCCESS
+                                ? "Transfer completed successfully"
+                                : "Transfer accepted and is being processed");
+            }
+        } catch (PppsException e) {
+            submission.setErrorStatus(e.getStatus().value());
+            update(submission, TransferSubmissionStatus.FAILED, e.getMessage());
+        } catch (TransferException e) {
+            submission.setErrorStatus(HttpStatus.BAD_REQUEST.value());
+            update(submission, TransferSubmissionStatus.FAILED, e.getMessage());
+        } catch (Exception e) {
+            log.error("❌ Async transfer {} failed unexpectedly", submission.getTransferId(), e);
+            submission.setErrorStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            update(submission, TransferSubmissionStatus.FAILED, "Transaction failed: " + e.getMessage());
+        } finally {
+            CompletableFuture<TransferSubmission> waiter = completions.remove(submission.getTransferId());
+            if (waiter != null) {
+                waiter.complete(submission);
+            }
+        }
+    }
+
+    private void update(TransferSubmission submission, TransferSubmissionStatus status, String message) {
+        submission.setStatus(status);
+        submission.setMessage(message);
+        submission.setUpdatedAt(Instant.now());
+        idempotencyStore.save(submission);
+    }
+
+    // the PIN is deliberately left out: a retry with the same transfer details is the same request
+    private static String hash(TransferRequest request) {
+        BigDecimal amount = request.getAmount() == null ? null : request.getAmount().stripTrailingZeros();
+        String canonical = request.getReceiverPhoneNumber() + "|" + (amount == null ? "" : amount.toPlainString())
+                + "|" + (request.getNarration() == null ? "" : request.getNarration());
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(canonical.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
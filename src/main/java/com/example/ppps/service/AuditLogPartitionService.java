@@ -0,0 +1,122 @@
+package com.example.ppps.service;
+
+import com.example.ppps.repository.AuditLogRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Keeps audit_log partitioned by month: converts the table on first start, creates the next few months
+// ahead of time, and moves months past retention out of the table -- detached and kept as archive tables,
+// or dropped. Dropping or detaching a partition is a catalog change, so retention never runs a DELETE
+// over millions of rows and inserts always land in a small, recent partition.
+@Service
+@Slf4j
+public class AuditLogPartitionService {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("uuuuMM");
+    // audit_log_p202503 holds March 2025; audit_log_legacy_until_202504 holds everything before April 2025
+    private static final Pattern MONTHLY = Pattern.compile("audit_log_p(\\d{6})");
+    private static final Pattern LEGACY = Pattern.compile("audit_log_legacy_until_(\\d{6})");
+
+    private final AuditLogRepository auditLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean archive;
+
+    public AuditLogPartitionService(
+            AuditLogRepository auditLogRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.audit-log.partition.months-ahead:3}") int monthsAhead,
+            @Value("${app.audit-log.retention-months:12}") int retentionMonths,
+            @Value("${app.audit-log.archive:true}") boolean archive) {
+        this.auditLogRepository = auditLogRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archive = archive;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.audit-log.partition.maintenance-cron:0 15 3 * * *}", zone = "UTC")
+    public void maintain() {
+        maintain(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    void maintain(YearMonth current) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!auditLogRepository.tryMaintenanceLock()) {
+                log.debug("🗂️ Audit log partition maintenance already running on another node");
+                return;
+            }
+
+            YearMonth firstMonthly = current;
+            if (!auditLogRepository.isPartitioned()) {
+                // the current month stays in the legacy partition, so rows written before the switch still fit
+                firstMonthly = current.plusMonths(1);
+                auditLogRepository.convertToPartitioned("audit_log_legacy_until_" + firstMonthly.format(SUFFIX),
+                        startOf(firstMonthly));
+                log.info("🗂️ audit_log converted to monthly partitions - legacy rows kept before {}", firstMonthly);
+            }
+
+            for (YearMonth month = firstMonthly; !month.isAfter(current.plusMonths(monthsAhead));
+                 month = month.plusMonths(1)) {
+                auditLogRepository.createPartition(partitionName(month), startOf(month), startOf(month.plusMonths(1)));
+            }
+
+            if (retentionMonths > 0) {
+                expire(current.minusMonths(retentionMonths));
+            }
+        });
+    }
+
+    // anything wholly before the cutoff month goes
+    private void expire(YearMonth cutoff) {
+        for (String partition : auditLogRepository.partitionNames()) {
+            YearMonth end = endOf(partition);
+            if (end == null || end.isAfter(cutoff)) {
+                continue;
+            }
+            if (archive) {
+                String archiveName = partition.replaceFirst("^audit_log_", "audit_log_archive_");
+                auditLogRepository.archivePartition(partition, archiveName);
+                log.info("📦 Audit log partition {} archived as {}", partition, archiveName);
+            } else {
+                auditLogRepository.dropPartition(partition);
+                log.info("🗑️ Audit log partition {} dropped", partition);
+            }
+        }
+    }
+
+    static String partitionName(YearMonth month) {
+        return "audit_log_p" + month.format(SUFFIX);
+    }
+
+    // the first month a partition does not cover, or null for partitions retention leaves alone (the default)
+    private static YearMonth endOf(String partition) {
+        Matcher monthly = MONTHLY.matcher(partition);
+        if (monthly.matches()) {
+            return YearMonth.parse(monthly.group(1), SUFFIX).plusMonths(1);
+        }
+        Matcher legacy = LEGACY.matcher(partition);
+        if (legacy.matches()) {
+            return YearMonth.parse(legacy.group(1), SUFFIX);
+        }
+        return null;
+    }
+
+    private static Instant startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
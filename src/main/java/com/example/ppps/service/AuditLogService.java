@@ -1,19 +1,67 @@
 package com.example.ppps.service;
 
+import com.example.ppps.dto.AdminPage;
+import com.example.ppps.dto.AuditLogEntry;
+import com.example.ppps.dto.AuditLogFilter;
 import com.example.ppps.entity.AuditLog;
+import com.example.ppps.exception.PppsException;
 import com.example.ppps.repository.AuditLogRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
 
 @Service
 @RequiredArgsConstructor
 public class AuditLogService {
 
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final String TOKEN_VERSION = "v1";
+
     private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
 
+    // queued for the async writer once the caller's transaction commits -- nothing is recorded for work that
+    // rolls back -- and the commit does not wait for the insert
     public void recordAction(String actorId, String action, String entityName, String entityId, String details) {
-        AuditLog log = AuditLog.builder()
+        AuditLog record = entry(actorId, action, entityName, entityId, details);
+        afterCommit(() -> auditLogWriter.submit(record));
+    }
+
+    // as above, with details formatted by the writer rather than on the caller's thread
+    public void recordAction(String actorId, String action, String entityName, String entityId,
+                             String detailsFormat, Object... args) {
+        AuditLog record = entry(actorId, action, entityName, entityId, null);
+        afterCommit(() -> auditLogWriter.submit(record, detailsFormat, args));
+    }
+
+    // compliance-critical actions: inserted in the caller's transaction, so the record commits or rolls back with it
+    public void recordCriticalAction(String actorId, String action, String entityName, String entityId, String details) {
+        auditLogRepository.save(entry(actorId, action, entityName, entityId, details));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private static AuditLog entry(String actorId, String action, String entityName, String entityId, String details) {
+        return AuditLog.builder()
                 .actorId(actorId)
                 .action(action)
                 .entityName(entityName)
@@ -21,6 +69,48 @@ public class AuditLogService {
                 .details(details)
                 .timestamp(Instant.now())
                 .build();
-        auditLogRepository.save(log);
+    }
+
+    // newest first with keyset paging on (timestamp, id); the token is the last row of the previous page
+    public AdminPage<AuditLogEntry> search(AuditLogFilter filter, String pageToken, Integer pageSize) {
+        checkRange(filter);
+        int size = pageSize == null || pageSize <= 0 ? DEFAULT_PAGE_SIZE : Math.min(pageSize, MAX_PAGE_SIZE);
+        Cursor cursor = pageToken == null || pageToken.isBlank() ? null : decode(pageToken);
+
+        // one extra row tells us whether there is a next page
+        List<AuditLogEntry> rows = auditLogRepository.search(filter,
+                cursor == null ? null : cursor.timestamp(),
+                cursor == null ? null : cursor.id(),
+                size + 1);
+
+        boolean hasMore = rows.size() > size;
+        List<AuditLogEntry> page = hasMore ? rows.subList(0, size) : rows;
+        return new AdminPage<>(page, hasMore ? encode(page.get(page.size() - 1)) : null);
+    }
+
+    private static void checkRange(AuditLogFilter filter) {
+        if (filter.from() != null && filter.to() != null && !filter.from().isBefore(filter.to())) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+    }
+
+    private record Cursor(Instant timestamp, UUID id) {
+    }
+
+    private static String encode(AuditLogEntry last) {
+        String raw = TOKEN_VERSION + "|" + last.timestamp() + "|" + last.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !TOKEN_VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("unexpected token layout");
+            }
+            return new Cursor(Instant.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Invalid page token");
+        }
     }
 }
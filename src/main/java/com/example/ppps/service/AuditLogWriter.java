@@ -0,0 +1,337 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.AuditLog;
+import com.example.ppps.enums.AuditOverflowPolicy;
+import com.example.ppps.repository.AuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Takes audit records off the request path. Callers hand a record over and return; one writer thread
+// groups records into multi-row INSERTs of up to batch-size rows, flushing whenever a batch fills or
+// flush-interval has passed since its first record.
+//
+// Default mode buffers in a bounded in-memory ring; when it is full the overflow policy decides between
+// dropping (counted), waiting briefly, or writing on the caller's thread. Strict mode appends every
+// record to a local spool file, forced to disk, before returning -- nothing is dropped, a crash replays
+// the spool on the next start, and the price is an fsync per record.
+//
+// On shutdown the writer stops taking records and drains what it holds within shutdown-timeout, finishing
+// any batch it is in the middle of; late records are written on the caller's thread.
+@Service
+@Slf4j
+public class AuditLogWriter {
+
+    private static final int WRITE_ATTEMPTS = 3;
+
+    private final AuditLogRepository auditLogRepository;
+    private final TransactionTemplate transactionTemplate;
+    // records reach the writer from afterCommit, where the caller's finished transaction is still bound to
+    // the thread; a save joining it would never be flushed
+    private final TransactionTemplate callerTransactionTemplate;
+    private final AuditOverflowPolicy overflowPolicy;
+    private final Duration offerTimeout;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Duration shutdownTimeout;
+    private final ArrayBlockingQueue<Pending> buffer;
+    private final AuditSpool spool;
+    // strict mode: released when the open spool segment reaches a full batch, so the writer need not wait
+    private final Semaphore spoolReady = new Semaphore(0);
+    private final Thread writer;
+    private volatile boolean accepting = true;
+
+    private final MeterRegistry meterRegistry;
+    private final Counter writtenCounter;
+    private final Counter failedFlushCounter;
+    private final Timer flushTimer;
+
+    public AuditLogWriter(
+            AuditLogRepository auditLogRepository,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.audit-log.async.capacity:8192}") int capacity,
+            @Value("${app.audit-log.async.overflow-policy:CALLER_WRITES}") AuditOverflowPolicy overflowPolicy,
+            @Value("${app.audit-log.async.offer-timeout:50ms}") Duration offerTimeout,
+            @Value("${app.audit-log.async.batch-size:500}") int batchSize,
+            @Value("${app.audit-log.async.flush-interval:200ms}") Duration flushInterval,
+            @Value("${app.audit-log.async.shutdown-timeout:10s}") Duration shutdownTimeout,
+            @Value("${app.audit-log.async.strict:false}") boolean strict,
+            @Value("${app.audit-log.async.spool-dir:./data/audit-spool}") String spoolDir) {
+        this.auditLogRepository = auditLogRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.callerTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.callerTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.overflowPolicy = overflowPolicy;
+        this.offerTimeout = offerTimeout;
+        this.batchSize = batchSize;
+        this.flushInterval = flushInterval;
+        this.shutdownTimeout = shutdownTimeout;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.spool = strict ? new AuditSpool(Path.of(spoolDir), objectMapper) : null;
+
+        this.meterRegistry = meterRegistry;
+        this.writtenCounter = Counter.builder("ppps.audit.written")
+                .description("Audit records inserted by the async writer")
+                .register(meterRegistry);
+        this.failedFlushCounter = Counter.builder("ppps.audit.flush.failed")
+                .description("Audit batches that could not be inserted")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("ppps.audit.flush")
+                .description("Time to insert one batch of audit records")
+                .register(meterRegistry);
+        Gauge.builder("ppps.audit.buffered", buffer, ArrayBlockingQueue::size)
+                .description("Audit records waiting in memory for the writer")
+                .register(meterRegistry);
+
+        this.writer = Thread.ofPlatform().name("audit-writer").daemon(true)
+                .unstarted(strict ? this::runSpooled : this::runBuffered);
+        this.writer.start();
+        log.info("📝 Audit writer started - Mode: {} | Batch: {} | Flush: {}ms",
+                strict ? "strict (spool " + spoolDir + ")" : "buffered (" + capacity + ", " + overflowPolicy + ")",
+                batchSize, flushInterval.toMillis());
+    }
+
+    // hands the record to the writer; the id is assigned here so a replayed spool cannot insert it twice
+    public void submit(AuditLog record) {
+        submit(record, null);
+    }
+
+    // details are formatted on the writer thread; args must not change after the call (String, BigDecimal, UUID)
+    public void submit(AuditLog record, String detailsFormat, Object... args) {
+        record.setId(UUID.randomUUID());
+        Pending pending = new Pending(record, detailsFormat, args);
+        if (!accepting) {
+            writeOnCaller(pending.resolve(), "shutdown");
+            return;
+        }
+        if (spool != null) {
+            spoolRecord(pending.resolve());
+            return;
+        }
+        if (buffer.offer(pending)) {
+            return;
+        }
+
+        overflow();
+        switch (overflowPolicy) {
+            case DROP -> dropped("overflow");
+            case BLOCK -> {
+                try {
+                    if (!buffer.offer(pending, offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                        dropped("overflow");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped("interrupted");
+                }
+            }
+            case CALLER_WRITES -> writeOnCaller(pending.resolve(), "overflow");
+        }
+    }
+
+    private void spoolRecord(AuditLog record) {
+        try {
+            spool.append(record);
+            if (spool.openRecords() >= batchSize) {
+                spoolReady.release();
+            }
+        } catch (IOException e) {
+            // the spool is the durability guarantee; if the disk fails, fall back to the database directly
+            log.error("❌ Audit spool append failed, writing on caller - Error: {}", e.getMessage());
+            writeOnCaller(record, "spool-failure");
+        }
+    }
+
+    private void runBuffered() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        while (accepting || !buffer.isEmpty()) {
+            try {
+                Pending first = buffer.poll(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fill(batch);
+                if (!flushWithRetry(batch.stream().map(Pending::resolve).toList())) {
+                    dropped("write-failed", batch.size());
+                }
+            } catch (InterruptedException e) {
+                // not interrupted by shutdown(), which waits for the drain; the loop condition decides
+            } finally {
+                // a batch is attempted once, however its flush ended, so nothing is inserted twice
+                batch.clear();
+            }
+        }
+    }
+
+    // tops the batch up until it is full or flush-interval has passed since its first record
+    private void fill(List<Pending> batch) {
+        long deadline = System.nanoTime() + flushInterval.toNanos();
+        while (batch.size() < batchSize) {
+            buffer.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0 || !accepting) {
+                return;
+            }
+            try {
+                Pending next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return;
+                }
+                batch.add(next);
+            } catch (InterruptedException e) {
+                // write what we have, the main loop drains the rest
+                return;
+            }
+        }
+    }
+
+    private void runSpooled() {
+        while (true) {
+            try {
+                spoolReady.tryAcquire(flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+                spoolReady.drainPermits();
+            } catch (InterruptedException e) {
+                // fall through to a replay; shutdown() wakes the writer with a permit instead
+            }
+            // read before replaying, so records spooled during a replay that overlaps shutdown get one more pass
+            boolean last = !accepting;
+            replaySpool();
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    // a segment is deleted only once all of its rows have committed; a failure leaves it for the next pass
+    private void replaySpool() {
+        try {
+            spool.seal();
+            for (Path segment : spool.sealedSegments()) {
+                List<AuditLog> records = spool.read(segment);
+                for (int from = 0; from < records.size(); from += batchSize) {
+                    if (!flush(records.subList(from, Math.min(records.size(), from + batchSize)))) {
+                        return;
+                    }
+                }
+                spool.delete(segment);
+            }
+        } catch (IOException e) {
+            log.error("❌ Audit spool replay failed - Error: {}", e.getMessage());
+        }
+    }
+
+    // buffered records have nowhere else to go, so a failing batch gets a couple more tries before it is dropped
+    private boolean flushWithRetry(List<AuditLog> batch) {
+        for (int attempt = 1; attempt <= WRITE_ATTEMPTS; attempt++) {
+            if (flush(batch)) {
+                return true;
+            }
+            if (attempt < WRITE_ATTEMPTS) {
+                LockSupport.parkNanos(flushInterval.toNanos() * attempt);
+            }
+        }
+        return false;
+    }
+
+    private boolean flush(List<AuditLog> batch) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            transactionTemplate.executeWithoutResult(status -> auditLogRepository.insertBatch(batch));
+            writtenCounter.increment(batch.size());
+            return true;
+        } catch (RuntimeException e) {
+            failedFlushCounter.increment();
+            log.error("❌ Audit batch insert failed - Records: {} | Error: {}", batch.size(), e.getMessage());
+            return false;
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    // in a transaction of its own, committed before the caller moves on
+    private void writeOnCaller(AuditLog record, String reason) {
+        record.setId(null);
+        callerTransactionTemplate.executeWithoutResult(status -> auditLogRepository.save(record));
+        Counter.builder("ppps.audit.caller_writes")
+                .description("Audit records written on the caller's thread instead of by the writer")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void overflow() {
+        Counter.builder("ppps.audit.overflow")
+                .description("Times the audit buffer was full when a record arrived")
+                .tag("policy", overflowPolicy.name())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void dropped(String reason) {
+        dropped(reason, 1);
+    }
+
+    private void dropped(String reason, int count) {
+        Counter.builder("ppps.audit.dropped")
+                .description("Audit records lost by the async writer")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment(count);
+        log.warn("⚠️ Audit records dropped - Count: {} | Reason: {}", count, reason);
+    }
+
+    // the writer notices within flush-interval and drains; interrupting it could abort a batch mid-insert
+    @PreDestroy
+    public void shutdown() {
+        accepting = false;
+        spoolReady.release();
+        try {
+            writer.join(shutdownTimeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("⚠️ Audit writer did not drain within {}ms - {} records still buffered",
+                    shutdownTimeout.toMillis(), buffer.size());
+        }
+        if (spool != null) {
+            try {
+                spool.close();
+            } catch (IOException e) {
+                log.warn("⚠️ Audit spool close failed - Error: {}", e.getMessage());
+            }
+        }
+        log.info("📝 Audit writer stopped - Remaining in memory: {}", buffer.size());
+    }
+
+    private record Pending(AuditLog record, String detailsFormat, Object[] args) {
+        AuditLog resolve() {
+            if (detailsFormat != null) {
+                record.setDetails(String.format(detailsFormat, args));
+            }
+            return record;
+        }
+    }
+}
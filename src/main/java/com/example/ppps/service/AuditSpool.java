@@ -0,0 +1,130 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.AuditLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+// Append-only local spool for strict audit mode: one JSON line per record, forced to disk before append()
+// returns. Records go to the open segment; the writer seals it and replays sealed segments into the
+// database, deleting each one only after its rows have committed. Whatever is on disk at startup is
+// replayed the same way, so a crash loses nothing.
+// Guarded by a ReentrantLock rather than synchronized: append holds it across the fsync, and a virtual
+// thread parked on a lock releases its carrier where one blocked in a monitor would pin it.
+class AuditSpool {
+
+    private static final String OPEN_SUFFIX = ".open";
+    private static final String SEALED_SUFFIX = ".ndjson";
+
+    private final Path directory;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel open;
+    private Path openPath;
+    private int openRecords;
+    private long nextSegment;
+
+    AuditSpool(Path directory, ObjectMapper objectMapper) {
+        this.directory = directory;
+        this.objectMapper = objectMapper;
+        try {
+            Files.createDirectories(directory);
+            // a segment left open by a crash is complete up to its last forced line
+            try (Stream<Path> leftovers = Files.list(directory)) {
+                for (Path path : leftovers.filter(p -> p.toString().endsWith(OPEN_SUFFIX)).toList()) {
+                    Files.move(path, sealedPath(path));
+                }
+            }
+            this.nextSegment = System.currentTimeMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot prepare audit spool at " + directory, e);
+        }
+    }
+
+    void append(AuditLog record) throws IOException {
+        // serialized before taking the lock; only the write and the fsync need it
+        byte[] line = (objectMapper.writeValueAsString(record) + "\n").getBytes(StandardCharsets.UTF_8);
+        lock.lock();
+        try {
+            if (open == null) {
+                openPath = directory.resolve(String.format("audit-%020d%s", nextSegment++, OPEN_SUFFIX));
+                open = FileChannel.open(openPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(line);
+            while (buffer.hasRemaining()) {
+                open.write(buffer);
+            }
+            open.force(false);
+            openRecords++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int openRecords() {
+        lock.lock();
+        try {
+            return openRecords;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // closes the open segment so the writer can pick it up; the next append starts a new one
+    void seal() throws IOException {
+        lock.lock();
+        try {
+            if (open == null) {
+                return;
+            }
+            open.close();
+            Files.move(openPath, sealedPath(openPath));
+            open = null;
+            openPath = null;
+            openRecords = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // oldest first; segment names sort by creation
+    List<Path> sealedSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(p -> p.toString().endsWith(SEALED_SUFFIX)).sorted().toList();
+        }
+    }
+
+    List<AuditLog> read(Path segment) throws IOException {
+        List<AuditLog> records = new ArrayList<>();
+        for (String line : Files.readAllLines(segment, StandardCharsets.UTF_8)) {
+            if (!line.isBlank()) {
+                records.add(objectMapper.readValue(line, AuditLog.class));
+            }
+        }
+        return records;
+    }
+
+    void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+
+    void close() throws IOException {
+        seal();
+    }
+
+    private static Path sealedPath(Path openSegment) {
+        String name = openSegment.getFileName().toString();
+        return openSegment.resolveSibling(name.substring(0, name.length() - OPEN_SUFFIX.length()) + SEALED_SUFFIX);
+    }
+}
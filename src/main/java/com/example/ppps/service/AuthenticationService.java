@@ -6,17 +6,11 @@ import com.example.ppps.entity.User;
 import com.example.ppps.entity.Wallet;
 import com.example.ppps.repository.UserRepository;
 import com.example.ppps.repository.WalletRepository;
-import io.jsonwebtoken.Jwts;
-import io.jsonwebtoken.security.Keys;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import javax.crypto.SecretKey;
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
-import java.util.Date;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -32,11 +26,11 @@ public class AuthenticationService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
+    @Autowired
+    private JwtTokenService jwtTokenService;
 
-    @Value("${jwt.expiration}")
-    private long jwtExpirationMs;
+    @Autowired
+    private PinVerificationService pinVerificationService;
 
     // register user
     @Transactional
@@ -70,16 +64,7 @@ public class AuthenticationService {
         savedUser.setWallet(savedWallet);
 
         //generate JWT token
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
-        String token = Jwts.builder()
-                .setSubject(savedUser.getUserId())
-                .claim("phoneNumber", savedUser.getPhoneNumber())
-                .claim("role", savedUser.getRole().name()) // Include role in token
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(key)
-                .compact();
+        String token = jwtTokenService.issue(savedUser, false);
         AuthenticationResponse response = new AuthenticationResponse();
         response.setToken(token);
         response.setUserId(savedUser.getUserId());
@@ -94,20 +79,11 @@ public class AuthenticationService {
         User user = userOptional.map(u -> (User) u)
                 .orElseThrow(() -> new SecurityException("User not found: " + phoneNumber));
 
-        if (!passwordEncoder.matches(pin, user.getHashedPin())) {
+        if (!pinVerificationService.matches(user.getUserId(), pin, user.getHashedPin())) {
             throw new SecurityException("Invalid PIN for user: " + phoneNumber);
         }
 
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
-        String token = Jwts.builder()
-                .setSubject(user.getUserId())
-                .claim("phoneNumber", user.getPhoneNumber())
-                .claim("role", user.getRole().name()) // Include role in token
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(key)
-                .compact();
+        String token = jwtTokenService.issue(user, false);
 
         AuthenticationResponse response = new AuthenticationResponse();
         response.setToken(token);
@@ -123,7 +99,7 @@ public class AuthenticationService {
         User user = userOptional.map(u -> (User) u)
                 .orElseThrow(() -> new SecurityException("Admin user not found: " + phoneNumber));
 
-        if (!passwordEncoder.matches(pin, user.getHashedPin())) {
+        if (!pinVerificationService.matches(user.getUserId(), pin, user.getHashedPin())) {
             throw new SecurityException("Invalid PIN for admin: " + phoneNumber);
         }
 
@@ -131,17 +107,8 @@ public class AuthenticationService {
             throw new SecurityException("Admin access required. User is not an administrator.");
         }
 
-        SecretKey key = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
-
-        String token = Jwts.builder()
-                .setSubject(user.getUserId())
-                .claim("phoneNumber", user.getPhoneNumber())
-                .claim("role", user.getRole().name()) // Will be "ADMIN"
-                .claim("isAdmin", true) // Additional admin claim for easy checking
-                .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
-                .signWith(key)
-                .compact();
+        // role claim will be "ADMIN", plus an isAdmin claim for easy checking
+        String token = jwtTokenService.issue(user, true);
         AuthenticationResponse response = new AuthenticationResponse();
         response.setToken(token);
         response.setUserId(user.getUserId());
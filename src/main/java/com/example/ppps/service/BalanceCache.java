@@ -0,0 +1,265 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.CachedBalance;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Wallet balances for reads, in two tiers: a per-node Caffeine cache in front of a shared Redis copy.
+// Every committed balance change invalidates both through evictAfterCommit -- the local entry at once, the
+// Redis value and its generation counter in one script, which also publishes the wallet id so other nodes
+// drop their local copy. A Redis value only counts as a hit while its generation matches the counter, so a
+// reader that loaded the row just before a write committed can never park the old balance there. Pub/sub
+// is fire-and-forget: the short local TTL bounds how long a node that missed a message can serve stale.
+// If Redis is unreachable reads fall through to the database.
+@Service
+@Slf4j
+public class BalanceCache implements MessageListener {
+
+    public static final String CHANNEL = "ppps:balance:invalidations";
+    private static final String VALUE_PREFIX = "ppps:balance:";
+    private static final String GENERATION_PREFIX = "ppps:balance:generation:";
+
+    // KEYS: value and generation key of each wallet, in pairs; ARGV: generation ttl in ms, channel, message.
+    // One round trip however many wallets the commit touched
+    private static final RedisScript<Long> INVALIDATE = new DefaultRedisScript<>("""
+            for i = 1, #KEYS, 2 do
+                redis.call('INCR', KEYS[i + 1])
+                redis.call('PEXPIRE', KEYS[i + 1], ARGV[1])
+                redis.call('DEL', KEYS[i])
+            end
+            return redis.call('PUBLISH', ARGV[2], ARGV[3])
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration redisTtl;
+    private final Cache<UUID, CachedBalance> local;
+    // bumped by every local invalidation; a value loaded while it moved is served but not cached
+    private final AtomicLong localInvalidations = new AtomicLong();
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final Counter redisErrors;
+    private final Timer servedAge;
+    private final Timer invalidationLag;
+
+    public BalanceCache(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.balance-cache.local.ttl:5s}") Duration localTtl,
+            @Value("${app.balance-cache.local.max-size:100000}") long localMaxSize,
+            @Value("${app.balance-cache.redis.ttl:60s}") Duration redisTtl) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.redisTtl = redisTtl;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, local, "balances.local");
+
+        this.localHits = requests(meterRegistry, "local");
+        this.redisHits = requests(meterRegistry, "redis");
+        this.misses = requests(meterRegistry, "database");
+        this.redisErrors = Counter.builder("ppps.balance.cache.redis.errors")
+                .description("Balance cache reads and invalidations that could not reach Redis")
+                .register(meterRegistry);
+        this.servedAge = Timer.builder("ppps.balance.cache.age")
+                .description("Age of balances served from either cache tier, i.e. how stale a read can be")
+                .register(meterRegistry);
+        this.invalidationLag = Timer.builder("ppps.balance.cache.invalidation.lag")
+                .description("Time from a commit on another node to this node dropping its local copy")
+                .register(meterRegistry);
+        Gauge.builder("ppps.balance.cache.hit.ratio", this, BalanceCache::hitRatio)
+                .description("Share of balance reads answered by either cache tier")
+                .register(meterRegistry);
+    }
+
+    // the loader reads the wallet from the database; its generation is filled in here
+    public CachedBalance get(UUID walletId, Function<UUID, CachedBalance> loader) {
+        CachedBalance cached = local.getIfPresent(walletId);
+        if (cached != null) {
+            localHits.increment();
+            servedAge.record(age(cached));
+            return cached;
+        }
+
+        long invalidationsBefore = localInvalidations.get();
+        Long generation = null;
+        try {
+            List<String> values = redisTemplate.opsForValue().multiGet(
+                    List.of(VALUE_PREFIX + walletId, GENERATION_PREFIX + walletId));
+            generation = values == null || values.get(1) == null ? 0L : Long.parseLong(values.get(1));
+            CachedBalance shared = values == null || values.get(0) == null ? null : read(values.get(0));
+            if (shared != null && shared.generation() == generation) {
+                redisHits.increment();
+                servedAge.record(age(shared));
+                keepLocally(shared, invalidationsBefore);
+                return shared;
+            }
+        } catch (DataAccessException e) {
+            redisErrors.increment();
+            log.debug("⚠️ Balance cache read from Redis failed, using the database - Wallet: {} | Error: {}",
+                    walletId, e.getMessage());
+        }
+
+        misses.increment();
+        CachedBalance loaded = loader.apply(walletId);
+        if (generation != null) {
+            loaded = loaded.withGeneration(generation);
+            try {
+                redisTemplate.opsForValue().set(VALUE_PREFIX + walletId, write(loaded), redisTtl);
+            } catch (DataAccessException e) {
+                redisErrors.increment();
+            }
+        }
+        keepLocally(loaded, invalidationsBefore);
+        return loaded;
+    }
+
+    // call from inside the transaction that changes the balances; nothing happens if it rolls back
+    public void evictAfterCommit(UUID... walletIds) {
+        evictAfterCommit(Arrays.asList(walletIds));
+    }
+
+    public void evictAfterCommit(Collection<UUID> walletIds) {
+        Set<UUID> ids = new LinkedHashSet<>(walletIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(ids);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(ids);
+            }
+        });
+    }
+
+    void evict(Collection<UUID> walletIds) {
+        List<String> keys = new ArrayList<>(walletIds.size() * 2);
+        StringJoiner ids = new StringJoiner(",");
+        for (UUID walletId : walletIds) {
+            invalidateLocal(walletId);
+            keys.add(VALUE_PREFIX + walletId);
+            keys.add(GENERATION_PREFIX + walletId);
+            ids.add(walletId.toString());
+        }
+        String message = ids + "|" + nodeId + "|" + System.currentTimeMillis();
+        try {
+            redisTemplate.execute(INVALIDATE, keys,
+                    String.valueOf(redisTtl.multipliedBy(2).toMillis()), CHANNEL, message);
+        } catch (DataAccessException e) {
+            // the Redis values outlive this change until their TTL; other nodes' copies until their local TTL
+            redisErrors.increment();
+            log.warn("⚠️ Balance cache invalidation could not reach Redis - Wallets: {} | Error: {}",
+                    ids, e.getMessage());
+        }
+    }
+
+    // another node committed a balance change: "walletId,walletId,...|nodeId|sentAtMillis"
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|");
+        if (parts.length != 3) {
+            log.warn("⚠️ Ignoring malformed balance invalidation: {}", Arrays.toString(parts));
+            return;
+        }
+        if (Objects.equals(parts[1], nodeId)) {
+            return;
+        }
+        for (String walletId : parts[0].split(",")) {
+            invalidateLocal(UUID.fromString(walletId));
+        }
+        invalidationLag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - Long.parseLong(parts[2]))));
+    }
+
+    private void invalidateLocal(UUID walletId) {
+        localInvalidations.incrementAndGet();
+        local.invalidate(walletId);
+    }
+
+    private void keepLocally(CachedBalance balance, long invalidationsBefore) {
+        local.put(balance.walletId(), balance);
+        // an invalidation landed while we were reading; the value may predate it, so don't keep it
+        if (localInvalidations.get() != invalidationsBefore) {
+            local.invalidate(balance.walletId());
+        }
+    }
+
+    private double hitRatio() {
+        double hits = localHits.count() + redisHits.count();
+        double total = hits + misses.count();
+        return total == 0 ? 0 : hits / total;
+    }
+
+    private static Duration age(CachedBalance balance) {
+        Duration age = Duration.between(balance.loadedAt(), Instant.now());
+        return age.isNegative() ? Duration.ZERO : age;
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String answeredBy) {
+        return Counter.builder("ppps.balance.cache.requests")
+                .tag("answered_by", answeredBy)
+                .description("Balance reads by the tier that answered them")
+                .register(meterRegistry);
+    }
+
+    private String write(CachedBalance balance) {
+        try {
+            return objectMapper.writeValueAsString(balance);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize cached balance", e);
+        }
+    }
+
+    private CachedBalance read(String json) {
+        try {
+            return objectMapper.readValue(json, CachedBalance.class);
+        } catch (JsonProcessingException e) {
+            // written by an older version; treat as a miss and overwrite it
+            log.debug("⚠️ Unreadable cached balance, reloading: {}", e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.WalletBalance;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.BalanceUpdateStrategy;
+import com.example.ppps.exception.InsufficientFundsException;
+import com.example.ppps.exception.WalletNotFoundException;
+import com.example.ppps.repository.WalletRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Single-wallet balance changes under either BalanceUpdateStrategy. Both return the row as it stands after
+// the change, so callers record ledger entries from the same numbers, and both keep the wallet row locked
+// until the caller's transaction ends. CONDITIONAL never loads the wallet entity: a Wallet already managed
+// in the same transaction is stale afterwards and must not be modified and saved. The exceptions thrown here
+// mean nothing was changed, so they leave the caller's transaction usable if it chooses to carry on.
+// Every change evicts the wallet from BalanceCache once the caller's transaction commits.
+@Service
+@Slf4j
+public class BalanceMutationService {
+
+    private final WalletRepository walletRepository;
+    private final WalletLockService walletLockService;
+    private final BalanceCache balanceCache;
+    private final MeterRegistry meterRegistry;
+
+    public BalanceMutationService(WalletRepository walletRepository,
+                                  WalletLockService walletLockService,
+                                  BalanceCache balanceCache,
+                                  MeterRegistry meterRegistry) {
+        this.walletRepository = walletRepository;
+        this.walletLockService = walletLockService;
+        this.balanceCache = balanceCache;
+        this.meterRegistry = meterRegistry;
+    }
+
+    // takes amount out of the available balance, or throws InsufficientFundsException
+    @Transactional(propagation = Propagation.MANDATORY,
+            noRollbackFor = {InsufficientFundsException.class, WalletNotFoundException.class})
+    public WalletBalance debit(UUID walletId, BigDecimal amount, BalanceUpdateStrategy strategy, String operation) {
+        return reserve(walletId, amount, BigDecimal.ZERO, strategy, operation);
+    }
+
+    // takes debit out of the balance and moves hold into held funds, only if the available balance covers both
+    @Transactional(propagation = Propagation.MANDATORY,
+            noRollbackFor = {InsufficientFundsException.class, WalletNotFoundException.class})
+    public WalletBalance reserve(UUID walletId, BigDecimal debit, BigDecimal hold,
+                                 BalanceUpdateStrategy strategy, String operation) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            if (strategy == BalanceUpdateStrategy.CONDITIONAL) {
+                WalletBalance reserved = walletRepository.reserveAvailable(walletId, debit, hold)
+                        .orElseThrow(() -> insufficientFunds(walletId, debit.add(hold), operation));
+                balanceCache.evictAfterCommit(walletId);
+                return reserved;
+            }
+
+            Wallet wallet = walletLockService.lock(walletId, operation);
+            if (wallet == null) {
+                throw new WalletNotFoundException("Wallet not found: " + walletId);
+            }
+            if (wallet.getAvailableBalance().compareTo(debit.add(hold)) < 0) {
+                throw insufficientFunds(wallet, debit.add(hold), operation);
+            }
+            wallet.setBalance(wallet.getBalance().subtract(debit));
+            wallet.setHeldBalance(wallet.getHeldBalance().add(hold));
+            walletRepository.save(wallet);
+            balanceCache.evictAfterCommit(walletId);
+            return new WalletBalance(walletId, wallet.getBalance(), wallet.getHeldBalance());
+        } finally {
+            sample.stop(timer("debit", strategy, operation));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY,
+            noRollbackFor = {InsufficientFundsException.class, WalletNotFoundException.class})
+    public WalletBalance credit(UUID walletId, BigDecimal amount, BalanceUpdateStrategy strategy, String operation) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            if (strategy == BalanceUpdateStrategy.CONDITIONAL) {
+                WalletBalance credited = walletRepository.credit(walletId, amount)
+                        .orElseThrow(() -> new WalletNotFoundException("Wallet not found: " + walletId));
+                balanceCache.evictAfterCommit(walletId);
+                return credited;
+            }
+
+            Wallet wallet = walletLockService.lock(walletId, operation);
+            if (wallet == null) {
+                throw new WalletNotFoundException("Wallet not found: " + walletId);
+            }
+            wallet.setBalance(wallet.getBalance().add(amount));
+            walletRepository.save(wallet);
+            balanceCache.evictAfterCommit(walletId);
+            return new WalletBalance(walletId, wallet.getBalance(), wallet.getHeldBalance());
+        } finally {
+            sample.stop(timer("credit", strategy, operation));
+        }
+    }
+
+    // the conditional update matched no row: either the wallet is missing or its available balance is short
+    private InsufficientFundsException insufficientFunds(UUID walletId, BigDecimal required, String operation) {
+        Wallet wallet = walletRepository.findById(walletId)
+                .orElseThrow(() -> new WalletNotFoundException("Wallet not found: " + walletId));
+        return insufficientFunds(wallet, required, operation);
+    }
+
+    private InsufficientFundsException insufficientFunds(Wallet wallet, BigDecimal required, String operation) {
+        Counter.builder("ppps.wallet.balance.insufficient")
+                .tag("operation", operation)
+                .description("Debits refused because the available balance was short")
+                .register(meterRegistry)
+                .increment();
+        log.warn("⚠️ Insufficient funds - Operation: {} | Required: {}, Available: {}",
+                operation, required, wallet.getAvailableBalance());
+        return new InsufficientFundsException(
+                String.format("Insufficient funds. Required: %.2f, Available: %.2f",
+                        required, wallet.getAvailableBalance())
+        );
+    }
+
+    private Timer timer(String direction, BalanceUpdateStrategy strategy, String operation) {
+        return Timer.builder("ppps.wallet.balance.update")
+                .tag("direction", direction)
+                .tag("strategy", strategy.name())
+                .tag("operation", operation)
+                .description("Time to apply one wallet balance change, row lock included")
+                .register(meterRegistry);
+    }
+}
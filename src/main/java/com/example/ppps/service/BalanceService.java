@@ -1,13 +1,26 @@
 package com.example.ppps.service;
 
 import com.example.ppps.controller.BalanceResponse;
+import com.example.ppps.dto.CachedBalance;
+import com.example.ppps.dto.WalletBalance;
+import com.example.ppps.entity.Transaction;
 import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.BalanceUpdateStrategy;
+import com.example.ppps.enums.EntryType;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.exception.WalletNotFoundException;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.UserRepository;
 import com.example.ppps.repository.WalletRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.RequiredArgsConstructor;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional; // 1. Import Transactional
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -16,50 +29,93 @@ public class BalanceService {
 
     private final WalletRepository walletRepository;
     private final AuditLogService auditLogService; // Inject the AuditLog service
+    private final PlatformWalletService platformWalletService;
+    private final BalanceMutationService balanceMutationService;
+    private final BalanceCache balanceCache;
+    private final UserRepository userRepository;
+    private final LedgerService ledgerService;
+    private final TransactionRepository transactionRepository;
+    private final Cache<String, UUID> walletIdsByUser = Caffeine.newBuilder().maximumSize(100_000).build();
 
-    // retrieve the current balance for a given walletId
+    @Value("${app.wallet.balance-strategy.deposit:CONDITIONAL}")
+    private BalanceUpdateStrategy depositStrategy = BalanceUpdateStrategy.CONDITIONAL;
 
-   @Cacheable(value = "balances", key = "#walletId")
+    // retrieve the current balance for a given walletId -- through the balance cache, except for the platform
+    // wallet and its fee shards, whose revenue is spread over the shards until the next sweep
     public BalanceResponse getBalance(UUID walletId) {
-        Wallet wallet = walletRepository.findById(walletId)
-                .orElseThrow(() -> new IllegalArgumentException("Wallet not found"));
+        if (platformWalletService.isPlatformWallet(walletId) || platformWalletService.isShardWallet(walletId)) {
+            Wallet wallet = walletRepository.findById(walletId)
+                    .orElseThrow(() -> new IllegalArgumentException("Wallet not found"));
+            BalanceResponse response = new BalanceResponse();
+            response.setBalance(platformWalletService.isPlatformWallet(walletId)
+                    ? platformWalletService.aggregateBalance()
+                    : wallet.getAvailableBalance());
+            response.setHeldBalance(wallet.getHeldBalance());
+            response.setCurrency(wallet.getCurrency());
+            return response;
+        }
 
+        CachedBalance balance = balanceCache.get(walletId, this::loadBalance);
         BalanceResponse response = new BalanceResponse();
-        response.setBalance(wallet.getBalance());
-        response.setCurrency(wallet.getCurrency());
+        response.setBalance(balance.available());
+        response.setHeldBalance(balance.heldBalance());
+        response.setCurrency(balance.currency());
         return response;
     }
 
-    // use Pessimistic Locking to ensure data integrity during concurrent updates
+    // a user's wallet never changes once registered, so the id is kept after the first lookup
+    public Optional<UUID> walletIdForUser(String userId) {
+        UUID walletId = walletIdsByUser.getIfPresent(userId);
+        if (walletId != null) {
+            return Optional.of(walletId);
+        }
+        Optional<UUID> found = userRepository.findWalletIdByUserId(userId);
+        found.ifPresent(id -> walletIdsByUser.put(userId, id));
+        return found;
+    }
+
+    private CachedBalance loadBalance(UUID walletId) {
+        Wallet wallet = walletRepository.findById(walletId)
+                .orElseThrow(() -> new IllegalArgumentException("Wallet not found"));
+        return new CachedBalance(walletId, wallet.getBalance(), wallet.getHeldBalance(), wallet.getCurrency(),
+                0, Instant.now());
+    }
+
+    // deposits are credits, so only the wallet's existence is checked; the strategy picks how the row is changed
     @Transactional
     public void depositFunds(UUID walletId, BigDecimal amount) {
         if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new IllegalArgumentException("Deposit amount must be positive.");
         }
 
-        // use findByIdWithLock to acquire a pessimistic write lock --PESSIMISTIC_WRITE
-        // This prevents race conditions where concurrent transactions could read the same old balance.
-        Wallet wallet = walletRepository.findByIdWithLock(walletId);
-
-        if (wallet == null) {
+        // LOCKED: PESSIMISTIC_WRITE through the shared, metered lock path, then add in Java.
+        // CONDITIONAL: one UPDATE ... RETURNING. Either way concurrent deposits cannot lose each other's update.
+        WalletBalance updated;
+        try {
+            updated = balanceMutationService.credit(walletId, amount, depositStrategy, "deposit");
+        } catch (WalletNotFoundException e) {
             throw new IllegalArgumentException("Wallet not found for deposit: " + walletId);
         }
+        BigDecimal newBalance = updated.balance();
+        BigDecimal oldBalance = newBalance.subtract(amount);
+        // a direct deposit is its own settled transaction (money in from outside, so the wallet is on both
+        // sides); reconciliation expects its single CREDIT to net to the amount
+        Transaction deposit = new Transaction();
+        deposit.setSenderWalletId(walletId);
+        deposit.setReceiverWalletId(walletId);
+        deposit.setAmount(amount);
+        deposit.setStatus(TransactionStatus.SUCCESS);
+        deposit.setInitiatedAt(Instant.now());
+        deposit = transactionRepository.save(deposit);
+        ledgerService.record(deposit.getId(), walletId, newBalance, null, amount, EntryType.CREDIT);
 
-        // update logic -- protected by the lock
-        BigDecimal oldBalance = wallet.getBalance();
-        BigDecimal newBalance = oldBalance.add(amount);
-        wallet.setBalance(newBalance);
-
-        // save the updated balance. Transaction commits on method exit, releasing the lock.
-        walletRepository.save(wallet);
-
-        // record audit log for this wallet update
-        auditLogService.recordAction(
+        // money in: the audit row is written in this transaction, so it commits or rolls back with the deposit
+        auditLogService.recordCriticalAction(
                 "SYSTEM",
                 "DEPOSIT_FUNDS",
                 "Wallet",
                 walletId.toString(),
-                String.format("Deposited ₦%s. Balance changed from ₦%s to ₦%s", amount, oldBalance, newBalance)
+                "Deposited ₦%s. Balance changed from ₦%s to ₦%s".formatted(amount, oldBalance, newBalance)
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,209 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.EscrowHold;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.repository.EscrowHoldRepository;
+import com.example.ppps.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+// Releases escrow holds when they fall due. Each node keeps the deadlines of the holds it knows about in
+// an EscrowTimerWheel, rebuilt from escrow_holds at startup, and releases them within a tick of falling
+// due; ticks with nothing due never touch the database. A slower sweep over escrow_holds catches what
+// the wheel cannot see -- holds created on another node, transfers whose gateway leg settled after the
+// deadline. Both paths claim holds with FOR UPDATE SKIP LOCKED in bounded chunks that commit on their
+// own, so every node can run them side by side and a failed chunk is simply retried later. A hold that
+// cannot be released is pushed back by EscrowService, so it never keeps the claim from reaching the rest.
+@Service
+@Slf4j
+public class EscrowReleaseWorker {
+
+    private final TransactionRepository transactionRepository;
+    private final EscrowHoldRepository escrowHoldRepository;
+    private final EscrowService escrowService;
+    private final EscrowTimerWheel timerWheel;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final ExecutorService pool;
+
+    private final Counter releasedCounter;
+    private final Counter failedChunkCounter;
+    private final Counter deferredCounter;
+    private final Timer chunkTimer;
+    private final Timer releaseLatency;
+    private final AtomicLong backlog = new AtomicLong();
+
+    public EscrowReleaseWorker(
+            TransactionRepository transactionRepository,
+            EscrowHoldRepository escrowHoldRepository,
+            EscrowService escrowService,
+            EscrowTimerWheel timerWheel,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.escrow.release.chunk-size:200}") int chunkSize,
+            @Value("${app.escrow.release.parallelism:4}") int parallelism) {
+        this.transactionRepository = transactionRepository;
+        this.escrowHoldRepository = escrowHoldRepository;
+        this.escrowService = escrowService;
+        this.timerWheel = timerWheel;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+        this.pool = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("escrow-release-", 0).daemon(true).factory());
+
+        this.releasedCounter = Counter.builder("ppps.escrow.released")
+                .description("Escrow holds released to the receiver")
+                .register(meterRegistry);
+        this.failedChunkCounter = Counter.builder("ppps.escrow.release.failed")
+                .description("Escrow release chunks rolled back; their holds are retried by the sweep")
+                .register(meterRegistry);
+        this.deferredCounter = Counter.builder("ppps.escrow.release.deferred")
+                .description("Escrow holds that could not be released and were pushed back")
+                .register(meterRegistry);
+        this.chunkTimer = Timer.builder("ppps.escrow.release.chunk")
+                .description("Time to claim, release and commit one chunk of escrow holds")
+                .register(meterRegistry);
+        this.releaseLatency = Timer.builder("ppps.escrow.release.latency")
+                .description("How long after falling due an escrow hold was released")
+                .register(meterRegistry);
+        Gauge.builder("ppps.escrow.backlog", backlog, AtomicLong::get)
+                .description("Escrow holds past their release time at the last sweep")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildWheel() {
+        int backfilled = escrowService.backfillLegacyHolds();
+        List<EscrowHold> holds = escrowHoldRepository.findAll();
+        for (EscrowHold hold : holds) {
+            timerWheel.schedule(hold.getTransactionId(), hold.getReleaseAt());
+        }
+        log.info("⏳ Escrow timer wheel rebuilt - Holds: {} | Backfilled: {}", holds.size(), backfilled);
+    }
+
+    // the wheel's tick: a few microseconds when nothing is due
+    @Scheduled(fixedDelayString = "${app.escrow.wheel.tick-ms:1000}")
+    public void releaseFired() {
+        List<UUID> fired = timerWheel.advance();
+        if (fired.isEmpty()) {
+            return;
+        }
+
+        Instant now = Instant.now();
+        List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < fired.size(); from += chunkSize) {
+            List<UUID> ids = fired.subList(from, Math.min(from + chunkSize, fired.size()));
+            chunks.add(CompletableFuture.supplyAsync(() -> releaseOrSkip(
+                    limit -> transactionRepository.claimReleasableEscrowIn(ids, now)), pool));
+        }
+        int released = chunks.stream().mapToInt(CompletableFuture::join).sum();
+        // the rest were claimed by another node, cancelled, or are still waiting on their gateway leg
+        log.info("⏳ Escrow holds fired - Due: {} | Released: {}", fired.size(), released);
+    }
+
+    @Scheduled(fixedDelayString = "${app.escrow.release.sweep-interval-ms:60000}")
+    public void sweep() {
+        // fixed for the run, so workers drain what was due when it started instead of chasing new holds
+        Instant now = Instant.now();
+        long due = escrowHoldRepository.countByReleaseAtLessThanEqual(now);
+        backlog.set(due);
+        if (due == 0) {
+            return;
+        }
+
+        long started = System.nanoTime();
+        int workers = (int) Math.min(parallelism, Math.ceilDiv(due, chunkSize));
+        List<CompletableFuture<Integer>> runs = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            runs.add(CompletableFuture.supplyAsync(() -> drain(now), pool));
+        }
+        int released = runs.stream().mapToInt(CompletableFuture::join).sum();
+
+        backlog.set(escrowHoldRepository.countByReleaseAtLessThanEqual(now));
+        log.info("⏳ Escrow release sweep - Released: {} | Due: {} | Left: {} | Workers: {} | Took: {}ms",
+                released, due, backlog.get(), workers, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // one sweep worker: chunk after chunk until nothing is left to claim. Every claimed hold is either released
+    // or pushed back past now, so a full chunk always makes room for the holds behind it
+    int drain(Instant now) {
+        int total = 0;
+        while (true) {
+            Chunk chunk;
+            try {
+                chunk = releaseChunk(limit -> transactionRepository.claimReleasableEscrow(now, limit));
+            } catch (RuntimeException e) {
+                chunkFailed(e);
+                return total;
+            }
+            total += chunk.released().size();
+            if (chunk.claimed() < chunkSize) {
+                return total;
+            }
+        }
+    }
+
+    private int releaseOrSkip(Function<Integer, List<Transaction>> claim) {
+        try {
+            return releaseChunk(claim).released().size();
+        } catch (RuntimeException e) {
+            chunkFailed(e);
+            return 0;
+        }
+    }
+
+    Chunk releaseChunk(Function<Integer, List<Transaction>> claim) {
+        Timer.Sample sample = Timer.start();
+        Chunk chunk = transactionTemplate.execute(status -> {
+            List<Transaction> claimed = claim.apply(chunkSize);
+            return new Chunk(claimed.size(), escrowService.releaseClaimed(claimed));
+        });
+        sample.stop(chunkTimer);
+
+        // recorded after the commit, so rolled-back chunks never count
+        Instant now = Instant.now();
+        for (EscrowHold hold : chunk.released()) {
+            releaseLatency.record(Duration.between(hold.getReleaseAt(), now));
+        }
+        releasedCounter.increment(chunk.released().size());
+        deferredCounter.increment(chunk.claimed() - chunk.released().size());
+        return chunk;
+    }
+
+    private void chunkFailed(RuntimeException e) {
+        // lock timeout, deadlock victim, lost connection -- the chunk rolled back as a whole
+        failedChunkCounter.increment();
+        log.warn("⚠️ Escrow release chunk failed, will retry on the next sweep - Error: {}", e.getMessage());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    record Chunk(int claimed, List<EscrowHold> released) {
+    }
+}
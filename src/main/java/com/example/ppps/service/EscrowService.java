@@ -1,135 +1,249 @@
 package com.example.ppps.service;
 
-import com.example.ppps.entity.LedgerEntry;
+import com.example.ppps.entity.EscrowHold;
 import com.example.ppps.entity.Transaction;
 import com.example.ppps.entity.Wallet;
 import com.example.ppps.enums.EntryType;
 import com.example.ppps.enums.TransactionStatus;
-import com.example.ppps.repository.LedgerEntryRepository;
+import com.example.ppps.enums.TransferState;
+import com.example.ppps.repository.EscrowHoldRepository;
 import com.example.ppps.repository.TransactionRepository;
 import com.example.ppps.repository.WalletRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class EscrowService {
 
     private static final Logger logger = LoggerFactory.getLogger(EscrowService.class);
 
-    @Autowired
-    private TransactionRepository transactionRepository;
-
-    @Autowired
-    private WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final EscrowHoldRepository escrowHoldRepository;
+    private final WalletRepository walletRepository;
+    private final LedgerService ledgerService;
+    private final WalletLockService walletLockService;
+    private final EscrowTimerWheel timerWheel;
+    private final BalanceCache balanceCache;
+    // amount threshold -> hold period; the lowest threshold is where escrow starts
+    private final NavigableMap<BigDecimal, Duration> holdTiers;
+    private final Duration retryBackoff;
+    private final Duration maxBackoff;
+
+    public EscrowService(
+            TransactionRepository transactionRepository,
+            EscrowHoldRepository escrowHoldRepository,
+            WalletRepository walletRepository,
+            LedgerService ledgerService,
+            WalletLockService walletLockService,
+            EscrowTimerWheel timerWheel,
+            BalanceCache balanceCache,
+            @Value("${app.escrow.hold-tiers:50000.00=30m}") String holdTiers,
+            @Value("${app.escrow.release.retry-backoff:1m}") Duration retryBackoff,
+            @Value("${app.escrow.release.max-backoff:1h}") Duration maxBackoff) {
+        this.transactionRepository = transactionRepository;
+        this.escrowHoldRepository = escrowHoldRepository;
+        this.walletRepository = walletRepository;
+        this.ledgerService = ledgerService;
+        this.walletLockService = walletLockService;
+        this.timerWheel = timerWheel;
+        this.balanceCache = balanceCache;
+        this.holdTiers = parseHoldTiers(holdTiers);
+        this.retryBackoff = retryBackoff;
+        this.maxBackoff = maxBackoff;
+    }
 
-    @Autowired
-    private LedgerEntryRepository ledgerEntryRepository;
+    // "50000.00=30m,500000.00=2h": transfers of at least the amount are held for the duration
+    static NavigableMap<BigDecimal, Duration> parseHoldTiers(String spec) {
+        NavigableMap<BigDecimal, Duration> tiers = new TreeMap<>();
+        for (String tier : spec.split(",")) {
+            String[] parts = tier.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid escrow hold tier: " + tier);
+            }
+            tiers.put(new BigDecimal(parts[0].trim()), DurationStyle.detectAndParse(parts[1].trim()));
+        }
+        return tiers;
+    }
 
-    // check if transfer should be in escrow, pegged it at > 50K
+    // check if transfer should be in escrow: at or above the lowest tier
     public boolean requiresEscrow(BigDecimal amount) {
-        return amount.compareTo(new BigDecimal("50000.00")) >= 0;
+        return holdTiers.floorKey(amount) != null;
     }
 
-    //kindly create an escrow hold : ensure sender has sufficient balance
+    // how long a transfer of this amount is held; below the lowest tier, the lowest tier's period
+    public Duration holdPeriodFor(BigDecimal amount) {
+        Map.Entry<BigDecimal, Duration> tier = holdTiers.floorEntry(amount);
+        return tier != null ? tier.getValue() : holdTiers.firstEntry().getValue();
+    }
+
+    // escrow transfers from before escrow_holds existed get the lowest tier's hold, and holds from before
+    // they carried their transaction's initiated_at get it copied over; safe to rerun
     @Transactional
+    public int backfillLegacyHolds() {
+        escrowHoldRepository.fillTransactionInitiatedAt();
+        return escrowHoldRepository.backfillLegacyHolds(
+                holdTiers.firstKey(), holdTiers.firstEntry().getValue().toSeconds());
+    }
+
+    // records the hold for a transfer whose principal reserve() has already moved into the sender's held
+    // balance -- the funds check happened there, in the same conditional update that held them
+    @Transactional(propagation = Propagation.MANDATORY)
     public void createEscrowHold(UUID transactionId, BigDecimal amount) {
-        try {
-            Transaction transaction = transactionRepository.findById(transactionId)
-                    .orElseThrow(() -> new RuntimeException("Transaction not found: " + transactionId));
-            // lock sender wallet to validate balance
-            Wallet senderWallet = walletRepository.findByIdWithLock(transaction.getSenderWalletId());
-            if (senderWallet == null) {
-                throw new RuntimeException("Sender wallet not found");
-            }
+        Transaction transaction = transactionRepository.findById(transactionId)
+                .orElseThrow(() -> new RuntimeException("Transaction not found: " + transactionId));
+
+        Instant releaseAt = transaction.getInitiatedAt().plus(holdPeriodFor(amount));
+        escrowHoldRepository.save(EscrowHold.builder()
+                .transactionId(transactionId)
+                .transactionInitiatedAt(transaction.getInitiatedAt())
+                .releaseAt(releaseAt)
+                .createdAt(Instant.now())
+                .fundsHeld(true)
+                .build());
+        afterCommit(() -> timerWheel.schedule(transactionId, releaseAt));
+
+        logger.info("✅ Escrow hold created - Transaction: {}, Amount: {}, Release At: {}",
+                transactionId, amount, releaseAt);
+    }
 
-            // check if sender has sufficient balance for the escrow hold
-            if (senderWallet.getBalance().compareTo(amount) < 0) {
-                throw new RuntimeException("Insufficient balance for escrow hold");
-            }
+    // releases a chunk of holds the caller has already claimed (FOR UPDATE SKIP LOCKED). Every wallet the
+    // chunk touches is locked in one ordered query up front, so chunks running side by side -- and transfers
+    // -- queue on wallets instead of deadlocking. Returns the holds actually released, deleted in the same
+    // transaction; the rest stay PENDING with their releaseAt pushed back, so they are claimed again later
+    // without standing in front of the holds due after them.
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<EscrowHold> releaseClaimed(List<Transaction> claimed) {
+        if (claimed.isEmpty()) {
+            return List.of();
+        }
 
-            logger.info("✅ Escrow hold validated - Transaction: {}, Amount: {}, Sender Balance: {}",
-                    transactionId, amount, senderWallet.getBalance());
+        List<UUID> walletIds = new ArrayList<>(claimed.size() * 2);
+        for (Transaction transaction : claimed) {
+            walletIds.add(transaction.getSenderWalletId());
+            walletIds.add(transaction.getReceiverWalletId());
+        }
+        Map<UUID, Wallet> locked = walletLockService.lockAll(walletIds, "escrow-release");
+        Map<UUID, EscrowHold> holds = new HashMap<>();
+        for (EscrowHold hold : escrowHoldRepository.findAllById(claimed.stream().map(Transaction::getId).toList())) {
+            holds.put(hold.getTransactionId(), hold);
+        }
 
-        } catch (Exception e) {
-            logger.error("❌ Error creating escrow hold for transaction: {}", transactionId, e);
-            throw new RuntimeException("Failed to create escrow hold: " + e.getMessage());
+        List<EscrowHold> released = new ArrayList<>(claimed.size());
+        List<EscrowHold> deferred = new ArrayList<>();
+        for (Transaction transaction : claimed) {
+            EscrowHold hold = holds.get(transaction.getId());
+            if (hold == null) {
+                continue;
+            }
+            if (release(transaction, hold, locked)) {
+                released.add(hold);
+            } else {
+                defer(hold);
+                deferred.add(hold);
+            }
+        }
+        if (!deferred.isEmpty()) {
+            afterCommit(() -> deferred.forEach(
+                    hold -> timerWheel.schedule(hold.getTransactionId(), hold.getReleaseAt())));
+        }
+        if (released.isEmpty()) {
+            return List.of();
         }
+        escrowHoldRepository.deleteAllInBatch(released);
+        balanceCache.evictAfterCommit(claimed.stream()
+                .filter(transaction -> transaction.getStatus() == TransactionStatus.SUCCESS)
+                .flatMap(transaction -> Stream.of(transaction.getSenderWalletId(), transaction.getReceiverWalletId()))
+                .toList());
+        afterCommit(() -> released.forEach(hold -> timerWheel.cancel(hold.getTransactionId())));
+        return released;
     }
 
-    // auto-complete pending transactions after 30 minutes
-    @Scheduled(fixedRate = 60000)
-    @Transactional
-    public void autoCompletePendingTransactions() {
-        Instant thirtyMinutesAgo = Instant.now().minus(30, ChronoUnit.MINUTES);
+    // retry-backoff, doubling per failed release up to max-backoff; written by the chunk's commit flush
+    private void defer(EscrowHold hold) {
+        int attempts = hold.getReleaseAttempts() + 1;
+        Duration delay = retryBackoff.multipliedBy(1L << Math.min(attempts - 1, 30));
+        hold.setReleaseAttempts(attempts);
+        hold.setReleaseAt(Instant.now().plus(delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay));
+        logger.warn("⏳ Escrow release deferred - Transaction: {}, Attempts: {}, Next: {}",
+                hold.getTransactionId(), attempts, hold.getReleaseAt());
+    }
 
-        List<Transaction> pendingTransactions = transactionRepository
-                .findByStatusAndInitiatedAtBefore(TransactionStatus.PENDING, thirtyMinutesAgo);
+    // the transfer failed before its hold was released (compensation); nothing is left to release. Returns
+    // the dropped hold so the caller can give back the funds it held
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<EscrowHold> dropHold(UUID transactionId) {
+        Optional<EscrowHold> hold = escrowHoldRepository.findById(transactionId);
+        hold.ifPresent(escrowHoldRepository::delete);
+        afterCommit(() -> timerWheel.cancel(transactionId));
+        return hold;
+    }
 
-        for (Transaction transaction : pendingTransactions) {
-            completeEscrowTransaction(transaction);
-        }
+    // balances, status and ledger entries are written by the chunk's commit flush, batched with the rest
+    private boolean release(Transaction transaction, EscrowHold hold, Map<UUID, Wallet> locked) {
+        Wallet senderWallet = locked.get(transaction.getSenderWalletId());
+        Wallet receiverWallet = locked.get(transaction.getReceiverWalletId());
 
-        if (!pendingTransactions.isEmpty()) {
-            logger.info("Auto-completed {} pending transactions", pendingTransactions.size());
+        if (senderWallet == null || receiverWallet == null) {
+            logger.error("Wallet not found for transaction: {}", transaction.getId());
+            return false;
         }
-    }
 
-    // move fund and update status
-    @Transactional
-    public void completeEscrowTransaction(Transaction transaction) {
-        try {
-            // lock both wallet
-            Wallet senderWallet = walletRepository.findByIdWithLock(transaction.getSenderWalletId());
-            Wallet receiverWallet = walletRepository.findByIdWithLock(transaction.getReceiverWalletId());
-
-            if (senderWallet == null || receiverWallet == null) {
-                logger.error("Wallet not found for transaction: {}", transaction.getId());
-                return;
-            }
-
-            // verify again if sender has sufficient balance; needless but should be true always
-            if (senderWallet.getBalance().compareTo(transaction.getAmount()) < 0) {
-                logger.error("Insufficient balance to complete escrow - Transaction: {}, Sender: {}, Balance: {}, Amount: {}",
-                        transaction.getId(), senderWallet.getId(), senderWallet.getBalance(), transaction.getAmount());
-                return;
+        BigDecimal amount = transaction.getAmount();
+        if (hold.isFundsHeld()) {
+            // the principal was reserved when the transfer was made; it can only be missing if held funds were tampered with
+            if (senderWallet.getHeldBalance().compareTo(amount) < 0) {
+                logger.error("Held balance short of escrow - Transaction: {}, Sender: {}, Held: {}, Amount: {}",
+                        transaction.getId(), senderWallet.getId(), senderWallet.getHeldBalance(), amount);
+                return false;
             }
+            senderWallet.setHeldBalance(senderWallet.getHeldBalance().subtract(amount));
+        } else if (senderWallet.getAvailableBalance().compareTo(amount) < 0) {
+            // legacy hold: the principal was only checked, never reserved, so it may have been spent since
+            logger.error("Insufficient balance to complete escrow - Transaction: {}, Sender: {}, Available: {}, Amount: {}",
+                    transaction.getId(), senderWallet.getId(), senderWallet.getAvailableBalance(), amount);
+            return false;
+        }
 
-            // transfer the principal amount from sender to receiver
-            senderWallet.setBalance(senderWallet.getBalance().subtract(transaction.getAmount()));
-            receiverWallet.setBalance(receiverWallet.getBalance().add(transaction.getAmount()));
-
-            walletRepository.save(senderWallet);
-            walletRepository.save(receiverWallet);
-
-            // update transaction status
-            transaction.setStatus(TransactionStatus.SUCCESS);
-            transactionRepository.save(transaction);
+        // transfer the principal amount from sender to receiver
+        senderWallet.setBalance(senderWallet.getBalance().subtract(amount));
+        receiverWallet.setBalance(receiverWallet.getBalance().add(amount));
 
-            // kindly create ledger entries for the principal transfer
-            createLedgerEntry(transaction.getId(), senderWallet.getId(), transaction.getAmount(), EntryType.DEBIT);
-            createLedgerEntry(transaction.getId(), receiverWallet.getId(), transaction.getAmount(), EntryType.CREDIT);
+        // update transaction status
+        transaction.setStatus(TransactionStatus.SUCCESS);
 
-            logger.info("Escrow completed - Transaction: {}, Amount: {}, Sender: {}, Receiver: {}",
-                    transaction.getId(), transaction.getAmount(), senderWallet.getId(), receiverWallet.getId());
+        // kindly create ledger entries for the principal transfer
+        createLedgerEntry(transaction.getId(), senderWallet, receiverWallet.getId(), transaction.getAmount(), EntryType.DEBIT);
+        createLedgerEntry(transaction.getId(), receiverWallet, senderWallet.getId(), transaction.getAmount(), EntryType.CREDIT);
 
-        } catch (Exception e) {
-            logger.error("Error completing escrow transaction: {}", transaction.getId(), e);
-        }
+        logger.debug("Escrow completed - Transaction: {}, Amount: {}, Sender: {}, Receiver: {}",
+                transaction.getId(), transaction.getAmount(), senderWallet.getId(), receiverWallet.getId());
+        return true;
     }
 
-    // cancel a pending escrow transaction -- no fund movement needed since amount was never deducted
+    // cancel a pending escrow transaction -- the principal never left the sender's balance, it only stops being held
     @Transactional
     public void cancelEscrowTransaction(UUID transactionId, UUID senderWalletId) {
-        Transaction transaction = transactionRepository.findById(transactionId)
+        // row lock: a release worker skips the hold while it is being cancelled, and vice versa
+        Transaction transaction = transactionRepository.findByIdWithLock(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
 
         // validate ownership and status
@@ -141,29 +255,50 @@ public class EscrowService {
             throw new RuntimeException("Only pending transactions can be cancelled");
         }
 
-        // is it within the 30-minute window?
-        Instant thirtyMinutesAgo = Instant.now().minus(30, ChronoUnit.MINUTES);
-        if (transaction.getInitiatedAt().isBefore(thirtyMinutesAgo)) {
+        // a transfer still between its two phases is settled by the transfer pipeline, not cancelled here
+        if (transaction.getTransferState() != null && transaction.getTransferState() != TransferState.COMPLETED) {
+            throw new RuntimeException("Transfer is still being processed and cannot be cancelled yet");
+        }
+
+        // is it within the hold window?
+        Optional<EscrowHold> hold = escrowHoldRepository.findById(transactionId);
+        Instant releaseAt = hold.map(EscrowHold::getReleaseAt)
+                .orElseGet(() -> transaction.getInitiatedAt().plus(holdPeriodFor(transaction.getAmount())));
+        if (!Instant.now().isBefore(releaseAt)) {
             throw new RuntimeException("Cancellation period has expired");
         }
 
-        // kindly update status to cancelled - no need to refund since amount was never deducted
+        // kindly update status to cancelled - no refund needed since the amount was never deducted, just held
+        if (hold.map(EscrowHold::isFundsHeld).orElse(false)
+                && walletRepository.releaseHeld(senderWalletId, transaction.getAmount()).isEmpty()) {
+            throw new RuntimeException("Held funds not found for this transaction");
+        }
+        balanceCache.evictAfterCommit(senderWalletId);
         transaction.setStatus(TransactionStatus.CANCELLED);
         transactionRepository.save(transaction);
+        hold.ifPresent(escrowHoldRepository::delete);
+        afterCommit(() -> timerWheel.cancel(transactionId));
 
         logger.info("Escrow cancelled - Transaction: {}, Amount: {}", transactionId, transaction.getAmount());
     }
 
-    // kindly create ledger entry for escrow completion
-    private void createLedgerEntry(UUID transactionId, UUID walletId, BigDecimal amount, EntryType type) {
-        LedgerEntry entry = new LedgerEntry();
-        entry.setTransactionId(transactionId);
-        entry.setWalletId(walletId);
-        entry.setEntryType(type);
-        entry.setAmount(amount);
-        entry.setCreatedAt(Instant.now());
-        ledgerEntryRepository.save(entry);
-
-        logger.debug("Escrow ledger entry created - Type: {} | Wallet: {} | Amount: {}", type, walletId, amount);
+    // the wheel is only told once the hold's row has committed (or is gone for good)
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    // kindly create ledger entry for escrow completion -- batched with the rest of the release at commit
+    private void createLedgerEntry(UUID transactionId, Wallet wallet, UUID counterpartyWalletId,
+                                   BigDecimal amount, EntryType type) {
+        ledgerService.record(transactionId, wallet, counterpartyWalletId, amount, type);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+package com.example.ppps.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+// Hierarchical timer wheel holding the release deadline of every escrow hold this node knows about.
+// Level 0 has one slot per tick; each level above spans `slots` times the level below. A hold sits in the
+// coarsest level its deadline needs and drops a level each time its slot comes round, so scheduling and
+// expiry are O(1) and a tick with nothing due touches one slot instead of the database. Deadlines past
+// the top level's horizon park at its far edge and are re-placed when they get there.
+// Callers include request threads, which may be virtual, so state is guarded by a ReentrantLock, not a monitor.
+@Component
+public class EscrowTimerWheel {
+
+    private final long tickMillis;
+    private final int slots;
+    private final int levels;
+    // spans[level] = ticks covered by one slot of that level; spans[levels] = the whole wheel
+    private final long[] spans;
+    private final ArrayDeque<Entry>[][] wheel;
+    private final ArrayDeque<Entry> due = new ArrayDeque<>();
+    // live entry per hold; a cancelled or rescheduled hold's old entry is skipped when its slot comes round
+    private final Map<UUID, Entry> scheduled = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongSupplier clock;
+    private final long origin;
+    private long cursor;
+
+    @Autowired
+    public EscrowTimerWheel(
+            MeterRegistry meterRegistry,
+            @Value("${app.escrow.wheel.tick-ms:1000}") long tickMillis,
+            @Value("${app.escrow.wheel.slots:64}") int slots,
+            @Value("${app.escrow.wheel.levels:4}") int levels) {
+        this(tickMillis, slots, levels, System::currentTimeMillis);
+        Gauge.builder("ppps.escrow.wheel.scheduled", this, EscrowTimerWheel::scheduled)
+                .description("Escrow holds waiting in this node's release timer wheel")
+                .register(meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    EscrowTimerWheel(long tickMillis, int slots, int levels, LongSupplier clock) {
+        this.tickMillis = tickMillis;
+        this.slots = slots;
+        this.levels = levels;
+        this.spans = new long[levels + 1];
+        spans[0] = 1;
+        for (int level = 1; level <= levels; level++) {
+            spans[level] = Math.multiplyExact(spans[level - 1], slots);
+        }
+        this.wheel = new ArrayDeque[levels][slots];
+        for (int level = 0; level < levels; level++) {
+            for (int slot = 0; slot < slots; slot++) {
+                wheel[level][slot] = new ArrayDeque<>();
+            }
+        }
+        this.clock = clock;
+        this.origin = clock.getAsLong();
+        this.cursor = 0;
+    }
+
+    // scheduling a hold again moves it; a deadline already past fires on the next advance. Deadlines round
+    // up to the next tick, so a hold never fires before its release time
+    public void schedule(UUID transactionId, Instant releaseAt) {
+        Entry entry = new Entry(transactionId, Math.ceilDiv(releaseAt.toEpochMilli() - origin, tickMillis));
+        lock.lock();
+        try {
+            scheduled.put(transactionId, entry);
+            place(entry);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void cancel(UUID transactionId) {
+        lock.lock();
+        try {
+            scheduled.remove(transactionId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // moves the wheel up to the clock and returns the holds that fell due, each exactly once
+    public List<UUID> advance() {
+        lock.lock();
+        try {
+            long target = Math.floorDiv(clock.getAsLong() - origin, tickMillis);
+            List<UUID> fired = new ArrayList<>();
+            fire(due, fired);
+            for (long tick = cursor + 1; tick <= target; tick++) {
+                cursor = tick;
+                // coarse levels first, so holds cascading down to this very tick fire with it
+                for (int level = levels - 1; level >= 1; level--) {
+                    if (tick % spans[level] == 0) {
+                        ArrayDeque<Entry> slot = slotOf(level, tick);
+                        Entry entry;
+                        while ((entry = slot.poll()) != null) {
+                            if (isLive(entry)) {
+                                place(entry);
+                            }
+                        }
+                    }
+                }
+                fire(slotOf(0, tick), fired);
+                fire(due, fired);
+            }
+            return fired;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int scheduled() {
+        lock.lock();
+        try {
+            return scheduled.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void place(Entry entry) {
+        long delta = entry.tick - cursor;
+        if (delta <= 0) {
+            due.add(entry);
+            return;
+        }
+        int level = 0;
+        while (level < levels - 1 && delta >= spans[level + 1]) {
+            level++;
+        }
+        long tick = Math.min(entry.tick, cursor + spans[levels] - 1);
+        slotOf(level, tick).add(entry);
+    }
+
+    private void fire(ArrayDeque<Entry> slot, List<UUID> fired) {
+        Entry entry;
+        while ((entry = slot.poll()) != null) {
+            if (!isLive(entry)) {
+                continue;
+            }
+            if (entry.tick > cursor) {
+                // parked past the horizon; not due yet
+                place(entry);
+            } else {
+                scheduled.remove(entry.transactionId);
+                fired.add(entry.transactionId);
+            }
+        }
+    }
+
+    private boolean isLive(Entry entry) {
+        return scheduled.get(entry.transactionId) == entry;
+    }
+
+    private ArrayDeque<Entry> slotOf(int level, long tick) {
+        return wheel[level][(int) Math.floorMod(tick / spans[level], (long) slots)];
+    }
+
+    private record Entry(UUID transactionId, long tick) {
+    }
+}
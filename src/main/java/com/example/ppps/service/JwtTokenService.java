@@ -0,0 +1,234 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.function.Function;
+
+// Issues and verifies the app's JWTs. The HMAC key and parser are built once; tokens that already passed
+// verification are cached until they expire, so repeat callers skip signature and JSON work. Revocation
+// checks run on every lookup, cached or not.
+// Revocations live in Redis so every node sees them, each key expiring with the tokens it covers. Nothing
+// caps their number: a size-bounded store would evict old revocations and let those tokens verify again.
+// Revocations made on this node are also kept locally, expiry-bounded only. If Redis cannot be read the
+// token is rejected -- a revoked token must never pass because the store was down.
+@Service
+@Slf4j
+public class JwtTokenService {
+
+    private static final String REVOKED_TOKEN_PREFIX = "ppps:jwt:revoked:";
+    private static final String REVOKED_USER_PREFIX = "ppps:jwt:revoked-user:";
+
+    private final SecretKey key;
+    private final JwtParser parser;
+    private final long expirationMs;
+    private final StringRedisTemplate redisTemplate;
+    private final Counter redisErrors;
+
+    private final Cache<String, VerifiedToken> verifiedTokens;
+    // this node's revocations, token hash -> token expiry; kept only until the token would have expired anyway
+    private final Cache<String, Instant> revokedTokens;
+    // this node's revocations, user id -> tokens issued before this instant are rejected
+    private final Cache<String, Instant> revokedUsers;
+
+    public JwtTokenService(
+            MeterRegistry meterRegistry,
+            StringRedisTemplate redisTemplate,
+            @Value("${jwt.secret}") String secret,
+            @Value("${jwt.expiration}") long expirationMs,
+            @Value("${jwt.cache.max-size:10000}") long cacheMaxSize) {
+        this.key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parser().verifyWith(key).build();
+        this.expirationMs = expirationMs;
+        this.redisTemplate = redisTemplate;
+
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(untilExpiry(VerifiedToken::expiresAt))
+                .recordStats()
+                .build();
+        this.revokedTokens = Caffeine.newBuilder()
+                .expireAfter(untilExpiry((Instant expiresAt) -> expiresAt))
+                .build();
+        this.revokedUsers = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(expirationMs))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.verified");
+        this.redisErrors = Counter.builder("ppps.jwt.revocation.redis.errors")
+                .description("Revocation reads and writes that could not reach Redis")
+                .register(meterRegistry);
+    }
+
+    public record VerifiedToken(String userId, String role, List<GrantedAuthority> authorities,
+                                Instant issuedAt, Instant expiresAt) {
+    }
+
+    public String issue(User user, boolean admin) {
+        Instant now = Instant.now();
+        var builder = Jwts.builder()
+                .subject(user.getUserId())
+                .claim("phoneNumber", user.getPhoneNumber())
+                .claim("role", user.getRole().name());
+        if (admin) {
+            builder.claim("isAdmin", true);
+        }
+        return builder
+                .issuedAt(Date.from(now))
+                .expiration(Date.from(now.plusMillis(expirationMs)))
+                .signWith(key)
+                .compact();
+    }
+
+    // throws JwtException for a bad, expired or revoked token
+    public VerifiedToken verify(String token) {
+        VerifiedToken verified = verifiedTokens.get(token, this::parse);
+        if (isRevoked(token, verified)) {
+            verifiedTokens.invalidate(token);
+            throw new JwtException("Token has been revoked");
+        }
+        return verified;
+    }
+
+    // revokes one token, e.g. on logout
+    public void revokeToken(String token) {
+        VerifiedToken verified = verifiedTokens.getIfPresent(token);
+        if (verified == null) {
+            try {
+                verified = parse(token);
+            } catch (JwtException e) {
+                return; // already unusable
+            }
+        }
+        String hash = hash(token);
+        revokedTokens.put(hash, verified.expiresAt());
+        verifiedTokens.invalidate(token);
+
+        Duration ttl = Duration.between(Instant.now(), verified.expiresAt());
+        if (!ttl.isNegative() && !ttl.isZero()) {
+            write(() -> redisTemplate.opsForValue().set(REVOKED_TOKEN_PREFIX + hash, "1", ttl));
+        }
+    }
+
+    // revokes every token the user holds now. iat only has one-second resolution, so tokens issued later in
+    // the same second go too; anything issued from the next second on is valid
+    public void revokeUser(String userId) {
+        Instant revokedBefore = Instant.now().truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        revokedUsers.put(userId, revokedBefore);
+        verifiedTokens.asMap().values().removeIf(verified -> verified.userId().equals(userId));
+        // every token issued before now expires within one expiration period, and so can the key
+        write(() -> redisTemplate.opsForValue().set(REVOKED_USER_PREFIX + userId,
+                String.valueOf(revokedBefore.getEpochSecond()), Duration.ofMillis(expirationMs)));
+        log.info("🔒 Revoked outstanding tokens for user {}", userId);
+    }
+
+    private boolean isRevoked(String token, VerifiedToken verified) {
+        String hash = hash(token);
+        if (revokedTokens.getIfPresent(hash) != null) {
+            return true;
+        }
+        Instant revokedBefore = revokedUsers.getIfPresent(verified.userId());
+        if (revokedBefore != null && verified.issuedAt().isBefore(revokedBefore)) {
+            return true;
+        }
+
+        // other nodes' revocations, both keys in one round trip
+        List<String> shared;
+        try {
+            shared = redisTemplate.opsForValue().multiGet(
+                    List.of(REVOKED_TOKEN_PREFIX + hash, REVOKED_USER_PREFIX + verified.userId()));
+        } catch (DataAccessException e) {
+            redisErrors.increment();
+            throw new JwtException("Revocation status unavailable");
+        }
+        if (shared == null) {
+            return false;
+        }
+        if (shared.get(0) != null) {
+            return true;
+        }
+        return shared.get(1) != null
+                && verified.issuedAt().isBefore(Instant.ofEpochSecond(Long.parseLong(shared.get(1))));
+    }
+
+    // the local copy already stands; a revocation other nodes cannot see is an error for the caller
+    private void write(Runnable redisWrite) {
+        try {
+            redisWrite.run();
+        } catch (DataAccessException e) {
+            redisErrors.increment();
+            log.error("❌ Token revocation could not reach Redis: {}", e.getMessage());
+            throw e;
+        }
+    }
+
+    // tokens are bearer secrets, so Redis keys carry their digest rather than the token itself
+    private static String hash(String token) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private VerifiedToken parse(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        if (claims.getExpiration() == null) {
+            throw new JwtException("Token has no expiry");
+        }
+        String role = claims.get("role", String.class);
+        if (role == null) {
+            role = User.UserRole.USER.name();
+        }
+        Instant issuedAt = claims.getIssuedAt() == null ? Instant.EPOCH : claims.getIssuedAt().toInstant();
+        return new VerifiedToken(claims.getSubject(), role,
+                List.of(new SimpleGrantedAuthority("ROLE_" + role)),
+                issuedAt, claims.getExpiration().toInstant());
+    }
+
+    private static <V> Expiry<String, V> untilExpiry(Function<V, Instant> expiresAt) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(String key, V value, long currentTime) {
+                return Math.max(0, Duration.between(Instant.now(), expiresAt.apply(value)).toNanos());
+            }
+
+            @Override
+            public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+}
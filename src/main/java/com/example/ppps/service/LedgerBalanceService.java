@@ -0,0 +1,282 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.BalanceDrift;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.WalletBalanceSnapshotRepository;
+import com.example.ppps.repository.WalletRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
+import java.util.function.BinaryOperator;
+
+// Derives wallet balances from ledger_entries rather than trusting wallets.balance: a periodic snapshot
+// per wallet plus the entries created since. Snapshots and the drift check both split the wallets into
+// id ranges with one index pass and work through them on a ForkJoinPool, one statement per range, so a
+// pass over millions of wallets costs a few thousand short queries run side by side.
+// A snapshot only folds entries older than the settle lag: createdAt is stamped before commit, so an
+// entry younger than the longest-running transaction could still become visible behind the snapshot.
+@Service
+@Slf4j
+public class LedgerBalanceService {
+
+    private static final UUID FIRST_WALLET = new UUID(0L, 0L);
+
+    private final WalletBalanceSnapshotRepository snapshotRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTemplate;
+    private final int rangeSize;
+    private final int parallelism;
+    private final Duration settleLag;
+    private final Clock clock;
+    private final int maxReported;
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final AtomicBoolean verifyRunning = new AtomicBoolean();
+
+    private final Counter snapshottedCounter;
+    private final Timer snapshotTimer;
+    private final Timer verifyTimer;
+    private final AtomicLong driftedWallets = new AtomicLong();
+    private final AtomicReference<BigDecimal> absoluteDrift = new AtomicReference<>(BigDecimal.ZERO);
+
+    @Autowired
+    public LedgerBalanceService(
+            WalletBalanceSnapshotRepository snapshotRepository,
+            WalletRepository walletRepository,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.ledger.balance.range-size:5000}") int rangeSize,
+            @Value("${app.ledger.balance.parallelism:4}") int parallelism,
+            @Value("${app.ledger.balance.snapshot.settle-lag:10m}") Duration settleLag,
+            @Value("${app.ledger.balance.verify.max-reported:1000}") int maxReported) {
+        this(snapshotRepository, walletRepository, transactionManager, meterRegistry, rangeSize, parallelism,
+                settleLag, maxReported, Clock.systemUTC());
+    }
+
+    LedgerBalanceService(WalletBalanceSnapshotRepository snapshotRepository, WalletRepository walletRepository,
+                         PlatformTransactionManager transactionManager, MeterRegistry meterRegistry, int rangeSize,
+                         int parallelism, Duration settleLag, int maxReported, Clock clock) {
+        this.snapshotRepository = snapshotRepository;
+        this.walletRepository = walletRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+        this.rangeSize = rangeSize;
+        this.parallelism = parallelism;
+        this.settleLag = settleLag;
+        this.clock = clock;
+        this.maxReported = maxReported;
+
+        this.snapshottedCounter = Counter.builder("ppps.ledger.snapshot.wallets")
+                .description("Wallet balance snapshots moved forward")
+                .register(meterRegistry);
+        this.snapshotTimer = Timer.builder("ppps.ledger.snapshot.duration")
+                .description("Time to move every wallet's ledger snapshot forward")
+                .register(meterRegistry);
+        this.verifyTimer = Timer.builder("ppps.ledger.verify.duration")
+                .description("Time to compare every wallet's stored balance with its ledger")
+                .register(meterRegistry);
+        Gauge.builder("ppps.ledger.drift.wallets", driftedWallets, AtomicLong::get)
+                .description("Wallets whose stored balance disagreed with the ledger on the last check")
+                .register(meterRegistry);
+        Gauge.builder("ppps.ledger.drift.amount", absoluteDrift, drift -> drift.get().doubleValue())
+                .description("Sum of absolute differences between stored and ledger balances on the last check")
+                .register(meterRegistry);
+    }
+
+    public record SnapshotResult(int ranges, long walletsSnapshotted, Instant asOf, Duration elapsed) {
+    }
+
+    // drifts lists at most app.ledger.balance.verify.max-reported wallets, in id order; the totals cover all of them
+    public record DriftReport(long walletsChecked, long driftedWallets, BigDecimal netDrift, BigDecimal absoluteDrift,
+                              List<BalanceDrift> drifts, Duration elapsed) {
+    }
+
+    // snapshot + entries since, in one statement
+    public BigDecimal derivedBalance(UUID walletId) {
+        return snapshotRepository.derivedBalance(walletId)
+                .orElseThrow(() -> new PppsException(HttpStatus.NOT_FOUND, "Wallet not found: " + walletId));
+    }
+
+    @Scheduled(cron = "${app.ledger.balance.snapshot.cron:0 10 * * * *}", zone = "UTC")
+    public void scheduledSnapshot() {
+        if (snapshotRunning.get()) {
+            return;
+        }
+        snapshot();
+    }
+
+    // each range commits on its own; a failed pass leaves some wallets on their older snapshot, which is still exact
+    public SnapshotResult snapshot() {
+        if (!snapshotRunning.compareAndSet(false, true)) {
+            throw new PppsException(HttpStatus.CONFLICT, "Ledger balance snapshot is already running");
+        }
+
+        long started = System.nanoTime();
+        Instant asOf = clock.instant().minus(settleLag);
+        try {
+            List<UUID> starts = walletRepository.findRangeStarts(rangeSize);
+            long wallets = forEachRange(starts, "ledger-snapshot-",
+                    (from, to) -> {
+                        Integer rows = transactionTemplate.execute(status -> snapshotRepository.snapshot(from, to, asOf));
+                        return rows == null ? 0L : rows.longValue();
+                    },
+                    Long::sum);
+
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+            snapshottedCounter.increment(wallets);
+            snapshotTimer.record(elapsed);
+            log.info("📸 Ledger balance snapshots taken - As of: {} | Ranges: {} | Wallets: {} | Took: {}ms",
+                    asOf, Math.max(1, starts.size()), wallets, elapsed.toMillis());
+            return new SnapshotResult(Math.max(1, starts.size()), wallets, asOf, elapsed);
+        } catch (RuntimeException e) {
+            log.error("❌ Ledger balance snapshot failed", e);
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Ledger balance snapshot failed: " + e.getMessage());
+        } finally {
+            snapshotRunning.set(false);
+        }
+    }
+
+    @Scheduled(cron = "${app.ledger.balance.verify.cron:0 40 2 * * *}", zone = "UTC")
+    public void scheduledVerify() {
+        if (verifyRunning.get()) {
+            return;
+        }
+        verify();
+    }
+
+    // stored and derived balance of a wallet are read by the same statement, so in-flight transfers never
+    // show up as drift; what is reported is a balance change without ledger entries, or the reverse
+    public DriftReport verify() {
+        if (!verifyRunning.compareAndSet(false, true)) {
+            throw new PppsException(HttpStatus.CONFLICT, "Ledger balance verification is already running");
+        }
+
+        long started = System.nanoTime();
+        try {
+            long walletsChecked = walletRepository.count();
+            List<UUID> starts = walletRepository.findRangeStarts(rangeSize);
+            DriftTally tally = forEachRange(starts, "ledger-verify-",
+                    (from, to) -> DriftTally.of(readOnlyTemplate.execute(status -> snapshotRepository.findDrift(from, to)),
+                            maxReported),
+                    (left, right) -> left.plus(right, maxReported));
+
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+            verifyTimer.record(elapsed);
+            driftedWallets.set(tally.wallets());
+            absoluteDrift.set(tally.absolute());
+
+            DriftReport report = new DriftReport(walletsChecked, tally.wallets(), tally.net(), tally.absolute(),
+                    tally.sample(), elapsed);
+            if (report.driftedWallets() > 0) {
+                log.warn("⚠️ Ledger drift - {} of {} wallets disagree with their ledger | Net: {} | Absolute: {} | First: {}",
+                        report.driftedWallets(), walletsChecked, report.netDrift(), report.absoluteDrift(),
+                        report.drifts().get(0));
+            } else {
+                log.info("✅ Ledger balances verified - Wallets: {} | Took: {}ms", walletsChecked, elapsed.toMillis());
+            }
+            return report;
+        } catch (RuntimeException e) {
+            log.error("❌ Ledger balance verification failed", e);
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Ledger balance verification failed: " + e.getMessage());
+        } finally {
+            verifyRunning.set(false);
+        }
+    }
+
+    // runs rangeJob over [start(i), start(i + 1)) for every range, the first from the nil UUID and the last
+    // open-ended, so wallets created behind or after the split are still covered
+    private <R> R forEachRange(List<UUID> starts, String threadPrefix,
+                               BiFunction<UUID, UUID, R> rangeJob, BinaryOperator<R> combine) {
+        List<UUID> bounds = new ArrayList<>(starts.isEmpty() ? List.of(FIRST_WALLET) : starts);
+        bounds.set(0, FIRST_WALLET);
+        ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(threadPrefix + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        try {
+            return pool.invoke(new RangeTask<>(bounds, 0, bounds.size(), rangeJob, combine));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // halves the list of ranges until one is left; parallelism caps how many range queries are in flight
+    private static final class RangeTask<R> extends RecursiveTask<R> {
+        private final List<UUID> bounds;
+        private final int lo;
+        private final int hi;
+        private final BiFunction<UUID, UUID, R> rangeJob;
+        private final BinaryOperator<R> combine;
+
+        private RangeTask(List<UUID> bounds, int lo, int hi, BiFunction<UUID, UUID, R> rangeJob,
+                          BinaryOperator<R> combine) {
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+            this.rangeJob = rangeJob;
+            this.combine = combine;
+        }
+
+        @Override
+        protected R compute() {
+            if (hi - lo == 1) {
+                return rangeJob.apply(bounds.get(lo), hi < bounds.size() ? bounds.get(hi) : null);
+            }
+            int mid = (lo + hi) >>> 1;
+            RangeTask<R> left = new RangeTask<>(bounds, lo, mid, rangeJob, combine);
+            left.fork();
+            R right = new RangeTask<>(bounds, mid, hi, rangeJob, combine).compute();
+            return combine.apply(left.join(), right);
+        }
+    }
+
+    private record DriftTally(long wallets, BigDecimal net, BigDecimal absolute, List<BalanceDrift> sample) {
+
+        static DriftTally of(List<BalanceDrift> drifts, int maxReported) {
+            BigDecimal net = BigDecimal.ZERO;
+            BigDecimal absolute = BigDecimal.ZERO;
+            for (BalanceDrift drift : drifts) {
+                net = net.add(drift.drift());
+                absolute = absolute.add(drift.drift().abs());
+            }
+            return new DriftTally(drifts.size(), net, absolute,
+                    List.copyOf(drifts.subList(0, Math.min(drifts.size(), maxReported))));
+        }
+
+        // left covers lower ids than right, so the sample stays in id order
+        DriftTally plus(DriftTally right, int maxReported) {
+            List<BalanceDrift> merged = sample;
+            if (sample.size() < maxReported && !right.sample.isEmpty()) {
+                merged = new ArrayList<>(sample);
+                merged.addAll(right.sample.subList(0, Math.min(right.sample.size(), maxReported - sample.size())));
+            }
+            return new DriftTally(wallets + right.wallets, net.add(right.net), absolute.add(right.absolute), merged);
+        }
+    }
+}
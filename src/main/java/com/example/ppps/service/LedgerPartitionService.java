@@ -0,0 +1,192 @@
+package com.example.ppps.service;
+
+import com.example.ppps.repository.LedgerPartitionQueries.PartitionedTable;
+import com.example.ppps.repository.TransactionRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Keeps transactions (by initiated_at) and ledger_entries (by created_at) partitioned by month, the way
+// AuditLogPartitionService keeps audit_log: converts each table on first start, creates the next few months
+// ahead of time, and detaches months past retention as <table>_archive_* tables (or drops them). Indexes
+// and vacuum work stay per month, and reads bounded in time open only the months they cover. Both tables
+// use the same retention, so a month of transactions leaves together with the entries booked in it.
+// The first run happens once every bean is up but before the web server starts, so a conversion never
+// competes with this node's traffic. Each table converts and commits on its own, in three steps that keep
+// the full-table scan outside the exclusive lock (see LedgerPartitionQueries).
+@Service
+@Slf4j
+public class LedgerPartitionService implements SmartInitializingSingleton {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("uuuuMM");
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean archive;
+
+    public LedgerPartitionService(
+            TransactionRepository transactionRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.ledger.partition.months-ahead:3}") int monthsAhead,
+            @Value("${app.ledger.partition.retention-months:36}") int retentionMonths,
+            @Value("${app.ledger.partition.archive:true}") boolean archive) {
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.archive = archive;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${app.ledger.partition.maintenance-cron:0 30 3 * * *}", zone = "UTC")
+    public void maintain() {
+        maintain(YearMonth.now(ZoneOffset.UTC));
+    }
+
+    void maintain(YearMonth current) {
+        for (PartitionedTable table : PartitionedTable.values()) {
+            if (!convert(table, current) || inMaintenance(() -> {
+                maintain(table, current);
+                return true;
+            }) == null) {
+                log.debug("🗂️ Ledger partition maintenance already running on another node");
+                return;
+            }
+        }
+    }
+
+    // false when another node holds the maintenance lock. Every step takes the lock and re-checks the
+    // table, so nodes starting together convert it once
+    private boolean convert(PartitionedTable table, YearMonth current) {
+        // the current month stays in the legacy partition, so rows written before the switch still fit
+        YearMonth firstMonthly = current.plusMonths(1);
+        Instant bound = startOf(firstMonthly);
+        Boolean prepared = inMaintenance(() -> {
+            if (transactionRepository.isPartitioned(table)) {
+                return false;
+            }
+            transactionRepository.addPartitionBoundCheck(table, bound);
+            return true;
+        });
+        if (prepared == null) {
+            return false;
+        }
+        if (!prepared) {
+            return true;
+        }
+
+        try {
+            if (inMaintenance(() -> {
+                transactionRepository.validatePartitionBoundCheck(table);
+                return true;
+            }) == null) {
+                return false;
+            }
+            if (inMaintenance(() -> {
+                if (!transactionRepository.isPartitioned(table)) {
+                    transactionRepository.convertToPartitioned(table,
+                            table.tableName() + "_legacy_until_" + firstMonthly.format(SUFFIX), bound);
+                }
+                return true;
+            }) == null) {
+                return false;
+            }
+        } catch (RuntimeException e) {
+            // the check would start rejecting rows once the bound month arrives
+            inMaintenance(() -> {
+                transactionRepository.dropPartitionBoundCheck(table);
+                return true;
+            });
+            throw e;
+        }
+        log.info("🗂️ {} converted to monthly partitions - legacy rows kept before {}",
+                table.tableName(), firstMonthly);
+        return true;
+    }
+
+    // one transaction under the maintenance lock; null when another node holds it
+    private Boolean inMaintenance(Supplier<Boolean> step) {
+        return transactionTemplate.execute(status ->
+                transactionRepository.tryLedgerMaintenanceLock() ? step.get() : null);
+    }
+
+    private void maintain(PartitionedTable table, YearMonth current) {
+        // in the month of the conversion, the legacy partition still covers the current month
+        YearMonth firstMonthly = current;
+        for (String partition : transactionRepository.partitionNames(table)) {
+            YearMonth end = endOf(table, partition);
+            if (partition.startsWith(table.tableName() + "_legacy_until_") && end.isAfter(firstMonthly)) {
+                firstMonthly = end;
+            }
+        }
+
+        for (YearMonth month = firstMonthly; !month.isAfter(current.plusMonths(monthsAhead));
+             month = month.plusMonths(1)) {
+            transactionRepository.createPartition(table, partitionName(table, month),
+                    startOf(month), startOf(month.plusMonths(1)));
+        }
+
+        if (retentionMonths > 0) {
+            expire(table, current.minusMonths(retentionMonths));
+        }
+    }
+
+    // anything wholly before the cutoff month goes
+    private void expire(PartitionedTable table, YearMonth cutoff) {
+        String prefix = table.tableName() + "_";
+        for (String partition : transactionRepository.partitionNames(table)) {
+            YearMonth end = endOf(table, partition);
+            if (end == null || end.isAfter(cutoff)) {
+                continue;
+            }
+            if (archive) {
+                String archiveName = prefix + "archive_" + partition.substring(prefix.length());
+                transactionRepository.archivePartition(table, partition, archiveName);
+                log.info("📦 {} partition {} archived as {}", table.tableName(), partition, archiveName);
+            } else {
+                transactionRepository.dropPartition(partition);
+                log.info("🗑️ {} partition {} dropped", table.tableName(), partition);
+            }
+        }
+    }
+
+    // transactions_p202503 holds March 2025; transactions_legacy_until_202504 everything before April 2025
+    static String partitionName(PartitionedTable table, YearMonth month) {
+        return table.tableName() + "_p" + month.format(SUFFIX);
+    }
+
+    // the first month a partition does not cover, or null for partitions retention leaves alone (the default)
+    private static YearMonth endOf(PartitionedTable table, String partition) {
+        Matcher monthly = Pattern.compile(Pattern.quote(table.tableName()) + "_p(\\d{6})").matcher(partition);
+        if (monthly.matches()) {
+            return YearMonth.parse(monthly.group(1), SUFFIX).plusMonths(1);
+        }
+        Matcher legacy = Pattern.compile(Pattern.quote(table.tableName()) + "_legacy_until_(\\d{6})")
+                .matcher(partition);
+        if (legacy.matches()) {
+            return YearMonth.parse(legacy.group(1), SUFFIX);
+        }
+        return null;
+    }
+
+    private static Instant startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+}
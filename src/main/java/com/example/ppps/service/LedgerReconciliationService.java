@@ -0,0 +1,265 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.ReconciliationEntryRow;
+import com.example.ppps.dto.ReconciliationTransactionRow;
+import com.example.ppps.entity.LedgerReconciliationIssue;
+import com.example.ppps.entity.LedgerReconciliationRun;
+import com.example.ppps.enums.LedgerImbalanceType;
+import com.example.ppps.enums.ReconciliationRunStatus;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.LedgerEntryRepository;
+import com.example.ppps.repository.LedgerReconciliationIssueRepository;
+import com.example.ppps.repository.LedgerReconciliationRunRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// End-of-day check that the ledger adds up: every transaction initiated before the cutoff must net to what
+// it says happened -- zero for transfers, +/- the amount for deposits and withdrawals -- and no entries may
+// sit under an id with no transaction. The id space is cut into equal ranges; a few run side by side, each
+// streaming its transactions and then its entries from one REPEATABLE READ snapshot into a primitive
+// ReconciliationTally. Memory is bounded by one partition's transactions per worker, never the whole
+// ledger, and entries are not sorted or grouped by the database. Findings land in ledger_reconciliation_*.
+@Service
+@Slf4j
+public class LedgerReconciliationService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerReconciliationRunRepository runRepository;
+    private final LedgerReconciliationIssueRepository issueRepository;
+    private final PlatformWalletService platformWalletService;
+    private final TransactionTemplate snapshotTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int partitions;
+    private final int parallelism;
+    private final int fetchSize;
+    private final int maxIssues;
+    private final int expectedTransactionsPerPartition;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final Timer runTimer;
+    private final Counter entriesCounter;
+    private final Map<LedgerImbalanceType, Counter> imbalanceCounters = new EnumMap<>(LedgerImbalanceType.class);
+    private final Map<LedgerImbalanceType, AtomicLong> lastRunImbalances = new EnumMap<>(LedgerImbalanceType.class);
+
+    public LedgerReconciliationService(
+            LedgerEntryRepository ledgerEntryRepository,
+            LedgerReconciliationRunRepository runRepository,
+            LedgerReconciliationIssueRepository issueRepository,
+            PlatformWalletService platformWalletService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.ledger.reconciliation.partitions:256}") int partitions,
+            @Value("${app.ledger.reconciliation.parallelism:4}") int parallelism,
+            @Value("${app.ledger.reconciliation.fetch-size:10000}") int fetchSize,
+            @Value("${app.ledger.reconciliation.max-issues:10000}") int maxIssues,
+            @Value("${app.ledger.reconciliation.expected-transactions-per-partition:65536}")
+            int expectedTransactionsPerPartition) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.runRepository = runRepository;
+        this.issueRepository = issueRepository;
+        this.platformWalletService = platformWalletService;
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setReadOnly(true);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.partitions = partitions;
+        this.parallelism = parallelism;
+        this.fetchSize = fetchSize;
+        this.maxIssues = maxIssues;
+        this.expectedTransactionsPerPartition = expectedTransactionsPerPartition;
+
+        this.runTimer = Timer.builder("ppps.ledger.reconciliation.duration")
+                .description("Time to reconcile the whole ledger")
+                .register(meterRegistry);
+        this.entriesCounter = Counter.builder("ppps.ledger.reconciliation.entries")
+                .description("Ledger entries read by reconciliation runs")
+                .register(meterRegistry);
+        for (LedgerImbalanceType type : LedgerImbalanceType.values()) {
+            imbalanceCounters.put(type, Counter.builder("ppps.ledger.reconciliation.imbalances")
+                    .tag("type", type.name())
+                    .description("Transactions that failed reconciliation, over all runs")
+                    .register(meterRegistry));
+            AtomicLong last = new AtomicLong();
+            lastRunImbalances.put(type, last);
+            Gauge.builder("ppps.ledger.reconciliation.imbalances.last", last, AtomicLong::get)
+                    .tag("type", type.name())
+                    .description("Transactions that failed the last completed reconciliation")
+                    .register(meterRegistry);
+        }
+    }
+
+    // yesterday (UTC); skipped once any node has started a run for that date
+    @Scheduled(cron = "${app.ledger.reconciliation.cron:0 20 1 * * *}", zone = "UTC")
+    public void scheduledReconcile() {
+        LocalDate businessDate = LocalDate.now(ZoneOffset.UTC).minusDays(1);
+        if (running.get() || runRepository.existsByBusinessDate(businessDate)) {
+            return;
+        }
+        reconcile(businessDate);
+    }
+
+    // covers every transaction initiated before the end of businessDate (UTC), with all of its entries so far
+    public LedgerReconciliationRun reconcile(LocalDate businessDate) {
+        if (!running.compareAndSet(false, true)) {
+            throw new PppsException(HttpStatus.CONFLICT, "Ledger reconciliation is already running");
+        }
+
+        long started = System.nanoTime();
+        LedgerReconciliationRun run = runRepository.save(LedgerReconciliationRun.builder()
+                .businessDate(businessDate)
+                .cutoff(businessDate.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant())
+                .status(ReconciliationRunStatus.RUNNING)
+                .startedAt(Instant.now())
+                .partitions(partitions)
+                .build());
+        log.info("🧮 Ledger reconciliation started - Business date: {} | Partitions: {}", businessDate, partitions);
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("ledger-reconcile-", 0).factory());
+        AtomicInteger issueBudget = new AtomicInteger(maxIssues);
+        try {
+            List<CompletableFuture<PartitionResult>> futures = new ArrayList<>(partitions);
+            for (int partition = 0; partition < partitions; partition++) {
+                int index = partition;
+                futures.add(CompletableFuture.supplyAsync(
+                        () -> reconcilePartition(run.getId(), run.getCutoff(), index, issueBudget), pool));
+            }
+
+            PartitionResult total = futures.stream()
+                    .map(CompletableFuture::join)
+                    .reduce(PartitionResult.empty(), PartitionResult::plus);
+
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - started);
+            run.setStatus(ReconciliationRunStatus.COMPLETED);
+            run.setFinishedAt(Instant.now());
+            run.setEntriesScanned(total.entries());
+            run.setTransactionsScanned(total.transactions());
+            run.setMissingEntries(total.count(LedgerImbalanceType.MISSING_ENTRIES));
+            run.setOrphanEntries(total.count(LedgerImbalanceType.ORPHAN_ENTRIES));
+            run.setUnbalancedTransfers(total.count(LedgerImbalanceType.UNBALANCED_TRANSFER));
+            run.setUnbalancedExternal(total.count(LedgerImbalanceType.UNBALANCED_EXTERNAL));
+            run.setStuckInFlight(total.count(LedgerImbalanceType.STUCK_IN_FLIGHT));
+            runRepository.save(run);
+
+            runTimer.record(elapsed);
+            for (LedgerImbalanceType type : LedgerImbalanceType.values()) {
+                lastRunImbalances.get(type).set(total.count(type));
+            }
+            if (run.totalIssues() > 0) {
+                log.warn("⚠️ Ledger reconciliation found {} imbalanced transactions - Run: {} | By type: {}",
+                        run.totalIssues(), run.getId(), total.counts());
+            }
+            log.info("🧮 Ledger reconciliation finished - Run: {} | Entries: {} | Transactions: {} | Took: {}ms",
+                    run.getId(), total.entries(), total.transactions(), elapsed.toMillis());
+            return run;
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.error("❌ Ledger reconciliation failed - Run: {}", run.getId(), cause);
+            run.setStatus(ReconciliationRunStatus.FAILED);
+            run.setFinishedAt(Instant.now());
+            run.setFailureReason(cause.getMessage());
+            runRepository.save(run);
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Ledger reconciliation failed: " + cause.getMessage());
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    private PartitionResult reconcilePartition(UUID runId, Instant cutoff, int partition, AtomicInteger issueBudget) {
+        UUID from = partitionStart(partition);
+        UUID to = partition + 1 < partitions ? partitionStart(partition + 1) : null;
+        ReconciliationTally tally = new ReconciliationTally(cutoff, expectedTransactionsPerPartition);
+
+        // transactions first, so every entry finds its transaction's slot already filled in
+        snapshotTemplate.executeWithoutResult(status -> {
+            try (Stream<ReconciliationTransactionRow> rows =
+                         ledgerEntryRepository.streamTransactions(from, to,
+                                 platformWalletService.getPlatformWalletId(), fetchSize)) {
+                rows.forEach(tally::add);
+            }
+            try (Stream<ReconciliationEntryRow> rows =
+                         ledgerEntryRepository.streamEntries(from, to, fetchSize)) {
+                rows.forEach(tally::add);
+            }
+        });
+
+        Map<LedgerImbalanceType, Long> counts = new EnumMap<>(LedgerImbalanceType.class);
+        List<LedgerReconciliationIssue> issues = new ArrayList<>();
+        tally.forEachImbalance((transactionId, type, netMinorUnits, amountMinorUnits, entryCount) -> {
+            counts.merge(type, 1L, Long::sum);
+            imbalanceCounters.get(type).increment();
+            if (issueBudget.getAndDecrement() > 0) {
+                issues.add(LedgerReconciliationIssue.builder()
+                        .runId(runId)
+                        .transactionId(transactionId)
+                        .type(type)
+                        .netAmount(BigDecimal.valueOf(netMinorUnits, 2))
+                        .transactionAmount(type == LedgerImbalanceType.ORPHAN_ENTRIES
+                                ? null : BigDecimal.valueOf(amountMinorUnits, 2))
+                        .entryCount(entryCount)
+                        .build());
+            }
+        });
+        if (!issues.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> issueRepository.saveAll(issues));
+        }
+
+        entriesCounter.increment(tally.entriesSeen());
+        log.debug("🧮 Reconciled partition {}/{} - Transactions: {} | Entries: {} | Imbalances: {}",
+                partition + 1, partitions, tally.transactionsSeen(), tally.entriesSeen(), counts);
+        return new PartitionResult(tally.entriesSeen(), tally.transactionsSeen(), counts);
+    }
+
+    // equal slices of the id space by its leading 64 bits, compared unsigned as Postgres orders uuids
+    UUID partitionStart(int partition) {
+        return new UUID(Long.divideUnsigned(-1L, partitions) * partition, 0L);
+    }
+
+    private record PartitionResult(long entries, long transactions, Map<LedgerImbalanceType, Long> counts) {
+
+        static PartitionResult empty() {
+            return new PartitionResult(0, 0, new EnumMap<>(LedgerImbalanceType.class));
+        }
+
+        PartitionResult plus(PartitionResult other) {
+            Map<LedgerImbalanceType, Long> merged = new EnumMap<>(LedgerImbalanceType.class);
+            merged.putAll(counts);
+            other.counts.forEach((type, count) -> merged.merge(type, count, Long::sum));
+            return new PartitionResult(entries + other.entries, transactions + other.transactions, merged);
+        }
+
+        long count(LedgerImbalanceType type) {
+            return counts.getOrDefault(type, 0L);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.LedgerEntry;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.entity.WalletActivity;
+import com.example.ppps.enums.ActivityDirection;
+import com.example.ppps.enums.EntryType;
+import com.example.ppps.repository.LedgerEntryRepository;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletActivityRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+// Buffers the ledger entries of the current database transaction and hands them to Hibernate just
+// before commit, so the commit flush sends them as one JDBC batch (hibernate.jdbc.batch_size) instead
+// of one saveAndFlush round trip per entry. Ids are generated in memory, which keeps batching intact.
+// The same commit upserts the wallet_activity projection, folded to one row per wallet per transaction.
+// Each activity row carries its transaction's initiated_at, so history reads join the partitioned
+// transactions table on its full key and open one partition per row.
+@Service
+@Slf4j
+public class LedgerService {
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final WalletActivityRepository walletActivityRepository;
+    private final TransactionRepository transactionRepository;
+
+    public LedgerService(LedgerEntryRepository ledgerEntryRepository,
+                         WalletActivityRepository walletActivityRepository,
+                         TransactionRepository transactionRepository) {
+        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.walletActivityRepository = walletActivityRepository;
+        this.transactionRepository = transactionRepository;
+    }
+
+    // the wallet must already carry its new balance -- callers hold its lock, so that balance is the running balance
+    public LedgerEntry record(UUID transactionId, Wallet wallet, UUID counterpartyWalletId,
+                              BigDecimal amount, EntryType type) {
+        return record(transactionId, wallet.getId(), wallet.getBalance(), counterpartyWalletId, amount, type);
+    }
+
+    // for balance changes made by a conditional UPDATE: balanceAfter is what its RETURNING clause gave back
+    public LedgerEntry record(UUID transactionId, UUID walletId, BigDecimal balanceAfter, UUID counterpartyWalletId,
+                              BigDecimal amount, EntryType type) {
+        Instant now = Instant.now();
+        LedgerEntry entry = new LedgerEntry();
+        entry.setTransactionId(transactionId);
+        entry.setWalletId(walletId);
+        entry.setEntryType(type);
+        entry.setAmount(amount);
+        entry.setCreatedAt(now);
+
+        WalletActivity activity = WalletActivity.builder()
+                .id(UUID.randomUUID())
+                .walletId(walletId)
+                .transactionId(transactionId)
+                .direction(type == EntryType.DEBIT ? ActivityDirection.SENT : ActivityDirection.RECEIVED)
+                .counterpartyWalletId(Objects.equals(counterpartyWalletId, walletId) ? null : counterpartyWalletId)
+                .signedAmount(type == EntryType.DEBIT ? amount.negate() : amount)
+                .balanceAfter(balanceAfter)
+                .occurredAt(now)
+                .build();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingWrites pending = pendingWrites();
+            if (!pending.initiatedAt.containsKey(transactionId)) {
+                pending.initiatedAt.put(transactionId, initiatedAt(transactionId).orElse(null));
+            }
+            activity.setTransactionInitiatedAt(pending.initiatedAt.get(transactionId));
+            pending.entries.add(entry);
+            pending.merge(activity);
+        } else {
+            // no surrounding transaction to wait for -- write straight away
+            activity.setTransactionInitiatedAt(initiatedAt(transactionId).orElse(null));
+            ledgerEntryRepository.save(entry);
+            walletActivityRepository.upsert(List.of(activity));
+        }
+
+        log.debug("📘 Ledger entry recorded - Type: {} | Wallet: {} | Amount: {}", type, walletId, amount);
+        return entry;
+    }
+
+    // the caller has loaded or just saved the transaction in this persistence context, so this is normally
+    // answered without a query. Fee sweeps booked before sweeps had a transactions row get none
+    private Optional<Instant> initiatedAt(UUID transactionId) {
+        return transactionRepository.findById(transactionId).map(Transaction::getInitiatedAt);
+    }
+
+    private PendingWrites pendingWrites() {
+        PendingWrites pending = (PendingWrites) TransactionSynchronizationManager.getResource(this);
+        if (pending != null) {
+            return pending;
+        }
+
+        PendingWrites buffer = new PendingWrites();
+        TransactionSynchronizationManager.bindResource(this, buffer);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                if (!buffer.entries.isEmpty()) {
+                    ledgerEntryRepository.saveAll(buffer.entries);
+                    walletActivityRepository.upsert(buffer.activity.values());
+                    log.debug("📘 {} ledger entries queued for batch insert, {} wallet activity rows upserted",
+                            buffer.entries.size(), buffer.activity.size());
+                }
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(LedgerService.this);
+            }
+        });
+        return buffer;
+    }
+
+    private static final class PendingWrites {
+        private final List<LedgerEntry> entries = new ArrayList<>();
+        private final Map<ActivityKey, WalletActivity> activity = new LinkedHashMap<>();
+        // looked up once per transaction id; a missing row's null is remembered too
+        private final Map<UUID, Instant> initiatedAt = new HashMap<>();
+
+        // several entries for one wallet in one transaction (escrow release, refunds) become one row
+        private void merge(WalletActivity next) {
+            activity.merge(new ActivityKey(next.getWalletId(), next.getTransactionId()), next, (first, later) -> {
+                first.setSignedAmount(first.getSignedAmount().add(later.getSignedAmount()));
+                first.setBalanceAfter(later.getBalanceAfter());
+                if (first.getCounterpartyWalletId() == null) {
+                    first.setCounterpartyWalletId(later.getCounterpartyWalletId());
+                }
+                return first;
+            });
+        }
+    }
+
+    private record ActivityKey(UUID walletId, UUID transactionId) {
+    }
+}
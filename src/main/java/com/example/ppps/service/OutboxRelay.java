@@ -0,0 +1,191 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.OutboxEvent;
+import com.example.ppps.repository.OutboxEventRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Polls outbox_events with FOR UPDATE SKIP LOCKED, so several nodes can relay side by side without
+// double-sending a batch. Each batch is sent to Kafka in parallel and marked sent in the same DB
+// transaction; rows whose send failed stay unsent and are retried (at-least-once) after an exponential
+// backoff, so a poison event steps aside for the ones behind it. After max-attempts it is dead-lettered.
+@Service
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration sendTimeout;
+    private final Duration retention;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final Duration maxBackoff;
+
+    private final Counter publishedCounter;
+    private final Counter failedCounter;
+    private final Counter deadLetteredCounter;
+    private final Timer batchTimer;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final AtomicLong deadLetters = new AtomicLong();
+
+    public OutboxRelay(
+            OutboxEventRepository outboxEventRepository,
+            KafkaTemplate<String, Object> kafkaTemplate,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.outbox.relay.batch-size:200}") int batchSize,
+            @Value("${app.outbox.relay.send-timeout:10s}") Duration sendTimeout,
+            @Value("${app.outbox.retention:7d}") Duration retention,
+            @Value("${app.outbox.relay.max-attempts:10}") int maxAttempts,
+            @Value("${app.outbox.relay.retry-backoff:1s}") Duration retryBackoff,
+            @Value("${app.outbox.relay.max-backoff:5m}") Duration maxBackoff) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.sendTimeout = sendTimeout;
+        this.retention = retention;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.maxBackoff = maxBackoff;
+
+        this.publishedCounter = Counter.builder("ppps.outbox.published")
+                .description("Outbox events published to Kafka")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("ppps.outbox.failed")
+                .description("Outbox event sends that failed and will be retried")
+                .register(meterRegistry);
+        this.deadLetteredCounter = Counter.builder("ppps.outbox.dead.lettered")
+                .description("Outbox events given up on after max-attempts failed sends")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("ppps.outbox.relay.batch")
+                .description("Time to claim, publish and mark one outbox batch")
+                .register(meterRegistry);
+        Gauge.builder("ppps.outbox.pending", pending, AtomicLong::get)
+                .description("Outbox events not yet published")
+                .register(meterRegistry);
+        Gauge.builder("ppps.outbox.lag.seconds", lagMillis, value -> value.get() / 1000.0)
+                .description("Age of the oldest unpublished outbox event")
+                .register(meterRegistry);
+        Gauge.builder("ppps.outbox.dead.letters", deadLetters, AtomicLong::get)
+                .description("Dead-lettered outbox events waiting for an operator")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.relay.interval-ms:500}")
+    public void relay() {
+        // drain while full batches keep coming, then let the scheduler wait for the next poll
+        int published;
+        do {
+            Timer.Sample sample = Timer.start();
+            Integer batch = transactionTemplate.execute(status -> publishBatch());
+            sample.stop(batchTimer);
+            published = batch == null ? 0 : batch;
+        } while (published >= batchSize);
+        refreshLag();
+    }
+
+    // runs inside the relay's transaction; the claimed rows stay locked until their sentAt commits
+    int publishBatch() {
+        Instant now = Instant.now();
+        List<OutboxEvent> batch = outboxEventRepository.claimUnsentBatch(now, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        Map<OutboxEvent, CompletableFuture<?>> sends = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            try {
+                Object payload = objectMapper.readValue(event.getPayload(), Class.forName(event.getEventType()));
+                sends.put(event, kafkaTemplate.send(event.getTopic(), event.getEventKey(), payload));
+            } catch (Exception e) {
+                sends.put(event, CompletableFuture.failedFuture(e));
+            }
+        }
+
+        List<UUID> sentIds = new ArrayList<>();
+        for (Map.Entry<OutboxEvent, CompletableFuture<?>> send : sends.entrySet()) {
+            OutboxEvent event = send.getKey();
+            try {
+                send.getValue().get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+                sentIds.add(event.getId());
+            } catch (Exception e) {
+                failed(event, e, now);
+            }
+        }
+
+        if (!sentIds.isEmpty()) {
+            outboxEventRepository.markSent(sentIds, Instant.now());
+            publishedCounter.increment(sentIds.size());
+            log.debug("📤 Outbox relay published {} of {} events", sentIds.size(), batch.size());
+        }
+        return sentIds.size();
+    }
+
+    // the row is managed, so these changes commit with the batch
+    private void failed(OutboxEvent event, Exception e, Instant now) {
+        event.setAttempts(event.getAttempts() + 1);
+        event.setLastError(e.getMessage());
+        if (event.getAttempts() >= maxAttempts) {
+            event.setFailedAt(now);
+            deadLetteredCounter.increment();
+            log.error("❌ Outbox event dead-lettered - Event: {} | Topic: {} | Attempts: {} | Error: {}",
+                    event.getId(), event.getTopic(), event.getAttempts(), e.getMessage());
+            return;
+        }
+        event.setNextAttemptAt(now.plus(backoff(event.getAttempts())));
+        failedCounter.increment();
+        log.warn("⚠️ Outbox publish failed - Event: {} | Topic: {} | Attempt: {} | Retry at: {} | Error: {}",
+                event.getId(), event.getTopic(), event.getAttempts(), event.getNextAttemptAt(), e.getMessage());
+    }
+
+    // retry-backoff, doubling per attempt up to max-backoff
+    private Duration backoff(int attempts) {
+        int doublings = Math.min(attempts - 1, 30);
+        Duration delay = retryBackoff.multipliedBy(1L << doublings);
+        return delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay;
+    }
+
+    // sent rows are only kept for troubleshooting
+    @Scheduled(cron = "${app.outbox.cleanup-cron:0 30 3 * * *}")
+    public void purgeSentEvents() {
+        Integer deleted = transactionTemplate.execute(status ->
+                outboxEventRepository.deleteSentBefore(Instant.now().minus(retention)));
+        if (deleted != null && deleted > 0) {
+            log.info("🧹 Purged {} published outbox events", deleted);
+        }
+    }
+
+    private void refreshLag() {
+        pending.set(outboxEventRepository.countBySentAtIsNullAndFailedAtIsNull());
+        deadLetters.set(outboxEventRepository.countByFailedAtIsNotNull());
+        Instant oldest = outboxEventRepository.findOldestUnsentCreatedAt();
+        lagMillis.set(oldest == null ? 0 : Duration.between(oldest, Instant.now()).toMillis());
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.OutboxEvent;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+
+// Services call this instead of KafkaTemplate: the event row commits or rolls back with the ledger,
+// so there are no lost events after a crash and no phantom events for rolled-back work.
+@Service
+@Slf4j
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent enqueue(String topic, String key, Object event) {
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to serialize event: " + e.getMessage());
+        }
+
+        Instant now = Instant.now();
+        OutboxEvent outboxEvent = OutboxEvent.builder()
+                .topic(topic)
+                .eventKey(key)
+                .eventType(event.getClass().getName())
+                .payload(payload)
+                .createdAt(now)
+                .nextAttemptAt(now)
+                .build();
+        outboxEvent = outboxEventRepository.save(outboxEvent);
+
+        log.debug("📮 Outbox event queued - Topic: {} | Key: {} | Type: {}",
+                topic, key, event.getClass().getSimpleName());
+        return outboxEvent;
+    }
+}
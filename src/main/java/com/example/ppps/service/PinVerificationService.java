@@ -0,0 +1,165 @@
+package com.example.ppps.service;
+
+import com.example.ppps.exception.PppsException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// bcrypt matches run on a small CPU-sized pool instead of on request threads, so a burst of PIN checks queues
+// up (and is refused with 503 once the queue is full) rather than starving every other request of CPU.
+// A successful check is remembered for a few minutes under (userId, HMAC of the PIN, HMAC of the stored
+// hash); the raw PIN is never kept, the HMAC key never leaves this JVM, and a PIN reset changes the stored
+// hash -- invalidate(userId) drops the old entries straight away as well.
+@Service
+@Slf4j
+public class PinVerificationService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Duration waitTimeout;
+    private final Cache<PinKey, Boolean> verifiedPins;
+    private final SecretKeySpec macKey;
+
+    private final Timer verifyTimer;
+    private final Counter rejectedCounter;
+
+    public PinVerificationService(
+            PasswordEncoder passwordEncoder,
+            MeterRegistry meterRegistry,
+            @Value("${app.pin.executor.threads:0}") int threads,
+            @Value("${app.pin.executor.queue-capacity:64}") int queueCapacity,
+            @Value("${app.pin.executor.wait-timeout:2s}") Duration waitTimeout,
+            @Value("${app.pin.cache.ttl:5m}") Duration cacheTtl,
+            @Value("${app.pin.cache.max-size:10000}") long cacheMaxSize) {
+        this.passwordEncoder = passwordEncoder;
+        this.waitTimeout = waitTimeout;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "pin-verify-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.verifiedPins = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        this.macKey = new SecretKeySpec(keyBytes, "HmacSHA256");
+
+        this.verifyTimer = Timer.builder("ppps.pin.verify")
+                .description("bcrypt PIN checks, including time queued for the pool")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("ppps.pin.rejected")
+                .description("PIN checks refused because the verification pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("ppps.pin.executor.queued", executor, pool -> pool.getQueue().size())
+                .description("PIN checks waiting for a verification thread")
+                .register(meterRegistry);
+        Gauge.builder("ppps.pin.executor.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("PIN checks being hashed right now")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedPins, "pin.verified");
+    }
+
+    private record PinKey(String userId, String pinMac, String hashVersion) {
+    }
+
+    public boolean matches(String userId, String rawPin, String hashedPin) {
+        if (rawPin == null || hashedPin == null) {
+            return false;
+        }
+        PinKey key = new PinKey(userId, mac(rawPin), mac(hashedPin));
+        if (verifiedPins.getIfPresent(key) != null) {
+            return true;
+        }
+
+        boolean matched = hash(rawPin, hashedPin);
+        // only successes are cached; a wrong PIN always pays the full bcrypt cost
+        if (matched) {
+            verifiedPins.put(key, Boolean.TRUE);
+        }
+        return matched;
+    }
+
+    // drops every cached PIN for the user, e.g. after a PIN reset
+    public void invalidate(String userId) {
+        verifiedPins.asMap().keySet().removeIf(key -> key.userId().equals(userId));
+    }
+
+    private boolean hash(String rawPin, String hashedPin) {
+        Timer.Sample sample = Timer.start();
+        Future<Boolean> result;
+        try {
+            result = executor.submit(() -> passwordEncoder.matches(rawPin, hashedPin));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("⚠️ PIN verification pool saturated - rejecting check");
+            throw new PppsException(HttpStatus.SERVICE_UNAVAILABLE, "PIN verification is busy, retry shortly");
+        }
+
+        try {
+            return result.get(waitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            rejectedCounter.increment();
+            throw new PppsException(HttpStatus.SERVICE_UNAVAILABLE, "PIN verification is busy, retry shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(true);
+            throw new PppsException(HttpStatus.SERVICE_UNAVAILABLE, "PIN verification interrupted");
+        } catch (ExecutionException e) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "PIN verification failed");
+        } finally {
+            sample.stop(verifyTimer);
+        }
+    }
+
+    private String mac(String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(macKey);
+            return HexFormat.of().formatHex(mac.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.EntryType;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Fees land on one of N platform sub-wallets picked by hash of the transaction id, so paid traffic
+// no longer serializes on the single app.platform-wallet-id row. A sweeper rolls the shards up into
+// the canonical platform wallet; balance views report canonical + shards.
+@Service
+@Slf4j
+public class PlatformWalletService {
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerService ledgerService;
+    private final WalletLockService walletLockService;
+    private final BalanceCache balanceCache;
+    private final UUID platformWalletId;
+    private final List<UUID> shardWalletIds;
+
+    public PlatformWalletService(
+            WalletRepository walletRepository,
+            TransactionRepository transactionRepository,
+            LedgerService ledgerService,
+            WalletLockService walletLockService,
+            BalanceCache balanceCache,
+            @Value("${app.platform-wallet-id}") String platformWalletIdStr,
+            @Value("${app.platform-wallet.shard-count:1}") int shardCount) {
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.ledgerService = ledgerService;
+        this.walletLockService = walletLockService;
+        this.balanceCache = balanceCache;
+        this.platformWalletId = (platformWalletIdStr == null || platformWalletIdStr.isBlank())
+                ? null : UUID.fromString(platformWalletIdStr);
+        this.shardWalletIds = platformWalletId == null || shardCount <= 1
+                ? List.of()
+                : deriveShardIds(platformWalletId, shardCount);
+    }
+
+    // shard ids are name-based UUIDs of the canonical id, so every node agrees on them without coordination
+    static List<UUID> deriveShardIds(UUID platformWalletId, int shardCount) {
+        List<UUID> ids = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++) {
+            String name = platformWalletId + "#fee-shard-" + i;
+            ids.add(UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)));
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    public boolean isConfigured() {
+        return platformWalletId != null;
+    }
+
+    public UUID getPlatformWalletId() {
+        return platformWalletId;
+    }
+
+    public List<UUID> getShardWalletIds() {
+        return shardWalletIds;
+    }
+
+    public boolean isPlatformWallet(UUID walletId) {
+        return walletId != null && walletId.equals(platformWalletId);
+    }
+
+    public boolean isShardWallet(UUID walletId) {
+        return walletId != null && shardWalletIds.contains(walletId);
+    }
+
+    // deterministic: the same transaction always maps to the same shard, so a reversal finds its fee
+    public UUID feeWalletFor(UUID transactionId) {
+        if (shardWalletIds.isEmpty()) {
+            return platformWalletId;
+        }
+        return shardWalletIds.get(Math.floorMod(transactionId.hashCode(), shardWalletIds.size()));
+    }
+
+    // credit the fee to the transaction's shard and book it as revenue; caller owns the transaction.
+    // Callers that lock other wallets should include feeWalletFor(transactionId) in their own lockAll.
+    public UUID collectFee(UUID transactionId, BigDecimal fee) {
+        Wallet feeWallet = lockFeeWallet(transactionId, "fee-collect");
+        feeWallet.setBalance(feeWallet.getBalance().add(fee));
+        walletRepository.save(feeWallet);
+        balanceCache.evictAfterCommit(feeWallet.getId());
+        createLedgerEntry(transactionId, feeWallet, null, fee, EntryType.FEE_REVENUE);
+        return feeWallet.getId();
+    }
+
+    public void reverseFee(UUID transactionId, BigDecimal fee) {
+        Wallet feeWallet = lockFeeWallet(transactionId, "fee-reverse");
+        feeWallet.setBalance(feeWallet.getBalance().subtract(fee));
+        walletRepository.save(feeWallet);
+        balanceCache.evictAfterCommit(feeWallet.getId());
+        createLedgerEntry(transactionId, feeWallet, null, fee, EntryType.DEBIT);
+    }
+
+    // canonical wallet plus whatever the shards have collected since the last sweep
+    public BigDecimal aggregateBalance() {
+        if (platformWalletId == null) {
+            return BigDecimal.ZERO;
+        }
+        return walletRepository.sumBalanceByIdIn(allPlatformWalletIds());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void ensureShardWallets() {
+        if (shardWalletIds.isEmpty()) {
+            return;
+        }
+        Wallet platformWallet = walletRepository.findById(platformWalletId).orElse(null);
+        if (platformWallet == null) {
+            log.warn("⚠️ Platform wallet {} not found - fee shards not provisioned", platformWalletId);
+            return;
+        }
+        int created = 0;
+        for (UUID shardId : shardWalletIds) {
+            created += walletRepository.insertIfAbsent(shardId, platformWallet.getUserId(), platformWallet.getCurrency());
+        }
+        log.info("🏦 Platform fee shards ready - {} shards, {} newly created", shardWalletIds.size(), created);
+    }
+
+    // roll every shard's balance up into the canonical wallet; shards and canonical are locked together.
+    // A sweep that moves anything is booked as its own SUCCESS transaction, platform wallet to itself, so its
+    // entries have a transactions row to hang off; the shard debits and canonical credits net it to zero
+    @Scheduled(fixedDelayString = "${app.platform-wallet.sweep-interval-ms:300000}")
+    @Transactional
+    public void sweepShards() {
+        if (shardWalletIds.isEmpty()) {
+            return;
+        }
+        Map<UUID, Wallet> locked = walletLockService.lockAll(allPlatformWalletIds(), "fee-sweep");
+        Wallet platformWallet = locked.get(platformWalletId);
+        if (platformWallet == null) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not found");
+        }
+
+        List<Wallet> funded = new ArrayList<>();
+        BigDecimal swept = BigDecimal.ZERO;
+        for (UUID shardId : shardWalletIds) {
+            Wallet shard = locked.get(shardId);
+            if (shard != null && shard.getBalance().signum() > 0) {
+                funded.add(shard);
+                swept = swept.add(shard.getBalance());
+            }
+        }
+        if (funded.isEmpty()) {
+            return;
+        }
+
+        Transaction sweep = new Transaction();
+        sweep.setSenderWalletId(platformWalletId);
+        sweep.setReceiverWalletId(platformWalletId);
+        sweep.setAmount(swept);
+        sweep.setStatus(TransactionStatus.SUCCESS);
+        sweep.setInitiatedAt(Instant.now());
+        sweep = transactionRepository.save(sweep);
+
+        for (Wallet shard : funded) {
+            BigDecimal amount = shard.getBalance();
+            shard.setBalance(BigDecimal.ZERO);
+            platformWallet.setBalance(platformWallet.getBalance().add(amount));
+            createLedgerEntry(sweep.getId(), shard, platformWalletId, amount, EntryType.DEBIT);
+            createLedgerEntry(sweep.getId(), platformWallet, shard.getId(), amount, EntryType.CREDIT);
+            balanceCache.evictAfterCommit(shard.getId());
+        }
+        balanceCache.evictAfterCommit(platformWalletId);
+
+        log.info("🧹 Swept {} from {} fee shards into platform wallet - Sweep: {}", swept, funded.size(), sweep.getId());
+    }
+
+    public Set<UUID> allPlatformWalletIds() {
+        Set<UUID> ids = new HashSet<>(shardWalletIds);
+        if (platformWalletId != null) {
+            ids.add(platformWalletId);
+        }
+        return ids;
+    }
+
+    private Wallet lockFeeWallet(UUID transactionId, String operation) {
+        if (platformWalletId == null) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not configured to collect fees");
+        }
+        Wallet feeWallet = walletLockService.lock(feeWalletFor(transactionId), operation);
+        if (feeWallet == null) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not found to collect fees");
+        }
+        return feeWallet;
+    }
+
+    private void createLedgerEntry(UUID transactionId, Wallet wallet, UUID counterpartyWalletId,
+                                   BigDecimal amount, EntryType type) {
+        ledgerService.record(transactionId, wallet, counterpartyWalletId, amount, type);
+    }
+}
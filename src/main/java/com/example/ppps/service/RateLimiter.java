@@ -0,0 +1,40 @@
+package com.example.ppps.service;
+
+import java.time.Duration;
+
+// Token-bucket limiter keyed by an arbitrary client key (route + user id or IP). TokenBucketRateLimiter keeps
+// the buckets in this JVM; RedisRateLimiter shares them across nodes.
+public interface RateLimiter {
+
+    Decision tryAcquire(String key, Rule rule);
+
+    // refills at requestsPerMinute, holds at most burst tokens
+    record Rule(String name, long requestsPerMinute, long burst) {
+
+        public Rule {
+            if (requestsPerMinute <= 0 || burst <= 0) {
+                throw new IllegalArgumentException("Rate limit rule " + name + " needs a positive rate and burst");
+            }
+        }
+
+        public long intervalNanos() {
+            return Duration.ofMinutes(1).toNanos() / requestsPerMinute;
+        }
+
+        // how far ahead of real time a bucket's next-token time may run before requests are refused
+        public long burstToleranceNanos() {
+            return (burst - 1) * intervalNanos();
+        }
+    }
+
+    record Decision(boolean allowed, long remaining, long retryAfterNanos) {
+
+        public static Decision allow(long remaining) {
+            return new Decision(true, remaining, 0);
+        }
+
+        public static Decision reject(long retryAfterNanos) {
+            return new Decision(false, 0, retryAfterNanos);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.ReconciliationEntryRow;
+import com.example.ppps.dto.ReconciliationTransactionRow;
+import com.example.ppps.enums.LedgerImbalanceType;
+import com.example.ppps.enums.TransactionStatus;
+import java.time.Instant;
+import java.util.UUID;
+
+// Per-transaction totals for one reconciliation partition, in an open-addressing table keyed by the two
+// halves of the transaction id. Every column is a primitive array, so a transaction costs about 50 bytes
+// however many entries it has, and nothing per row outlives the row. Not thread-safe: one per partition.
+final class ReconciliationTally {
+
+    private static final byte USED = 1;
+    private static final byte HAS_TRANSACTION = 1 << 1;
+    private static final byte IN_SCOPE = 1 << 2;
+    private static final byte TRANSFER = 1 << 3;
+    private static final byte IN_FLIGHT = 1 << 4;
+    private static final byte SETTLED = 1 << 5;
+    private static final byte DEPOSIT = 1 << 6;
+    private static final byte WITHDRAWAL = (byte) (1 << 7);
+
+    @FunctionalInterface
+    interface ImbalanceVisitor {
+        // amountMinorUnits is 0 for orphan entries, which have no transaction to take it from
+        void visit(UUID transactionId, LedgerImbalanceType type, long netMinorUnits, long amountMinorUnits,
+                   int entryCount);
+    }
+
+    private final Instant cutoff;
+    private long[] high;
+    private long[] low;
+    private long[] net;
+    private long[] amount;
+    private long[] reserved;
+    private int[] entries;
+    private byte[] flags;
+    private int size;
+    private long entriesSeen;
+    private long transactionsSeen;
+
+    ReconciliationTally(Instant cutoff, int expectedTransactions) {
+        this.cutoff = cutoff;
+        allocate(Integer.highestOneBit(Math.max(16, expectedTransactions * 2 - 1)) << 1);
+    }
+
+    void add(ReconciliationTransactionRow row) {
+        int slot = slot(row.id());
+        byte flag = (byte) (flags[slot] | HAS_TRANSACTION);
+        if (row.initiatedAt().isBefore(cutoff)) {
+            flag |= IN_SCOPE;
+        }
+        if (row.transferState() != null) {
+            flag |= TRANSFER;
+            if (!row.transferState().isTerminal()) {
+                flag |= IN_FLIGHT;
+            }
+        }
+        if (row.status() == TransactionStatus.SUCCESS) {
+            flag |= SETTLED;
+        }
+        if (row.kind() == ReconciliationTransactionRow.Kind.DEPOSIT) {
+            flag |= DEPOSIT;
+        } else if (row.kind() == ReconciliationTransactionRow.Kind.WITHDRAWAL) {
+            flag |= WITHDRAWAL;
+        }
+        flags[slot] = flag;
+        amount[slot] = row.amountMinorUnits();
+        reserved[slot] = row.reservedMinorUnits();
+        transactionsSeen++;
+    }
+
+    void add(ReconciliationEntryRow row) {
+        int slot = slot(row.transactionId());
+        net[slot] += row.signedMinorUnits();
+        entries[slot]++;
+        entriesSeen++;
+    }
+
+    long entriesSeen() {
+        return entriesSeen;
+    }
+
+    long transactionsSeen() {
+        return transactionsSeen;
+    }
+
+    void forEachImbalance(ImbalanceVisitor visitor) {
+        for (int slot = 0; slot < flags.length; slot++) {
+            if (flags[slot] == 0) {
+                continue;
+            }
+            LedgerImbalanceType type = classify(slot);
+            if (type != null) {
+                visitor.visit(new UUID(high[slot], low[slot]), type, net[slot], amount[slot], entries[slot]);
+            }
+        }
+    }
+
+    // transfers move money between wallets and net to zero. A deposit nets to +amount; a withdrawal to -amount,
+    // or zero once reversed -- refunded twice it nets to +amount, which is an imbalance, not a deposit.
+    // A transfer still in flight has only its reservation booked. Anything else only has to net to zero or
+    // to the amount one way or the other
+    private LedgerImbalanceType classify(int slot) {
+        byte flag = flags[slot];
+        long total = net[slot];
+        if ((flag & HAS_TRANSACTION) == 0) {
+            return total == 0 ? null : LedgerImbalanceType.ORPHAN_ENTRIES;
+        }
+        if ((flag & IN_SCOPE) == 0) {
+            return null;
+        }
+        if (entries[slot] == 0) {
+            return (flag & SETTLED) != 0 ? LedgerImbalanceType.MISSING_ENTRIES : null;
+        }
+        if ((flag & TRANSFER) != 0) {
+            if ((flag & IN_FLIGHT) != 0 && total == -reserved[slot]) {
+                return LedgerImbalanceType.STUCK_IN_FLIGHT;
+            }
+            return total == 0 ? null : LedgerImbalanceType.UNBALANCED_TRANSFER;
+        }
+        if ((flag & DEPOSIT) != 0) {
+            return total == amount[slot] ? null : LedgerImbalanceType.UNBALANCED_EXTERNAL;
+        }
+        if ((flag & WITHDRAWAL) != 0) {
+            return total == -amount[slot] || total == 0 ? null : LedgerImbalanceType.UNBALANCED_EXTERNAL;
+        }
+        return total == 0 || Math.abs(total) == amount[slot] ? null : LedgerImbalanceType.UNBALANCED_EXTERNAL;
+    }
+
+    private int slot(UUID id) {
+        if (size * 4 >= flags.length * 3) {
+            grow();
+        }
+        long hi = id.getMostSignificantBits();
+        long lo = id.getLeastSignificantBits();
+        int mask = flags.length - 1;
+        int slot = mix(hi, lo) & mask;
+        while (flags[slot] != 0) {
+            if (high[slot] == hi && low[slot] == lo) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        flags[slot] = USED;
+        high[slot] = hi;
+        low[slot] = lo;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldHigh = high;
+        long[] oldLow = low;
+        long[] oldNet = net;
+        long[] oldAmount = amount;
+        long[] oldReserved = reserved;
+        int[] oldEntries = entries;
+        byte[] oldFlags = flags;
+        allocate(oldFlags.length << 1);
+
+        int mask = flags.length - 1;
+        for (int old = 0; old < oldFlags.length; old++) {
+            if (oldFlags[old] == 0) {
+                continue;
+            }
+            int slot = mix(oldHigh[old], oldLow[old]) & mask;
+            while (flags[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            high[slot] = oldHigh[old];
+            low[slot] = oldLow[old];
+            net[slot] = oldNet[old];
+            amount[slot] = oldAmount[old];
+            reserved[slot] = oldReserved[old];
+            entries[slot] = oldEntries[old];
+            flags[slot] = oldFlags[old];
+        }
+    }
+
+    private void allocate(int capacity) {
+        high = new long[capacity];
+        low = new long[capacity];
+        net = new long[capacity];
+        amount = new long[capacity];
+        reserved = new long[capacity];
+        entries = new int[capacity];
+        flags = new byte[capacity];
+    }
+
+    // ids in one partition share their leading bits, so those alone would cluster; fold in the random low half
+    private static int mix(long hi, long lo) {
+        long h = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.ppps.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Same token bucket as TokenBucketRateLimiter, evaluated atomically in Redis so every node draws from one
+// bucket per key. Redis' own clock is used, and each key expires once its bucket is full again. If Redis is
+// unreachable the request is judged by the local limiter instead, so limits fall back to per-node.
+@Slf4j
+public class RedisRateLimiter implements RateLimiter {
+
+    private static final String KEY_PREFIX = "ppps:ratelimit:";
+
+    // ARGV: interval and burst tolerance in microseconds; returns {allowed, remaining, retryAfterMicros}
+    private static final RedisScript<List> TOKEN_BUCKET = new DefaultRedisScript<>("""
+            local interval = tonumber(ARGV[1])
+            local tolerance = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000000 + tonumber(time[2])
+            local tat = tonumber(redis.call('GET', KEYS[1]) or now)
+            if tat < now then tat = now end
+            local allowedAt = tat - tolerance
+            if allowedAt > now then
+                return {0, 0, allowedAt - now}
+            end
+            local nextTat = tat + interval
+            redis.call('SET', KEYS[1], nextTat, 'PX', math.ceil((nextTat - now) / 1000))
+            return {1, math.floor((now + tolerance + interval - nextTat) / interval), 0}
+            """, List.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RateLimiter fallback;
+    private final Counter fallbackCounter;
+
+    public RedisRateLimiter(StringRedisTemplate redisTemplate, RateLimiter fallback, MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.fallback = fallback;
+        this.fallbackCounter = Counter.builder("ppps.ratelimit.redis.fallback")
+                .description("Rate limit checks answered locally because Redis was unavailable")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Decision tryAcquire(String key, Rule rule) {
+        try {
+            List<?> result = redisTemplate.execute(TOKEN_BUCKET, List.of(KEY_PREFIX + key),
+                    String.valueOf(TimeUnit.NANOSECONDS.toMicros(rule.intervalNanos())),
+                    String.valueOf(TimeUnit.NANOSECONDS.toMicros(rule.burstToleranceNanos())));
+            if (result == null || result.size() < 3) {
+                throw new IllegalStateException("Unexpected rate limit script result: " + result);
+            }
+            if (((Number) result.get(0)).longValue() == 1) {
+                return Decision.allow(((Number) result.get(1)).longValue());
+            }
+            return Decision.reject(TimeUnit.MICROSECONDS.toNanos(((Number) result.get(2)).longValue()));
+        } catch (DataAccessException | IllegalStateException e) {
+            fallbackCounter.increment();
+            log.debug("Redis rate limit check failed, using local buckets: {}", e.getMessage());
+            return fallback.tryAcquire(key, rule);
+        }
+    }
+}
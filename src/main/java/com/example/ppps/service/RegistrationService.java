@@ -27,6 +27,9 @@ public class RegistrationService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PinVerificationService pinVerificationService;
+
     @Transactional
     public RegistrationResponse registerUser(@Valid RegistrationRequest request) {
         if (userRepository.findByPhoneNumber(request.getPhoneNumber()).isPresent()) {
@@ -59,12 +62,13 @@ public class RegistrationService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new IllegalStateException("User not found"));
 
-        if (!passwordEncoder.matches(request.getOldPin(), user.getHashedPin())) {
+        if (!pinVerificationService.matches(userId, request.getOldPin(), user.getHashedPin())) {
             throw new SecurityException("Invalid old PIN");
         }
 
         String newHashedPin = passwordEncoder.encode(request.getNewPin());
         user.setHashedPin(newHashedPin);
         userRepository.save(user);
+        pinVerificationService.invalidate(userId);
     }
 }
\ No newline at end of file
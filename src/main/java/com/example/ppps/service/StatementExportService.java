@@ -0,0 +1,237 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.AuditLogEntry;
+import com.example.ppps.dto.AuditLogFilter;
+import com.example.ppps.dto.TransactionExportRow;
+import com.example.ppps.dto.WalletHistoryRow;
+import com.example.ppps.enums.StatementFormat;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.AuditLogRepository;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletActivityRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+// Writes statements straight from a forward-only database cursor to the response, one row at a time, so
+// memory stays flat whatever the statement size. Each export runs in its own read-only transaction,
+// which Postgres needs to honour the fetch size instead of buffering the whole result.
+@Service
+@Slf4j
+public class StatementExportService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final List<Column<WalletHistoryRow>> WALLET_COLUMNS = List.of(
+            new Column<>("occurredAt", WalletHistoryRow::occurredAt),
+            new Column<>("transactionId", WalletHistoryRow::transactionId),
+            new Column<>("direction", WalletHistoryRow::direction),
+            new Column<>("counterpartyWalletId", WalletHistoryRow::counterpartyWalletId),
+            new Column<>("signedAmount", WalletHistoryRow::signedAmount),
+            new Column<>("balanceAfter", WalletHistoryRow::balanceAfter),
+            new Column<>("amount", WalletHistoryRow::amount),
+            new Column<>("status", WalletHistoryRow::status),
+            new Column<>("initiatedAt", WalletHistoryRow::initiatedAt));
+
+    private static final List<Column<TransactionExportRow>> TRANSACTION_COLUMNS = List.of(
+            new Column<>("transactionId", TransactionExportRow::transactionId),
+            new Column<>("senderWalletId", TransactionExportRow::senderWalletId),
+            new Column<>("receiverWalletId", TransactionExportRow::receiverWalletId),
+            new Column<>("amount", TransactionExportRow::amount),
+            new Column<>("fee", TransactionExportRow::fee),
+            new Column<>("status", TransactionExportRow::status),
+            new Column<>("transferState", TransactionExportRow::transferState),
+            new Column<>("initiatedAt", TransactionExportRow::initiatedAt));
+
+    private static final List<Column<AuditLogEntry>> AUDIT_COLUMNS = List.of(
+            new Column<>("timestamp", AuditLogEntry::timestamp),
+            new Column<>("id", AuditLogEntry::id),
+            new Column<>("actorId", AuditLogEntry::actorId),
+            new Column<>("action", AuditLogEntry::action),
+            new Column<>("entityName", AuditLogEntry::entityName),
+            new Column<>("entityId", AuditLogEntry::entityId),
+            new Column<>("details", AuditLogEntry::details));
+
+    private final WalletActivityRepository walletActivityRepository;
+    private final TransactionRepository transactionRepository;
+    private final AuditLogRepository auditLogRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final int fetchSize;
+
+    public StatementExportService(
+            WalletActivityRepository walletActivityRepository,
+            TransactionRepository transactionRepository,
+            AuditLogRepository auditLogRepository,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${app.statement.fetch-size:1000}") int fetchSize) {
+        this.walletActivityRepository = walletActivityRepository;
+        this.transactionRepository = transactionRepository;
+        this.auditLogRepository = auditLogRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+        this.fetchSize = fetchSize;
+    }
+
+    public static StatementFormat format(String format) {
+        if (format == null || format.isBlank()) {
+            return StatementFormat.CSV;
+        }
+        try {
+            return StatementFormat.valueOf(format.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Unsupported statement format: " + format);
+        }
+    }
+
+    // one wallet's activity with running balance, oldest first
+    public StreamingResponseBody walletStatement(UUID walletId, Instant from, Instant to,
+                                                 StatementFormat format, boolean gzip) {
+        checkRange(from, to);
+        return out -> export("wallet", out, format, gzip, WALLET_COLUMNS,
+                () -> walletActivityRepository.streamStatement(walletId, from, to, fetchSize));
+    }
+
+    // every transaction in the range, for finance
+    public StreamingResponseBody transactionsExport(Instant from, Instant to, StatementFormat format, boolean gzip) {
+        checkRange(from, to);
+        return out -> export("transactions", out, format, gzip, TRANSACTION_COLUMNS,
+                () -> transactionRepository.streamTransactions(from, to, fetchSize));
+    }
+
+    // audit entries matching the filter, oldest first
+    public StreamingResponseBody auditLogExport(AuditLogFilter filter, StatementFormat format, boolean gzip) {
+        checkRange(filter.from(), filter.to());
+        return out -> export("audit", out, format, gzip, AUDIT_COLUMNS,
+                () -> auditLogRepository.stream(filter, fetchSize));
+    }
+
+    private <T> void export(String type, OutputStream out, StatementFormat format, boolean gzip,
+                            List<Column<T>> columns, Supplier<Stream<T>> rows) throws IOException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Long written = readOnlyTransaction.execute(status -> {
+                try (Stream<T> stream = rows.get()) {
+                    return write(out, format, gzip, columns, stream.iterator());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            Counter.builder("ppps.statement.rows")
+                    .description("Rows written by statement exports")
+                    .tag("type", type)
+                    .register(meterRegistry)
+                    .increment(written == null ? 0 : written);
+            log.info("📄 Statement export finished - Type: {} | Format: {} | Rows: {}", type, format, written);
+        } catch (UncheckedIOException e) {
+            // usually the client went away mid-download
+            log.warn("⚠️ Statement export aborted - Type: {} | Error: {}", type, e.getCause().getMessage());
+            throw e.getCause();
+        } finally {
+            sample.stop(Timer.builder("ppps.statement.export")
+                    .description("Time to stream one statement export")
+                    .tag("type", type)
+                    .register(meterRegistry));
+        }
+    }
+
+    private <T> long write(OutputStream out, StatementFormat format, boolean gzip,
+                           List<Column<T>> columns, Iterator<T> rows) throws IOException {
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : null;
+        Writer writer = new BufferedWriter(new OutputStreamWriter(
+                compressed != null ? compressed : out, StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        if (format == StatementFormat.CSV) {
+            writer.write(String.join(",", columns.stream().map(Column::name).toList()));
+            writer.write('\n');
+        }
+
+        long count = 0;
+        while (rows.hasNext()) {
+            T row = rows.next();
+            if (format == StatementFormat.CSV) {
+                writeCsvLine(writer, columns, row);
+            } else {
+                writeJsonLine(writer, columns, row);
+            }
+            count++;
+        }
+
+        writer.flush();
+        if (compressed != null) {
+            compressed.finish();
+        }
+        out.flush();
+        return count;
+    }
+
+    private static <T> void writeCsvLine(Writer writer, List<Column<T>> columns, T row) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csv(columns.get(i).value().apply(row)));
+        }
+        writer.write('\n');
+    }
+
+    private <T> void writeJsonLine(Writer writer, List<Column<T>> columns, T row) throws IOException {
+        Map<String, Object> line = new LinkedHashMap<>();
+        for (Column<T> column : columns) {
+            line.put(column.name(), column.value().apply(row));
+        }
+        writer.write(objectMapper.writeValueAsString(line));
+        writer.write('\n');
+    }
+
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private static void checkRange(Instant from, Instant to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "from must be before to");
+        }
+    }
+
+    private record Column<T>(String name, Function<T, Object> value) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.ppps.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// In-memory token buckets, one AtomicLong per key. The long holds the bucket's theoretical arrival time (GCRA):
+// the instant the next token is due. Taking a token is a single compare-and-set; the refill is implied by the
+// clock, so no request ever scans other clients. Idle buckets are dropped by a timer wheel that only looks at
+// the slot whose deadline has come, instead of the whole map.
+@Slf4j
+public class TokenBucketRateLimiter implements RateLimiter {
+
+    // a bucket in this state has been expired by the wheel and must not be used again
+    private static final long EXPIRED = Long.MIN_VALUE;
+
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final ExpiryWheel wheel;
+    private final LongSupplier clock;
+
+    public TokenBucketRateLimiter(long tickNanos, int wheelSlots) {
+        this(tickNanos, wheelSlots, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(long tickNanos, int wheelSlots, LongSupplier clock) {
+        this.clock = clock;
+        this.wheel = new ExpiryWheel(tickNanos, wheelSlots, clock.getAsLong());
+    }
+
+    @Override
+    public Decision tryAcquire(String key, Rule rule) {
+        long now = clock.getAsLong();
+        long interval = rule.intervalNanos();
+        long tolerance = rule.burstToleranceNanos();
+        while (true) {
+            Bucket bucket = bucketFor(key, now);
+            long tat = bucket.tat.get();
+            if (tat == EXPIRED) {
+                // lost a race with the wheel; the next lookup creates a fresh bucket
+                buckets.remove(key, bucket);
+                continue;
+            }
+            long start = Math.max(tat, now);
+            long allowedAt = start - tolerance;
+            if (allowedAt > now) {
+                return Decision.reject(allowedAt - now);
+            }
+            long next = start + interval;
+            if (bucket.tat.compareAndSet(tat, next)) {
+                return Decision.allow(Math.min(rule.burst(), (now + tolerance + interval - next) / interval));
+            }
+        }
+    }
+
+    private Bucket bucketFor(String key, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        Bucket created = new Bucket(key, now);
+        Bucket existing = buckets.putIfAbsent(key, created);
+        if (existing != null) {
+            return existing;
+        }
+        // a new bucket is full, so it is idle until a token is taken -- the wheel re-checks it after one tick
+        wheel.schedule(created, now);
+        return created;
+    }
+
+    @Scheduled(fixedDelayString = "${app.rate-limit.expiry-tick-ms:1000}")
+    public void expireIdleBuckets() {
+        int expired = wheel.advance(clock.getAsLong());
+        if (expired > 0) {
+            log.debug("🧹 Expired {} idle rate-limit buckets, {} active", expired, buckets.size());
+        }
+    }
+
+    public int activeBuckets() {
+        return buckets.size();
+    }
+
+    private static final class Bucket {
+        private final String key;
+        private final AtomicLong tat;
+
+        private Bucket(String key, long now) {
+            this.key = key;
+            this.tat = new AtomicLong(now);
+        }
+    }
+
+    // Hashed timer wheel. Every bucket sits in exactly one slot from creation until it is expired; a bucket
+    // that is still busy when its slot comes round is moved to the slot of the time it will be full again.
+    private final class ExpiryWheel {
+        private final long tickNanos;
+        private final ConcurrentLinkedQueue<Bucket>[] slots;
+        private final long origin;
+        // last tick whose slot has been swept; only the sweeping thread writes it
+        private volatile long cursor;
+
+        @SuppressWarnings("unchecked")
+        private ExpiryWheel(long tickNanos, int slotCount, long origin) {
+            this.tickNanos = tickNanos;
+            this.origin = origin;
+            this.slots = new ConcurrentLinkedQueue[slotCount];
+            for (int i = 0; i < slotCount; i++) {
+                slots[i] = new ConcurrentLinkedQueue<>();
+            }
+        }
+
+        // deadlines past the wheel's horizon land in its last slot and are re-checked a lap later;
+        // never the slot being swept, so a sweep always terminates
+        private void schedule(Bucket bucket, long deadlineNanos) {
+            long current = cursor;
+            long tick = Math.min(Math.max(tickOf(deadlineNanos), current + 1), current + slots.length - 1);
+            slots[(int) Math.floorMod(tick, (long) slots.length)].add(bucket);
+        }
+
+        // called from the single scheduled sweeper only
+        private int advance(long now) {
+            long target = tickOf(now);
+            // after a long pause one lap covers every slot
+            long from = Math.max(cursor + 1, target - slots.length + 1);
+            int expired = 0;
+            for (long tick = from; tick <= target; tick++) {
+                cursor = tick;
+                ConcurrentLinkedQueue<Bucket> slot = slots[(int) Math.floorMod(tick, (long) slots.length)];
+                Bucket bucket;
+                while ((bucket = slot.poll()) != null) {
+                    long tat = bucket.tat.get();
+                    if (tat <= now && bucket.tat.compareAndSet(tat, EXPIRED)) {
+                        buckets.remove(bucket.key, bucket);
+                        expired++;
+                    } else if (tat != EXPIRED) {
+                        schedule(bucket, bucket.tat.get());
+                    }
+                }
+            }
+            return expired;
+        }
+
+        private long tickOf(long nanos) {
+            return Math.floorDiv(nanos - origin, tickNanos);
+        }
+    }
+}
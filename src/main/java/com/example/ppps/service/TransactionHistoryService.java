@@ -1,51 +1,119 @@
 package com.example.ppps.service;
 
+import com.example.ppps.controller.TransactionHistoryPage;
 import com.example.ppps.controller.TransactionHistoryResponse;
 import com.example.ppps.controller.TransactionSearchRequest;
-import com.example.ppps.entity.Transaction;
-import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.dto.WalletHistoryRow;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.WalletActivityRepository;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.List;
 import java.util.UUID;
 
+// Wallet history read from the wallet_activity projection with keyset paging: each page ends with an opaque
+// token holding the last row's (occurredAt, transactionId), and the next page starts strictly after it.
+// No count query, no OFFSET scan, and one index range per page.
 @Service
 public class TransactionHistoryService {
 
+    private static final int DEFAULT_PAGE_SIZE = 10;
+    private static final int MAX_PAGE_SIZE = 100;
+    // v1 tokens carried (initiatedAt, id) from the transactions table and no longer line up with this ordering
+    private static final String TOKEN_VERSION = "v2";
+
     @Autowired
-    private TransactionRepository transactionRepository;
+    private WalletActivityRepository walletActivityRepository;
 
-    public List<TransactionHistoryResponse> getTransactionsForWallet(UUID walletId, TransactionSearchRequest filters) {
-        int pageNumber = filters.getPageNumber() != null ? filters.getPageNumber() : 0;
-        int pageSize = filters.getPageSize() != null ? filters.getPageSize() : 10;
-        Pageable pageable = PageRequest.of(pageNumber, pageSize);
+    public TransactionHistoryPage getTransactionHistory(UUID walletId, TransactionSearchRequest filters) {
+        int pageSize = pageSize(filters);
+        Cursor cursor = filters.getPageToken() == null || filters.getPageToken().isBlank()
+                ? null : decode(filters.getPageToken());
+        // page numbers still work for older clients, but only when no token is given
+        int offset = cursor == null && filters.getPageNumber() != null && filters.getPageNumber() > 0
+                ? Math.multiplyExact(filters.getPageNumber(), pageSize) : 0;
 
-        Page<Transaction> transactionPage = transactionRepository.findByWalletIdWithFilters(
+        // one extra row tells us whether there is a next page
+        List<WalletHistoryRow> rows = walletActivityRepository.findHistoryPage(
                 walletId,
                 filters.getStartDate(),
                 filters.getEndDate(),
-                filters.getStatus(),
+                status(filters.getStatus()),
                 filters.getMinAmount(),
                 filters.getMaxAmount(),
-                pageable
-        );
-
-        return transactionPage.getContent().stream()
-                .map(t -> {
-                    TransactionHistoryResponse response = new TransactionHistoryResponse();
-                    response.setTransactionId(t.getId());
-                    response.setSenderWalletId(t.getSenderWalletId());
-                    response.setReceiverWalletId(t.getReceiverWalletId());
-                    response.setAmount(t.getAmount());
-                    response.setStatus(t.getStatus().name());
-                    response.setInitiatedAt(t.getInitiatedAt());
-                    // Add narration if your Transaction entity has it
-                    // response.setNarration(t.getNarration());
-                    return response;
-                })
-                .toList();
-    }
-}
\ No newline at end of file
+                cursor == null ? null : cursor.occurredAt(),
+                cursor == null ? null : cursor.transactionId(),
+                offset,
+                pageSize + 1);
+
+        boolean hasMore = rows.size() > pageSize;
+        List<WalletHistoryRow> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextPageToken = hasMore ? encode(page.get(page.size() - 1)) : null;
+
+        return new TransactionHistoryPage(page.stream().map(this::toResponse).toList(), nextPageToken);
+    }
+
+    public List<TransactionHistoryResponse> getTransactionsForWallet(UUID walletId, TransactionSearchRequest filters) {
+        return getTransactionHistory(walletId, filters).getTransactions();
+    }
+
+    private TransactionHistoryResponse toResponse(WalletHistoryRow row) {
+        TransactionHistoryResponse response = new TransactionHistoryResponse();
+        response.setTransactionId(row.transactionId());
+        response.setSenderWalletId(row.senderWalletId());
+        response.setReceiverWalletId(row.receiverWalletId());
+        response.setAmount(row.amount());
+        response.setStatus(row.status().name());
+        response.setInitiatedAt(row.initiatedAt());
+        response.setDirection(row.direction().name());
+        response.setCounterpartyWalletId(row.counterpartyWalletId());
+        response.setSignedAmount(row.signedAmount());
+        response.setBalanceAfter(row.balanceAfter());
+        response.setOccurredAt(row.occurredAt());
+        return response;
+    }
+
+    private static int pageSize(TransactionSearchRequest filters) {
+        Integer requested = filters.getPageSize();
+        if (requested == null || requested <= 0) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.min(requested, MAX_PAGE_SIZE);
+    }
+
+    private static TransactionStatus status(String status) {
+        if (status == null || status.isBlank()) {
+            return null;
+        }
+        try {
+            return TransactionStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Unknown transaction status: " + status);
+        }
+    }
+
+    private record Cursor(Instant occurredAt, UUID transactionId) {
+    }
+
+    private static String encode(WalletHistoryRow last) {
+        String raw = TOKEN_VERSION + "|" + last.occurredAt() + "|" + last.transactionId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Cursor decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            if (parts.length != 3 || !TOKEN_VERSION.equals(parts[0])) {
+                throw new IllegalArgumentException("unexpected token layout");
+            }
+            return new Cursor(Instant.parse(parts[1]), UUID.fromString(parts[2]));
+        } catch (RuntimeException e) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Invalid page token");
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.TransferSubmission;
+import com.example.ppps.exception.PppsException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+// Redis-backed record of async transfer submissions. The Idempotency-Key is claimed with SET NX, so two
+// retries racing on different nodes still resolve to one transfer; later duplicates read the stored result.
+@Service
+@Slf4j
+public class TransferIdempotencyStore {
+
+    private static final String KEY_PREFIX = "ppps:transfer:idempotency:";
+    private static final String SUBMISSION_PREFIX = "ppps:transfer:submission:";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+
+    public TransferIdempotencyStore(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${app.transfer.async.idempotency-ttl:24h}") Duration ttl) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+    }
+
+    // empty when the key was free and now belongs to this submission; otherwise the submission that owns it
+    public Optional<TransferSubmission> claim(TransferSubmission submission) {
+        String key = idempotencyKey(submission.getUserId(), submission.getIdempotencyKey());
+        String transferId = submission.getTransferId().toString();
+
+        // write the submission first so whoever loses the race below can always read the winner
+        save(submission);
+        Boolean claimed = redisTemplate.opsForValue().setIfAbsent(key, transferId, ttl);
+        if (Boolean.TRUE.equals(claimed)) {
+            return Optional.empty();
+        }
+
+        redisTemplate.delete(SUBMISSION_PREFIX + transferId);
+        // null only if the owner released the key between our two calls -- treat it as in flight, client retries
+        String existingId = redisTemplate.opsForValue().get(key);
+        TransferSubmission existing = existingId == null ? null : find(UUID.fromString(existingId)).orElse(null);
+        if (existing == null) {
+            throw new PppsException(HttpStatus.CONFLICT, "A transfer with this Idempotency-Key is being processed");
+        }
+        return Optional.of(existing);
+    }
+
+    public void save(TransferSubmission submission) {
+        redisTemplate.opsForValue().set(SUBMISSION_PREFIX + submission.getTransferId(), write(submission), ttl);
+    }
+
+    public Optional<TransferSubmission> find(UUID transferId) {
+        String json = redisTemplate.opsForValue().get(SUBMISSION_PREFIX + transferId);
+        return json == null ? Optional.empty() : Optional.of(read(json));
+    }
+
+    // a submission that never started (executor full) gives its key back so the client can retry it
+    public void release(TransferSubmission submission) {
+        redisTemplate.delete(idempotencyKey(submission.getUserId(), submission.getIdempotencyKey()));
+        redisTemplate.delete(SUBMISSION_PREFIX + submission.getTransferId());
+    }
+
+    private String idempotencyKey(String userId, String idempotencyKey) {
+        return KEY_PREFIX + userId + ":" + idempotencyKey;
+    }
+
+    private String write(TransferSubmission submission) {
+        try {
+            return objectMapper.writeValueAsString(submission);
+        } catch (JsonProcessingException e) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store transfer submission");
+        }
+    }
+
+    private TransferSubmission read(String json) {
+        try {
+            return objectMapper.readValue(json, TransferSubmission.class);
+        } catch (JsonProcessingException e) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read transfer submission");
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.GatewayRequest;
+import com.example.ppps.dto.GatewayResponse;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.enums.TransferState;
+import com.example.ppps.repository.TransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+// sweeps transfers stuck between phase one and phase two (node crash, gateway timeout, PENDING answer)
+// and drives them to COMPLETED or COMPENSATED
+@Service
+@Slf4j
+public class TransferRecoveryService {
+
+    private final TransactionRepository transactionRepository;
+    private final TransferSettlementService settlementService;
+    private final GatewayService gatewayService;
+    private final Duration staleAfter;
+    private final Duration maxAge;
+    private final Duration lookback;
+    private final Counter completedCounter;
+    private final Counter compensatedCounter;
+
+    public TransferRecoveryService(
+            TransactionRepository transactionRepository,
+            TransferSettlementService settlementService,
+            GatewayService gatewayService,
+            MeterRegistry meterRegistry,
+            @Value("${app.transfer.recovery.stale-after:2m}") Duration staleAfter,
+            @Value("${app.transfer.recovery.max-age:30m}") Duration maxAge,
+            @Value("${app.transfer.recovery.lookback:7d}") Duration lookback) {
+        this.transactionRepository = transactionRepository;
+        this.settlementService = settlementService;
+        this.gatewayService = gatewayService;
+        this.staleAfter = staleAfter;
+        this.maxAge = maxAge;
+        this.lookback = lookback;
+        this.completedCounter = Counter.builder("ppps.transfer.recovery")
+                .tag("outcome", "completed")
+                .description("Stuck transfers resolved by the recovery sweep")
+                .register(meterRegistry);
+        this.compensatedCounter = Counter.builder("ppps.transfer.recovery")
+                .tag("outcome", "compensated")
+                .description("Stuck transfers resolved by the recovery sweep")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.transfer.recovery.interval-ms:60000}")
+    public void recoverStuckTransfers() {
+        // the lookback keeps the sweep to the newest partitions; anything older is left to reconciliation,
+        // which reports it as STUCK_IN_FLIGHT
+        Instant now = Instant.now();
+        List<Transaction> stuck = transactionRepository
+                .findTop100ByTransferStateInAndStateChangedAtBeforeAndInitiatedAtAfterOrderByStateChangedAtAsc(
+                        EnumSet.of(TransferState.RESERVED, TransferState.GATEWAY_PENDING),
+                        now.minus(staleAfter), now.minus(lookback));
+
+        for (Transaction transaction : stuck) {
+            MDC.put("correlationId", "recovery-" + transaction.getId());
+            try {
+                recover(transaction);
+            } catch (Exception e) {
+                log.error("❌ Recovery failed for transaction {}", transaction.getId(), e);
+            } finally {
+                MDC.remove("correlationId");
+            }
+        }
+
+        if (!stuck.isEmpty()) {
+            log.info("🧹 Recovery sweep processed {} stuck transfers", stuck.size());
+        }
+    }
+
+    private void recover(Transaction transaction) {
+        // past the deadline we stop asking the gateway and give the sender their money back
+        if (transaction.getInitiatedAt().isBefore(Instant.now().minus(maxAge))) {
+            settlementService.compensate(transaction.getId(), "Gateway outcome unresolved after " + maxAge);
+            compensatedCounter.increment();
+            return;
+        }
+
+        settlementService.recordRecoveryAttempt(transaction.getId());
+
+        // the gateway keys payments on transactionId, so re-submitting is a status check rather than a second charge
+        GatewayRequest request = GatewayRequest.builder()
+                .transactionId(transaction.getId())
+                .amount(transaction.getAmount())
+                .currency("NGN")
+                .metadata(Map.of(
+                        "senderWallet", transaction.getSenderWalletId().toString(),
+                        "receiverWallet", transaction.getReceiverWalletId().toString(),
+                        "recovery", "true"))
+                .build();
+
+        GatewayResponse response = gatewayService.processPayment(request);
+        if ("SUCCESS".equalsIgnoreCase(response.getStatus())) {
+            settlementService.complete(transaction.getId());
+            completedCounter.increment();
+        } else if ("PENDING".equalsIgnoreCase(response.getStatus())) {
+            settlementService.markGatewayPending(transaction.getId());
+            log.info("⏳ Transaction {} still pending at the gateway", transaction.getId());
+        } else {
+            settlementService.compensate(transaction.getId(), "Gateway status: " + response.getStatus());
+            compensatedCounter.increment();
+        }
+    }
+}
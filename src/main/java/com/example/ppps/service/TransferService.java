@@ -3,99 +3,86 @@ package com.example.ppps.service;
 import com.example.ppps.dto.GatewayRequest;
 import com.example.ppps.dto.GatewayResponse;
 import com.example.ppps.entity.*;
-import com.example.ppps.enums.EntryType;
-import com.example.ppps.enums.TransactionStatus;
-import com.example.ppps.event.TransactionCompletedEvent;
 import com.example.ppps.exception.*;
 import com.example.ppps.repository.*;
+import io.micrometer.core.instrument.LongTaskTimer;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
-import jakarta.persistence.EntityManager;
-import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
 import java.math.BigDecimal;
-import java.time.Instant;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.CompletableFuture;
 
+// Orchestrates a P2P transfer in two phases so no wallet lock is held across the gateway call:
+// reserve (short DB tx) -> gateway (no locks) -> complete or compensate (short DB tx).
+// Transfers left between phases are picked up by TransferRecoveryService.
 @Service
 public class TransferService {
 
     private static final Logger logger = LoggerFactory.getLogger(TransferService.class);
-    private final WalletRepository walletRepository;
-    private final TransactionRepository transactionRepository;
-    private final LedgerEntryRepository ledgerEntryRepository;
     private final UserRepository userRepository;
-    private final EntityManager entityManager;
     private final Timer transferTimer;
-    private final PasswordEncoder passwordEncoder;
+    private final LongTaskTimer activeTransfers;
+    private final PinVerificationService pinVerificationService;
     private final FeeService feeService;
     private final GatewayService gatewayService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final UUID platformWalletId;
     private final EscrowService escrowService;
-    @Value("${app.kafka.topic.transactions.completed:transactions.completed}")
-    private String transactionCompletedTopic;
+    private final TransferSettlementService settlementService;
 
     public TransferService(
-            WalletRepository walletRepository,
-            TransactionRepository transactionRepository,
-            LedgerEntryRepository ledgerEntryRepository,
             UserRepository userRepository,
-            EntityManager entityManager,
             MeterRegistry meterRegistry,
-            PasswordEncoder passwordEncoder,
+            PinVerificationService pinVerificationService,
             FeeService feeService,
             GatewayService gatewayService,
-            KafkaTemplate<String, Object> kafkaTemplate,
             EscrowService escrowService,
-            @Value("${app.platform-wallet-id}") String platformWalletIdStr) {
+            TransferSettlementService settlementService) {
 
-        this.walletRepository = walletRepository;
-        this.transactionRepository = transactionRepository;
-        this.ledgerEntryRepository = ledgerEntryRepository;
         this.userRepository = userRepository;
-        this.entityManager = entityManager;
-        this.passwordEncoder = passwordEncoder;
+        this.pinVerificationService = pinVerificationService;
         this.feeService = feeService;
         this.gatewayService = gatewayService;
-        this.kafkaTemplate = kafkaTemplate;
         this.escrowService = escrowService;
+        this.settlementService = settlementService;
 
         this.transferTimer = Timer.builder("ppps.transfer.duration")
                 .description("Time taken to process a P2P transfer")
                 .register(meterRegistry);
+        this.activeTransfers = LongTaskTimer.builder("ppps.transfer.active")
+                .description("P2P transfers currently in flight")
+                .register(meterRegistry);
+    }
 
-        this.platformWalletId = (platformWalletIdStr == null || platformWalletIdStr.isBlank())
-                ? null : UUID.fromString(platformWalletIdStr);
+    // not @Transactional on purpose: each phase commits on its own so locks never span the gateway call
+    public Transaction executeP2PTransfer(String receiverPhoneNumber, BigDecimal amount, String securePin, String narration) {
+        // Authentication & User Validation
+        var authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            throw new PppsException(HttpStatus.UNAUTHORIZED, "No authentication context");
+        }
+        return executeP2PTransfer(authentication.getPrincipal().toString(),
+                receiverPhoneNumber, amount, securePin, narration);
     }
 
-    @Transactional
-    public void executeP2PTransfer(String receiverPhoneNumber, BigDecimal amount, String securePin, String narration) {
-        transferTimer.record(() -> {
-            String correlationId = UUID.randomUUID().toString();
+    // same transfer for an already-authenticated user; used by AsyncTransferService, whose worker threads
+    // have no security context of their own
+    public Transaction executeP2PTransfer(String userId, String receiverPhoneNumber, BigDecimal amount,
+                                          String securePin, String narration) {
+        return transferTimer.record(() -> activeTransfers.record(() -> {
+            // keep the request's correlation id (CorrelationIdFilter, or copied onto executor threads by
+            // MdcTaskDecorator) and put back whatever MDC the caller had once this transfer is done
+            Map<String, String> previousContext = MDC.getCopyOfContextMap();
+            String existingCorrelationId = MDC.get("correlationId");
+            String correlationId = existingCorrelationId != null ? existingCorrelationId : UUID.randomUUID().toString();
             MDC.put("correlationId", correlationId);
 
             try {
                 logger.info("🚀 Starting P2P transfer - Receiver: {}, Amount: {}", receiverPhoneNumber, amount);
-                // Authentication & User Validation
-                var authentication = SecurityContextHolder.getContext().getAuthentication();
-                if (authentication == null) {
-                    throw new PppsException(HttpStatus.UNAUTHORIZED, "No authentication context");
-                }
-                String userId = authentication.getPrincipal().toString();
                 logger.debug("Authenticated user ID: {}", userId);
 
                 User senderUser = userRepository.findById(userId)
@@ -128,7 +115,7 @@ public class TransferService {
                     throw new PppsException(HttpStatus.BAD_REQUEST, "PIN is required");
                 }
 
-                if (!verifyPin(securePin, senderUser.getHashedPin())) {
+                if (!verifyPin(userId, securePin, senderUser.getHashedPin())) {
                     logger.warn("⚠️ Invalid PIN attempt for user: {}", userId);
                     throw new PppsException(HttpStatus.UNAUTHORIZED, "Invalid PIN");
                 }
@@ -146,134 +133,17 @@ public class TransferService {
                 logger.info("💰 Amount: {} | Fee: {} | Total Debit: {}", amount, fee, totalDebit);
 
 
-                // Lock Wallets (Pessimistic Locking)
-                logger.debug("🔒 Acquiring locks on wallets...");
-
-                Wallet senderWalletLocked = walletRepository.findByIdWithLock(senderWalletId);
-                Wallet receiverWalletLocked = walletRepository.findByIdWithLock(receiverWalletId);
-
-                if (senderWalletLocked == null || receiverWalletLocked == null) {
-                    throw new WalletNotFoundException("Wallet lock failed");
-                }
-
-                Wallet platformWallet = null;
-                if (fee.compareTo(BigDecimal.ZERO) > 0) {
-                    if (platformWalletId == null) {
-                        throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not configured");
-                    }
-                    platformWallet = walletRepository.findByIdWithLock(platformWalletId);
-                    if (platformWallet == null) {
-                        throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not found");
-                    }
-                }
-                logger.debug("✅ Wallets locked successfully");
-
-
-                // Balance Check
-                if (senderWalletLocked.getBalance().compareTo(totalDebit) < 0) {
-                    logger.warn("⚠️ Insufficient funds - Required: {}, Available: {}",
-                            totalDebit, senderWalletLocked.getBalance());
-                    throw new InsufficientFundsException(
-                            String.format("Insufficient funds. Required: %.2f, Available: %.2f",
-                                    totalDebit, senderWalletLocked.getBalance())
-                    );
-                }
-
-                // Escrow Check & Balance Updates
+                // Phase 1: reserve funds (locks the sender wallet only, for one short transaction)
                 boolean requiresEscrow = escrowService.requiresEscrow(amount);
-
-                BigDecimal senderOldBalance = senderWalletLocked.getBalance();
-                BigDecimal receiverOldBalance = receiverWalletLocked.getBalance();
-
                 if (requiresEscrow) {
-                    // For escrow: Only deduct fee immediately, hold principal amount
                     logger.info("🔄 Transfer requires escrow - Amount: {}", amount);
-
-                    // Deduct only the fee immediately (principal remains in sender's wallet)
-                    senderWalletLocked.setBalance(senderWalletLocked.getBalance().subtract(fee));
-
-                    logger.info("💰 Escrow setup - Fee deducted: {}, Principal held: {}", fee, amount);
-
-                } else {
-                    // it is Instant transfer: Deduct full amount immediately
-                    senderWalletLocked.setBalance(senderWalletLocked.getBalance().subtract(totalDebit));
-                    receiverWalletLocked.setBalance(receiverWalletLocked.getBalance().add(amount));
-                    logger.info("⚡ Instant transfer - Total debit: {}, Receiver credit: {}", totalDebit, amount);
-                }
-
-                    // Platform fee is always deducted immediately -- for both escrow and instant
-                if (platformWallet != null && fee.compareTo(BigDecimal.ZERO) > 0) {
-                    platformWallet.setBalance(platformWallet.getBalance().add(fee));
-                    logger.info("🏦 Platform fee collected: {}", fee);
-                }
-
-                    // Save wallet updates
-                walletRepository.saveAndFlush(senderWalletLocked);
-                if (!requiresEscrow) {
-                    // Only update receiver wallet for instant transfers
-                    walletRepository.saveAndFlush(receiverWalletLocked);
-                }
-                if (platformWallet != null) {
-                    walletRepository.saveAndFlush(platformWallet);
-                }
-
-                logger.info("💸 Balances updated - Sender: {} → {} | Receiver: {} → {}",
-                        senderOldBalance, senderWalletLocked.getBalance(),
-                        receiverOldBalance, requiresEscrow ? receiverOldBalance : receiverWalletLocked.getBalance());
-
-                //Create Transaction Record with Escrow Status
-                Transaction transaction = new Transaction();
-                transaction.setSenderWalletId(senderWalletId);
-                transaction.setReceiverWalletId(receiverWalletId);
-                transaction.setAmount(amount);
-                transaction.setInitiatedAt(Instant.now());
-
-                    // Set status based on escrow
-                if (requiresEscrow) {
-                    transaction.setStatus(TransactionStatus.PENDING);
-                    logger.info("⏳ Transaction set to PENDING (escrow)");
-
-                    // Save transaction first, then create escrow hold
-                    transaction = transactionRepository.saveAndFlush(transaction);
-                    escrowService.createEscrowHold(transaction.getId(), amount);
-
-                } else {
-                    transaction.setStatus(TransactionStatus.SUCCESS);
-                    logger.info("✅ Transaction set to SUCCESS (instant)");
-                    transaction = transactionRepository.saveAndFlush(transaction);
                 }
+                Transaction transaction = settlementService.reserve(
+                        senderWalletId, receiverWalletId, amount, fee, requiresEscrow);
                 logger.info("📝 Transaction record created - ID: {}", transaction.getId());
 
-                //Create Ledger Entries (Double-Entry Bookkeeping)
-                if (requiresEscrow) {
-                    // For escrow: Only record fee entries now, principal entries will be created when escrow completes
-                    createLedgerEntry(transaction.getId(), senderWalletId, fee, EntryType.DEBIT);
-
-                    if (fee.compareTo(BigDecimal.ZERO) > 0) {
-                        createLedgerEntry(transaction.getId(), platformWalletId, fee, EntryType.FEE_REVENUE);
-                        logger.debug("💳 Fee ledger entry created - Amount: {}", fee);
-                    }
-
-                    // Note: Principal amount ledger entries will be created in EscrowService.completeEscrowTransaction
-                    logger.info("📘 Escrow ledger entries created - Fee recorded, principal pending");
-
-                } else {
-                    // For instant transfers: Record all entries immediately
-                    createLedgerEntry(transaction.getId(), senderWalletId, totalDebit, EntryType.DEBIT);
-                    createLedgerEntry(transaction.getId(), receiverWalletId, amount, EntryType.CREDIT);
-
-                    if (fee.compareTo(BigDecimal.ZERO) > 0) {
-                        createLedgerEntry(transaction.getId(), platformWalletId, fee, EntryType.FEE_REVENUE);
-                        logger.debug("💳 Fee ledger entry created - Amount: {}", fee);
-                    }
-
-                    logger.info("📘 Instant transfer ledger entries created");
-                }
-                entityManager.flush();
-                logger.debug("✅ Ledger entries persisted");
-
 
-                //Gateway Payment Processing
+                // Phase 2: gateway call with no database locks held
                 logger.info("🌐 Calling payment gateway...");
 
                 GatewayRequest gatewayRequest = GatewayRequest.builder()
@@ -287,61 +157,33 @@ public class TransferService {
                                 "correlationId", correlationId))
                         .build();
 
-                GatewayResponse gatewayResponse = gatewayService.processPayment(gatewayRequest);
+                GatewayResponse gatewayResponse;
+                try {
+                    gatewayResponse = gatewayService.processPayment(gatewayRequest);
+                } catch (Exception gatewayEx) {
+                    // outcome unknown -- keep the reservation and let the recovery sweep resolve it
+                    logger.error("❌ Gateway call failed for transaction {} - left for recovery",
+                            transaction.getId(), gatewayEx);
+                    return settlementService.markGatewayPending(transaction.getId());
+                }
                 logger.info("✅ Gateway response received - Status: {}", gatewayResponse.getStatus());
 
 
-                    //Update Transaction Status
+                // Phase 3: complete or compensate in a second short transaction
                 if ("SUCCESS".equalsIgnoreCase(gatewayResponse.getStatus())) {
-                    // ✅ FIX: Don't override escrow status - keep as PENDING for escrow transactions
-                    if (!requiresEscrow) {
-                        transaction.setStatus(TransactionStatus.SUCCESS);
-                        logger.info("✅ Transaction marked as SUCCESS");
-                    } else {
-                        logger.info("⏳ Escrow transaction remains PENDING - will auto-complete in 30 minutes");
-                    }
-
-                    // ✅ FIX #2 & #3: Publish to Kafka AFTER transaction commit with proper error handling
-                    Transaction finalTransaction = transaction;
-                    UUID finalSenderWalletId = senderWalletId;
-                    UUID finalReceiverWalletId = receiverWalletId;
-                    BigDecimal finalAmount = amount;
-                    String finalCorrelationId = correlationId;
-
-                    TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                        @Override
-                        public void afterCommit() {
-                            // MDC must be set here for the Kafka thread log
-                            MDC.put("correlationId", finalCorrelationId);
-                            publishTransactionCompletedEvent(
-                                    finalTransaction,
-                                    finalSenderWalletId,
-                                    finalReceiverWalletId,
-                                    finalAmount,
-                                    finalCorrelationId
-                            );
-                            MDC.clear(); // Clear it immediately after dispatch
-                        }
-
-                        @Override
-                        public void afterCompletion(int status) {
-                            if (status == STATUS_ROLLED_BACK) {
-                                logger.error("❌ Transaction rolled back - ID: {} | CorrelationId: {}",
-                                        finalTransaction.getId(), finalCorrelationId);
-                            }
-                        }
-                    });
-
+                    transaction = settlementService.complete(transaction.getId());
                 } else if ("PENDING".equalsIgnoreCase(gatewayResponse.getStatus())) {
-                    transaction.setStatus(TransactionStatus.PENDING);
-                    logger.warn("⏳ Transaction status: PENDING - Manual verification may be required");
+                    transaction = settlementService.markGatewayPending(transaction.getId());
+                    logger.warn("⏳ Transaction status: PENDING - recovery sweep will settle it");
                 } else {
-                    transaction.setStatus(TransactionStatus.FAILED);
+                    transaction = settlementService.compensate(transaction.getId(),
+                            "Gateway status: " + gatewayResponse.getStatus());
                     logger.error("❌ Transaction FAILED - Gateway status: {}", gatewayResponse.getStatus());
                 }
 
-                transactionRepository.saveAndFlush(transaction);
-                logger.info("✅ P2P Transfer completed successfully - Transaction ID: {}", transaction.getId());
+                logger.info("✅ P2P Transfer processed - Transaction ID: {} | Status: {}",
+                        transaction.getId(), transaction.getStatus());
+                return transaction;
 
             } catch (InsufficientFundsException | WalletNotFoundException | PppsException e) {
                 logger.error("❌ Transfer failed - {}: {}", e.getClass().getSimpleName(), e.getMessage());
@@ -350,103 +192,20 @@ public class TransferService {
                 logger.error("❌ Unexpected error during transfer - CorrelationId: {}", correlationId, e);
                 throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Transaction failed: " + e.getMessage());
             } finally {
-                MDC.clear();
-            }
-        });
-    }
-
-    // Kafka publishing with success/failure logging
-    private void publishTransactionCompletedEvent(
-            Transaction transaction,
-            UUID senderWalletId,
-            UUID receiverWalletId,
-            BigDecimal amount,
-            String correlationId) {
-
-        // Note: correlationId is passed in, but we still ensure MDC is available for the log
-        String currentCorrelationId = MDC.get("correlationId");
-        if (currentCorrelationId == null) {
-            MDC.put("correlationId", correlationId);
-        }
-
-        try {
-            logger.info("📤 Publishing TransactionCompletedEvent to Kafka - Tx ID: {} | Topic: {}",
-                    transaction.getId(), transactionCompletedTopic);
-
-            TransactionCompletedEvent event = new TransactionCompletedEvent(
-                    transaction.getId(),
-                    senderWalletId,
-                    receiverWalletId,
-                    amount,
-                    transaction.getStatus().name(),
-                    Instant.now()
-            );
-
-            // ✅ FIX #1: Use configurable topic instead of hard-coded constant
-            CompletableFuture<SendResult<String, Object>> future = kafkaTemplate.send(
-                    transactionCompletedTopic,
-                    transaction.getId().toString(),
-                    event
-            );
-
-            // ✅ Add success/failure callbacks
-            future.whenComplete((result, ex) -> {
-                // MDC is typically passed via the execution environment in Spring for Async calls,
-                // but explicitly logging the correlationId is best practice here for safety.
-                String completionCorrelationId = MDC.get("correlationId");
-
-                if (ex == null) {
-                    logger.info("[{}] ✅ Kafka message sent successfully - Tx ID: {} | Partition: {} | Offset: {} | Topic: {}",
-                            completionCorrelationId,
-                            transaction.getId(),
-                            result.getRecordMetadata().partition(),
-                            result.getRecordMetadata().offset(),
-                            transactionCompletedTopic);
+                if (previousContext == null) {
+                    MDC.clear();
                 } else {
-                    logger.error("[{}] ❌ Failed to publish Kafka message - Tx ID: {} | Topic: {} | Error: {}",
-                            completionCorrelationId,
-                            transaction.getId(),
-                            transactionCompletedTopic,
-                            ex.getMessage(),
-                            ex);
+                    MDC.setContextMap(previousContext);
                 }
-            });
-
-        } catch (Exception e) {
-            //Catch any synchronous exceptions to prevent breaking the flow
-            logger.error("[{}] ❌ Exception during Kafka publish attempt - Tx ID: {} | Topic: {}",
-                    currentCorrelationId,
-                    transaction.getId(),
-                    transactionCompletedTopic,
-                    e);
-            // Transaction is already committed - do NOT re-throw
-            // Consider alerting ops team or implementing compensating actions
-        } finally {
-            if (currentCorrelationId == null) {
-                MDC.remove("correlationId");
             }
-        }
-    }
-
-    // Creates a ledger entry for double-entry bookkeeping.
-    private void createLedgerEntry(UUID transactionId, UUID walletId, BigDecimal amount, EntryType type) {
-        LedgerEntry entry = new LedgerEntry();
-        entry.setTransactionId(transactionId);
-        entry.setWalletId(walletId);
-        entry.setEntryType(type);
-        entry.setAmount(amount);
-        entry.setCreatedAt(Instant.now());
-        ledgerEntryRepository.saveAndFlush(entry);
-
-        logger.debug("📘 Ledger entry created - Type: {} | Wallet: {} | Amount: {}",
-                type, walletId, amount);
+        }));
     }
 
-    // Verifies user's PIN using bcrypt password encoder.
-    private boolean verifyPin(String providedPin, String hashedPin) {
+    // Verifies user's PIN on the bcrypt pool, or from the recently-verified cache.
+    private boolean verifyPin(String userId, String providedPin, String hashedPin) {
         if (hashedPin == null) {
             throw new PppsException(HttpStatus.BAD_REQUEST, "User PIN not set");
         }
-        return passwordEncoder.matches(providedPin, hashedPin);
+        return pinVerificationService.matches(userId, providedPin, hashedPin);
     }
 }
\ No newline at end of file
@@ -0,0 +1,244 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.WalletBalance;
+import com.example.ppps.entity.EscrowHold;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.BalanceUpdateStrategy;
+import com.example.ppps.enums.EntryType;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferState;
+import com.example.ppps.event.TransactionCompletedEvent;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.exception.WalletNotFoundException;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// the short database transactions of a P2P transfer -- phase one reserves funds from the sender,
+// phase two completes or compensates once the gateway has answered. No method here talks to the gateway.
+@Service
+@Slf4j
+public class TransferSettlementService {
+
+    private final WalletRepository walletRepository;
+    private final TransactionRepository transactionRepository;
+    private final LedgerService ledgerService;
+    private final EscrowService escrowService;
+    private final OutboxService outboxService;
+    private final PlatformWalletService platformWalletService;
+    private final WalletLockService walletLockService;
+    private final BalanceMutationService balanceMutationService;
+    private final BalanceCache balanceCache;
+    private final BalanceUpdateStrategy reserveStrategy;
+
+    @Value("${app.kafka.topic.transactions.completed:transactions.completed}")
+    private String transactionCompletedTopic;
+
+    public TransferSettlementService(
+            WalletRepository walletRepository,
+            TransactionRepository transactionRepository,
+            LedgerService ledgerService,
+            EscrowService escrowService,
+            OutboxService outboxService,
+            PlatformWalletService platformWalletService,
+            WalletLockService walletLockService,
+            BalanceMutationService balanceMutationService,
+            BalanceCache balanceCache,
+            @Value("${app.wallet.balance-strategy.transfer:CONDITIONAL}") BalanceUpdateStrategy reserveStrategy) {
+        this.walletRepository = walletRepository;
+        this.transactionRepository = transactionRepository;
+        this.ledgerService = ledgerService;
+        this.escrowService = escrowService;
+        this.outboxService = outboxService;
+        this.platformWalletService = platformWalletService;
+        this.walletLockService = walletLockService;
+        this.balanceMutationService = balanceMutationService;
+        this.balanceCache = balanceCache;
+        this.reserveStrategy = reserveStrategy;
+    }
+
+    // phase one: take the debit -- and for escrow move the principal into the sender's held funds -- only if
+    // the available balance covers both. With the CONDITIONAL strategy that is a single UPDATE, with no lock
+    // taken ahead of the write and nothing read back and rewritten.
+    @Transactional
+    public Transaction reserve(UUID senderWalletId, UUID receiverWalletId, BigDecimal amount,
+                               BigDecimal fee, boolean requiresEscrow) {
+        if (fee.compareTo(BigDecimal.ZERO) > 0 && !platformWalletService.isConfigured()) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not configured");
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setSenderWalletId(senderWalletId);
+        transaction.setReceiverWalletId(receiverWalletId);
+        transaction.setAmount(amount);
+        transaction.setFee(fee);
+        transaction.setEscrow(requiresEscrow);
+        transaction.setRecoveryAttempts(0);
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setInitiatedAt(Instant.now());
+        transaction.transitionTo(TransferState.RESERVED);
+
+        // escrow takes only the fee now; the principal stays in the wallet but can no longer be spent
+        BigDecimal reservedDebit = transaction.reservedDebit();
+        BigDecimal held = requiresEscrow ? amount : BigDecimal.ZERO;
+        WalletBalance senderBalance = balanceMutationService.reserve(
+                senderWalletId, reservedDebit, held, reserveStrategy, "transfer-reserve");
+
+        transaction = transactionRepository.save(transaction);
+        if (requiresEscrow) {
+            escrowService.createEscrowHold(transaction.getId(), amount);
+        }
+
+        ledgerService.record(transaction.getId(), senderWalletId, senderBalance.balance(), receiverWalletId,
+                reservedDebit, EntryType.DEBIT);
+        log.info("🔒 Transfer reserved - ID: {} | Debited: {} | Held: {} | Available: {}",
+                transaction.getId(), reservedDebit, held, senderBalance.available());
+        return transaction;
+    }
+
+    // the gateway could not give a final answer; leave the reservation for the recovery sweep
+    @Transactional
+    public Transaction markGatewayPending(UUID transactionId) {
+        Transaction transaction = lockTransaction(transactionId);
+        if (transaction.getTransferState() == TransferState.RESERVED) {
+            transaction.transitionTo(TransferState.GATEWAY_PENDING);
+        } else if (transaction.getTransferState() == TransferState.GATEWAY_PENDING) {
+            transaction.setStateChangedAt(Instant.now());
+        }
+        return transactionRepository.save(transaction);
+    }
+
+    @Transactional
+    public Transaction recordRecoveryAttempt(UUID transactionId) {
+        Transaction transaction = lockTransaction(transactionId);
+        int attempts = transaction.getRecoveryAttempts() == null ? 0 : transaction.getRecoveryAttempts();
+        transaction.setRecoveryAttempts(attempts + 1);
+        return transactionRepository.save(transaction);
+    }
+
+    // phase two (success): credit the receiver and collect the fee. Idempotent -- a transfer that
+    // already reached a terminal state is returned untouched, so the sweep and the request thread can race safely.
+    @Transactional
+    public Transaction complete(UUID transactionId) {
+        Transaction transaction = lockTransaction(transactionId);
+        if (transaction.getTransferState() == null || transaction.getTransferState().isTerminal()) {
+            log.info("↩️ Transfer {} already settled as {}", transactionId, transaction.getTransferState());
+            return transaction;
+        }
+
+        BigDecimal fee = transaction.getFee() == null ? BigDecimal.ZERO : transaction.getFee();
+
+        // receiver and fee shard are locked together, in id order
+        List<UUID> lockIds = new ArrayList<>();
+        if (!transaction.isEscrowTransfer()) {
+            lockIds.add(transaction.getReceiverWalletId());
+        }
+        if (fee.compareTo(BigDecimal.ZERO) > 0) {
+            lockIds.add(platformWalletService.feeWalletFor(transactionId));
+        }
+        Map<UUID, Wallet> locked = walletLockService.lockAll(lockIds, "transfer-complete");
+
+        if (!transaction.isEscrowTransfer()) {
+            Wallet receiverWallet = locked.get(transaction.getReceiverWalletId());
+            if (receiverWallet == null) {
+                throw new WalletNotFoundException("Wallet lock failed");
+            }
+            receiverWallet.setBalance(receiverWallet.getBalance().add(transaction.getAmount()));
+            walletRepository.save(receiverWallet);
+            balanceCache.evictAfterCommit(receiverWallet.getId());
+            createLedgerEntry(transactionId, receiverWallet, transaction.getSenderWalletId(),
+                    transaction.getAmount(), EntryType.CREDIT);
+        }
+
+        // platform fee is always collected on completion -- for both escrow and instant
+        if (fee.compareTo(BigDecimal.ZERO) > 0) {
+            UUID feeWalletId = platformWalletService.collectFee(transactionId, fee);
+            log.info("🏦 Platform fee collected: {} -> {}", fee, feeWalletId);
+        }
+
+        if (transaction.isEscrowTransfer()) {
+            // principal moves when EscrowService releases the hold
+            log.info("⏳ Escrow transaction remains PENDING - released when its hold expires");
+        } else {
+            transaction.setStatus(TransactionStatus.SUCCESS);
+        }
+        transaction.transitionTo(TransferState.COMPLETED);
+        transaction = transactionRepository.save(transaction);
+        log.info("✅ Transfer completed - ID: {} | Status: {}", transactionId, transaction.getStatus());
+
+        enqueueTransactionCompletedEvent(transaction);
+        return transaction;
+    }
+
+    // phase two (failure): give the sender back exactly what phase one took
+    @Transactional
+    public Transaction compensate(UUID transactionId, String reason) {
+        Transaction transaction = lockTransaction(transactionId);
+        if (transaction.getTransferState() == null || transaction.getTransferState().isTerminal()) {
+            log.info("↩️ Transfer {} already settled as {}", transactionId, transaction.getTransferState());
+            return transaction;
+        }
+
+        Wallet senderWallet = walletLockService.lock(transaction.getSenderWalletId(), "transfer-compensate");
+        if (senderWallet == null) {
+            throw new WalletNotFoundException("Wallet lock failed");
+        }
+
+        BigDecimal refund = transaction.reservedDebit();
+        senderWallet.setBalance(senderWallet.getBalance().add(refund));
+        if (transaction.isEscrowTransfer()) {
+            // the held principal becomes spendable again; it never left the balance
+            BigDecimal principal = transaction.getAmount();
+            escrowService.dropHold(transactionId)
+                    .filter(EscrowHold::isFundsHeld)
+                    .ifPresent(hold -> senderWallet.setHeldBalance(senderWallet.getHeldBalance().subtract(principal)));
+        }
+        walletRepository.save(senderWallet);
+        balanceCache.evictAfterCommit(senderWallet.getId());
+        createLedgerEntry(transactionId, senderWallet, transaction.getReceiverWalletId(), refund, EntryType.CREDIT);
+
+        transaction.setStatus(TransactionStatus.FAILED);
+        transaction.transitionTo(TransferState.COMPENSATED);
+        transaction = transactionRepository.save(transaction);
+
+        log.warn("↩️ Transfer compensated - ID: {} | Refunded: {} | Reason: {}", transactionId, refund, reason);
+        return transaction;
+    }
+
+    private Transaction lockTransaction(UUID transactionId) {
+        return transactionRepository.findByIdWithLock(transactionId)
+                .orElseThrow(() -> new PppsException(HttpStatus.NOT_FOUND, "Transaction not found: " + transactionId));
+    }
+
+    // the event row commits with the ledger entries; OutboxRelay publishes it to Kafka
+    private void enqueueTransactionCompletedEvent(Transaction transaction) {
+        TransactionCompletedEvent event = new TransactionCompletedEvent(
+                transaction.getId(),
+                transaction.getSenderWalletId(),
+                transaction.getReceiverWalletId(),
+                transaction.getAmount(),
+                transaction.getStatus().name(),
+                Instant.now()
+        );
+        outboxService.enqueue(transactionCompletedTopic, transaction.getId().toString(), event);
+        log.info("📮 TransactionCompletedEvent queued - Tx ID: {} | Topic: {}",
+                transaction.getId(), transactionCompletedTopic);
+    }
+
+    // Creates a ledger entry for double-entry bookkeeping; written in one batch when the transaction commits.
+    private void createLedgerEntry(UUID transactionId, Wallet wallet, UUID counterpartyWalletId,
+                                   BigDecimal amount, EntryType type) {
+        ledgerService.record(transactionId, wallet, counterpartyWalletId, amount, type);
+    }
+}
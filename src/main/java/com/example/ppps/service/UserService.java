@@ -14,6 +14,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final PinVerificationService pinVerificationService;
 
     public Optional<User> findById(String userId) {
         return userRepository.findById(userId);
@@ -45,12 +46,14 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
         // Kindly verify current PIN
-        if (!passwordEncoder.matches(currentPin, user.getHashedPin())) {
+        if (!pinVerificationService.matches(userId, currentPin, user.getHashedPin())) {
             throw new RuntimeException("Current PIN is incorrect");
         }
 
         // hey! Hash and set new PIN
         user.setHashedPin(passwordEncoder.encode(newPin));
         userRepository.save(user);
+        // the old PIN must stop working on this node at once, not when its cache entry ages out
+        pinVerificationService.invalidate(userId);
     }
 }
\ No newline at end of file
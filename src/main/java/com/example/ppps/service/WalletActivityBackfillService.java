@@ -0,0 +1,98 @@
+package com.example.ppps.service;
+
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.WalletActivityRepository;
+import com.example.ppps.repository.WalletRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Rebuilds wallet_activity from ledger_entries + transactions for wallets that predate the projection.
+// Wallet ids are walked in keyset order and handed out in chunks; each chunk is one INSERT .. SELECT in
+// its own transaction, and a few chunks run side by side. Existing rows are kept, so reruns are cheap.
+@Service
+@Slf4j
+public class WalletActivityBackfillService {
+
+    private static final UUID FIRST_WALLET = new UUID(0L, 0L);
+
+    private final WalletActivityRepository walletActivityRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int parallelism;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public WalletActivityBackfillService(
+            WalletActivityRepository walletActivityRepository,
+            WalletRepository walletRepository,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.wallet-activity.backfill.chunk-size:500}") int chunkSize,
+            @Value("${app.wallet-activity.backfill.parallelism:4}") int parallelism) {
+        this.walletActivityRepository = walletActivityRepository;
+        this.walletRepository = walletRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    public record Result(int chunks, long rowsInserted, Duration elapsed) {
+    }
+
+    public Result backfill() {
+        if (!running.compareAndSet(false, true)) {
+            throw new PppsException(HttpStatus.CONFLICT, "Wallet activity backfill is already running");
+        }
+
+        long started = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism,
+                Thread.ofPlatform().name("activity-backfill-", 0).factory());
+        // keeps the id walk at most a couple of chunks ahead of the workers
+        Semaphore inFlight = new Semaphore(parallelism * 2);
+        List<CompletableFuture<Integer>> chunks = new ArrayList<>();
+        try {
+            UUID after = FIRST_WALLET;
+            List<UUID> walletIds;
+            while (!(walletIds = walletRepository.findIdsAfter(after, chunkSize)).isEmpty()) {
+                inFlight.acquireUninterruptibly();
+                List<UUID> chunk = walletIds;
+                chunks.add(CompletableFuture.supplyAsync(() -> backfillChunk(chunk), pool)
+                        .whenComplete((rows, error) -> inFlight.release()));
+                after = walletIds.get(walletIds.size() - 1);
+            }
+
+            long rows = chunks.stream().mapToLong(CompletableFuture::join).sum();
+            Result result = new Result(chunks.size(), rows, Duration.ofNanos(System.nanoTime() - started));
+            log.info("🧱 Wallet activity backfill finished - Chunks: {} | Rows: {} | Took: {}ms",
+                    result.chunks(), result.rowsInserted(), result.elapsed().toMillis());
+            return result;
+        } catch (CompletionException e) {
+            log.error("❌ Wallet activity backfill failed", e.getCause());
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR,
+                    "Wallet activity backfill failed: " + e.getCause().getMessage());
+        } finally {
+            pool.shutdown();
+            running.set(false);
+        }
+    }
+
+    private int backfillChunk(List<UUID> walletIds) {
+        Integer rows = transactionTemplate.execute(status -> walletActivityRepository.backfill(walletIds));
+        int inserted = rows == null ? 0 : rows;
+        log.debug("🧱 Backfilled {} wallet activity rows for {} wallets", inserted, walletIds.size());
+        return inserted;
+    }
+}
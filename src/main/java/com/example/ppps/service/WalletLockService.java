@@ -0,0 +1,104 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.repository.WalletRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// The only way money-moving code should take wallet row locks. Every wallet an operation touches is
+// locked up front in a single SELECT ... FOR UPDATE ... ORDER BY id, so two transfers between the same
+// pair of users always queue in the same order instead of deadlocking each other.
+@Service
+@Slf4j
+public class WalletLockService {
+
+    // the order Postgres sorts uuid columns in (unsigned, byte by byte), i.e. the order lockAll locks rows in.
+    // Code that takes two row locks by other means must take them in this order too
+    public static final Comparator<UUID> ROW_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+    private final WalletRepository walletRepository;
+    private final MeterRegistry meterRegistry;
+    private final Duration contentionThreshold;
+
+    public WalletLockService(
+            WalletRepository walletRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.wallet-lock.contention-threshold:20ms}") Duration contentionThreshold) {
+        this.walletRepository = walletRepository;
+        this.meterRegistry = meterRegistry;
+        this.contentionThreshold = contentionThreshold;
+    }
+
+    // locks every id in one round trip; wallets that do not exist are simply absent from the result
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<UUID, Wallet> lockAll(Collection<UUID> walletIds, String operation) {
+        Set<UUID> ids = walletIds.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+
+        long started = System.nanoTime();
+        List<Wallet> wallets;
+        try {
+            wallets = walletRepository.findAllByIdInWithLockOrderById(ids);
+        } catch (PessimisticLockingFailureException e) {
+            // deadlock victim or lock timeout -- should be rare now that the order is fixed, so count it
+            Counter.builder("ppps.wallet.lock.failures")
+                    .tag("operation", operation)
+                    .description("Wallet lock acquisitions aborted by the database")
+                    .register(meterRegistry)
+                    .increment();
+            log.error("❌ Wallet lock failed - Operation: {} | Wallets: {}", operation, ids);
+            throw e;
+        }
+        long waitedNanos = System.nanoTime() - started;
+
+        Timer.builder("ppps.wallet.lock.wait")
+                .tag("operation", operation)
+                .description("Time spent acquiring wallet row locks")
+                .register(meterRegistry)
+                .record(Duration.ofNanos(waitedNanos));
+        if (waitedNanos >= contentionThreshold.toNanos()) {
+            Counter.builder("ppps.wallet.lock.contended")
+                    .tag("operation", operation)
+                    .description("Wallet lock acquisitions that waited longer than the contention threshold")
+                    .register(meterRegistry)
+                    .increment();
+            log.debug("⏱️ Contended wallet lock - Operation: {} | Waited: {}ms", operation, waitedNanos / 1_000_000);
+        }
+
+        Map<UUID, Wallet> locked = new LinkedHashMap<>();
+        for (Wallet wallet : wallets) {
+            locked.put(wallet.getId(), wallet);
+        }
+        return locked;
+    }
+
+    // single-wallet convenience; returns null when the wallet does not exist, like findByIdWithLock
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Wallet lock(UUID walletId, String operation) {
+        if (walletId == null) {
+            return null;
+        }
+        return lockAll(List.of(walletId), operation).get(walletId);
+    }
+}
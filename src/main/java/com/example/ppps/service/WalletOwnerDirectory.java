@@ -0,0 +1,63 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.WalletOwner;
+import com.example.ppps.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Small in-process cache of wallet -> owner (user id, phone) for admin views. A page resolves all of its
+// wallets with one getAll, so misses cost a single IN query however many rows the page has. Wallets with no
+// user are cached too, as an empty owner, so the platform and shard wallets do not miss on every page.
+// Entries expire after a few minutes, which bounds how long a changed phone number can show stale.
+@Service
+public class WalletOwnerDirectory {
+
+    private final UserRepository userRepository;
+    private final Cache<UUID, WalletOwner> owners;
+
+    public WalletOwnerDirectory(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.admin.owner-cache.ttl:10m}") Duration ttl,
+            @Value("${app.admin.owner-cache.max-size:10000}") long maxSize) {
+        this.userRepository = userRepository;
+        this.owners = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, owners, "admin.wallet-owners");
+    }
+
+    // every requested id is present in the result; unowned wallets map to an owner with null fields
+    public Map<UUID, WalletOwner> lookup(Collection<UUID> walletIds) {
+        Set<UUID> ids = new HashSet<>(walletIds);
+        ids.remove(null);
+        if (ids.isEmpty()) {
+            return Map.of();
+        }
+        return owners.getAll(ids, this::load);
+    }
+
+    private Map<UUID, WalletOwner> load(Set<? extends UUID> missing) {
+        Map<UUID, WalletOwner> loaded = new HashMap<>();
+        for (WalletOwner owner : userRepository.findOwnersByWalletIdIn(Set.copyOf(missing))) {
+            loaded.put(owner.walletId(), owner);
+        }
+        for (UUID walletId : missing) {
+            loaded.putIfAbsent(walletId, new WalletOwner(walletId, null, null));
+        }
+        return loaded;
+    }
+}
@@ -1,23 +1,26 @@
 package com.example.ppps.service;
 
+import com.example.ppps.dto.WalletBalance;
 import com.example.ppps.dto.WebhookDepositRequest;
 import com.example.ppps.dto.WebhookWithdrawalRequest;
 import com.example.ppps.entity.Transaction;
-import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.BalanceUpdateStrategy;
+import com.example.ppps.enums.EntryType;
 import com.example.ppps.enums.TransactionStatus;
 import com.example.ppps.event.DepositCompletedEvent;
 import com.example.ppps.event.WithdrawalCompletedEvent;
 import com.example.ppps.exception.PppsException;
+import com.example.ppps.exception.WalletNotFoundException;
 import com.example.ppps.repository.TransactionRepository;
-import com.example.ppps.repository.WalletRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
@@ -25,10 +28,14 @@ import java.util.UUID;
 @Slf4j
 public class WebhookService {
 
-    private final WalletRepository walletRepository;
     private final TransactionRepository transactionRepository;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final OutboxService outboxService;
     private final WebhookSecurityService webhookSecurityService;
+    private final LedgerService ledgerService;
+    private final BalanceMutationService balanceMutationService;
+
+    @Value("${app.wallet.balance-strategy.webhook:CONDITIONAL}")
+    private BalanceUpdateStrategy creditStrategy = BalanceUpdateStrategy.CONDITIONAL;
 
     // process deposit webhook from external payment providers
     @Transactional
@@ -100,17 +107,15 @@ public class WebhookService {
         transactionRepository.save(transaction);
 
         // credit the wallet
-        Wallet wallet = walletRepository.findByIdWithLock(transaction.getReceiverWalletId());
-        if (wallet != null) {
-            BigDecimal newBalance = wallet.getBalance().add(request.getAmount());
-            wallet.setBalance(newBalance);
-            walletRepository.save(wallet);
+        credit(transaction.getReceiverWalletId(), request.getAmount(), "deposit-webhook").ifPresent(credited -> {
+            ledgerService.record(transaction.getId(), credited.walletId(), credited.balance(),
+                    transaction.getSenderWalletId(), request.getAmount(), EntryType.CREDIT);
             log.info("💰 Wallet credited - Wallet: {}, Amount: {}, New Balance: {}",
-                    wallet.getId(), request.getAmount(), newBalance);
-        }
+                    credited.walletId(), request.getAmount(), credited.balance());
+        });
 
-        // publish deposit completed event
-        kafkaTemplate.send("deposit.completed", transaction.getId().toString(),
+        // queue deposit completed event -- only published if this transaction commits
+        outboxService.enqueue("deposit.completed", transaction.getId().toString(),
                 new DepositCompletedEvent(
                         transaction.getId(),
                         transaction.getReceiverWalletId(),
@@ -137,8 +142,8 @@ public class WebhookService {
     private void handleSuccessfulWithdrawal(Transaction transaction, WebhookWithdrawalRequest request) {
         transaction.setStatus(TransactionStatus.SUCCESS);
         transactionRepository.save(transaction);
-        // publish withdrawal completed event
-        kafkaTemplate.send("withdrawal.completed", transaction.getId().toString(),
+        // queue withdrawal completed event -- only published if this transaction commits
+        outboxService.enqueue("withdrawal.completed", transaction.getId().toString(),
                 new WithdrawalCompletedEvent(
                         transaction.getId(),
                         transaction.getSenderWalletId(),
@@ -154,15 +159,13 @@ public class WebhookService {
 
     private void handleFailedWithdrawal(Transaction transaction, WebhookWithdrawalRequest request) {
         // Refund the wallet if withdrawal failed
-        Wallet wallet = walletRepository.findByIdWithLock(transaction.getSenderWalletId());
-        if (wallet != null) {
-            BigDecimal refundAmount = transaction.getAmount();
-            BigDecimal newBalance = wallet.getBalance().add(refundAmount);
-            wallet.setBalance(newBalance);
-            walletRepository.save(wallet);
+        BigDecimal refundAmount = transaction.getAmount();
+        credit(transaction.getSenderWalletId(), refundAmount, "withdrawal-refund").ifPresent(refunded -> {
+            ledgerService.record(transaction.getId(), refunded.walletId(), refunded.balance(),
+                    transaction.getReceiverWalletId(), refundAmount, EntryType.CREDIT);
             log.info("💳 Withdrawal refunded - Wallet: {}, Amount: {}, New Balance: {}",
-                    wallet.getId(), refundAmount, newBalance);
-        }
+                    refunded.walletId(), refundAmount, refunded.balance());
+        });
 
         transaction.setStatus(TransactionStatus.FAILED);
         transactionRepository.save(transaction);
@@ -170,6 +173,16 @@ public class WebhookService {
                 transaction.getId(), request.getFailureReason());
     }
 
+    // a webhook for a wallet that no longer exists is logged and otherwise ignored, as before
+    private Optional<WalletBalance> credit(UUID walletId, BigDecimal amount, String operation) {
+        try {
+            return Optional.of(balanceMutationService.credit(walletId, amount, creditStrategy, operation));
+        } catch (WalletNotFoundException e) {
+            log.warn("⚠️ Webhook credit skipped, wallet not found - Wallet: {}, Operation: {}", walletId, operation);
+            return Optional.empty();
+        }
+    }
+
     private void handlePendingWithdrawal(Transaction transaction, WebhookWithdrawalRequest request) {
         transaction.setStatus(TransactionStatus.PENDING);
         transactionRepository.save(transaction);
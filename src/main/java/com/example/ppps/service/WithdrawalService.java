@@ -3,8 +3,10 @@ package com.example.ppps.service;
 import com.example.ppps.config.KafkaTopics;
 import com.example.ppps.dto.GatewayRequest;
 import com.example.ppps.dto.GatewayResponse;
+import com.example.ppps.dto.WalletBalance;
 import com.example.ppps.dto.WithdrawRequest;
 import com.example.ppps.entity.*;
+import com.example.ppps.enums.BalanceUpdateStrategy;
 import com.example.ppps.enums.EntryType;
 import com.example.ppps.enums.TransactionStatus;
 import com.example.ppps.event.WithdrawalCompletedEvent;
@@ -14,12 +16,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import org.springframework.transaction.support.TransactionSynchronization;
-import org.springframework.transaction.support.TransactionSynchronizationManager;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.HashMap;
@@ -32,13 +31,16 @@ public class WithdrawalService {
 
     private final WalletRepository walletRepository;
     private final TransactionRepository transactionRepository;
-    private final LedgerEntryRepository ledgerEntryRepository;
+    private final LedgerService ledgerService;
     private final UserRepository userRepository;
     private final FeeService feeService;
     private final GatewayService gatewayService;
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-    private final PasswordEncoder passwordEncoder;
-    private final UUID platformWalletId;
+    private final OutboxService outboxService;
+    private final PinVerificationService pinVerificationService;
+    private final PlatformWalletService platformWalletService;
+    private final BalanceMutationService balanceMutationService;
+    private final BalanceUpdateStrategy balanceStrategy;
+    private final TransactionTemplate transactionTemplate;
 
     @Value("${app.kafka.topic.transactions.completed:transactions.completed}")
     private String transactionTopic;
@@ -46,125 +48,44 @@ public class WithdrawalService {
     public WithdrawalService(
             WalletRepository walletRepository,
             TransactionRepository transactionRepository,
-            LedgerEntryRepository ledgerEntryRepository,
+            LedgerService ledgerService,
             UserRepository userRepository,
             FeeService feeService,
             GatewayService gatewayService,
-            KafkaTemplate<String, Object> kafkaTemplate,
-            PasswordEncoder passwordEncoder,
-            @Value("${app.platform-wallet-id}") String platformWalletIdStr) {
+            OutboxService outboxService,
+            PinVerificationService pinVerificationService,
+            PlatformWalletService platformWalletService,
+            BalanceMutationService balanceMutationService,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.wallet.balance-strategy.withdrawal:CONDITIONAL}") BalanceUpdateStrategy balanceStrategy) {
         this.walletRepository = walletRepository;
         this.transactionRepository = transactionRepository;
-        this.ledgerEntryRepository = ledgerEntryRepository;
+        this.ledgerService = ledgerService;
         this.userRepository = userRepository;
         this.feeService = feeService;
         this.gatewayService = gatewayService;
-        this.kafkaTemplate = kafkaTemplate;
-        this.passwordEncoder = passwordEncoder;
-        this.platformWalletId = (platformWalletIdStr == null || platformWalletIdStr.isBlank())
-                ? null : UUID.fromString(platformWalletIdStr);
+        this.outboxService = outboxService;
+        this.pinVerificationService = pinVerificationService;
+        this.platformWalletService = platformWalletService;
+        this.balanceMutationService = balanceMutationService;
+        this.balanceStrategy = balanceStrategy;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
-    // let's perform a withdrawal from the authenticated user's wallet to external bank account
-
-    @Transactional
+    // let's perform a withdrawal from the authenticated user's wallet to external bank account -- in three steps,
+    // like a transfer: a short transaction debits the user, the gateway is called with nothing locked or open,
+    // and a second short transaction collects the fee or refunds the debit once the gateway has answered.
     public void withdraw(String authenticatedUserId, WithdrawRequest request) {
+        boolean ownsCorrelationId = false;
+        Reservation reservation = null;
         try {
-            if (authenticatedUserId == null) {
-                throw new PppsException(HttpStatus.UNAUTHORIZED, "No authentication context");
-            }
-            var user = userRepository.findById(authenticatedUserId)
-                    .orElseThrow(() -> new PppsException(HttpStatus.NOT_FOUND, "User not found"));
-
-            Wallet userWallet = user.getWallet();
-            if (userWallet == null) {
-                throw new PppsException(HttpStatus.BAD_REQUEST, "User has no wallet");
-            }
-
-            UUID walletIdToUse = request.getWalletId() == null ? userWallet.getId() : request.getWalletId();
-
-            if (!walletIdToUse.equals(userWallet.getId())) {
-                throw new PppsException(HttpStatus.FORBIDDEN, "Cannot withdraw from wallet you don't own");
-            }
+            reservation = transactionTemplate.execute(status -> reserve(authenticatedUserId, request));
 
-            if (request.getSecurePin() == null || request.getSecurePin().trim().isEmpty()) {
-                throw new PppsException(HttpStatus.BAD_REQUEST, "PIN is required for withdrawal");
+            //Call external gateway to send funds to bank -- under the request's correlation id when it has one
+            if (MDC.get("correlationId") == null) {
+                MDC.put("correlationId", UUID.randomUUID().toString());
+                ownsCorrelationId = true;
             }
-            if (!verifyPin(request.getSecurePin(), user.getHashedPin())) {
-                throw new PppsException(HttpStatus.UNAUTHORIZED, "Invalid PIN");
-            }
-
-            BigDecimal amount = request.getAmount();
-            if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
-                throw new PppsException(HttpStatus.BAD_REQUEST, "Amount must be greater than zero");
-            }
-
-            BigDecimal fee = feeService.calculateFee(amount);
-            if (fee == null) fee = BigDecimal.ZERO;
-            BigDecimal totalDebit = amount.add(fee);
-
-            //lock wallet (pessimistic)
-            Wallet walletLocked = walletRepository.findByIdWithLock(walletIdToUse);
-            if (walletLocked == null) throw new WalletNotFoundException("Wallet not found (locked)");
-
-            // platform wallet for fee capture is required: to record fee revenue
-            Wallet platformWallet = null;
-            if (fee.compareTo(BigDecimal.ZERO) > 0) {
-                if (platformWalletId == null) {
-                    throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not configured to collect fees");
-                }
-                platformWallet = walletRepository.findByIdWithLock(platformWalletId);
-                if (platformWallet == null) {
-                    throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not found to collect fees");
-                }
-            }
-
-            // sufficient balance?
-            if (walletLocked.getBalance().compareTo(totalDebit) < 0) {
-                throw new InsufficientFundsException(String.format("Insufficient balance. Available: %s, Required: %s",
-                        walletLocked.getBalance(), totalDebit));
-            }
-
-            // Deduct balance now (we'll commit only if the DB transaction succeeds)
-            walletLocked.setBalance(walletLocked.getBalance().subtract(totalDebit));
-            if (platformWallet != null) {
-                platformWallet.setBalance(platformWallet.getBalance().add(fee));
-            }
-            walletRepository.saveAndFlush(walletLocked);
-            if (platformWallet != null) walletRepository.saveAndFlush(platformWallet);
-
-            //create transaction record
-            Transaction tx = new Transaction();
-            tx.setSenderWalletId(walletLocked.getId());
-            // Note❗: for withdrawals we set receiverWalletId to platformWalletId--represents outflow
-            tx.setReceiverWalletId(platformWalletId != null ? platformWalletId : walletLocked.getId());
-            tx.setAmount(amount);
-            tx.setStatus(TransactionStatus.PENDING);
-            tx.setInitiatedAt(Instant.now());
-            tx = transactionRepository.saveAndFlush(tx);
-
-            //ledger entries -- DEBIT user for totalDebit, FEE_REVENUE if fee > 0
-            LedgerEntry debit = new LedgerEntry();
-            debit.setTransactionId(tx.getId());
-            debit.setWalletId(walletLocked.getId());
-            debit.setEntryType(EntryType.DEBIT);
-            debit.setAmount(totalDebit);
-            debit.setCreatedAt(Instant.now());
-            ledgerEntryRepository.saveAndFlush(debit);
-
-            if (fee.compareTo(BigDecimal.ZERO) > 0) {
-                LedgerEntry feeEntry = new LedgerEntry();
-                feeEntry.setTransactionId(tx.getId());
-                feeEntry.setWalletId(platformWalletId);
-                feeEntry.setEntryType(EntryType.FEE_REVENUE);
-                feeEntry.setAmount(fee);
-                feeEntry.setCreatedAt(Instant.now());
-                ledgerEntryRepository.saveAndFlush(feeEntry);
-            }
-
-            //Call external gateway to send funds to bank
-            String correlationId = UUID.randomUUID().toString();
-            MDC.put("correlationId", correlationId);
             // i used HashMap<String, Object> to allow null values
             Map<String, Object> metadata = new HashMap<>();
             metadata.put("bankName", request.getBankName());
@@ -172,65 +93,153 @@ public class WithdrawalService {
             metadata.put("narration", request.getNarration()); // Can be null
 
             GatewayRequest gatewayRequest = GatewayRequest.builder()
-                    .transactionId(tx.getId())
-                    .amount(amount)
-                    .currency(walletLocked.getCurrency())
+                    .transactionId(reservation.transactionId())
+                    .amount(request.getAmount())
+                    .currency(reservation.currency())
                     .metadata(metadata)
                     .build();
 
             GatewayResponse gatewayResponse = gatewayService.processWithdrawal(gatewayRequest);
 
-            // Update tx status based on gateway response
-            if ("SUCCESS".equalsIgnoreCase(gatewayResponse.getStatus())) {
-                tx.setStatus(TransactionStatus.SUCCESS);
-                Transaction finalTx = tx;
-                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
-                    @Override
-                    public void afterCommit() {
-                        //publish Withdrawal Completed Event to Kafka
-                        kafkaTemplate.send(
-                                KafkaTopics.WITHDRAWAL_COMPLETED,
-                                finalTx.getId().toString(),
-                                new WithdrawalCompletedEvent(
-                                        finalTx.getId(),
-                                        finalTx.getSenderWalletId(),
-                                        finalTx.getAmount(),
-                                        request.getBankName(),
-                                        request.getAccountNumber(),
-                                        "WITHDRAWAL_SUCCESS",
-                                        Instant.now()
-                                )
-                        );
-                        log.info("📤 Kafka WithdrawalCompletedEvent published for withdrawal tx {}", finalTx.getId());
-                    }
-                });
-            } else if ("PENDING".equalsIgnoreCase(gatewayResponse.getStatus())) {
-                tx.setStatus(TransactionStatus.PENDING);
-            } else {
-                tx.setStatus(TransactionStatus.FAILED);
-
-                // revert balances if gateway failed
-                walletLocked.setBalance(walletLocked.getBalance().add(totalDebit));
-                walletRepository.saveAndFlush(walletLocked);
-                if (platformWallet != null) {
-                    platformWallet.setBalance(platformWallet.getBalance().subtract(fee));
-                    walletRepository.saveAndFlush(platformWallet);
-                }
-            }
-
-            transactionRepository.saveAndFlush(tx);
-            MDC.clear();
+            Reservation reserved = reservation;
+            transactionTemplate.executeWithoutResult(status -> settle(reserved, gatewayResponse.getStatus(), request));
 
         } catch (PppsException e) {
             throw e;
         } catch (Exception e) {
             log.error("Withdrawal failed", e);
+            // the debit is already committed; give it back rather than leave the money with no owner
+            if (reservation != null) {
+                Reservation reserved = reservation;
+                transactionTemplate.executeWithoutResult(status -> settle(reserved, "FAILED", request));
+            }
             throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Withdrawal failed: " + e.getMessage());
+        } finally {
+            // only drop what we added; the rest of the MDC belongs to the caller
+            if (ownsCorrelationId) {
+                MDC.remove("correlationId");
+            }
         }
     }
 
-    private boolean verifyPin(String providedPin, String hashedPin) {
+    // step one: validate, record the PENDING transaction and take the whole debit (amount + fee) from the user
+    private Reservation reserve(String authenticatedUserId, WithdrawRequest request) {
+        if (authenticatedUserId == null) {
+            throw new PppsException(HttpStatus.UNAUTHORIZED, "No authentication context");
+        }
+        var user = userRepository.findById(authenticatedUserId)
+                .orElseThrow(() -> new PppsException(HttpStatus.NOT_FOUND, "User not found"));
+
+        Wallet userWallet = user.getWallet();
+        if (userWallet == null) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "User has no wallet");
+        }
+
+        UUID walletIdToUse = request.getWalletId() == null ? userWallet.getId() : request.getWalletId();
+
+        if (!walletIdToUse.equals(userWallet.getId())) {
+            throw new PppsException(HttpStatus.FORBIDDEN, "Cannot withdraw from wallet you don't own");
+        }
+
+        if (request.getSecurePin() == null || request.getSecurePin().trim().isEmpty()) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "PIN is required for withdrawal");
+        }
+        if (!verifyPin(authenticatedUserId, request.getSecurePin(), user.getHashedPin())) {
+            throw new PppsException(HttpStatus.UNAUTHORIZED, "Invalid PIN");
+        }
+
+        BigDecimal amount = request.getAmount();
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new PppsException(HttpStatus.BAD_REQUEST, "Amount must be greater than zero");
+        }
+
+        BigDecimal fee = feeService.calculateFee(amount);
+        if (fee == null) fee = BigDecimal.ZERO;
+        BigDecimal totalDebit = amount.add(fee);
+
+        // platform wallet for fee capture is required: to record fee revenue
+        UUID platformWalletId = platformWalletService.getPlatformWalletId();
+        if (fee.compareTo(BigDecimal.ZERO) > 0 && platformWalletId == null) {
+            throw new PppsException(HttpStatus.INTERNAL_SERVER_ERROR, "Platform wallet not configured to collect fees");
+        }
+
+        //create transaction record first -- its id picks the fee shard
+        Transaction tx = new Transaction();
+        tx.setSenderWalletId(walletIdToUse);
+        // Note❗: for withdrawals we set receiverWalletId to platformWalletId--represents outflow
+        tx.setReceiverWalletId(platformWalletId != null ? platformWalletId : walletIdToUse);
+        tx.setAmount(amount);
+        tx.setFee(fee);
+        tx.setStatus(TransactionStatus.PENDING);
+        tx.setInitiatedAt(Instant.now());
+        tx = transactionRepository.save(tx);
+
+        // sufficient available balance? checked and debited together -- held escrow funds are off limits.
+        // Only the user's row is touched here; the fee shard waits until the gateway has answered
+        WalletBalance debited = balanceMutationService.debit(walletIdToUse, totalDebit, balanceStrategy, "withdrawal");
+
+        //ledger entry -- DEBIT user for totalDebit; batched at commit
+        ledgerService.record(tx.getId(), walletIdToUse, debited.balance(), tx.getReceiverWalletId(),
+                totalDebit, EntryType.DEBIT);
+
+        return new Reservation(tx.getId(), walletIdToUse, fee, totalDebit, userWallet.getCurrency());
+    }
+
+    // step three: SUCCESS and PENDING keep the debit and collect the fee; anything else refunds all of it.
+    // The fee shard is locked only here, for as long as this short transaction runs
+    private void settle(Reservation reservation, String gatewayStatus, WithdrawRequest request) {
+        Transaction tx = transactionRepository.findByIdWithLock(reservation.transactionId())
+                .orElseThrow(() -> new PppsException(HttpStatus.NOT_FOUND,
+                        "Transaction not found: " + reservation.transactionId()));
+        boolean feeCollected = reservation.fee().compareTo(BigDecimal.ZERO) > 0;
+
+        // Update tx status based on gateway response
+        if ("SUCCESS".equalsIgnoreCase(gatewayStatus)) {
+            tx.setStatus(TransactionStatus.SUCCESS);
+            if (feeCollected) {
+                platformWalletService.collectFee(tx.getId(), reservation.fee());
+            }
+            //queue Withdrawal Completed Event -- committed with the status, published by OutboxRelay
+            outboxService.enqueue(
+                    KafkaTopics.WITHDRAWAL_COMPLETED,
+                    tx.getId().toString(),
+                    new WithdrawalCompletedEvent(
+                            tx.getId(),
+                            tx.getSenderWalletId(),
+                            tx.getAmount(),
+                            request.getBankName(),
+                            request.getAccountNumber(),
+                            "WITHDRAWAL_SUCCESS",
+                            Instant.now()
+                    )
+            );
+            log.info("📮 WithdrawalCompletedEvent queued for withdrawal tx {}", tx.getId());
+        } else if ("PENDING".equalsIgnoreCase(gatewayStatus)) {
+            tx.setStatus(TransactionStatus.PENDING);
+            if (feeCollected) {
+                platformWalletService.collectFee(tx.getId(), reservation.fee());
+            }
+        } else {
+            tx.setStatus(TransactionStatus.FAILED);
+
+            // revert balances if gateway failed -- the fee was never collected, so nothing to take back from the shard
+            WalletBalance reverted = balanceMutationService.credit(
+                    reservation.walletId(), reservation.totalDebit(), balanceStrategy, "withdrawal-revert");
+            // book the reversal too, so the ledger and wallet_activity net this withdrawal to zero
+            ledgerService.record(tx.getId(), reservation.walletId(), reverted.balance(), tx.getReceiverWalletId(),
+                    reservation.totalDebit(), EntryType.CREDIT);
+        }
+
+        transactionRepository.save(tx);
+    }
+
+    // what step one took, carried across the gateway call
+    private record Reservation(UUID transactionId, UUID walletId, BigDecimal fee, BigDecimal totalDebit,
+                               String currency) {
+    }
+
+    private boolean verifyPin(String userId, String providedPin, String hashedPin) {
         if (hashedPin == null) throw new PppsException(HttpStatus.BAD_REQUEST, "User PIN not set");
-        return passwordEncoder.matches(providedPin, hashedPin);
+        return pinVerificationService.matches(userId, providedPin, hashedPin);
     }
 }
\ No newline at end of file
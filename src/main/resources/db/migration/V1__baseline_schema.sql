@@ -0,0 +1,259 @@
+-- Baseline schema: every table the entities map, with the keys and indexes the queries rely on.
+--
+-- Databases created by ddl-auto=update are adopted rather than rebuilt: Flyway baselines them at version 0
+-- and runs this script on them too, so every statement is written to be a no-op where the object already
+-- exists. Plain transactions, ledger_entries and audit_log tables stay plain here; LedgerPartitionService
+-- and AuditLogPartitionService convert them to monthly partitions on the next start, as before. On an
+-- empty database the three are created partitioned, and those services only add monthly partitions.
+
+-- ---------------------------------------------------------------------------------------------------------
+-- wallets and users
+-- ---------------------------------------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS wallets (
+    id uuid NOT NULL,
+    user_id uuid NOT NULL,
+    balance numeric(38,2) NOT NULL,
+    held_balance numeric(38,2) NOT NULL DEFAULT 0,
+    currency varchar(255) NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    updated_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT wallets_pkey PRIMARY KEY (id)
+);
+
+-- wallet by owner
+CREATE INDEX IF NOT EXISTS idx_user_id ON wallets (user_id);
+-- admin wallet listing, newest first, keyset on (created_at, id)
+CREATE INDEX IF NOT EXISTS idx_wallets_created_at_id ON wallets (created_at, id);
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id varchar(36) NOT NULL,
+    phone_number varchar(255) NOT NULL,
+    email varchar(255),
+    hashed_pin varchar(255) NOT NULL,
+    role varchar(255) NOT NULL DEFAULT 'USER',
+    wallet_id uuid,
+    CONSTRAINT users_pkey PRIMARY KEY (user_id)
+);
+
+-- Logins and transfers look users up by phone number, admin listings join on wallet_id. ddl-auto named
+-- these unique constraints after a hash; they are replaced by named ones, so the drift check can find them
+DO $$
+DECLARE
+    generated record;
+BEGIN
+    FOR generated IN
+        SELECT conname FROM pg_constraint
+        WHERE conrelid = 'users'::regclass AND contype = 'u' AND conname NOT LIKE 'uk_users_%'
+    LOOP
+        EXECUTE format('ALTER TABLE users DROP CONSTRAINT %I', generated.conname);
+    END LOOP;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'users'::regclass
+                   AND conname = 'uk_users_phone_number') THEN
+        ALTER TABLE users ADD CONSTRAINT uk_users_phone_number UNIQUE (phone_number);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'users'::regclass
+                   AND conname = 'uk_users_email') THEN
+        ALTER TABLE users ADD CONSTRAINT uk_users_email UNIQUE (email);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'users'::regclass
+                   AND conname = 'uk_users_wallet_id') THEN
+        ALTER TABLE users ADD CONSTRAINT uk_users_wallet_id UNIQUE (wallet_id);
+    END IF;
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = 'users'::regclass AND contype = 'f') THEN
+        ALTER TABLE users ADD CONSTRAINT fk_users_wallet FOREIGN KEY (wallet_id) REFERENCES wallets (id);
+    END IF;
+END $$;
+
+-- admin user search by phone prefix (LIKE 'prefix%'), which the unique index cannot serve outside the C locale
+CREATE INDEX IF NOT EXISTS idx_users_phone_number_pattern ON users (phone_number varchar_pattern_ops);
+
+-- ---------------------------------------------------------------------------------------------------------
+-- transactions and ledger_entries, partitioned by month (partitions come from LedgerPartitionService)
+-- ---------------------------------------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS transactions (
+    id uuid NOT NULL,
+    sender_wallet_id uuid NOT NULL,
+    receiver_wallet_id uuid NOT NULL,
+    amount numeric(38,2) NOT NULL,
+    status varchar(255) NOT NULL,
+    initiated_at timestamp(6) with time zone NOT NULL,
+    transfer_state varchar(255),
+    state_changed_at timestamp(6) with time zone,
+    fee numeric(38,2),
+    escrow boolean,
+    recovery_attempts integer,
+    CONSTRAINT pk_transactions PRIMARY KEY (id, initiated_at)
+) PARTITION BY RANGE (initiated_at);
+
+-- per-wallet reads on either side, newest first
+CREATE INDEX IF NOT EXISTS idx_sender_wallet_initiated_at_id ON transactions (sender_wallet_id, initiated_at, id);
+CREATE INDEX IF NOT EXISTS idx_receiver_wallet_initiated_at_id ON transactions (receiver_wallet_id, initiated_at, id);
+-- exports and admin listings by time
+CREATE INDEX IF NOT EXISTS idx_initiated_at ON transactions (initiated_at);
+-- admin queues by status, newest first, keyset on (initiated_at, id)
+CREATE INDEX IF NOT EXISTS idx_status_initiated_at_id ON transactions (status, initiated_at, id);
+-- the recovery sweep: transfers stuck in a state since before a cutoff
+CREATE INDEX IF NOT EXISTS idx_transfer_state_changed_at ON transactions (transfer_state, state_changed_at);
+-- PENDING transactions by time (escrow backfill, pending counts and time-bounded reads). Only the few
+-- in-flight rows are indexed, so it stays small however large the table grows
+CREATE INDEX IF NOT EXISTS idx_transactions_pending_initiated_at ON transactions (initiated_at)
+    WHERE status = 'PENDING';
+
+CREATE TABLE IF NOT EXISTS ledger_entries (
+    id uuid NOT NULL,
+    transaction_id uuid NOT NULL,
+    wallet_id uuid NOT NULL,
+    entry_type varchar(255) NOT NULL,
+    amount numeric(15,2) NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT pk_ledger_entries PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- ledger by wallet and time: balance derivation, snapshots and the wallet_activity backfill
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_wallet_created_at ON ledger_entries (wallet_id, created_at);
+-- ledger by transaction: reconciliation and per-transaction lookups
+CREATE INDEX IF NOT EXISTS idx_ledger_entries_transaction_id ON ledger_entries (transaction_id);
+
+-- ---------------------------------------------------------------------------------------------------------
+-- audit_log, partitioned by month (partitions come from AuditLogPartitionService)
+-- ---------------------------------------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS audit_log (
+    id uuid NOT NULL,
+    actor_id varchar(255) NOT NULL,
+    action varchar(255) NOT NULL,
+    entity_name varchar(255) NOT NULL,
+    entity_id varchar(255) NOT NULL,
+    details text,
+    "timestamp" timestamp(6) with time zone NOT NULL,
+    CONSTRAINT pk_audit_log PRIMARY KEY (id, "timestamp")
+) PARTITION BY RANGE ("timestamp");
+
+-- Only tables that are partitioned already get partitions here. One this script has just created gets the
+-- current and next month straight away: rows written before the partition services first run would
+-- otherwise land in the default partition, and a month cannot be created over rows the default holds.
+-- A plain audit_log gets its indexes when it is converted -- created here under the same names, they would
+-- stay behind on the legacy partition and keep the partitioned parent from getting its own
+DO $$
+DECLARE
+    parent text;
+    this_month timestamp := date_trunc('month', now() AT TIME ZONE 'UTC');
+    month_start timestamp;
+BEGIN
+    FOREACH parent IN ARRAY ARRAY['transactions', 'ledger_entries', 'audit_log'] LOOP
+        CONTINUE WHEN (SELECT relkind FROM pg_class WHERE oid = to_regclass(parent)) IS DISTINCT FROM 'p';
+        IF NOT EXISTS (SELECT 1 FROM pg_inherits WHERE inhparent = to_regclass(parent)) THEN
+            FOR m IN 0..1 LOOP
+                month_start := this_month + m * interval '1 month';
+                EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                        parent || '_p' || to_char(month_start, 'YYYYMM'), parent,
+                        month_start AT TIME ZONE 'UTC', (month_start + interval '1 month') AT TIME ZONE 'UTC');
+            END LOOP;
+        END IF;
+        -- rows outside every monthly range land here instead of failing the insert
+        EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF %I DEFAULT', parent || '_default', parent);
+    END LOOP;
+
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('audit_log')) = 'p' THEN
+        CREATE INDEX IF NOT EXISTS idx_audit_log_timestamp_id ON audit_log ("timestamp", id);
+        CREATE INDEX IF NOT EXISTS idx_audit_log_actor_timestamp ON audit_log (actor_id, "timestamp");
+        CREATE INDEX IF NOT EXISTS idx_audit_log_action_timestamp ON audit_log (action, "timestamp");
+        CREATE INDEX IF NOT EXISTS idx_audit_log_entity_timestamp ON audit_log (entity_name, entity_id, "timestamp");
+    END IF;
+END $$;
+
+-- ---------------------------------------------------------------------------------------------------------
+-- projections, holds and the outbox
+-- ---------------------------------------------------------------------------------------------------------
+
+CREATE TABLE IF NOT EXISTS wallet_activity (
+    id uuid NOT NULL,
+    wallet_id uuid NOT NULL,
+    transaction_id uuid NOT NULL,
+    direction varchar(255) NOT NULL,
+    counterparty_wallet_id uuid,
+    signed_amount numeric(15,2) NOT NULL,
+    balance_after numeric(15,2) NOT NULL,
+    occurred_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT wallet_activity_pkey PRIMARY KEY (id),
+    CONSTRAINT uk_wallet_activity_wallet_transaction UNIQUE (wallet_id, transaction_id)
+);
+
+-- wallet history pages, keyset on (occurred_at, transaction_id)
+CREATE INDEX IF NOT EXISTS idx_wallet_activity_wallet_occurred_at_tx
+    ON wallet_activity (wallet_id, occurred_at, transaction_id);
+
+CREATE TABLE IF NOT EXISTS escrow_holds (
+    transaction_id uuid NOT NULL,
+    transaction_initiated_at timestamp(6) with time zone,
+    release_at timestamp(6) with time zone NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    funds_held boolean NOT NULL DEFAULT false,
+    CONSTRAINT escrow_holds_pkey PRIMARY KEY (transaction_id)
+);
+
+-- the release sweep: due holds, earliest first
+CREATE INDEX IF NOT EXISTS idx_escrow_holds_release_at ON escrow_holds (release_at);
+
+CREATE TABLE IF NOT EXISTS wallet_balance_snapshots (
+    wallet_id uuid NOT NULL,
+    balance numeric(15,2) NOT NULL,
+    as_of timestamp(6) with time zone NOT NULL,
+    taken_at timestamp(6) with time zone NOT NULL,
+    CONSTRAINT wallet_balance_snapshots_pkey PRIMARY KEY (wallet_id)
+);
+
+CREATE TABLE IF NOT EXISTS ledger_reconciliation_runs (
+    id uuid NOT NULL,
+    business_date date NOT NULL,
+    cutoff timestamp(6) with time zone NOT NULL,
+    status varchar(255) NOT NULL,
+    started_at timestamp(6) with time zone NOT NULL,
+    finished_at timestamp(6) with time zone,
+    partitions integer NOT NULL,
+    entries_scanned bigint NOT NULL,
+    transactions_scanned bigint NOT NULL,
+    missing_entries bigint NOT NULL,
+    orphan_entries bigint NOT NULL,
+    unbalanced_transfers bigint NOT NULL,
+    unbalanced_external bigint NOT NULL,
+    stuck_in_flight bigint NOT NULL,
+    failure_reason varchar(255),
+    CONSTRAINT ledger_reconciliation_runs_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_reconciliation_runs_business_date
+    ON ledger_reconciliation_runs (business_date);
+
+CREATE TABLE IF NOT EXISTS ledger_reconciliation_issues (
+    id uuid NOT NULL,
+    run_id uuid NOT NULL,
+    transaction_id uuid NOT NULL,
+    type varchar(255) NOT NULL,
+    net_amount numeric(15,2) NOT NULL,
+    transaction_amount numeric(15,2),
+    entry_count integer NOT NULL,
+    CONSTRAINT ledger_reconciliation_issues_pkey PRIMARY KEY (id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_ledger_reconciliation_issues_run_type
+    ON ledger_reconciliation_issues (run_id, type);
+
+CREATE TABLE IF NOT EXISTS outbox_events (
+    id uuid NOT NULL,
+    topic varchar(255) NOT NULL,
+    event_key varchar(255) NOT NULL,
+    event_type varchar(255) NOT NULL,
+    payload text NOT NULL,
+    created_at timestamp(6) with time zone NOT NULL,
+    sent_at timestamp(6) with time zone,
+    attempts integer NOT NULL DEFAULT 0,
+    last_error text,
+    CONSTRAINT outbox_events_pkey PRIMARY KEY (id)
+);
+
+-- the relay: unsent events, oldest first
+CREATE INDEX IF NOT EXISTS idx_outbox_sent_at_created_at ON outbox_events (sent_at, created_at);
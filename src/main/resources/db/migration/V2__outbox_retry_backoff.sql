@@ -0,0 +1,11 @@
+-- Outbox retries back off instead of holding the head of the queue. next_attempt_at is when a row is due;
+-- rows written before this start out due at their created_at. failed_at marks a dead-lettered row.
+
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS next_attempt_at timestamp(6) with time zone;
+ALTER TABLE outbox_events ADD COLUMN IF NOT EXISTS failed_at timestamp(6) with time zone;
+UPDATE outbox_events SET next_attempt_at = created_at WHERE next_attempt_at IS NULL;
+ALTER TABLE outbox_events ALTER COLUMN next_attempt_at SET NOT NULL;
+
+-- the relay's claim: due events that are neither sent nor dead-lettered, earliest first
+CREATE INDEX IF NOT EXISTS idx_outbox_due_next_attempt_at ON outbox_events (next_attempt_at)
+    WHERE sent_at IS NULL AND failed_at IS NULL;
@@ -0,0 +1,11 @@
+-- wallet_activity carries its transaction's partition key, so history and statement reads join the monthly
+-- transactions partitions on (id, initiated_at) instead of probing every month for each row, the way
+-- escrow_holds already does. Sweeps have no transactions row and keep a null.
+
+ALTER TABLE wallet_activity ADD COLUMN IF NOT EXISTS transaction_initiated_at timestamp(6) with time zone;
+
+UPDATE wallet_activity a
+SET transaction_initiated_at = t.initiated_at
+FROM transactions t
+WHERE t.id = a.transaction_id
+  AND a.transaction_initiated_at IS NULL;
@@ -0,0 +1,5 @@
+-- A hold that cannot be released (missing wallet, held balance short) is pushed back with a growing delay
+-- instead of staying at the head of the release claim, where a chunk of them would block every hold behind.
+-- release_attempts counts the failures that set the delay.
+
+ALTER TABLE escrow_holds ADD COLUMN IF NOT EXISTS release_attempts integer NOT NULL DEFAULT 0;
@@ -0,0 +1,130 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.dto.AdminPage;
+import com.example.ppps.service.AdminViewService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Walks the admin listings page by page at several page sizes and counts the JDBC statements each page
+// prepares. The old endpoints ran 1 + 2N lookups for N rows; a projection page is one query, plus at most
+// one batched owner lookup (transactions) or the platform balance roll-up (wallets), whatever the size.
+// Run with: mvn test -Pbenchmark -Dtest=AdminListingQueryCountBenchmark
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Tag("benchmark")
+class AdminListingQueryCountBenchmark {
+
+    private static final int USERS = 2_000;
+    private static final int TRANSACTIONS = 20_000;
+    private static final int PAGES = 5;
+    private static final int[] PAGE_SIZES = {10, 50, 200};
+    private static final long MAX_STATEMENTS_PER_PAGE = 2;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AdminViewService adminViewService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void seed() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long seeded = tx.execute(status -> ((Number) entityManager.createNativeQuery(
+                "SELECT count(*) FROM users WHERE phone_number LIKE '+999%'").getSingleResult()).longValue());
+        if (seeded != null && seeded >= USERS) {
+            return;
+        }
+
+        tx.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("""
+                            INSERT INTO wallets (id, user_id, balance, currency, created_at, updated_at)
+                            SELECT CAST(lpad(to_hex(g), 32, 'a') AS uuid), CAST(lpad(to_hex(g), 32, 'b') AS uuid),
+                                   (g % 1000) * 10, 'NGN', now() - g * interval '1 minute', now()
+                            FROM generate_series(1, :users) AS g
+                            ON CONFLICT DO NOTHING
+                            """)
+                    .setParameter("users", USERS)
+                    .executeUpdate();
+            entityManager.createNativeQuery("""
+                            INSERT INTO users (user_id, phone_number, hashed_pin, role, wallet_id)
+                            SELECT CAST(CAST(lpad(to_hex(g), 32, 'b') AS uuid) AS varchar), '+999' || lpad(CAST(g AS text), 9, '0'),
+                                   'x', 'USER', CAST(lpad(to_hex(g), 32, 'a') AS uuid)
+                            FROM generate_series(1, :users) AS g
+                            ON CONFLICT DO NOTHING
+                            """)
+                    .setParameter("users", USERS)
+                    .executeUpdate();
+            entityManager.createNativeQuery("""
+                            INSERT INTO transactions (id, sender_wallet_id, receiver_wallet_id, amount, status, initiated_at)
+                            SELECT CAST(lpad(to_hex(g), 32, 'c') AS uuid),
+                                   CAST(lpad(to_hex(g % :users + 1), 32, 'a') AS uuid),
+                                   CAST(lpad(to_hex((g + 7) % :users + 1), 32, 'a') AS uuid),
+                                   (g % 500) + 1, CASE WHEN g % 4 = 0 THEN 'PENDING' ELSE 'SUCCESS' END,
+                                   now() - g * interval '1 second'
+                            FROM generate_series(1, :transactions) AS g
+                            ON CONFLICT DO NOTHING
+                            """)
+                    .setParameter("users", USERS)
+                    .setParameter("transactions", TRANSACTIONS)
+                    .executeUpdate();
+        });
+    }
+
+    @Test
+    void everyPageCostsAConstantNumberOfStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int pageSize : PAGE_SIZES) {
+            assertConstant("users", pageSize, statistics,
+                    token -> adminViewService.users(null, "+999", null, null, token, pageSize));
+            assertConstant("wallets", pageSize, statistics,
+                    token -> adminViewService.wallets(null, null, null, "balance", null, token, pageSize));
+            assertConstant("transactions", pageSize, statistics,
+                    token -> adminViewService.transactions(null, null, null, null, null, null, token, pageSize));
+            assertConstant("withdrawals", pageSize, statistics,
+                    token -> adminViewService.transactions("PENDING", null, null, null, "amount", "asc", token, pageSize));
+        }
+    }
+
+    private void assertConstant(String listing, int pageSize, Statistics statistics,
+                                Function<String, AdminPage<?>> fetch) {
+        String token = null;
+        long worst = 0;
+        long rows = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < PAGES; i++) {
+            statistics.clear();
+            AdminPage<?> page = fetch.apply(token);
+            worst = Math.max(worst, statistics.getPrepareStatementCount());
+            rows += page.items().size();
+            if (i < PAGES - 1) {
+                assertEquals(pageSize, page.items().size(), listing + " page " + i + " came back short");
+            }
+            token = page.nextPageToken();
+        }
+        double micros = (System.nanoTime() - started) / 1_000.0 / PAGES;
+        System.out.printf("%-13s pageSize=%-4d rows=%-5d worst statements/page=%d  latency=%.0fus/page%n",
+                listing, pageSize, rows, worst, micros);
+        assertTrue(worst <= MAX_STATEMENTS_PER_PAGE, listing + " used " + worst + " statements for one page");
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.BalanceUpdateStrategy;
+import com.example.ppps.exception.InsufficientFundsException;
+import com.example.ppps.repository.WalletRepository;
+import com.example.ppps.service.BalanceMutationService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Debits against a single hot wallet from many threads, once per BalanceUpdateStrategy, against a live
+// Postgres. The wallet is funded for half the attempts, so the run also checks that neither strategy
+// overspends under contention: exactly the funded debits succeed and the balance ends at zero.
+// Run with: mvn test -Pbenchmark -Dtest=HotWalletBalanceStrategyBenchmark
+@SpringBootTest
+@Tag("benchmark")
+class HotWalletBalanceStrategyBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int DEBITS_PER_THREAD = 250;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private BalanceMutationService balanceMutationService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void hotWalletDebitThroughputPerStrategy() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        int attempts = THREADS * DEBITS_PER_THREAD;
+        int funded = attempts / 2;
+
+        for (BalanceUpdateStrategy strategy : BalanceUpdateStrategy.values()) {
+            Wallet hot = new Wallet();
+            hot.setUserId(UUID.randomUUID());
+            hot.setBalance(BigDecimal.valueOf(funded));
+            UUID walletId = walletRepository.save(hot).getId();
+
+            AtomicInteger succeeded = new AtomicInteger();
+            AtomicInteger refused = new AtomicInteger();
+            long started = System.nanoTime();
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < DEBITS_PER_THREAD; i++) {
+                        tx.executeWithoutResult(status -> {
+                            try {
+                                balanceMutationService.debit(walletId, BigDecimal.ONE, strategy, "benchmark");
+                                succeeded.incrementAndGet();
+                            } catch (InsufficientFundsException e) {
+                                refused.incrementAndGet();
+                            }
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            pool.shutdown();
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+            System.out.printf("strategy=%-11s  debits=%d  refused=%d  elapsed=%.2fs  throughput=%.0f debits/s%n",
+                    strategy, succeeded.get(), refused.get(), seconds, attempts / seconds);
+
+            assertEquals(funded, succeeded.get());
+            assertEquals(attempts - funded, refused.get());
+            assertEquals(0, walletRepository.findById(walletId).orElseThrow()
+                    .getBalance().compareTo(BigDecimal.ZERO));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.entity.LedgerEntry;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.EntryType;
+import com.example.ppps.repository.LedgerEntryRepository;
+import com.example.ppps.service.LedgerService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Ledger writes for a fee-bearing transfer (sender DEBIT, receiver CREDIT, FEE_REVENUE): one saveAndFlush
+// per entry versus LedgerService's commit-time batch, which also upserts the three wallet_activity rows in
+// one statement. Reports JDBC statements per transfer and latency.
+// Run with: mvn test -Pbenchmark -Dtest=LedgerBatchWriteBenchmark
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Tag("benchmark")
+class LedgerBatchWriteBenchmark {
+
+    private static final int WARMUP = 200;
+    private static final int TRANSFERS = 2_000;
+
+    @Autowired
+    private LedgerEntryRepository ledgerEntryRepository;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void batchedLedgerWritesUseFewerRoundTrips() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Result perRow = run("saveAndFlush per entry", tx, statistics, this::writePerRow);
+        Result batched = run("batched at commit", tx, statistics, this::writeBatched);
+
+        assertTrue(batched.statementsPerTransfer < perRow.statementsPerTransfer);
+    }
+
+    private Result run(String label, TransactionTemplate tx, Statistics statistics, TransferWrite write) {
+        for (int i = 0; i < WARMUP; i++) {
+            tx.executeWithoutResult(status -> write.apply(UUID.randomUUID()));
+        }
+
+        statistics.clear();
+        long started = System.nanoTime();
+        for (int i = 0; i < TRANSFERS; i++) {
+            tx.executeWithoutResult(status -> write.apply(UUID.randomUUID()));
+        }
+        long elapsedNanos = System.nanoTime() - started;
+
+        Result result = new Result(
+                (double) statistics.getPrepareStatementCount() / TRANSFERS,
+                elapsedNanos / 1_000.0 / TRANSFERS);
+        System.out.printf("%-24s statements/transfer=%.2f  latency=%.1fus/transfer%n",
+                label, result.statementsPerTransfer, result.microsPerTransfer);
+        return result;
+    }
+
+    // the write pattern the services used before LedgerService
+    private void writePerRow(UUID transactionId) {
+        ledgerEntryRepository.saveAndFlush(entry(transactionId, EntryType.DEBIT, "110.00"));
+        ledgerEntryRepository.saveAndFlush(entry(transactionId, EntryType.CREDIT, "100.00"));
+        ledgerEntryRepository.saveAndFlush(entry(transactionId, EntryType.FEE_REVENUE, "10.00"));
+    }
+
+    private void writeBatched(UUID transactionId) {
+        Wallet sender = wallet("890.00");
+        Wallet receiver = wallet("600.00");
+        ledgerService.record(transactionId, sender, receiver.getId(), new BigDecimal("110.00"), EntryType.DEBIT);
+        ledgerService.record(transactionId, receiver, sender.getId(), new BigDecimal("100.00"), EntryType.CREDIT);
+        ledgerService.record(transactionId, wallet("10.00"), null, new BigDecimal("10.00"), EntryType.FEE_REVENUE);
+    }
+
+    private static Wallet wallet(String balance) {
+        Wallet wallet = new Wallet();
+        wallet.setId(UUID.randomUUID());
+        wallet.setBalance(new BigDecimal(balance));
+        return wallet;
+    }
+
+    private static LedgerEntry entry(UUID transactionId, EntryType type, String amount) {
+        LedgerEntry entry = new LedgerEntry();
+        entry.setTransactionId(transactionId);
+        entry.setWalletId(UUID.randomUUID());
+        entry.setEntryType(type);
+        entry.setAmount(new BigDecimal(amount));
+        entry.setCreatedAt(Instant.now());
+        return entry;
+    }
+
+    private interface TransferWrite {
+        void apply(UUID transactionId);
+    }
+
+    private record Result(double statementsPerTransfer, double microsPerTransfer) {
+    }
+}
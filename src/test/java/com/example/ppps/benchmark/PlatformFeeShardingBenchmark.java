@@ -0,0 +1,108 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletRepository;
+import com.example.ppps.service.BalanceCache;
+import com.example.ppps.service.LedgerService;
+import com.example.ppps.service.PlatformWalletService;
+import com.example.ppps.service.WalletLockService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Fee collection throughput against a live Postgres for growing shard counts.
+// Run with: mvn test -Pbenchmark -Dtest=PlatformFeeShardingBenchmark
+@SpringBootTest
+@Tag("benchmark")
+class PlatformFeeShardingBenchmark {
+
+    private static final int THREADS = 32;
+    private static final int FEES_PER_THREAD = 200;
+    // stands in for the rest of a transfer's settle transaction, which keeps the fee row locked
+    private static final long HOLD_MILLIS = 2;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private LedgerService ledgerService;
+
+    @Autowired
+    private WalletLockService walletLockService;
+
+    @Autowired
+    private BalanceCache balanceCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void feeCollectionThroughputScalesWithShardCount() throws Exception {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        for (int shardCount : new int[]{1, 2, 4, 8, 16}) {
+            Wallet platformWallet = new Wallet();
+            platformWallet.setUserId(UUID.randomUUID());
+            UUID platformWalletId = walletRepository.save(platformWallet).getId();
+
+            PlatformWalletService service = new PlatformWalletService(walletRepository, transactionRepository, ledgerService,
+                    walletLockService, balanceCache, platformWalletId.toString(), shardCount);
+            tx.executeWithoutResult(status -> service.ensureShardWallets());
+
+            long started = System.nanoTime();
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < FEES_PER_THREAD; i++) {
+                        tx.executeWithoutResult(status -> {
+                            service.collectFee(UUID.randomUUID(), BigDecimal.ONE);
+                            sleepQuietly();
+                        });
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            pool.shutdown();
+            double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+            int total = THREADS * FEES_PER_THREAD;
+            System.out.printf("shards=%2d  fees=%d  elapsed=%.2fs  throughput=%.0f fees/s%n",
+                    shardCount, total, seconds, total / seconds);
+
+            // nothing may be lost between the shards and the sweep
+            BigDecimal beforeSweep = service.aggregateBalance();
+            tx.executeWithoutResult(status -> service.sweepShards());
+            assertEquals(0, beforeSweep.compareTo(BigDecimal.valueOf(total)));
+            assertEquals(0, service.aggregateBalance().compareTo(BigDecimal.valueOf(total)));
+            assertEquals(0, walletRepository.findById(platformWalletId).orElseThrow()
+                    .getBalance().compareTo(BigDecimal.valueOf(total)));
+        }
+    }
+
+    private static void sleepQuietly() {
+        try {
+            Thread.sleep(HOLD_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.ppps.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Baseline: Tomcat's platform pool caps in-flight transfers at server.tomcat.threads.max.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=false",
+        "server.tomcat.threads.max=" + TransferConcurrencyBenchmark.REQUEST_THREADS})
+@Tag("benchmark")
+class PlatformThreadTransferBenchmark extends TransferConcurrencyBenchmark {
+
+    @Override
+    String label() {
+        return "platform threads";
+    }
+
+    @Override
+    void assertConcurrency(Result result) {
+        assertTrue(result.peakInFlight() <= REQUEST_THREADS);
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.config.RateLimitingFilter;
+import com.example.ppps.service.RateLimiter;
+import com.example.ppps.service.TokenBucketRateLimiter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-request cost of the rate limiting filter with 10k and 1M distinct client IPs already tracked: the old
+// scan-every-map filter against the token-bucket filter. Limits are set high enough that nothing is refused,
+// so only the bookkeeping is measured.
+// Run with: mvn test -Pbenchmark -Dtest=RateLimitingFilterBenchmark
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RateLimitingFilterBenchmark {
+
+    private static final FilterChain NO_OP = (request, response) -> {
+    };
+
+    @Param({"10000", "1000000"})
+    public int clients;
+
+    @Param({"legacy", "tokenBucket"})
+    public String filterType;
+
+    private OncePerRequestFilter filter;
+    private String[] addresses;
+    private MockHttpServletRequest request;
+    private int next;
+
+    @Test
+    void filterOverhead() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(RateLimitingFilterBenchmark.class.getName())
+                .build()).run();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        addresses = new String[clients];
+        for (int i = 0; i < clients; i++) {
+            addresses[i] = "10." + ((i >> 16) & 0xFF) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+        request = new MockHttpServletRequest("POST", "/api/v1/funding");
+
+        if ("legacy".equals(filterType)) {
+            LegacyRateLimitingFilter legacy = new LegacyRateLimitingFilter();
+            // filled directly: warming the legacy filter through doFilter would scan the maps 1M times
+            long now = System.currentTimeMillis();
+            for (String address : addresses) {
+                legacy.requestCounts.put(address, 1);
+                legacy.requestTimestamps.put(address, now);
+            }
+            filter = legacy;
+        } else {
+            RateLimiter.Rule unlimited = new RateLimiter.Rule("default", 60_000_000L, 1_000_000_000L);
+            filter = new RateLimitingFilter(
+                    new TokenBucketRateLimiter(TimeUnit.SECONDS.toNanos(1), 512),
+                    new RateLimitingFilter.Rules(unlimited, unlimited, unlimited, unlimited),
+                    new SimpleMeterRegistry());
+            for (String address : addresses) {
+                filterOnce(address);
+            }
+        }
+    }
+
+    @Benchmark
+    public int filterRequest() throws Exception {
+        int index = next;
+        next = index + 1 == clients ? 0 : index + 1;
+        return filterOnce(addresses[index]);
+    }
+
+    private int filterOnce(String address) throws ServletException, IOException {
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, NO_OP);
+        return response.getStatus();
+    }
+
+    // the filter as it was before token buckets, with the per-minute cap lifted
+    static class LegacyRateLimitingFilter extends OncePerRequestFilter {
+
+        private static final int MAX_REQUESTS_PER_MINUTE = Integer.MAX_VALUE;
+        final ConcurrentHashMap<String, Integer> requestCounts = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, Long> requestTimestamps = new ConcurrentHashMap<>();
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+                throws ServletException, IOException {
+            String clientIp = request.getRemoteAddr();
+            long currentTime = System.currentTimeMillis();
+            long minuteAgo = currentTime - 60000;
+
+            requestTimestamps.entrySet().removeIf(entry -> entry.getValue() < minuteAgo);
+            requestCounts.entrySet().removeIf(entry -> entry.getValue() == 0);
+
+            int count = requestCounts.getOrDefault(clientIp, 0);
+            long lastRequestTime = requestTimestamps.getOrDefault(clientIp, 0L);
+
+            if (count >= MAX_REQUESTS_PER_MINUTE && currentTime - lastRequestTime < 60000) {
+                response.sendError(429, "Rate limit exceeded");
+                return;
+            }
+
+            if (count == 0 || currentTime - lastRequestTime >= 60000) {
+                requestCounts.put(clientIp, 1);
+                requestTimestamps.put(clientIp, currentTime);
+            } else {
+                requestCounts.put(clientIp, count + 1);
+            }
+
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.enums.StatementFormat;
+import com.example.ppps.service.StatementExportService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Exports a 1M-row wallet statement through StatementExportService into a byte-counting sink and samples
+// the live heap (after a GC) every 100k rows. A cursor-backed export keeps the live set flat; buffering
+// the result would grow it by hundreds of MB and fail under the profile's 512m heap.
+// Run with: mvn test -Pbenchmark -Dtest=StatementExportBenchmark
+@SpringBootTest
+@Tag("benchmark")
+class StatementExportBenchmark {
+
+    private static final long ROWS = 1_000_000L;
+    private static final UUID EXPORT_WALLET = UUID.fromString("eeeeeeee-eeee-eeee-eeee-eeeeeeeeeeee");
+    private static final long SAMPLE_EVERY = 100_000L;
+    private static final long MAX_HEAP_GROWTH_BYTES = 48L * 1024 * 1024;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private StatementExportService statementExportService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void seed() {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        Long seeded = tx.execute(status -> ((Number) entityManager.createNativeQuery(
+                        "SELECT count(*) FROM wallet_activity WHERE wallet_id = :wallet")
+                .setParameter("wallet", EXPORT_WALLET)
+                .getSingleResult()).longValue());
+        if (seeded != null && seeded >= ROWS) {
+            return;
+        }
+
+        System.out.printf("Seeding %,d statement rows...%n", ROWS);
+        long started = System.nanoTime();
+        tx.executeWithoutResult(status -> entityManager.createNativeQuery("""
+                        INSERT INTO transactions (id, sender_wallet_id, receiver_wallet_id, amount, status, initiated_at)
+                        SELECT CAST(lpad(to_hex(g), 32, 'e') AS uuid), :wallet,
+                               CAST(lpad(to_hex(g % 5000), 32, '0') AS uuid),
+                               (g % 10000) / 100.0 + 1, 'SUCCESS', now() - g * interval '1 second'
+                        FROM generate_series(1, :rows) AS g
+                        ON CONFLICT DO NOTHING
+                        """)
+                .setParameter("wallet", EXPORT_WALLET)
+                .setParameter("rows", ROWS)
+                .executeUpdate());
+        tx.executeWithoutResult(status -> entityManager.createNativeQuery("""
+                        INSERT INTO wallet_activity (id, wallet_id, transaction_id, transaction_initiated_at,
+                                                     direction, counterparty_wallet_id, signed_amount, balance_after,
+                                                     occurred_at)
+                        SELECT gen_random_uuid(), t.sender_wallet_id, t.id, t.initiated_at, 'SENT',
+                               t.receiver_wallet_id, -t.amount, 0, t.initiated_at
+                        FROM transactions t WHERE t.sender_wallet_id = :wallet
+                        ON CONFLICT (wallet_id, transaction_id) DO NOTHING
+                        """)
+                .setParameter("wallet", EXPORT_WALLET)
+                .executeUpdate());
+        System.out.printf("Seeded in %.0fs%n", (System.nanoTime() - started) / 1e9);
+    }
+
+    @Test
+    void millionRowExportRunsInConstantMemory() throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        HeapSamplingSink sink = new HeapSamplingSink(memory);
+
+        long started = System.nanoTime();
+        statementExportService.walletStatement(EXPORT_WALLET, null, null, StatementFormat.CSV, false).writeTo(sink);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        long growth = sink.peakLiveHeap - baseline;
+        System.out.printf("exported %,d rows (%,d MB) in %.1fs  peak live heap growth=%,d KB%n",
+                sink.lines - 1, sink.bytes / (1024 * 1024), seconds, growth / 1024);
+
+        assertEquals(ROWS + 1, sink.lines);
+        assertTrue(growth < MAX_HEAP_GROWTH_BYTES, "live heap grew by " + growth / 1024 + " KB");
+    }
+
+    // counts bytes and lines; every SAMPLE_EVERY lines it forces a GC and records what is still live
+    private static final class HeapSamplingSink extends OutputStream {
+        private final MemoryMXBean memory;
+        private long bytes;
+        private long lines;
+        private long peakLiveHeap;
+
+        private HeapSamplingSink(MemoryMXBean memory) {
+            this.memory = memory;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n' && ++lines % SAMPLE_EVERY == 0) {
+                sample();
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            for (int i = offset; i < offset + length; i++) {
+                write(buffer[i]);
+            }
+        }
+
+        private void sample() {
+            System.gc();
+            peakLiveHeap = Math.max(peakLiveHeap, memory.getHeapMemoryUsage().getUsed());
+        }
+    }
+}
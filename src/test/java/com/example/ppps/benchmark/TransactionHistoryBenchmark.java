@@ -0,0 +1,230 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.controller.TransactionHistoryPage;
+import com.example.ppps.controller.TransactionHistoryResponse;
+import com.example.ppps.controller.TransactionSearchRequest;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.service.TransactionHistoryService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Wallet history on a 10M-row transactions table: the old OR + COALESCE query with OFFSET paging and a
+// count, the UNION ALL keyset query over transactions, and the keyset read of the wallet_activity
+// projection. The hot wallet sends and receives 2% of all rows each (~400k rows); pages are read at
+// increasing depth. Seeding (transactions, then both sides into wallet_activity) takes a few minutes and
+// happens once.
+// Run with: mvn test -Pbenchmark -Dtest=TransactionHistoryBenchmark
+@SpringBootTest
+@Tag("benchmark")
+class TransactionHistoryBenchmark {
+
+    private static final long ROWS = 10_000_000L;
+    private static final UUID HOT_WALLET = UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff");
+    private static final int PAGE_SIZE = 20;
+    private static final int[] DEPTHS = {0, 100, 1_000, 10_000};
+    private static final int RUNS = 5;
+
+    // the query TransactionRepository used before the keyset engine
+    private static final String LEGACY_QUERY = "SELECT t FROM Transaction t WHERE " +
+            "(t.senderWalletId = :walletId OR t.receiverWalletId = :walletId) " +
+            "AND t.initiatedAt >= COALESCE(:startDate, t.initiatedAt) " +
+            "AND t.initiatedAt <= COALESCE(:endDate, t.initiatedAt) " +
+            "AND (COALESCE(:status, '') = '' OR CAST(t.status AS string) = :status) " +
+            "AND t.amount >= COALESCE(:minAmount, t.amount) " +
+            "AND t.amount <= COALESCE(:maxAmount, t.amount) " +
+            "ORDER BY t.initiatedAt DESC";
+    private static final String LEGACY_COUNT = "SELECT count(t) FROM Transaction t WHERE " +
+            "(t.senderWalletId = :walletId OR t.receiverWalletId = :walletId) " +
+            "AND t.initiatedAt >= COALESCE(:startDate, t.initiatedAt) " +
+            "AND t.initiatedAt <= COALESCE(:endDate, t.initiatedAt) " +
+            "AND (COALESCE(:status, '') = '' OR CAST(t.status AS string) = :status) " +
+            "AND t.amount >= COALESCE(:minAmount, t.amount) " +
+            "AND t.amount <= COALESCE(:maxAmount, t.amount)";
+
+    // the keyset query TransactionHistoryService ran before wallet_activity
+    private static final String UNION_QUERY = "SELECT h.id FROM ("
+            + "(SELECT t.id, t.initiated_at FROM transactions t WHERE t.sender_wallet_id = :walletId"
+            + " AND (t.initiated_at, t.id) < (:cursorAt, :cursorId) ORDER BY t.initiated_at DESC, t.id DESC LIMIT :limit)"
+            + " UNION ALL "
+            + "(SELECT t.id, t.initiated_at FROM transactions t WHERE t.receiver_wallet_id = :walletId"
+            + " AND t.sender_wallet_id <> :walletId"
+            + " AND (t.initiated_at, t.id) < (:cursorAt, :cursorId) ORDER BY t.initiated_at DESC, t.id DESC LIMIT :limit)"
+            + ") h ORDER BY h.initiated_at DESC, h.id DESC LIMIT :limit";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionHistoryService transactionHistoryService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+
+    @BeforeEach
+    void seed() {
+        tx = new TransactionTemplate(transactionManager);
+        long started = System.nanoTime();
+        boolean seededTransactions = seedTransactions();
+        boolean seededActivity = seedActivity();
+        if (seededTransactions || seededActivity) {
+            tx.executeWithoutResult(status -> entityManager.createNativeQuery("ANALYZE transactions").executeUpdate());
+            tx.executeWithoutResult(status -> entityManager.createNativeQuery("ANALYZE wallet_activity").executeUpdate());
+            System.out.printf("Seeded in %.0fs%n", (System.nanoTime() - started) / 1e9);
+        }
+    }
+
+    private boolean seedTransactions() {
+        if (count("SELECT count(*) FROM transactions WHERE sender_wallet_id = :hot") >= ROWS / 50) {
+            return false;
+        }
+
+        System.out.printf("Seeding %,d transactions...%n", ROWS);
+        // 100k other wallets; every 50th row is sent by the hot wallet and the next one received by it
+        long batch = 1_000_000L;
+        for (long from = 1; from <= ROWS; from += batch) {
+            long to = Math.min(ROWS, from + batch - 1);
+            long first = from;
+            String insert = """
+                    INSERT INTO transactions (id, sender_wallet_id, receiver_wallet_id, amount, status, initiated_at)
+                    SELECT gen_random_uuid(),
+                           CASE WHEN g %% 50 = 0 THEN CAST(:hot AS uuid) ELSE %s END,
+                           CASE WHEN g %% 50 = 1 THEN CAST(:hot AS uuid) ELSE %s END,
+                           (g %% 10000) / 100.0 + 1,
+                           CASE WHEN g %% 20 = 0 THEN 'FAILED' ELSE 'SUCCESS' END,
+                           now() - g * interval '1 second'
+                    FROM generate_series(:first, :last) AS g
+                    """.formatted(walletExpression("g * 7"), walletExpression("g * 13 + 1"));
+            tx.executeWithoutResult(status -> entityManager.createNativeQuery(insert)
+                    .setParameter("hot", HOT_WALLET.toString())
+                    .setParameter("first", first)
+                    .setParameter("last", to)
+                    .executeUpdate());
+        }
+        return true;
+    }
+
+    // one projection row per side; occurred_at mirrors initiated_at so both keyset paths share a cursor
+    private boolean seedActivity() {
+        if (count("SELECT count(*) FROM wallet_activity WHERE wallet_id = :hot") >= ROWS / 25) {
+            return false;
+        }
+
+        System.out.println("Projecting transactions into wallet_activity...");
+        for (String side : List.of(
+                "t.sender_wallet_id, 'SENT', t.receiver_wallet_id, -t.amount",
+                "t.receiver_wallet_id, 'RECEIVED', t.sender_wallet_id, t.amount")) {
+            String project = """
+                    INSERT INTO wallet_activity (id, wallet_id, direction, counterparty_wallet_id, signed_amount,
+                                                 transaction_id, transaction_initiated_at, balance_after, occurred_at)
+                    SELECT gen_random_uuid(), %s, t.id, t.initiated_at, 0, t.initiated_at FROM transactions t
+                    ON CONFLICT (wallet_id, transaction_id) DO NOTHING
+                    """.formatted(side);
+            tx.executeWithoutResult(status -> entityManager.createNativeQuery(project).executeUpdate());
+        }
+        return true;
+    }
+
+    private long count(String sql) {
+        Long count = tx.execute(status -> ((Number) entityManager.createNativeQuery(sql)
+                .setParameter("hot", HOT_WALLET)
+                .getSingleResult()).longValue());
+        return count == null ? 0 : count;
+    }
+
+    @Test
+    void keysetPagesStayFlatWithDepth() {
+        for (int depth : DEPTHS) {
+            double legacyMs = time(() -> legacyPage(depth));
+            // the keyset cursor for this depth is the last row of the previous page
+            TransactionHistoryPage previous = depth == 0 ? null : pageBefore(depth);
+            String token = previous == null ? null : previous.getNextPageToken();
+            TransactionHistoryResponse last = previous == null ? null
+                    : previous.getTransactions().get(previous.getTransactions().size() - 1);
+            double unionMs = time(() -> unionPage(last));
+            double projectionMs = time(() -> keysetPage(token));
+            System.out.printf("page %,6d  legacy OFFSET+count=%8.1fms  union keyset=%6.1fms  wallet_activity=%6.1fms%n",
+                    depth, legacyMs, unionMs, projectionMs);
+        }
+
+        assertEquals(PAGE_SIZE, keysetPage(pageBefore(DEPTHS[DEPTHS.length - 1]).getNextPageToken())
+                .getTransactions().size());
+    }
+
+    private List<Transaction> legacyPage(int depth) {
+        return tx.execute(status -> {
+            entityManager.createQuery(LEGACY_COUNT)
+                    .setParameter("walletId", HOT_WALLET)
+                    .setParameter("startDate", null)
+                    .setParameter("endDate", null)
+                    .setParameter("status", null)
+                    .setParameter("minAmount", null)
+                    .setParameter("maxAmount", null)
+                    .getSingleResult();
+            return entityManager.createQuery(LEGACY_QUERY, Transaction.class)
+                    .setParameter("walletId", HOT_WALLET)
+                    .setParameter("startDate", null)
+                    .setParameter("endDate", null)
+                    .setParameter("status", null)
+                    .setParameter("minAmount", null)
+                    .setParameter("maxAmount", null)
+                    .setFirstResult(depth * PAGE_SIZE)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+        });
+    }
+
+    private List<?> unionPage(TransactionHistoryResponse last) {
+        Instant cursorAt = last == null ? Instant.parse("9999-01-01T00:00:00Z") : last.getOccurredAt();
+        UUID cursorId = last == null ? new UUID(-1L, -1L) : last.getTransactionId();
+        return tx.execute(status -> entityManager.createNativeQuery(UNION_QUERY)
+                .setParameter("walletId", HOT_WALLET)
+                .setParameter("cursorAt", cursorAt)
+                .setParameter("cursorId", cursorId)
+                .setParameter("limit", PAGE_SIZE)
+                .getResultList());
+    }
+
+    private TransactionHistoryPage keysetPage(String token) {
+        TransactionSearchRequest filters = new TransactionSearchRequest();
+        filters.setPageSize(PAGE_SIZE);
+        filters.setPageToken(token);
+        return tx.execute(status -> transactionHistoryService.getTransactionHistory(HOT_WALLET, filters));
+    }
+
+    // one legacy-offset read just to find where page N starts; not timed
+    private TransactionHistoryPage pageBefore(int depth) {
+        TransactionSearchRequest filters = new TransactionSearchRequest();
+        filters.setPageSize(PAGE_SIZE);
+        filters.setPageNumber(depth - 1);
+        return tx.execute(status -> transactionHistoryService.getTransactionHistory(HOT_WALLET, filters));
+    }
+
+    private static double time(Supplier<?> query) {
+        query.get();
+        long started = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - started) / 1e6 / RUNS;
+    }
+
+    private static String walletExpression(String seed) {
+        return "CAST(lpad(to_hex((" + seed + ") % 100000), 32, '0') AS uuid)";
+    }
+}
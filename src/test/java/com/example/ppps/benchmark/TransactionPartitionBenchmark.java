@@ -0,0 +1,190 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.repository.LedgerPartitionQueries.PartitionedTable;
+import com.example.ppps.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Escrow claim and wallet history latency on a monthly-partitioned transactions table as months of data pile
+// up, 1M rows a month. Each checkpoint times the release claim with the old id-only join (every hold probes
+// every partition) against the join on the hold's initiated_at (one partition per hold), and a wallet's
+// transactions unbounded against the same read bounded to the newest month. Months are seeded after the
+// current one, since on a converted database everything earlier sits in the legacy partition; seeding
+// 24 months takes a while and happens once.
+// Run with: mvn test -Pbenchmark -Dtest=TransactionPartitionBenchmark
+@SpringBootTest
+@Tag("benchmark")
+class TransactionPartitionBenchmark {
+
+    private static final long ROWS_PER_MONTH = 1_000_000L;
+    private static final int MONTHS = 24;
+    private static final Set<Integer> CHECKPOINTS = Set.of(1, 3, 6, 12, 24);
+    private static final int HOLDS = 2_000;
+    private static final int CLAIM_LIMIT = 100;
+    private static final int PAGE_SIZE = 20;
+    private static final int RUNS = 20;
+    private static final UUID HOT_WALLET = UUID.fromString("eeeeeeee-eeee-eeee-eeee-eeeeeeeeeeee");
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("uuuuMM");
+
+    // the claim before escrow_holds carried the transaction's partition key
+    private static final String ID_ONLY_CLAIM = "SELECT t.id FROM escrow_holds h JOIN transactions t"
+            + " ON t.id = h.transaction_id WHERE h.release_at <= :now AND t.status = 'PENDING'"
+            + " AND (t.transfer_state IS NULL OR t.transfer_state = 'COMPLETED')"
+            + " ORDER BY h.release_at LIMIT :limit FOR UPDATE OF t SKIP LOCKED";
+
+    // TransactionRepository.findByWalletId before it took a lower bound
+    private static final String UNBOUNDED_HISTORY = "SELECT t FROM Transaction t"
+            + " WHERE t.senderWalletId = :walletId OR t.receiverWalletId = :walletId ORDER BY t.initiatedAt DESC";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate tx;
+    private YearMonth firstMonth;
+    // every seeded hold is due by then; the release workers, running on the real clock, never see them
+    private Instant claimAt;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        firstMonth = YearMonth.now(ZoneOffset.UTC).plusMonths(1);
+        claimAt = startOf(firstMonth.plusMonths(MONTHS + 1));
+    }
+
+    @Test
+    void escrowClaimAndHistoryStayFlatAsMonthsAccumulate() {
+        for (int months = 1; months <= MONTHS; months++) {
+            YearMonth month = firstMonth.plusMonths(months - 1);
+            if (seedMonth(month) && months == 1) {
+                seedHolds(month);
+            }
+            if (!CHECKPOINTS.contains(months)) {
+                continue;
+            }
+
+            tx.executeWithoutResult(status -> entityManager.createNativeQuery("ANALYZE transactions").executeUpdate());
+            tx.executeWithoutResult(status -> entityManager.createNativeQuery("ANALYZE escrow_holds").executeUpdate());
+            Instant newest = startOf(month);
+            double idOnlyMs = time(() -> claim(() -> entityManager.createNativeQuery(ID_ONLY_CLAIM)
+                    .setParameter("now", claimAt)
+                    .setParameter("limit", CLAIM_LIMIT)
+                    .getResultList()));
+            double prunedMs = time(() -> claim(() -> transactionRepository.claimReleasableEscrow(claimAt, CLAIM_LIMIT)));
+            double unboundedMs = time(() -> tx.execute(status -> entityManager
+                    .createQuery(UNBOUNDED_HISTORY, Transaction.class)
+                    .setParameter("walletId", HOT_WALLET)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList()));
+            double boundedMs = time(() -> tx.execute(status -> transactionRepository
+                    .findByWalletIdSince(HOT_WALLET, newest, PageRequest.of(0, PAGE_SIZE))));
+            System.out.printf("%2d months (%,d rows)  escrow claim: id-only=%7.2fms  pruned=%6.2fms"
+                            + "  |  history: unbounded=%7.2fms  newest month=%6.2fms%n",
+                    months, months * ROWS_PER_MONTH, idOnlyMs, prunedMs, unboundedMs, boundedMs);
+        }
+
+        assertEquals(CLAIM_LIMIT, claim(() -> transactionRepository.claimReleasableEscrow(claimAt, CLAIM_LIMIT)).size());
+    }
+
+    // the claim locks rows, so every timed run is rolled back
+    private List<?> claim(Supplier<List<?>> query) {
+        return tx.execute(status -> {
+            status.setRollbackOnly();
+            return query.get();
+        });
+    }
+
+    private boolean seedMonth(YearMonth month) {
+        String partition = "transactions_p" + month.format(SUFFIX);
+        Instant from = startOf(month);
+        Instant to = startOf(month.plusMonths(1));
+        tx.executeWithoutResult(status ->
+                transactionRepository.createPartition(PartitionedTable.TRANSACTIONS, partition, from, to));
+        if (count("SELECT count(*) FROM " + partition) >= ROWS_PER_MONTH) {
+            return false;
+        }
+
+        System.out.printf("Seeding %s...%n", month);
+        long stepMillis = (to.toEpochMilli() - from.toEpochMilli()) / (ROWS_PER_MONTH + 1);
+        // 100k other wallets; the hot wallet sends every 50th row. One row in 200 is a pending escrow transfer
+        String insert = """
+                INSERT INTO transactions (id, sender_wallet_id, receiver_wallet_id, amount, status, initiated_at, escrow)
+                SELECT gen_random_uuid(),
+                       CASE WHEN g %% 50 = 0 THEN CAST(:hot AS uuid) ELSE %s END,
+                       %s,
+                       (g %% 10000) / 100.0 + 1,
+                       CASE WHEN g %% 200 = 7 THEN 'PENDING' ELSE 'SUCCESS' END,
+                       :from + g * :step * interval '1 millisecond',
+                       g %% 200 = 7
+                FROM generate_series(1, :rows) AS g
+                """.formatted(walletExpression("g * 7"), walletExpression("g * 13 + 1"));
+        tx.executeWithoutResult(status -> entityManager.createNativeQuery(insert)
+                .setParameter("hot", HOT_WALLET.toString())
+                .setParameter("from", from)
+                .setParameter("step", stepMillis)
+                .setParameter("rows", ROWS_PER_MONTH)
+                .executeUpdate());
+        return true;
+    }
+
+    // live holds all point into the first month, as they would into the newest one
+    private void seedHolds(YearMonth month) {
+        String holds = """
+                INSERT INTO escrow_holds (transaction_id, transaction_initiated_at, release_at, created_at, funds_held)
+                SELECT t.id, t.initiated_at, t.initiated_at + interval '30 minutes', now(), true
+                FROM transactions_p%s t WHERE t.status = 'PENDING' LIMIT :holds
+                ON CONFLICT (transaction_id) DO NOTHING
+                """.formatted(month.format(SUFFIX));
+        tx.executeWithoutResult(status -> entityManager.createNativeQuery(holds)
+                .setParameter("holds", HOLDS)
+                .executeUpdate());
+    }
+
+    private long count(String sql) {
+        Long count = tx.execute(status -> ((Number) entityManager.createNativeQuery(sql)
+                .getSingleResult()).longValue());
+        return count == null ? 0 : count;
+    }
+
+    private static Instant startOf(YearMonth month) {
+        return month.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private static double time(Supplier<?> query) {
+        query.get();
+        long started = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            query.get();
+        }
+        return (System.nanoTime() - started) / 1e6 / RUNS;
+    }
+
+    private static String walletExpression(String seed) {
+        return "CAST(lpad(to_hex((" + seed + ") % 100000), 32, '0') AS uuid)";
+    }
+}
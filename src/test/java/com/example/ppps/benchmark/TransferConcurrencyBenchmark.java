@@ -0,0 +1,149 @@
+package com.example.ppps.benchmark;
+
+import com.example.ppps.controller.AuthenticationResponse;
+import com.example.ppps.controller.RegistrationRequest;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.repository.UserRepository;
+import com.example.ppps.repository.WalletRepository;
+import com.example.ppps.service.AuthenticationService;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Fires a burst of synchronous POST /api/v1/transfers at a running server and samples how many transfers are
+// in flight at once (ppps.transfer.active), peak heap and peak live threads. Every transfer spends ~1s in the
+// simulated gateway, so with platform threads the request pool is the ceiling; subclasses pin the thread
+// mode and a small server.tomcat.threads.max. The benchmark profile fixes the heap at 512m for both runs.
+// Run with: mvn test -Pbenchmark -Dtest='*ThreadTransferBenchmark'
+abstract class TransferConcurrencyBenchmark {
+
+    static final int REQUEST_THREADS = 50;
+    static final int CONCURRENT_REQUESTS = 400;
+    private static final int SENDERS = 40;
+    private static final String PIN = "1234";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AuthenticationService authenticationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    abstract String label();
+
+    abstract void assertConcurrency(Result result);
+
+    @Test
+    void concurrentTransfersInFlight() throws Exception {
+        String receiverPhone = register().phone;
+        List<Sender> senders = new ArrayList<>();
+        for (int i = 0; i < SENDERS; i++) {
+            senders.add(register());
+        }
+
+        LongTaskTimer active = meterRegistry.get("ppps.transfer.active").longTaskTimer();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        System.gc();
+        threads.resetPeakThreadCount();
+
+        AtomicLong peakActive = new AtomicLong();
+        AtomicLong peakHeap = new AtomicLong();
+        Thread sampler = Thread.ofPlatform().daemon().start(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                peakActive.accumulateAndGet(active.activeTasks(), Math::max);
+                peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+        long started = System.nanoTime();
+        int succeeded = 0;
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < CONCURRENT_REQUESTS; i++) {
+                Sender sender = senders.get(i % SENDERS);
+                responses.add(callers.submit(() -> client.send(transferRequest(sender, receiverPhone),
+                        HttpResponse.BodyHandlers.ofString())));
+            }
+            for (Future<HttpResponse<String>> response : responses) {
+                if (response.get().statusCode() == 200) {
+                    succeeded++;
+                }
+            }
+        } finally {
+            sampler.interrupt();
+            sampler.join();
+        }
+        double elapsedSeconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+        Result result = new Result(succeeded, peakActive.get(), peakHeap.get() / (1024 * 1024),
+                threads.getPeakThreadCount(), elapsedSeconds);
+        System.out.printf("%-16s ok=%d/%d  peak in-flight=%d  peak heap=%dMB  peak threads=%d  wall=%.1fs  (%.0f transfers/s)%n",
+                label(), result.succeeded, CONCURRENT_REQUESTS, result.peakInFlight, result.peakHeapMb,
+                result.peakThreads, result.elapsedSeconds, result.succeeded / result.elapsedSeconds);
+        assertConcurrency(result);
+    }
+
+    private HttpRequest transferRequest(Sender sender, String receiverPhone) {
+        String body = """
+                {"receiverPhoneNumber":"%s","amount":100,"securePin":"%s","narration":"load test"}"""
+                .formatted(receiverPhone, PIN);
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/transfers"))
+                .timeout(Duration.ofMinutes(2))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + sender.token)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private Sender register() {
+        RegistrationRequest request = new RegistrationRequest();
+        request.setPhoneNumber("+23480" + ThreadLocalRandom.current().nextLong(10_000_000L, 100_000_000L));
+        request.setPin(PIN);
+        AuthenticationResponse response = authenticationService.register(request);
+
+        Wallet wallet = userRepository.findById(response.getUserId()).orElseThrow().getWallet();
+        wallet.setBalance(new BigDecimal("1000000.00"));
+        walletRepository.save(wallet);
+        return new Sender(request.getPhoneNumber(), response.getToken());
+    }
+
+    private record Sender(String phone, String token) {
+    }
+
+    record Result(int succeeded, long peakInFlight, long peakHeapMb, int peakThreads, double elapsedSeconds) {
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.ppps.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Same burst with virtual threads: the request pool is no longer the ceiling, so more transfers sit in the
+// gateway call at once on the same heap.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.threads.virtual.enabled=true",
+        "server.tomcat.threads.max=" + TransferConcurrencyBenchmark.REQUEST_THREADS})
+@Tag("benchmark")
+class VirtualThreadTransferBenchmark extends TransferConcurrencyBenchmark {
+
+    @Override
+    String label() {
+        return "virtual threads";
+    }
+
+    @Override
+    void assertConcurrency(Result result) {
+        assertTrue(result.peakInFlight() > REQUEST_THREADS);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.ppps.config;
+
+import jakarta.persistence.EntityManager;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// db/migration on a database ddl-auto built before Flyway was introduced: plain tables, holding data. Flyway
+// baselines it at 0, as application.properties configures, and runs every migration over what is there.
+// Flyway runs on its own connections, so the test runs outside a transaction.
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class LegacySchemaMigrationTest {
+
+    private static final Instant INITIATED_AT = Instant.parse("2025-03-14T10:15:30Z");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void plainTablesAreAdoptedBackfilledAndLeftForThePartitionServices() {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        UUID transactionId = UUID.randomUUID();
+        UUID walletId = UUID.randomUUID();
+        jdbc.update("INSERT INTO transactions (id, sender_wallet_id, receiver_wallet_id, amount, status, initiated_at)"
+                        + " VALUES (?, ?, ?, 10.00, 'SUCCESS', ?)",
+                transactionId, walletId, UUID.randomUUID(), Timestamp.from(INITIATED_AT));
+        jdbc.update("INSERT INTO wallet_activity (id, wallet_id, transaction_id, direction, signed_amount,"
+                        + " balance_after, occurred_at) VALUES (?, ?, ?, 'SENT', -10.00, 90.00, ?)",
+                UUID.randomUUID(), walletId, transactionId, Timestamp.from(INITIATED_AT));
+
+        Flyway flyway = Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration")
+                .baselineOnMigrate(true)
+                .baselineVersion("0")
+                .load();
+        assertTrue(flyway.migrate().success);
+
+        assertEquals(0, flyway.info().pending().length);
+        // converted by LedgerPartitionService and AuditLogPartitionService on start, not by the migrations
+        assertEquals("r", jdbc.queryForObject("SELECT CAST(relkind AS text) FROM pg_class"
+                + " WHERE oid = to_regclass('transactions')", String.class));
+        assertEquals(INITIATED_AT, jdbc.queryForObject("SELECT transaction_initiated_at FROM wallet_activity"
+                + " WHERE transaction_id = ?", Timestamp.class, transactionId).toInstant());
+
+        SchemaDriftCheck schemaDriftCheck = new SchemaDriftCheck(true);
+        ReflectionTestUtils.setField(schemaDriftCheck, "entityManager", entityManager);
+        assertDoesNotThrow(schemaDriftCheck::afterSingletonsInstantiated);
+    }
+}
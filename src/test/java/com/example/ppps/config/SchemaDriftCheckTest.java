@@ -0,0 +1,64 @@
+package com.example.ppps.config;
+
+import jakarta.persistence.EntityManager;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// db/migration on an empty Postgres. The context only starts once every migration has applied, Hibernate
+// has validated the entities against the result and the drift check has passed on it.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(SchemaDriftCheck.class)
+@Testcontainers(disabledWithoutDocker = true)
+class SchemaDriftCheckTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private Flyway flyway;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private SchemaDriftCheck schemaDriftCheck;
+
+    @Test
+    void emptyDatabaseMigratesToPartitionedLedgerTables() {
+        assertEquals(0, flyway.info().pending().length);
+        assertEquals("p", relkind("transactions"));
+        assertEquals("p", relkind("ledger_entries"));
+        assertEquals("p", relkind("audit_log"));
+        assertDoesNotThrow(schemaDriftCheck::afterSingletonsInstantiated);
+    }
+
+    // DDL is transactional in Postgres: the index comes back when the test's transaction rolls back
+    @Test
+    void failsStartupWhenAnExpectedIndexIsMissing() {
+        entityManager.createNativeQuery("DROP INDEX idx_outbox_due_next_attempt_at").executeUpdate();
+
+        IllegalStateException drift = assertThrows(IllegalStateException.class,
+                schemaDriftCheck::afterSingletonsInstantiated);
+        assertTrue(drift.getMessage().contains("outbox_events.idx_outbox_due_next_attempt_at"), drift.getMessage());
+        assertFalse(drift.getMessage().contains("idx_outbox_sent_at_created_at"), drift.getMessage());
+    }
+
+    private String relkind(String table) {
+        return (String) entityManager.createNativeQuery("SELECT CAST(relkind AS text) FROM pg_class"
+                        + " WHERE oid = to_regclass(:table)")
+                .setParameter("table", table)
+                .getSingleResult();
+    }
+}
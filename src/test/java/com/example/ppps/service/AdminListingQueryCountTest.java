@@ -0,0 +1,118 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.AdminPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Statements per admin listing page, on a Postgres migrated by db/migration: one projection query, plus at
+// most one batched owner lookup, at any page size. AdminListingQueryCountBenchmark walks the same pages over
+// a much larger table and reports latency.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({AdminViewService.class, WalletOwnerDirectory.class})
+@Testcontainers(disabledWithoutDocker = true)
+class AdminListingQueryCountTest {
+
+    private static final int USERS = 150;
+    private static final int TRANSACTIONS = 600;
+    private static final int PAGES = 3;
+    private static final int[] PAGE_SIZES = {10, 50};
+    private static final long MAX_STATEMENTS_PER_PAGE = 2;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private AdminViewService adminViewService;
+
+    // only consulted for fee shards and the platform balance roll-up; no seeded wallet is the platform's
+    @MockitoBean
+    private PlatformWalletService platformWalletService;
+
+    @BeforeEach
+    void seed() {
+        entityManager.createNativeQuery("""
+                        INSERT INTO wallets (id, user_id, balance, currency, created_at, updated_at)
+                        SELECT CAST(lpad(to_hex(g), 32, 'a') AS uuid), CAST(lpad(to_hex(g), 32, 'b') AS uuid),
+                               (g % 1000) * 10, 'NGN', now() - g * interval '1 minute', now()
+                        FROM generate_series(1, :users) AS g
+                        """)
+                .setParameter("users", USERS)
+                .executeUpdate();
+        entityManager.createNativeQuery("""
+                        INSERT INTO users (user_id, phone_number, hashed_pin, role, wallet_id)
+                        SELECT CAST(CAST(lpad(to_hex(g), 32, 'b') AS uuid) AS varchar), '+999' || lpad(CAST(g AS text), 9, '0'),
+                               'x', 'USER', CAST(lpad(to_hex(g), 32, 'a') AS uuid)
+                        FROM generate_series(1, :users) AS g
+                        """)
+                .setParameter("users", USERS)
+                .executeUpdate();
+        entityManager.createNativeQuery("""
+                        INSERT INTO transactions (id, sender_wallet_id, receiver_wallet_id, amount, status, initiated_at)
+                        SELECT CAST(lpad(to_hex(g), 32, 'c') AS uuid),
+                               CAST(lpad(to_hex(g % :users + 1), 32, 'a') AS uuid),
+                               CAST(lpad(to_hex((g + 7) % :users + 1), 32, 'a') AS uuid),
+                               (g % 500) + 1, CASE WHEN g % 4 = 0 THEN 'PENDING' ELSE 'SUCCESS' END,
+                               now() - g * interval '1 second'
+                        FROM generate_series(1, :transactions) AS g
+                        """)
+                .setParameter("users", USERS)
+                .setParameter("transactions", TRANSACTIONS)
+                .executeUpdate();
+    }
+
+    @Test
+    void everyPageCostsAConstantNumberOfStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        for (int pageSize : PAGE_SIZES) {
+            assertConstant("users", pageSize, statistics,
+                    token -> adminViewService.users(null, "+999", null, null, token, pageSize));
+            assertConstant("wallets", pageSize, statistics,
+                    token -> adminViewService.wallets(null, null, null, "balance", null, token, pageSize));
+            assertConstant("transactions", pageSize, statistics,
+                    token -> adminViewService.transactions(null, null, null, null, null, null, token, pageSize));
+            assertConstant("withdrawals", pageSize, statistics,
+                    token -> adminViewService.transactions("PENDING", null, null, null, "amount", "asc", token, pageSize));
+        }
+    }
+
+    private void assertConstant(String listing, int pageSize, Statistics statistics,
+                                Function<String, AdminPage<?>> fetch) {
+        String token = null;
+        for (int i = 0; i < PAGES; i++) {
+            statistics.clear();
+            AdminPage<?> page = fetch.apply(token);
+            long statements = statistics.getPrepareStatementCount();
+            assertEquals(pageSize, page.items().size(), listing + " page " + i + " came back short");
+            assertTrue(statements <= MAX_STATEMENTS_PER_PAGE,
+                    listing + " used " + statements + " statements for page " + i + " of " + pageSize);
+            token = page.nextPageToken();
+        }
+    }
+}
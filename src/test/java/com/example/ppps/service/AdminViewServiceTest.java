@@ -0,0 +1,137 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.AdminPage;
+import com.example.ppps.dto.AdminPageRequest;
+import com.example.ppps.dto.AdminTransactionView;
+import com.example.ppps.dto.AdminWalletView;
+import com.example.ppps.dto.WalletOwner;
+import com.example.ppps.enums.AdminSort;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class AdminViewServiceTest {
+
+    @Mock private UserRepository userRepository;
+    @Mock private PlatformWalletService platformWalletService;
+
+    private AdminViewService adminViewService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        WalletOwnerDirectory directory = new WalletOwnerDirectory(userRepository, new SimpleMeterRegistry(),
+                Duration.ofMinutes(10), 100);
+        adminViewService = new AdminViewService(userRepository, platformWalletService, directory);
+        when(platformWalletService.getShardWalletIds()).thenReturn(List.of());
+    }
+
+    @Test
+    void transactions_nextTokenResumesAfterLastRow() {
+        AdminTransactionView first = transaction(Instant.parse("2025-03-02T10:00:00Z"));
+        AdminTransactionView second = transaction(Instant.parse("2025-03-01T10:00:00Z"));
+        AdminTransactionView extra = transaction(Instant.parse("2025-02-28T10:00:00Z"));
+        when(userRepository.findTransactionPage(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(first, second, extra))
+                .thenReturn(List.of());
+
+        AdminPage<AdminTransactionView> page = adminViewService.transactions(
+                "pending", null, null, null, null, null, null, 2);
+        assertEquals(2, page.items().size());
+        assertNotNull(page.nextPageToken());
+
+        adminViewService.transactions("pending", null, null, null, null, null, page.nextPageToken(), 2);
+
+        ArgumentCaptor<AdminPageRequest> requests = ArgumentCaptor.forClass(AdminPageRequest.class);
+        verify(userRepository, times(2)).findTransactionPage(eq(TransactionStatus.PENDING), isNull(), isNull(),
+                isNull(), requests.capture());
+        AdminPageRequest resumed = requests.getAllValues().get(1);
+        assertEquals(AdminSort.CREATED_AT, resumed.sort());
+        assertTrue(resumed.descending());
+        assertEquals(second.createdAt(), resumed.afterValue());
+        assertEquals(second.id().toString(), resumed.afterId());
+        assertEquals(3, resumed.limit());
+    }
+
+    @Test
+    void transactions_resolvesReceiverPhonesWithOneBatchedLookupAndCachesThem() {
+        AdminTransactionView first = transaction(Instant.now());
+        AdminTransactionView second = transaction(Instant.now());
+        when(userRepository.findTransactionPage(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(first, second));
+        when(userRepository.findOwnersByWalletIdIn(anyCollection()))
+                .thenReturn(List.of(new WalletOwner(first.receiverWalletId(), "user-1", "+2348000000001")));
+
+        AdminPage<AdminTransactionView> page = adminViewService.transactions(
+                null, null, null, null, null, null, null, null);
+        adminViewService.transactions(null, null, null, null, null, null, null, null);
+
+        assertEquals("+2348000000001", page.items().get(0).receiverPhone());
+        assertNull(page.items().get(1).receiverPhone());
+        // the unowned wallet is remembered as well, so the second page needs no lookup
+        verify(userRepository, times(1)).findOwnersByWalletIdIn(anyCollection());
+    }
+
+    @Test
+    void wallets_reportsAggregatedPlatformBalanceButPagesOnTheStoredOne() {
+        UUID platformWalletId = UUID.randomUUID();
+        AdminWalletView platform = new AdminWalletView(platformWalletId, UUID.randomUUID().toString(),
+                new BigDecimal("10.00"), "NGN", null, Instant.now());
+        AdminWalletView extra = new AdminWalletView(UUID.randomUUID(), UUID.randomUUID().toString(),
+                new BigDecimal("5.00"), "NGN", "+2348000000002", Instant.now());
+        when(userRepository.findWalletPage(any(), any(), any(), anyCollection(), any()))
+                .thenReturn(List.of(platform, extra))
+                .thenReturn(List.of());
+        when(platformWalletService.isPlatformWallet(platformWalletId)).thenReturn(true);
+        when(platformWalletService.aggregateBalance()).thenReturn(new BigDecimal("250.00"));
+
+        AdminPage<AdminWalletView> page = adminViewService.wallets(null, null, null, "balance", "desc", null, 1);
+        assertEquals(new BigDecimal("250.00"), page.items().get(0).balance());
+
+        adminViewService.wallets(null, null, null, "balance", "desc", page.nextPageToken(), 1);
+        ArgumentCaptor<AdminPageRequest> requests = ArgumentCaptor.forClass(AdminPageRequest.class);
+        verify(userRepository, times(2)).findWalletPage(any(), any(), any(), anyCollection(), requests.capture());
+        assertEquals(new BigDecimal("10.00"), requests.getAllValues().get(1).afterValue());
+    }
+
+    @Test
+    void rejectsTokenFromAnotherSortAndUnsupportedSorts() {
+        when(userRepository.findTransactionPage(any(), any(), any(), any(), any()))
+                .thenReturn(List.of(transaction(Instant.now()), transaction(Instant.now())));
+        String token = adminViewService.transactions(null, null, null, null, null, null, null, 1).nextPageToken();
+
+        PppsException mismatch = assertThrows(PppsException.class, () ->
+                adminViewService.transactions(null, null, null, null, "amount", null, token, 1));
+        assertEquals(HttpStatus.BAD_REQUEST, mismatch.getStatus());
+        assertThrows(PppsException.class, () -> adminViewService.wallets(null, null, null, "phone", null, null, null));
+        assertThrows(PppsException.class, () -> adminViewService.users(null, null, null, null, "garbage", null));
+        assertThrows(PppsException.class, () ->
+                adminViewService.transactions("settled", null, null, null, null, null, null, null));
+    }
+
+    private static AdminTransactionView transaction(Instant createdAt) {
+        return new AdminTransactionView(UUID.randomUUID(), "sender", "+2348000000000", UUID.randomUUID(),
+                UUID.randomUUID(), null, new BigDecimal("100.00"), BigDecimal.ZERO, TransactionStatus.PENDING,
+                createdAt);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.ppps.service;
+
+import com.example.ppps.controller.TransferRequest;
+import com.example.ppps.dto.TransferSubmission;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferSubmissionStatus;
+import com.example.ppps.exception.InsufficientFundsException;
+import com.example.ppps.exception.PppsException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AsyncTransferServiceTest {
+
+    @Mock
+    private TransferService transferService;
+    @Mock
+    private TransferIdempotencyStore idempotencyStore;
+    @Mock
+    private ThreadPoolTaskExecutor transferExecutor;
+
+    private AsyncTransferService asyncTransferService;
+    private TransferRequest request;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        asyncTransferService = new AsyncTransferService(transferService, idempotencyStore, transferExecutor);
+
+        request = new TransferRequest();
+        request.setReceiverPhoneNumber("+2348000000001");
+        request.setAmount(new BigDecimal("100.00"));
+        request.setSecurePin("1234");
+
+        when(idempotencyStore.claim(any())).thenReturn(Optional.empty());
+        // run submitted work inline so the outcome can be asserted
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return null;
+        }).when(transferExecutor).execute(any(Runnable.class));
+    }
+
+    @Test
+    void submit_runsTransferInBackgroundAndStoresResult() {
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setStatus(TransactionStatus.SUCCESS);
+        when(transferService.executeP2PTransfer(eq("user-1"), any(), any(), any(), any())).thenReturn(transaction);
+
+        AsyncTransferService.Submission result = asyncTransferService.submit("user-1", "key-1", request);
+
+        assertFalse(result.duplicate());
+        assertEquals(TransferSubmissionStatus.COMPLETED, result.submission().getStatus());
+        assertEquals(transaction.getId(), result.submission().getTransactionId());
+        verify(idempotencyStore, atLeast(2)).save(result.submission());
+    }
+
+    @Test
+    void submit_duplicateKeyReturnsStoredResultWithoutExecuting() {
+        TransferSubmission first = asyncTransferService.submit("user-1", "key-1", request).submission();
+        reset(transferService);
+        first.setStatus(TransferSubmissionStatus.COMPLETED);
+        when(idempotencyStore.claim(any())).thenReturn(Optional.of(first));
+
+        AsyncTransferService.Submission replay = asyncTransferService.submit("user-1", "key-1", request);
+
+        assertTrue(replay.duplicate());
+        assertSame(first, replay.submission());
+        verifyNoInteractions(transferService);
+    }
+
+    @Test
+    void submit_sameKeyDifferentRequestIsRejected() {
+        TransferSubmission first = asyncTransferService.submit("user-1", "key-1", request).submission();
+        when(idempotencyStore.claim(any())).thenReturn(Optional.of(first));
+
+        TransferRequest other = new TransferRequest();
+        other.setReceiverPhoneNumber(request.getReceiverPhoneNumber());
+        other.setAmount(new BigDecimal("999.00"));
+
+        PppsException ex = assertThrows(PppsException.class,
+                () -> asyncTransferService.submit("user-1", "key-1", other));
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ex.getStatus());
+    }
+
+    @Test
+    void submit_failedTransferIsStoredAsFailed() {
+        when(transferService.executeP2PTransfer(any(), any(), any(), any(), any()))
+                .thenThrow(new InsufficientFundsException("Insufficient funds"));
+
+        TransferSubmission submission = asyncTransferService.submit("user-1", "key-2", request).submission();
+
+        assertEquals(TransferSubmissionStatus.FAILED, submission.getStatus());
+        assertEquals(400, submission.getErrorStatus());
+        assertTrue(asyncTransferService.awaitCompletion(submission).isDone());
+    }
+
+    @Test
+    void submit_saturatedExecutorReleasesKey() {
+        doThrow(new TaskRejectedException("full")).when(transferExecutor).execute(any(Runnable.class));
+
+        PppsException ex = assertThrows(PppsException.class,
+                () -> asyncTransferService.submit("user-1", "key-3", request));
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ex.getStatus());
+        ArgumentCaptor<TransferSubmission> released = ArgumentCaptor.forClass(TransferSubmission.class);
+        verify(idempotencyStore).release(released.capture());
+        assertEquals("key-3", released.getValue().getIdempotencyKey());
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.ppps.service;
+
+import com.example.ppps.repository.AuditLogRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class AuditLogPartitionServiceTest {
+
+    private static final YearMonth NOW = YearMonth.of(2025, 3);
+
+    @Mock private AuditLogRepository auditLogRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private AuditLogPartitionService partitionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        partitionService = new AuditLogPartitionService(auditLogRepository, transactionManager, 2, 12, true);
+        when(auditLogRepository.tryMaintenanceLock()).thenReturn(true);
+    }
+
+    @Test
+    void maintain_convertsPlainTableAndKeepsCurrentMonthInLegacyPartition() {
+        when(auditLogRepository.isPartitioned()).thenReturn(false);
+
+        partitionService.maintain(NOW);
+
+        verify(auditLogRepository).convertToPartitioned("audit_log_legacy_until_202504",
+                Instant.parse("2025-04-01T00:00:00Z"));
+        verify(auditLogRepository, never()).createPartition(eq("audit_log_p202503"), any(), any());
+        verify(auditLogRepository).createPartition("audit_log_p202504",
+                Instant.parse("2025-04-01T00:00:00Z"), Instant.parse("2025-05-01T00:00:00Z"));
+        verify(auditLogRepository).createPartition("audit_log_p202505",
+                Instant.parse("2025-05-01T00:00:00Z"), Instant.parse("2025-06-01T00:00:00Z"));
+    }
+
+    @Test
+    void maintain_createsCurrentAndUpcomingMonths() {
+        when(auditLogRepository.isPartitioned()).thenReturn(true);
+
+        partitionService.maintain(NOW);
+
+        verify(auditLogRepository, never()).convertToPartitioned(anyString(), any());
+        verify(auditLogRepository).createPartition("audit_log_p202503",
+                Instant.parse("2025-03-01T00:00:00Z"), Instant.parse("2025-04-01T00:00:00Z"));
+        verify(auditLogRepository, times(3)).createPartition(anyString(), any(), any());
+    }
+
+    @Test
+    void maintain_archivesOnlyPartitionsWhollyPastRetention() {
+        when(auditLogRepository.isPartitioned()).thenReturn(true);
+        when(auditLogRepository.partitionNames()).thenReturn(List.of(
+                "audit_log_default",
+                "audit_log_legacy_until_202401",
+                "audit_log_p202402",
+                "audit_log_p202403",
+                "audit_log_p202503"));
+
+        partitionService.maintain(NOW);
+
+        verify(auditLogRepository).archivePartition("audit_log_legacy_until_202401", "audit_log_archive_legacy_until_202401");
+        verify(auditLogRepository).archivePartition("audit_log_p202402", "audit_log_archive_p202402");
+        verify(auditLogRepository, never()).archivePartition(eq("audit_log_p202403"), anyString());
+        verify(auditLogRepository, never()).archivePartition(eq("audit_log_default"), anyString());
+        verify(auditLogRepository, never()).dropPartition(anyString());
+    }
+
+    @Test
+    void maintain_dropsInsteadOfArchivingWhenArchiveIsOff() {
+        partitionService = new AuditLogPartitionService(auditLogRepository, transactionManager, 2, 12, false);
+        when(auditLogRepository.isPartitioned()).thenReturn(true);
+        when(auditLogRepository.partitionNames()).thenReturn(List.of("audit_log_p202401"));
+
+        partitionService.maintain(NOW);
+
+        verify(auditLogRepository).dropPartition("audit_log_p202401");
+        verify(auditLogRepository, never()).archivePartition(anyString(), anyString());
+    }
+
+    @Test
+    void maintain_backsOffWhileAnotherNodeHoldsTheLock() {
+        when(auditLogRepository.tryMaintenanceLock()).thenReturn(false);
+
+        partitionService.maintain(NOW);
+
+        verify(auditLogRepository, never()).isPartitioned();
+        verify(auditLogRepository, never()).createPartition(anyString(), any(), any());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.AdminPage;
+import com.example.ppps.dto.AuditLogEntry;
+import com.example.ppps.dto.AuditLogFilter;
+import com.example.ppps.entity.AuditLog;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.AuditLogRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AuditLogServiceTest {
+
+    @Mock private AuditLogRepository auditLogRepository;
+    @Mock private AuditLogWriter auditLogWriter;
+
+    private AuditLogService auditLogService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        auditLogService = new AuditLogService(auditLogRepository, auditLogWriter);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void recordAction_queuesForTheWriterAndCriticalActionsSaveInline() {
+        auditLogService.recordAction("SYSTEM", "DEPOSIT_FUNDS", "Wallet", "w-1", "Deposited ₦%s", new BigDecimal("10.00"));
+        auditLogService.recordCriticalAction("admin-1", "WITHDRAWAL_OVERRIDE", "Transaction", "t-1", "FAILED -> SUCCESS");
+
+        verify(auditLogWriter).submit(any(AuditLog.class), eq("Deposited ₦%s"), eq(new BigDecimal("10.00")));
+        verify(auditLogRepository).save(any(AuditLog.class));
+        verify(auditLogWriter, never()).submit(argThat(log -> "WITHDRAWAL_OVERRIDE".equals(log.getAction())));
+    }
+
+    @Test
+    void recordAction_insideATransactionWaitsForTheCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        auditLogService.recordAction("admin-1", "WALLET_FROZEN", "Wallet", "w-1", "frozen");
+        verifyNoInteractions(auditLogWriter);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(auditLogWriter).submit(argThat(log -> "WALLET_FROZEN".equals(log.getAction())));
+    }
+
+    @Test
+    void recordAction_isNeverQueuedWhenTheTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        auditLogService.recordAction("SYSTEM", "DEPOSIT_FUNDS", "Wallet", "w-1", "Deposited ₦%s", new BigDecimal("10.00"));
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync ->
+                sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        verifyNoInteractions(auditLogWriter);
+    }
+
+    @Test
+    void search_returnsTokenThatResumesAfterLastEntry() {
+        AuditLogFilter filter = new AuditLogFilter("SYSTEM", null, "Wallet", null, null, null);
+        AuditLogEntry newest = entry(Instant.parse("2025-03-02T10:00:00Z"));
+        AuditLogEntry older = entry(Instant.parse("2025-03-01T10:00:00Z"));
+        AuditLogEntry extra = entry(Instant.parse("2025-02-28T10:00:00Z"));
+        when(auditLogRepository.search(eq(filter), isNull(), isNull(), eq(3))).thenReturn(List.of(newest, older, extra));
+
+        AdminPage<AuditLogEntry> page = auditLogService.search(filter, null, 2);
+        assertEquals(List.of(newest, older), page.items());
+
+        auditLogService.search(filter, page.nextPageToken(), 2);
+        verify(auditLogRepository).search(filter, older.timestamp(), older.id(), 3);
+    }
+
+    @Test
+    void search_lastPageHasNoToken() {
+        when(auditLogRepository.search(any(), any(), any(), anyInt())).thenReturn(List.of(entry(Instant.now())));
+
+        assertNull(auditLogService.search(new AuditLogFilter(null, null, null, null, null, null), null, 10)
+                .nextPageToken());
+    }
+
+    @Test
+    void search_rejectsBadTokensAndEmptyRanges() {
+        AuditLogFilter all = new AuditLogFilter(null, null, null, null, null, null);
+        PppsException badToken = assertThrows(PppsException.class, () -> auditLogService.search(all, "not-a-token", 10));
+        assertEquals(HttpStatus.BAD_REQUEST, badToken.getStatus());
+
+        Instant now = Instant.now();
+        AuditLogFilter backwards = new AuditLogFilter(null, null, null, null, now, now.minusSeconds(1));
+        assertThrows(PppsException.class, () -> auditLogService.search(backwards, null, 10));
+    }
+
+    private static AuditLogEntry entry(Instant timestamp) {
+        return new AuditLogEntry(UUID.randomUUID(), timestamp, "SYSTEM", "DEPOSIT_FUNDS", "Wallet",
+                UUID.randomUUID().toString(), "Deposited");
+    }
+}
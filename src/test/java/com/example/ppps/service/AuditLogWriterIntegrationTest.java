@@ -0,0 +1,119 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.AuditLog;
+import com.example.ppps.enums.AuditOverflowPolicy;
+import com.example.ppps.repository.AuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+// A record that overflows the buffer is written on the caller's thread from afterCommit, while the caller's
+// committed transaction is still bound to it. The row has to reach the database all the same.
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers(disabledWithoutDocker = true)
+class AuditLogWriterIntegrationTest {
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private AuditLogRepository auditLogRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @TempDir
+    Path spoolDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private AuditLogWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void overflowWrittenOnTheCallerFromAfterCommitIsStored() throws Exception {
+        // the writer's first insert waits until released, so a one-record buffer fills behind it
+        AuditLogRepository blocking = mock(AuditLogRepository.class, delegatesTo(auditLogRepository));
+        doAnswer(invocation -> {
+            writing.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS), "insert was never released");
+            return auditLogRepository.insertBatch(invocation.<Collection<AuditLog>>getArgument(0));
+        }).when(blocking).insertBatch(anyCollection());
+        writer = new AuditLogWriter(blocking, transactionManager, new ObjectMapper().findAndRegisterModules(),
+                meterRegistry, 1, AuditOverflowPolicy.CALLER_WRITES, Duration.ofMillis(10), 1,
+                Duration.ofMillis(20), Duration.ofSeconds(5), false, spoolDir.toString());
+        AuditLogService auditLogService = new AuditLogService(auditLogRepository, writer);
+
+        writer.submit(record("FIRST"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writer.submit(record("BUFFERED"));
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                auditLogService.recordAction("user-1", "OVERFLOW", "Wallet", "w-1", "written on the caller"));
+
+        assertEquals(1.0, meterRegistry.get("ppps.audit.caller_writes").tag("reason", "overflow")
+                .counter().count());
+        assertEquals(1, count("OVERFLOW"));
+
+        release.countDown();
+        writer.shutdown();
+        assertEquals(1, count("FIRST"));
+        assertEquals(1, count("BUFFERED"));
+    }
+
+    private long count(String action) {
+        return ((Number) entityManager.createNativeQuery("SELECT count(*) FROM audit_log WHERE action = :action")
+                .setParameter("action", action)
+                .getSingleResult()).longValue();
+    }
+
+    private static AuditLog record(String action) {
+        return AuditLog.builder()
+                .actorId("SYSTEM")
+                .action(action)
+                .entityName("Wallet")
+                .entityId("w-1")
+                .timestamp(Instant.now())
+                .build();
+    }
+}
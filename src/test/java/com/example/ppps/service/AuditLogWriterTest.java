@@ -0,0 +1,166 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.AuditLog;
+import com.example.ppps.enums.AuditOverflowPolicy;
+import com.example.ppps.repository.AuditLogRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class AuditLogWriterTest {
+
+    @Mock private AuditLogRepository auditLogRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    @TempDir Path spoolDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<List<AuditLog>> batches = new ArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private AuditLogWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(auditLogRepository.insertBatch(anyCollection())).thenAnswer(invocation -> {
+            Collection<AuditLog> rows = invocation.getArgument(0);
+            synchronized (batches) {
+                batches.add(List.copyOf(rows));
+            }
+            return rows.size();
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) {
+            writer.shutdown();
+        }
+    }
+
+    @Test
+    void buffered_writesInBatchesAndDrainsOnShutdown() {
+        writer = writer(100, AuditOverflowPolicy.DROP, 3, false);
+
+        for (int i = 0; i < 7; i++) {
+            writer.submit(record("DEPOSIT_FUNDS"), "Deposited ₦%s", i);
+        }
+        writer.shutdown();
+
+        List<AuditLog> written = batches.stream().flatMap(List::stream).toList();
+        assertEquals(7, written.size());
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 3));
+        assertEquals("Deposited ₦6", written.get(6).getDetails());
+        assertTrue(written.stream().allMatch(row -> row.getId() != null));
+        assertEquals(7.0, meterRegistry.get("ppps.audit.written").counter().count());
+    }
+
+    @Test
+    void buffered_dropsAndCountsWhenFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockFirstInsert(writing, release);
+        writer = writer(1, AuditOverflowPolicy.DROP, 1, false);
+
+        writer.submit(record("A"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writer.submit(record("B"));
+        writer.submit(record("C"));
+        // shutting down while the first insert is still running lets it finish, then drains B
+        CompletableFuture<Void> stopped = CompletableFuture.runAsync(writer::shutdown);
+        release.countDown();
+        stopped.get(5, TimeUnit.SECONDS);
+
+        assertEquals(1.0, meterRegistry.get("ppps.audit.dropped").tag("reason", "overflow").counter().count());
+        assertEquals(1.0, meterRegistry.get("ppps.audit.overflow").tag("policy", "DROP").counter().count());
+        verify(auditLogRepository, times(2)).insertBatch(anyCollection());
+    }
+
+    @Test
+    void buffered_callerWritesWhenFull() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        blockFirstInsert(writing, release);
+        writer = writer(1, AuditOverflowPolicy.CALLER_WRITES, 1, false);
+
+        writer.submit(record("A"));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        writer.submit(record("B"));
+        writer.submit(record("C"));
+
+        verify(auditLogRepository).save(argThat(row -> "C".equals(row.getAction()) && row.getId() == null));
+        // not in whatever transaction the caller has bound, which may already have committed
+        verify(transactionManager).getTransaction(argThat(definition ->
+                definition.getPropagationBehavior() == TransactionDefinition.PROPAGATION_REQUIRES_NEW));
+        release.countDown();
+    }
+
+    @Test
+    void strict_spoolsToDiskAndReplaysLeftoversOnStart() throws Exception {
+        // a previous run that died with one record forced to disk but never written
+        AuditSpool crashed = new AuditSpool(spoolDir, objectMapper);
+        AuditLog orphan = record("ORPHAN");
+        orphan.setId(UUID.randomUUID());
+        crashed.append(orphan);
+
+        writer = writer(100, AuditOverflowPolicy.DROP, 10, true);
+        writer.submit(record("NEW"));
+        writer.shutdown();
+
+        List<String> actions = batches.stream().flatMap(List::stream).map(AuditLog::getAction).toList();
+        assertTrue(actions.containsAll(List.of("ORPHAN", "NEW")));
+        try (var files = Files.list(spoolDir)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    // holds the writer inside its first insert until released; counted like any other write, so a batch
+    // inserted twice shows up in the verify
+    private void blockFirstInsert(CountDownLatch writing, CountDownLatch release) {
+        when(auditLogRepository.insertBatch(anyCollection())).thenAnswer(invocation -> {
+            writing.countDown();
+            assertTrue(release.await(5, TimeUnit.SECONDS), "insert was never released");
+            return ((Collection<?>) invocation.getArgument(0)).size();
+        });
+    }
+
+    private AuditLogWriter writer(int capacity, AuditOverflowPolicy policy, int batchSize, boolean strict) {
+        return new AuditLogWriter(auditLogRepository, transactionManager, objectMapper, meterRegistry,
+                capacity, policy, Duration.ofMillis(10), batchSize, Duration.ofMillis(20), Duration.ofSeconds(5),
+                strict, spoolDir.toString());
+    }
+
+    private static AuditLog record(String action) {
+        return AuditLog.builder()
+                .actorId("SYSTEM")
+                .action(action)
+                .entityName("Wallet")
+                .entityId("w-1")
+                .timestamp(Instant.now())
+                .build();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.CachedBalance;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class BalanceCacheTest {
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private ValueOperations<String, String> valueOperations;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final UUID walletId = UUID.randomUUID();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Function<UUID, CachedBalance> loader = id -> {
+        loads.incrementAndGet();
+        return new CachedBalance(id, new BigDecimal("500.00"), new BigDecimal("100.00"), "NGN", 0, Instant.now());
+    };
+    private SimpleMeterRegistry meterRegistry;
+    private BalanceCache balanceCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        balanceCache = new BalanceCache(redisTemplate, objectMapper, meterRegistry,
+                Duration.ofMinutes(1), 1000, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void get_readsThroughBothTiersOnceThenServesLocally() {
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList(null, "3"));
+
+        CachedBalance first = balanceCache.get(walletId, loader);
+        CachedBalance second = balanceCache.get(walletId, loader);
+
+        assertEquals(new BigDecimal("400.00"), first.available());
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        // stored in Redis under the generation seen before the database read
+        verify(valueOperations).set(eq("ppps:balance:" + walletId), contains("\"generation\":3"), any(Duration.class));
+        assertEquals(0.5, meterRegistry.get("ppps.balance.cache.hit.ratio").gauge().value());
+    }
+
+    @Test
+    void get_servesRedisOnlyWhileItsGenerationIsCurrent() throws Exception {
+        CachedBalance shared = new CachedBalance(walletId, new BigDecimal("900.00"), BigDecimal.ZERO, "NGN", 4,
+                Instant.now());
+        String json = objectMapper.writeValueAsString(shared);
+
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList(json, "4"));
+        assertEquals(new BigDecimal("900.00"), balanceCache.get(walletId, loader).balance());
+        assertEquals(0, loads.get());
+
+        // an invalidation since it was written: the copy is older than the last commit
+        UUID other = UUID.randomUUID();
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList(json.replace(walletId.toString(),
+                other.toString()), "5"));
+        assertEquals(new BigDecimal("500.00"), balanceCache.get(other, loader).balance());
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("ppps.balance.cache.requests").tag("answered_by", "redis").counter().count());
+    }
+
+    @Test
+    void evict_dropsTheLocalCopyAndInvalidatesRedisInOneScript() {
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList(null, null));
+        UUID receiverId = UUID.randomUUID();
+        balanceCache.get(walletId, loader);
+
+        // no transaction here, so the eviction runs straight away
+        balanceCache.evictAfterCommit(walletId, receiverId, null);
+        balanceCache.get(walletId, loader);
+
+        assertEquals(2, loads.get());
+        verify(redisTemplate).execute(any(RedisScript.class),
+                eq(List.of("ppps:balance:" + walletId, "ppps:balance:generation:" + walletId,
+                        "ppps:balance:" + receiverId, "ppps:balance:generation:" + receiverId)),
+                any(), eq(BalanceCache.CHANNEL), startsWith(walletId + "," + receiverId + "|"));
+    }
+
+    @Test
+    void onMessage_fromAnotherNodeDropsTheLocalCopy() {
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList(null, null));
+        balanceCache.get(walletId, loader);
+
+        String body = UUID.randomUUID() + "," + walletId + "|other-node|" + System.currentTimeMillis();
+        balanceCache.onMessage(new DefaultMessage(BalanceCache.CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8)), null);
+        balanceCache.get(walletId, loader);
+
+        assertEquals(2, loads.get());
+        assertEquals(1, meterRegistry.get("ppps.balance.cache.invalidation.lag").timer().count());
+    }
+
+    @Test
+    void get_fallsBackToTheDatabaseWhenRedisIsDown() {
+        when(valueOperations.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+
+        CachedBalance balance = balanceCache.get(walletId, loader);
+
+        assertEquals(new BigDecimal("500.00"), balance.balance());
+        verify(valueOperations, never()).set(anyString(), anyString(), any(Duration.class));
+        assertEquals(1.0, meterRegistry.get("ppps.balance.cache.redis.errors").counter().count());
+    }
+}
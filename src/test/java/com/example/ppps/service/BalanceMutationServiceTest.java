@@ -0,0 +1,117 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.WalletBalance;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.BalanceUpdateStrategy;
+import com.example.ppps.exception.InsufficientFundsException;
+import com.example.ppps.exception.WalletNotFoundException;
+import com.example.ppps.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class BalanceMutationServiceTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private BalanceCache balanceCache;
+
+    private SimpleMeterRegistry meterRegistry;
+    private BalanceMutationService balanceMutationService;
+    private Wallet wallet;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        WalletLockService walletLockService = new WalletLockService(walletRepository, meterRegistry, Duration.ofMillis(20));
+        balanceMutationService = new BalanceMutationService(walletRepository, walletLockService, balanceCache, meterRegistry);
+
+        wallet = new Wallet();
+        wallet.setId(UUID.randomUUID());
+        wallet.setBalance(new BigDecimal("500.00"));
+        wallet.setHeldBalance(new BigDecimal("200.00"));
+        when(walletRepository.findAllByIdInWithLockOrderById(anyCollection())).thenReturn(List.of(wallet));
+        when(walletRepository.findById(wallet.getId())).thenReturn(Optional.of(wallet));
+    }
+
+    @Test
+    void conditionalDebit_isOneUpdateWithoutALock() {
+        when(walletRepository.reserveAvailable(wallet.getId(), new BigDecimal("100.00"), BigDecimal.ZERO))
+                .thenReturn(Optional.of(new WalletBalance(wallet.getId(), new BigDecimal("400.00"), new BigDecimal("200.00"))));
+
+        WalletBalance after = balanceMutationService.debit(
+                wallet.getId(), new BigDecimal("100.00"), BalanceUpdateStrategy.CONDITIONAL, "withdrawal");
+
+        assertEquals(new BigDecimal("400.00"), after.balance());
+        assertEquals(new BigDecimal("200.00"), after.available());
+        verify(walletRepository, never()).findAllByIdInWithLockOrderById(anyCollection());
+        verify(walletRepository, never()).save(any());
+        verify(balanceCache).evictAfterCommit(wallet.getId());
+        assertEquals(1, meterRegistry.get("ppps.wallet.balance.update")
+                .tag("strategy", "CONDITIONAL").tag("operation", "withdrawal").timer().count());
+    }
+
+    @Test
+    void conditionalDebit_reportsTheAvailableBalanceWhenNoRowMatched() {
+        when(walletRepository.reserveAvailable(any(), any(), any())).thenReturn(Optional.empty());
+
+        InsufficientFundsException exception = assertThrows(InsufficientFundsException.class, () ->
+                balanceMutationService.debit(wallet.getId(), new BigDecimal("350.00"),
+                        BalanceUpdateStrategy.CONDITIONAL, "withdrawal"));
+
+        verifyNoInteractions(balanceCache);
+        assertEquals("Insufficient funds. Required: 350.00, Available: 300.00", exception.getMessage());
+        assertEquals(1.0, meterRegistry.get("ppps.wallet.balance.insufficient")
+                .tag("operation", "withdrawal").counter().count());
+    }
+
+    @Test
+    void conditionalCredit_ofAMissingWalletThrows() {
+        when(walletRepository.credit(any(), any())).thenReturn(Optional.empty());
+
+        assertThrows(WalletNotFoundException.class, () -> balanceMutationService.credit(
+                UUID.randomUUID(), BigDecimal.TEN, BalanceUpdateStrategy.CONDITIONAL, "deposit"));
+    }
+
+    @Test
+    void lockedReserve_checksAvailableFundsUnderTheRowLock() {
+        WalletBalance after = balanceMutationService.reserve(wallet.getId(), new BigDecimal("10.00"),
+                new BigDecimal("290.00"), BalanceUpdateStrategy.LOCKED, "transfer-reserve");
+
+        assertEquals(new BigDecimal("490.00"), after.balance());
+        assertEquals(new BigDecimal("490.00"), after.heldBalance());
+        assertEquals(new BigDecimal("490.00"), wallet.getHeldBalance());
+        verify(walletRepository).save(wallet);
+        verify(walletRepository, never()).reserveAvailable(any(), any(), any());
+
+        // held funds are not available to the next debit
+        assertThrows(InsufficientFundsException.class, () -> balanceMutationService.debit(
+                wallet.getId(), new BigDecimal("0.01"), BalanceUpdateStrategy.LOCKED, "withdrawal"));
+        assertEquals(new BigDecimal("490.00"), wallet.getBalance());
+    }
+
+    @Test
+    void lockedCredit_addsToTheLockedRow() {
+        WalletBalance after = balanceMutationService.credit(
+                wallet.getId(), new BigDecimal("25.00"), BalanceUpdateStrategy.LOCKED, "deposit");
+
+        assertEquals(new BigDecimal("525.00"), after.balance());
+        assertEquals(new BigDecimal("525.00"), wallet.getBalance());
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.ppps.service;
 
 import com.example.ppps.controller.BalanceResponse;
+import com.example.ppps.dto.CachedBalance;
 import com.example.ppps.entity.Wallet;
 import com.example.ppps.repository.WalletRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,8 +13,10 @@ import org.mockito.MockitoAnnotations;
 import java.math.BigDecimal;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 
 class BalanceServiceTest {
@@ -21,12 +24,21 @@ class BalanceServiceTest {
     @Mock
     private WalletRepository walletRepository;
 
+    @Mock
+    private PlatformWalletService platformWalletService;
+
+    @Mock
+    private BalanceCache balanceCache;
+
     @InjectMocks
     private BalanceService balanceService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        // no cache in between: every read goes to the loader
+        when(balanceCache.get(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<UUID, CachedBalance>>getArgument(1).apply(invocation.getArgument(0)));
     }
 
     @Test
@@ -44,4 +56,21 @@ class BalanceServiceTest {
         assertEquals(BigDecimal.valueOf(1000.00), response.getBalance());
         assertEquals("NGN", response.getCurrency());
     }
+
+    @Test
+    void getBalance_platformWallet_includesFeeShards() {
+        UUID walletId = UUID.randomUUID();
+        Wallet wallet = new Wallet();
+        wallet.setId(walletId);
+        wallet.setBalance(BigDecimal.valueOf(100.00));
+        wallet.setCurrency("NGN");
+
+        when(walletRepository.findById(walletId)).thenReturn(Optional.of(wallet));
+        when(platformWalletService.isPlatformWallet(walletId)).thenReturn(true);
+        when(platformWalletService.aggregateBalance()).thenReturn(BigDecimal.valueOf(250.00));
+
+        BalanceResponse response = balanceService.getBalance(walletId);
+
+        assertEquals(BigDecimal.valueOf(250.00), response.getBalance());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,253 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.EscrowHold;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.repository.EscrowHoldRepository;
+import com.example.ppps.repository.LedgerEntryRepository;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletActivityRepository;
+import com.example.ppps.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EscrowReleaseWorkerTest {
+
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private EscrowHoldRepository escrowHoldRepository;
+    @Mock private WalletRepository walletRepository;
+    @Mock private LedgerEntryRepository ledgerEntryRepository;
+    @Mock private WalletActivityRepository walletActivityRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private BalanceCache balanceCache;
+
+    private final Map<UUID, Wallet> wallets = new HashMap<>();
+    private final Map<UUID, EscrowHold> holds = new HashMap<>();
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private EscrowTimerWheel timerWheel;
+    private SimpleMeterRegistry meterRegistry;
+    private EscrowReleaseWorker worker;
+    private Wallet sender;
+    private Wallet receiver;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        WalletLockService walletLockService = new WalletLockService(walletRepository, meterRegistry, Duration.ofMillis(20));
+        timerWheel = new EscrowTimerWheel(1000, 8, 3, clock::get);
+        EscrowService escrowService = new EscrowService(transactionRepository, escrowHoldRepository, walletRepository,
+                new LedgerService(ledgerEntryRepository, walletActivityRepository, transactionRepository), walletLockService, timerWheel,
+                balanceCache, "50000.00=30m", Duration.ofMinutes(1), Duration.ofHours(1));
+        worker = new EscrowReleaseWorker(transactionRepository, escrowHoldRepository, escrowService, timerWheel,
+                transactionManager, meterRegistry, 2, 1);
+
+        sender = wallet("200000.00");
+        receiver = wallet("0.00");
+        when(walletRepository.findAllByIdInWithLockOrderById(anyCollection())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return ids.stream().map(wallets::get).filter(Objects::nonNull).toList();
+        });
+        when(escrowHoldRepository.findAllById(any())).thenAnswer(invocation -> {
+            Iterable<UUID> ids = invocation.getArgument(0);
+            List<EscrowHold> found = new ArrayList<>();
+            ids.forEach(id -> found.add(holds.get(id)));
+            return found;
+        });
+    }
+
+    @Test
+    void sweep_releasesChunkByChunkAndLocksEachChunkOnce() {
+        Transaction first = hold("60000.00");
+        Transaction second = hold("70000.00");
+        Transaction third = hold("50000.00");
+        when(escrowHoldRepository.countByReleaseAtLessThanEqual(any())).thenReturn(3L, 0L);
+        when(transactionRepository.claimReleasableEscrow(any(), eq(2)))
+                .thenReturn(List.of(first, second), List.of(third));
+
+        worker.sweep();
+
+        assertEquals(new BigDecimal("20000.00"), sender.getBalance());
+        assertEquals(new BigDecimal("0.00"), sender.getHeldBalance());
+        assertEquals(new BigDecimal("180000.00"), receiver.getBalance());
+        assertEquals(TransactionStatus.SUCCESS, third.getStatus());
+        // one ordered wallet lock per chunk, not per hold
+        verify(walletRepository, times(2)).findAllByIdInWithLockOrderById(anyCollection());
+        // the short second chunk ends the drain without a third claim
+        verify(transactionRepository, times(2)).claimReleasableEscrow(any(), anyInt());
+        assertEquals(3.0, meterRegistry.get("ppps.escrow.released").counter().count());
+        assertEquals(3L, meterRegistry.get("ppps.escrow.release.latency").timer().count());
+        assertEquals(0.0, meterRegistry.get("ppps.escrow.backlog").gauge().value());
+        // released holds leave the table in the same transaction
+        verify(escrowHoldRepository, times(2)).deleteAllInBatch(any());
+    }
+
+    @Test
+    void releaseFired_claimsOnlyWhatTheWheelFired() {
+        Transaction early = hold("60000.00");
+        Transaction late = hold("60000.00");
+        Instant now = Instant.ofEpochMilli(clock.get());
+        timerWheel.schedule(early.getId(), now.plusSeconds(5));
+        timerWheel.schedule(late.getId(), now.plusSeconds(90));
+
+        worker.releaseFired();
+        verifyNoInteractions(transactionRepository);
+
+        clock.addAndGet(5_000);
+        when(transactionRepository.claimReleasableEscrowIn(eq(List.of(early.getId())), any()))
+                .thenReturn(List.of(early));
+        worker.releaseFired();
+
+        assertEquals(TransactionStatus.SUCCESS, early.getStatus());
+        assertEquals(TransactionStatus.PENDING, late.getStatus());
+        assertEquals(1, timerWheel.scheduled());
+        assertEquals(1.0, meterRegistry.get("ppps.escrow.released").counter().count());
+    }
+
+    @Test
+    void drain_pushesBackAFullChunkOfUnreleasableHoldsAndReleasesTheHoldsBehindIt() {
+        Instant now = Instant.now();
+        // the earliest due holds point at wallets that no longer exist: a full chunk at the head of the claim
+        Transaction orphan = hold("60000.00");
+        orphan.setReceiverWalletId(UUID.randomUUID());
+        holds.get(orphan.getId()).setReleaseAt(now.minus(Duration.ofHours(2)));
+        Transaction other = hold("60000.00");
+        other.setReceiverWalletId(UUID.randomUUID());
+        holds.get(other.getId()).setReleaseAt(now.minus(Duration.ofHours(2)));
+        List<Transaction> good = List.of(hold("50000.00"), hold("50000.00"), hold("50000.00"));
+        List<Transaction> all = new ArrayList<>(List.of(orphan, other));
+        all.addAll(good);
+        // the claim query: due, still PENDING, earliest release first
+        when(transactionRepository.claimReleasableEscrow(any(), anyInt())).thenAnswer(invocation -> {
+            Instant due = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return all.stream()
+                    .filter(transaction -> transaction.getStatus() == TransactionStatus.PENDING)
+                    .filter(transaction -> !holds.get(transaction.getId()).getReleaseAt().isAfter(due))
+                    .sorted(Comparator.comparing(transaction -> holds.get(transaction.getId()).getReleaseAt()))
+                    .limit(limit)
+                    .toList();
+        });
+
+        assertEquals(3, worker.drain(now));
+
+        good.forEach(transaction -> assertEquals(TransactionStatus.SUCCESS, transaction.getStatus()));
+        assertEquals(new BigDecimal("150000.00"), receiver.getBalance());
+        for (Transaction poisoned : List.of(orphan, other)) {
+            EscrowHold hold = holds.get(poisoned.getId());
+            assertEquals(TransactionStatus.PENDING, poisoned.getStatus());
+            assertEquals(1, hold.getReleaseAttempts());
+            assertTrue(hold.getReleaseAt().isAfter(now), "unreleasable hold was not pushed back");
+        }
+        // the poisoned chunk, two good chunks of which the last is short
+        verify(transactionRepository, times(3)).claimReleasableEscrow(any(), anyInt());
+        assertEquals(2.0, meterRegistry.get("ppps.escrow.release.deferred").counter().count());
+        assertEquals(3.0, meterRegistry.get("ppps.escrow.released").counter().count());
+    }
+
+    @Test
+    void releaseChunk_backsOffFurtherOnEveryFailedAttempt() {
+        Transaction orphan = hold("60000.00");
+        orphan.setReceiverWalletId(UUID.randomUUID());
+        EscrowHold hold = holds.get(orphan.getId());
+
+        worker.releaseChunk(limit -> List.of(orphan));
+        Duration first = Duration.between(Instant.now(), hold.getReleaseAt());
+        worker.releaseChunk(limit -> List.of(orphan));
+        Duration second = Duration.between(Instant.now(), hold.getReleaseAt());
+
+        assertEquals(2, hold.getReleaseAttempts());
+        assertTrue(first.compareTo(Duration.ofSeconds(50)) > 0 && first.compareTo(Duration.ofMinutes(1)) <= 0);
+        assertTrue(second.compareTo(Duration.ofSeconds(110)) > 0 && second.compareTo(Duration.ofMinutes(2)) <= 0);
+        assertEquals(TransactionStatus.PENDING, orphan.getStatus());
+    }
+
+    @Test
+    void sweep_releasesLegacyHoldsOnlyWhileTheirPrincipalIsAvailable() {
+        Transaction covered = legacyHold("150000.00");
+        Transaction spent = legacyHold("60000.00");
+        when(escrowHoldRepository.countByReleaseAtLessThanEqual(any())).thenReturn(2L, 1L);
+        when(transactionRepository.claimReleasableEscrow(any(), eq(2))).thenReturn(List.of(covered, spent), List.of());
+
+        worker.sweep();
+
+        assertEquals(TransactionStatus.SUCCESS, covered.getStatus());
+        assertEquals(TransactionStatus.PENDING, spent.getStatus());
+        assertEquals(new BigDecimal("50000.00"), sender.getBalance());
+        assertEquals(new BigDecimal("150000.00"), receiver.getBalance());
+    }
+
+    @Test
+    void drain_leavesAFailedChunkForTheNextRun() {
+        when(transactionRepository.claimReleasableEscrow(any(), anyInt()))
+                .thenThrow(new CannotAcquireLockException("lock timeout"));
+
+        assertEquals(0, worker.drain(Instant.now()));
+
+        verify(transactionManager).rollback(any());
+        assertEquals(1.0, meterRegistry.get("ppps.escrow.release.failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("ppps.escrow.released").counter().count());
+    }
+
+    private Transaction hold(String amount) {
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setSenderWalletId(sender.getId());
+        transaction.setReceiverWalletId(receiver.getId());
+        transaction.setAmount(new BigDecimal(amount));
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setEscrow(true);
+        transaction.setInitiatedAt(Instant.now().minus(Duration.ofMinutes(45)));
+        holds.put(transaction.getId(), EscrowHold.builder()
+                .transactionId(transaction.getId())
+                .releaseAt(transaction.getInitiatedAt().plus(Duration.ofMinutes(30)))
+                .createdAt(transaction.getInitiatedAt())
+                .fundsHeld(true)
+                .build());
+        sender.setHeldBalance(sender.getHeldBalance().add(transaction.getAmount()));
+        return transaction;
+    }
+
+    // a hold backfilled from before held balances: the principal was checked, never reserved
+    private Transaction legacyHold(String amount) {
+        Transaction transaction = hold(amount);
+        holds.get(transaction.getId()).setFundsHeld(false);
+        sender.setHeldBalance(sender.getHeldBalance().subtract(transaction.getAmount()));
+        return transaction;
+    }
+
+    private Wallet wallet(String balance) {
+        Wallet wallet = new Wallet();
+        wallet.setId(UUID.randomUUID());
+        wallet.setUserId(UUID.randomUUID());
+        wallet.setBalance(new BigDecimal(balance));
+        wallets.put(wallet.getId(), wallet);
+        return wallet;
+    }
+}
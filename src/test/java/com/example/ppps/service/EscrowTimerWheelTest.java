@@ -0,0 +1,105 @@
+package com.example.ppps.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EscrowTimerWheelTest {
+
+    private static final long START = 1_700_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(START);
+    private EscrowTimerWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        // one-second ticks, 8 slots, 3 levels: 8s, 64s and 512s per lap
+        wheel = new EscrowTimerWheel(1000, 8, 3, clock::get);
+    }
+
+    @Test
+    void firesEachHoldInTheTickItFallsDue() {
+        UUID soon = UUID.randomUUID();
+        UUID cascaded = UUID.randomUUID();
+        UUID coarse = UUID.randomUUID();
+        wheel.schedule(soon, at(3_000));
+        wheel.schedule(cascaded, at(70_500));
+        wheel.schedule(coarse, at(300_000));
+
+        List<UUID> firedAt3 = advanceTo(3_000);
+        assertEquals(List.of(soon), firedAt3);
+
+        // 70.5s rounds up to tick 71: nothing at 70s, fired at 71s after dropping from level 1
+        assertTrue(advanceTo(70_000).isEmpty());
+        assertEquals(List.of(cascaded), advanceTo(71_000));
+
+        assertTrue(advanceTo(299_000).isEmpty());
+        assertEquals(List.of(coarse), advanceTo(300_000));
+        assertEquals(0, wheel.scheduled());
+    }
+
+    @Test
+    void parksDeadlinesBeyondTheHorizonUntilTheyAreDue() {
+        UUID distant = UUID.randomUUID();
+        wheel.schedule(distant, at(2_000_000));
+
+        assertTrue(advanceTo(1_999_000).isEmpty());
+        assertEquals(List.of(distant), advanceTo(2_000_000));
+    }
+
+    @Test
+    void cancelledAndOverdueHolds() {
+        UUID cancelled = UUID.randomUUID();
+        UUID moved = UUID.randomUUID();
+        UUID overdue = UUID.randomUUID();
+        wheel.schedule(cancelled, at(5_000));
+        wheel.schedule(moved, at(5_000));
+        wheel.schedule(moved, at(9_000));
+        wheel.schedule(overdue, at(-60_000));
+        wheel.cancel(cancelled);
+
+        assertEquals(List.of(overdue), wheel.advance());
+        assertTrue(advanceTo(8_000).isEmpty());
+        assertEquals(List.of(moved), advanceTo(9_000));
+    }
+
+    @Test
+    void catchesUpAfterAMissedStretchOfTicks() {
+        List<UUID> holds = new ArrayList<>();
+        for (int i = 1; i <= 100; i++) {
+            UUID id = UUID.randomUUID();
+            holds.add(id);
+            wheel.schedule(id, at(i * 7_000L));
+        }
+
+        clock.set(START + 1_000_000);
+        List<UUID> fired = wheel.advance();
+
+        assertEquals(holds, fired);
+        assertTrue(wheel.advance().isEmpty());
+    }
+
+    // steps one tick at a time, as the scheduled advance does, and returns what fired on the last step
+    private List<UUID> advanceTo(long offsetMillis) {
+        List<UUID> fired = List.of();
+        while (clock.get() < START + offsetMillis) {
+            clock.set(Math.min(clock.get() + 1_000, START + offsetMillis));
+            fired = wheel.advance();
+            if (!fired.isEmpty() && clock.get() < START + offsetMillis) {
+                fail("fired early at " + (clock.get() - START) + "ms: " + fired);
+            }
+        }
+        return fired;
+    }
+
+    private static Instant at(long offsetMillis) {
+        return Instant.ofEpochMilli(START + offsetMillis);
+    }
+}
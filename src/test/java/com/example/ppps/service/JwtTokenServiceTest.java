@@ -0,0 +1,165 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.User;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class JwtTokenServiceTest {
+
+    private static final String SECRET = "ThisIsAMuchLongerSecretKeyForTestingThatMeetsTheHS512BitRequirement123456";
+
+    private static final int CACHE_MAX_SIZE = 100;
+
+    @Mock private StringRedisTemplate redisTemplate;
+    @Mock private ValueOperations<String, String> valueOperations;
+
+    // stands in for the Redis every node shares
+    private final Map<String, String> redis = new ConcurrentHashMap<>();
+    private SimpleMeterRegistry meterRegistry;
+    private JwtTokenService jwtTokenService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        doAnswer(invocation -> redis.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(valueOperations).set(anyString(), anyString(), any(Duration.class));
+        when(valueOperations.multiGet(anyList())).thenAnswer(invocation -> {
+            List<String> values = new ArrayList<>();
+            for (Object key : (List<?>) invocation.getArgument(0)) {
+                values.add(redis.get((String) key));
+            }
+            return values;
+        });
+        meterRegistry = new SimpleMeterRegistry();
+        jwtTokenService = node(meterRegistry);
+    }
+
+    @Test
+    void verify_returnsPrincipalAndRole() {
+        User admin = user(User.UserRole.ADMIN);
+
+        JwtTokenService.VerifiedToken verified = jwtTokenService.verify(jwtTokenService.issue(admin, true));
+
+        assertEquals(admin.getUserId(), verified.userId());
+        assertEquals("ADMIN", verified.role());
+        assertEquals("ROLE_ADMIN", verified.authorities().get(0).getAuthority());
+    }
+
+    @Test
+    void verify_servesRepeatTokensFromCache() {
+        String token = jwtTokenService.issue(user(User.UserRole.USER), false);
+
+        jwtTokenService.verify(token);
+        jwtTokenService.verify(token);
+        jwtTokenService.verify(token);
+
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "jwt.verified").tag("result", "miss")
+                .functionCounter().count());
+        assertEquals(2, meterRegistry.get("cache.gets").tag("cache", "jwt.verified").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void verify_rejectsTokenSignedWithAnotherKey() {
+        JwtTokenService other = new JwtTokenService(new SimpleMeterRegistry(), redisTemplate,
+                SECRET.replace('T', 'X'), 3_600_000, CACHE_MAX_SIZE);
+        String forged = other.issue(user(User.UserRole.ADMIN), true);
+
+        assertThrows(JwtException.class, () -> jwtTokenService.verify(forged));
+    }
+
+    @Test
+    void revokeToken_rejectsCachedToken() {
+        String token = jwtTokenService.issue(user(User.UserRole.USER), false);
+        jwtTokenService.verify(token);
+
+        jwtTokenService.revokeToken(token);
+
+        assertThrows(JwtException.class, () -> jwtTokenService.verify(token));
+    }
+
+    @Test
+    void revokeUser_rejectsOnlyThatUsersTokens() {
+        User revoked = user(User.UserRole.USER);
+        User other = user(User.UserRole.USER);
+        String revokedToken = jwtTokenService.issue(revoked, false);
+        String otherToken = jwtTokenService.issue(other, false);
+        jwtTokenService.verify(revokedToken);
+
+        jwtTokenService.revokeUser(revoked.getUserId());
+
+        assertThrows(JwtException.class, () -> jwtTokenService.verify(revokedToken));
+        assertEquals(other.getUserId(), jwtTokenService.verify(otherToken).userId());
+    }
+
+    @Test
+    void revokeToken_staysRevokedPastCacheMaxSize() {
+        String first = jwtTokenService.issue(user(User.UserRole.USER), false);
+        jwtTokenService.verify(first);
+
+        jwtTokenService.revokeToken(first);
+        for (int i = 0; i < CACHE_MAX_SIZE * 3; i++) {
+            String token = jwtTokenService.issue(user(User.UserRole.USER), false);
+            jwtTokenService.verify(token);
+            jwtTokenService.revokeToken(token);
+        }
+
+        assertThrows(JwtException.class, () -> jwtTokenService.verify(first));
+        // and not just on this node
+        assertThrows(JwtException.class, () -> node(new SimpleMeterRegistry()).verify(first));
+    }
+
+    @Test
+    void revokeUser_isSeenByOtherNodes() {
+        User revoked = user(User.UserRole.USER);
+        String token = jwtTokenService.issue(revoked, false);
+        JwtTokenService otherNode = node(new SimpleMeterRegistry());
+        otherNode.verify(token);
+
+        jwtTokenService.revokeUser(revoked.getUserId());
+
+        assertThrows(JwtException.class, () -> otherNode.verify(token));
+    }
+
+    @Test
+    void verify_rejectsWhenRevocationsCannotBeRead() {
+        String token = jwtTokenService.issue(user(User.UserRole.USER), false);
+        when(valueOperations.multiGet(anyList())).thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThrows(JwtException.class, () -> jwtTokenService.verify(token));
+        assertEquals(1, meterRegistry.get("ppps.jwt.revocation.redis.errors").counter().count());
+    }
+
+    private JwtTokenService node(SimpleMeterRegistry registry) {
+        return new JwtTokenService(registry, redisTemplate, SECRET, 3_600_000, CACHE_MAX_SIZE);
+    }
+
+    private static User user(User.UserRole role) {
+        User user = new User();
+        user.setUserId(UUID.randomUUID().toString());
+        user.setPhoneNumber("+2348012345678");
+        user.setRole(role);
+        return user;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.BalanceDrift;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.WalletBalanceSnapshotRepository;
+import com.example.ppps.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class LedgerBalanceServiceTest {
+
+    private static final UUID NIL = new UUID(0L, 0L);
+    private static final Instant NOW = Instant.parse("2025-03-14T12:00:00Z");
+
+    @Mock private WalletBalanceSnapshotRepository snapshotRepository;
+    @Mock private WalletRepository walletRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final UUID second = new UUID(0L, 200L);
+    private final UUID third = new UUID(0L, 300L);
+    private SimpleMeterRegistry meterRegistry;
+    private LedgerBalanceService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new LedgerBalanceService(snapshotRepository, walletRepository, transactionManager, meterRegistry,
+                2, 3, Duration.ofMinutes(10), 2, Clock.fixed(NOW, ZoneOffset.UTC));
+        when(walletRepository.findRangeStarts(2)).thenReturn(List.of(new UUID(0L, 100L), second, third));
+        when(walletRepository.count()).thenReturn(6L);
+    }
+
+    @Test
+    void verify_checksEveryRangeAndTotalsTheDrift() {
+        UUID a = new UUID(0L, 150L);
+        UUID b = new UUID(0L, 250L);
+        UUID c = new UUID(0L, 350L);
+        when(snapshotRepository.findDrift(NIL, second)).thenReturn(List.of(drift(a, "100.00", "90.00")));
+        when(snapshotRepository.findDrift(second, third)).thenReturn(List.of(drift(b, "40.00", "50.00")));
+        when(snapshotRepository.findDrift(eq(third), isNull())).thenReturn(List.of(drift(c, "5.00", "0.00")));
+
+        LedgerBalanceService.DriftReport report = service.verify();
+
+        assertEquals(6, report.walletsChecked());
+        assertEquals(3, report.driftedWallets());
+        assertEquals(new BigDecimal("5.00"), report.netDrift());
+        assertEquals(new BigDecimal("25.00"), report.absoluteDrift());
+        // capped at max-reported, lowest ids first
+        assertEquals(List.of(a, b), report.drifts().stream().map(BalanceDrift::walletId).toList());
+        assertEquals(3.0, meterRegistry.get("ppps.ledger.drift.wallets").gauge().value());
+        assertEquals(25.0, meterRegistry.get("ppps.ledger.drift.amount").gauge().value());
+    }
+
+    @Test
+    void verify_withNoWalletsChecksOneOpenRange() {
+        when(walletRepository.findRangeStarts(2)).thenReturn(List.of());
+        when(snapshotRepository.findDrift(eq(NIL), isNull())).thenReturn(List.of());
+
+        LedgerBalanceService.DriftReport report = service.verify();
+
+        assertEquals(0, report.driftedWallets());
+        verify(snapshotRepository).findDrift(eq(NIL), isNull());
+    }
+
+    @Test
+    void snapshot_foldsEntriesOlderThanTheSettleLagInEveryRange() {
+        when(snapshotRepository.snapshot(any(), any(), any())).thenReturn(2);
+
+        LedgerBalanceService.SnapshotResult result = service.snapshot();
+
+        assertEquals(3, result.ranges());
+        assertEquals(6, result.walletsSnapshotted());
+        ArgumentCaptor<Instant> asOf = ArgumentCaptor.forClass(Instant.class);
+        verify(snapshotRepository).snapshot(eq(NIL), eq(second), asOf.capture());
+        verify(snapshotRepository).snapshot(eq(second), eq(third), eq(asOf.getValue()));
+        verify(snapshotRepository).snapshot(eq(third), isNull(), eq(asOf.getValue()));
+        assertEquals(Instant.parse("2025-03-14T11:50:00Z"), asOf.getValue());
+        verify(transactionManager, times(3)).commit(any());
+    }
+
+    @Test
+    void snapshot_failedRangeIsReported() {
+        when(snapshotRepository.snapshot(any(), any(), any())).thenReturn(1);
+        when(snapshotRepository.snapshot(eq(second), any(), any())).thenThrow(new IllegalStateException("boom"));
+
+        PppsException exception = assertThrows(PppsException.class, () -> service.snapshot());
+        assertTrue(exception.getMessage().contains("boom"));
+        // the guard is released, so the next run can start
+        assertDoesNotThrow(() -> {
+            reset(snapshotRepository);
+            service.snapshot();
+        });
+    }
+
+    @Test
+    void derivedBalance_ofAMissingWalletIsNotFound() {
+        UUID walletId = UUID.randomUUID();
+        when(snapshotRepository.derivedBalance(walletId)).thenReturn(Optional.empty());
+
+        assertThrows(PppsException.class, () -> service.derivedBalance(walletId));
+    }
+
+    private static BalanceDrift drift(UUID walletId, String stored, String derived) {
+        return new BalanceDrift(walletId, new BigDecimal(stored), new BigDecimal(derived));
+    }
+}
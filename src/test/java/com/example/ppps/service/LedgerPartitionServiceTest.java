@@ -0,0 +1,153 @@
+package com.example.ppps.service;
+
+import com.example.ppps.repository.LedgerPartitionQueries.PartitionedTable;
+import com.example.ppps.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class LedgerPartitionServiceTest {
+
+    private static final YearMonth NOW = YearMonth.of(2025, 3);
+
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private LedgerPartitionService partitionService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        partitionService = new LedgerPartitionService(transactionRepository, transactionManager, 2, 12, true);
+        when(transactionRepository.tryLedgerMaintenanceLock()).thenReturn(true);
+    }
+
+    @Test
+    void maintain_convertsBothTablesAndKeepsCurrentMonthInLegacyPartitions() {
+        when(transactionRepository.isPartitioned(any())).thenReturn(false);
+        when(transactionRepository.partitionNames(PartitionedTable.TRANSACTIONS))
+                .thenReturn(List.of("transactions_legacy_until_202504"));
+        when(transactionRepository.partitionNames(PartitionedTable.LEDGER_ENTRIES))
+                .thenReturn(List.of("ledger_entries_legacy_until_202504"));
+
+        partitionService.maintain(NOW);
+
+        // the bound check is added and validated in transactions of their own, before the swap
+        InOrder steps = inOrder(transactionRepository);
+        steps.verify(transactionRepository).addPartitionBoundCheck(PartitionedTable.TRANSACTIONS,
+                Instant.parse("2025-04-01T00:00:00Z"));
+        steps.verify(transactionRepository).validatePartitionBoundCheck(PartitionedTable.TRANSACTIONS);
+        steps.verify(transactionRepository).convertToPartitioned(PartitionedTable.TRANSACTIONS,
+                "transactions_legacy_until_202504", Instant.parse("2025-04-01T00:00:00Z"));
+        steps.verify(transactionRepository).addPartitionBoundCheck(eq(PartitionedTable.LEDGER_ENTRIES), any());
+        // add, validate, swap and monthly upkeep: four commits per table
+        verify(transactionManager, times(8)).commit(any());
+        verify(transactionRepository).convertToPartitioned(PartitionedTable.LEDGER_ENTRIES,
+                "ledger_entries_legacy_until_202504", Instant.parse("2025-04-01T00:00:00Z"));
+        verify(transactionRepository, never())
+                .createPartition(eq(PartitionedTable.TRANSACTIONS), eq("transactions_p202503"), any(), any());
+        verify(transactionRepository).createPartition(PartitionedTable.LEDGER_ENTRIES, "ledger_entries_p202505",
+                Instant.parse("2025-05-01T00:00:00Z"), Instant.parse("2025-06-01T00:00:00Z"));
+        verify(transactionRepository, times(4)).createPartition(any(), anyString(), any(), any());
+    }
+
+    @Test
+    void maintain_dropsTheBoundCheckWhenConversionFails() {
+        when(transactionRepository.isPartitioned(PartitionedTable.TRANSACTIONS)).thenReturn(false);
+        doThrow(new IllegalStateException("null initiated_at"))
+                .when(transactionRepository).validatePartitionBoundCheck(PartitionedTable.TRANSACTIONS);
+
+        assertThrows(IllegalStateException.class, () -> partitionService.maintain(NOW));
+
+        verify(transactionRepository).dropPartitionBoundCheck(PartitionedTable.TRANSACTIONS);
+        verify(transactionRepository, never()).convertToPartitioned(any(), anyString(), any());
+    }
+
+    @Test
+    void maintain_keepsCreatingMonthsAfterTheLegacyBoundLaterInTheConversionMonth() {
+        when(transactionRepository.isPartitioned(any())).thenReturn(true);
+        when(transactionRepository.partitionNames(PartitionedTable.TRANSACTIONS))
+                .thenReturn(List.of("transactions_default", "transactions_legacy_until_202504",
+                        "transactions_p202504"));
+
+        partitionService.maintain(NOW);
+
+        verify(transactionRepository, never())
+                .createPartition(eq(PartitionedTable.TRANSACTIONS), eq("transactions_p202503"), any(), any());
+        verify(transactionRepository).createPartition(PartitionedTable.TRANSACTIONS, "transactions_p202504",
+                Instant.parse("2025-04-01T00:00:00Z"), Instant.parse("2025-05-01T00:00:00Z"));
+    }
+
+    @Test
+    void maintain_createsCurrentAndUpcomingMonthsOfEachTable() {
+        when(transactionRepository.isPartitioned(any())).thenReturn(true);
+
+        partitionService.maintain(NOW);
+
+        verify(transactionRepository, never()).convertToPartitioned(any(), anyString(), any());
+        verify(transactionRepository).createPartition(PartitionedTable.TRANSACTIONS, "transactions_p202503",
+                Instant.parse("2025-03-01T00:00:00Z"), Instant.parse("2025-04-01T00:00:00Z"));
+        verify(transactionRepository, times(3))
+                .createPartition(eq(PartitionedTable.LEDGER_ENTRIES), anyString(), any(), any());
+    }
+
+    @Test
+    void maintain_archivesOnlyPartitionsWhollyPastRetention() {
+        when(transactionRepository.isPartitioned(any())).thenReturn(true);
+        when(transactionRepository.partitionNames(PartitionedTable.TRANSACTIONS)).thenReturn(List.of(
+                "transactions_default",
+                "transactions_legacy_until_202401",
+                "transactions_p202402",
+                "transactions_p202403"));
+        when(transactionRepository.partitionNames(PartitionedTable.LEDGER_ENTRIES)).thenReturn(List.of(
+                "ledger_entries_p202402",
+                "ledger_entries_p202503"));
+
+        partitionService.maintain(NOW);
+
+        verify(transactionRepository).archivePartition(PartitionedTable.TRANSACTIONS,
+                "transactions_legacy_until_202401", "transactions_archive_legacy_until_202401");
+        verify(transactionRepository).archivePartition(PartitionedTable.TRANSACTIONS,
+                "transactions_p202402", "transactions_archive_p202402");
+        verify(transactionRepository).archivePartition(PartitionedTable.LEDGER_ENTRIES,
+                "ledger_entries_p202402", "ledger_entries_archive_p202402");
+        verify(transactionRepository, times(3)).archivePartition(any(), anyString(), anyString());
+        verify(transactionRepository, never()).dropPartition(anyString());
+    }
+
+    @Test
+    void maintain_dropsInsteadOfArchivingWhenArchiveIsOff() {
+        partitionService = new LedgerPartitionService(transactionRepository, transactionManager, 2, 12, false);
+        when(transactionRepository.isPartitioned(any())).thenReturn(true);
+        when(transactionRepository.partitionNames(PartitionedTable.LEDGER_ENTRIES))
+                .thenReturn(List.of("ledger_entries_p202401"));
+
+        partitionService.maintain(NOW);
+
+        verify(transactionRepository).dropPartition("ledger_entries_p202401");
+        verify(transactionRepository, never()).archivePartition(any(), anyString(), anyString());
+    }
+
+    @Test
+    void maintain_backsOffWhileAnotherNodeHoldsTheLock() {
+        when(transactionRepository.tryLedgerMaintenanceLock()).thenReturn(false);
+
+        partitionService.maintain(NOW);
+
+        verify(transactionRepository, never()).isPartitioned(any());
+        verify(transactionRepository, never()).createPartition(any(), anyString(), any(), any());
+    }
+}
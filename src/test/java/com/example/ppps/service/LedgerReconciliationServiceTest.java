@@ -0,0 +1,239 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.ReconciliationEntryRow;
+import com.example.ppps.dto.ReconciliationTransactionRow;
+import com.example.ppps.dto.ReconciliationTransactionRow.Kind;
+import com.example.ppps.entity.LedgerReconciliationIssue;
+import com.example.ppps.entity.LedgerReconciliationRun;
+import com.example.ppps.enums.LedgerImbalanceType;
+import com.example.ppps.enums.ReconciliationRunStatus;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferState;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.LedgerEntryRepository;
+import com.example.ppps.repository.LedgerReconciliationIssueRepository;
+import com.example.ppps.repository.LedgerReconciliationRunRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class LedgerReconciliationServiceTest {
+
+    private static final LocalDate BUSINESS_DATE = LocalDate.of(2025, 3, 14);
+    private static final Instant BEFORE_CUTOFF = Instant.parse("2025-03-14T22:00:00Z");
+    private static final Instant AFTER_CUTOFF = Instant.parse("2025-03-15T00:30:00Z");
+
+    @Mock private LedgerEntryRepository ledgerEntryRepository;
+    @Mock private LedgerReconciliationRunRepository runRepository;
+    @Mock private LedgerReconciliationIssueRepository issueRepository;
+    @Mock private PlatformWalletService platformWalletService;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LedgerReconciliationService service;
+    private final List<LedgerReconciliationIssue> savedIssues = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        // two partitions split at the middle of the id space, at most 3 issue rows
+        service = new LedgerReconciliationService(ledgerEntryRepository, runRepository, issueRepository,
+                platformWalletService, transactionManager, meterRegistry, 2, 2, 100, 3, 16);
+        when(runRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(issueRepository.saveAll(any())).thenAnswer(invocation -> {
+            invocation.<List<LedgerReconciliationIssue>>getArgument(0).forEach(savedIssues::add);
+            return invocation.getArgument(0);
+        });
+    }
+
+    @Test
+    void classifiesEachTransactionAgainstWhatItShouldNetTo() {
+        UUID instant = id(1);
+        UUID withdrawal = id(2);
+        UUID missing = id(3);
+        UUID stuck = id(4);
+        UUID unbalanced = id(5);
+        UUID wrongDeposit = id(6);
+        UUID tomorrow = id(7);
+        UUID orphan = new UUID(-1L, 1L);
+        UUID sweep = new UUID(-1L, 2L);
+
+        stream(List.of(
+                        tx(instant, Kind.OTHER, 10000, 10500, TransactionStatus.SUCCESS, TransferState.COMPLETED, BEFORE_CUTOFF),
+                        tx(withdrawal, Kind.WITHDRAWAL, 5000, 0, TransactionStatus.SUCCESS, null, BEFORE_CUTOFF),
+                        tx(missing, Kind.DEPOSIT, 2500, 0, TransactionStatus.SUCCESS, null, BEFORE_CUTOFF),
+                        tx(stuck, Kind.OTHER, 10000, 10200, TransactionStatus.PENDING, TransferState.RESERVED, BEFORE_CUTOFF),
+                        tx(unbalanced, Kind.OTHER, 10000, 10000, TransactionStatus.SUCCESS, TransferState.COMPLETED, BEFORE_CUTOFF),
+                        tx(wrongDeposit, Kind.DEPOSIT, 3000, 0, TransactionStatus.SUCCESS, null, BEFORE_CUTOFF),
+                        tx(tomorrow, Kind.OTHER, 10000, 10000, TransactionStatus.PENDING, TransferState.RESERVED, AFTER_CUTOFF)),
+                List.of(
+                        entry(instant, -10500), entry(instant, 10000), entry(instant, 500),
+                        entry(withdrawal, -5100), entry(withdrawal, 100),
+                        entry(stuck, -10200),
+                        entry(unbalanced, -10000),
+                        entry(wrongDeposit, 2000),
+                        entry(tomorrow, -1)),
+                List.of(entry(orphan, 700), entry(sweep, -300), entry(sweep, 300)));
+
+        LedgerReconciliationRun run = service.reconcile(BUSINESS_DATE);
+
+        assertEquals(ReconciliationRunStatus.COMPLETED, run.getStatus());
+        assertEquals(Instant.parse("2025-03-15T00:00:00Z"), run.getCutoff());
+        assertEquals(12, run.getEntriesScanned());
+        assertEquals(7, run.getTransactionsScanned());
+        assertEquals(1, run.getMissingEntries());
+        assertEquals(1, run.getOrphanEntries());
+        assertEquals(1, run.getUnbalancedTransfers());
+        assertEquals(1, run.getUnbalancedExternal());
+        assertEquals(1, run.getStuckInFlight());
+
+        // counts are complete, issue rows stop at max-issues
+        assertEquals(3, savedIssues.size());
+        Map<UUID, LedgerImbalanceType> allTypes = new HashMap<>(Map.of(
+                missing, LedgerImbalanceType.MISSING_ENTRIES,
+                stuck, LedgerImbalanceType.STUCK_IN_FLIGHT,
+                unbalanced, LedgerImbalanceType.UNBALANCED_TRANSFER,
+                wrongDeposit, LedgerImbalanceType.UNBALANCED_EXTERNAL,
+                orphan, LedgerImbalanceType.ORPHAN_ENTRIES));
+        for (LedgerReconciliationIssue issue : savedIssues) {
+            assertEquals(allTypes.get(issue.getTransactionId()), issue.getType());
+            if (issue.getTransactionId().equals(unbalanced)) {
+                assertEquals(new BigDecimal("-100.00"), issue.getNetAmount());
+                assertEquals(new BigDecimal("100.00"), issue.getTransactionAmount());
+            }
+        }
+        assertEquals(1.0, meterRegistry.get("ppps.ledger.reconciliation.imbalances.last")
+                .tag("type", "ORPHAN_ENTRIES").gauge().value());
+        assertEquals(12.0, meterRegistry.get("ppps.ledger.reconciliation.entries").counter().count());
+    }
+
+    // a withdrawal the gateway failed synchronously is reverted once; if the FAILED webhook refunds it again
+    // it nets to +amount, which must not pass for a deposit
+    @Test
+    void checksWhichWayDepositsAndWithdrawalsNet() {
+        UUID paidOut = id(1);
+        UUID reversed = id(2);
+        UUID refundedTwice = id(3);
+        UUID deposit = id(4);
+        UUID depositBookedAsDebit = id(5);
+
+        stream(List.of(
+                        tx(paidOut, Kind.WITHDRAWAL, 5000, 0, TransactionStatus.SUCCESS, null, BEFORE_CUTOFF),
+                        tx(reversed, Kind.WITHDRAWAL, 5000, 0, TransactionStatus.FAILED, null, BEFORE_CUTOFF),
+                        tx(refundedTwice, Kind.WITHDRAWAL, 5000, 0, TransactionStatus.FAILED, null, BEFORE_CUTOFF),
+                        tx(deposit, Kind.DEPOSIT, 3000, 0, TransactionStatus.SUCCESS, null, BEFORE_CUTOFF),
+                        tx(depositBookedAsDebit, Kind.DEPOSIT, 3000, 0, TransactionStatus.SUCCESS, null,
+                                BEFORE_CUTOFF)),
+                List.of(
+                        entry(paidOut, -5000),
+                        entry(reversed, -5000), entry(reversed, 5000),
+                        entry(refundedTwice, -5000), entry(refundedTwice, 5000), entry(refundedTwice, 5000),
+                        entry(deposit, 3000),
+                        entry(depositBookedAsDebit, -3000)),
+                List.of());
+
+        LedgerReconciliationRun run = service.reconcile(BUSINESS_DATE);
+
+        assertEquals(2, run.getUnbalancedExternal());
+        assertEquals(0, run.getUnbalancedTransfers());
+        assertEquals(Map.of(
+                        refundedTwice, LedgerImbalanceType.UNBALANCED_EXTERNAL,
+                        depositBookedAsDebit, LedgerImbalanceType.UNBALANCED_EXTERNAL),
+                savedIssues.stream().collect(Collectors.toMap(
+                        LedgerReconciliationIssue::getTransactionId, LedgerReconciliationIssue::getType)));
+    }
+
+    @Test
+    void splitsTheIdSpaceIntoUnsignedRanges() {
+        LedgerReconciliationService four = new LedgerReconciliationService(ledgerEntryRepository, runRepository,
+                issueRepository, platformWalletService, transactionManager, new SimpleMeterRegistry(), 4, 1, 100, 10, 16);
+
+        assertEquals(new UUID(0L, 0L), four.partitionStart(0));
+        assertEquals(new UUID(0x3FFFFFFFFFFFFFFFL, 0L), four.partitionStart(1));
+        // past the sign bit: Postgres orders uuids as unsigned bytes
+        assertEquals(new UUID(0xBFFFFFFFFFFFFFFDL, 0L), four.partitionStart(3));
+    }
+
+    @Test
+    void failedPartitionFailsTheRunAndReleasesTheGuard() {
+        when(ledgerEntryRepository.streamTransactions(any(), any(), any(), anyInt()))
+                .thenThrow(new IllegalStateException("connection reset"));
+
+        PppsException exception = assertThrows(PppsException.class, () -> service.reconcile(BUSINESS_DATE));
+        assertTrue(exception.getMessage().contains("connection reset"));
+        ArgumentCaptor<LedgerReconciliationRun> saved = ArgumentCaptor.forClass(LedgerReconciliationRun.class);
+        verify(runRepository, times(2)).save(saved.capture());
+        assertEquals(ReconciliationRunStatus.FAILED, saved.getValue().getStatus());
+        assertEquals("connection reset", saved.getValue().getFailureReason());
+
+        reset(ledgerEntryRepository);
+        when(ledgerEntryRepository.streamTransactions(any(), any(), any(), anyInt())).thenAnswer(i -> Stream.empty());
+        when(ledgerEntryRepository.streamEntries(any(), any(), anyInt())).thenAnswer(i -> Stream.empty());
+        assertEquals(ReconciliationRunStatus.COMPLETED, service.reconcile(BUSINESS_DATE).getStatus());
+    }
+
+    @Test
+    void tallyKeepsEveryTransactionApartAsItGrows() {
+        ReconciliationTally tally = new ReconciliationTally(AFTER_CUTOFF, 1);
+        for (int i = 0; i < 10_000; i++) {
+            UUID id = new UUID(7L, i);
+            tally.add(tx(id, Kind.DEPOSIT, 100, 0, TransactionStatus.SUCCESS, null, BEFORE_CUTOFF));
+            tally.add(entry(id, i % 1000 == 0 ? 99 : 100));
+        }
+        List<UUID> imbalanced = new ArrayList<>();
+        tally.forEachImbalance((id, type, net, amount, entries) -> imbalanced.add(id));
+
+        assertEquals(10_000, tally.transactionsSeen());
+        assertEquals(10, imbalanced.size());
+    }
+
+    // partition 0 gets the first transactions and entries, partition 1 (open-ended) the orphan entries
+    private void stream(List<ReconciliationTransactionRow> transactions, List<ReconciliationEntryRow> entries,
+                        List<ReconciliationEntryRow> upperEntries) {
+        UUID first = new UUID(0L, 0L);
+        when(ledgerEntryRepository.streamTransactions(eq(first), any(), any(), anyInt()))
+                .thenAnswer(i -> transactions.stream());
+        when(ledgerEntryRepository.streamEntries(eq(first), any(), anyInt()))
+                .thenAnswer(i -> entries.stream());
+        when(ledgerEntryRepository.streamTransactions(any(), isNull(), any(), anyInt()))
+                .thenAnswer(i -> Stream.empty());
+        when(ledgerEntryRepository.streamEntries(any(), isNull(), anyInt()))
+                .thenAnswer(i -> upperEntries.stream());
+    }
+
+    private static UUID id(long n) {
+        return new UUID(n, n);
+    }
+
+    private static ReconciliationTransactionRow tx(UUID id, Kind kind, long amount, long reserved,
+                                                   TransactionStatus status, TransferState state, Instant initiatedAt) {
+        return new ReconciliationTransactionRow(id, kind, amount, reserved, status, state, initiatedAt);
+    }
+
+    private static ReconciliationEntryRow entry(UUID transactionId, long signedMinorUnits) {
+        return new ReconciliationEntryRow(transactionId, signedMinorUnits);
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.ppps.service;
+
+import com.example.ppps.config.KafkaTopics;
+import com.example.ppps.entity.OutboxEvent;
+import com.example.ppps.event.TransactionCompletedEvent;
+import com.example.ppps.repository.OutboxEventRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "app.outbox.relay.interval-ms=3600000",
+        "app.outbox.relay.batch-size=1",
+        "app.outbox.relay.max-attempts=2",
+        "app.outbox.relay.retry-backoff=1h"
+})
+@EmbeddedKafka(partitions = 1, topics = KafkaTopics.TRANSACTIONS_COMPLETED,
+        bootstrapServersProperty = "spring.kafka.bootstrap-servers")
+class OutboxRelayIntegrationTest {
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafka;
+
+    private Consumer<String, TransactionCompletedEvent> consumer;
+
+    @BeforeEach
+    void setUp() {
+        outboxEventRepository.deleteAll();
+
+        Map<String, Object> props = KafkaTestUtils.consumerProps("outbox-relay-test", "false", embeddedKafka);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        JsonDeserializer<TransactionCompletedEvent> deserializer = new JsonDeserializer<>(TransactionCompletedEvent.class);
+        deserializer.addTrustedPackages("*");
+        consumer = new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), deserializer).createConsumer();
+        embeddedKafka.consumeFromAnEmbeddedTopic(consumer, KafkaTopics.TRANSACTIONS_COMPLETED);
+    }
+
+    @AfterEach
+    void tearDown() {
+        consumer.close();
+    }
+
+    @Test
+    void committedEventIsPublishedAndMarkedSent() {
+        UUID transactionId = UUID.randomUUID();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                outboxService.enqueue(KafkaTopics.TRANSACTIONS_COMPLETED, transactionId.toString(), event(transactionId)));
+
+        outboxRelay.relay();
+
+        ConsumerRecord<String, TransactionCompletedEvent> record = KafkaTestUtils.getSingleRecord(
+                consumer, KafkaTopics.TRANSACTIONS_COMPLETED, Duration.ofSeconds(10));
+        assertEquals(transactionId.toString(), record.key());
+        assertEquals(transactionId, record.value().getTransactionId());
+        assertEquals(0, new BigDecimal("250.00").compareTo(record.value().getAmount()));
+
+        OutboxEvent stored = outboxEventRepository.findAll().get(0);
+        assertNotNull(stored.getSentAt());
+        assertEquals(0, outboxEventRepository.countBySentAtIsNullAndFailedAtIsNull());
+    }
+
+    @Test
+    void poisonEventBacksOffAndDoesNotBlockTheEventsBehindIt() {
+        // older than anything else in the queue, and can never be sent
+        OutboxEvent poison = outboxEventRepository.save(poison(Instant.now().minusSeconds(60)));
+        UUID transactionId = UUID.randomUUID();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                outboxService.enqueue(KafkaTopics.TRANSACTIONS_COMPLETED, transactionId.toString(), event(transactionId)));
+
+        // batches of one: the first poll takes the poison event, the next one the event behind it
+        outboxRelay.relay();
+        outboxRelay.relay();
+
+        ConsumerRecord<String, TransactionCompletedEvent> record = KafkaTestUtils.getSingleRecord(
+                consumer, KafkaTopics.TRANSACTIONS_COMPLETED, Duration.ofSeconds(10));
+        assertEquals(transactionId.toString(), record.key());
+        OutboxEvent failed = outboxEventRepository.findById(poison.getId()).orElseThrow();
+        assertEquals(1, failed.getAttempts());
+        assertNull(failed.getSentAt());
+        assertTrue(failed.getNextAttemptAt().isAfter(Instant.now().plusSeconds(3000)));
+        assertNotNull(failed.getLastError());
+    }
+
+    @Test
+    void poisonEventIsDeadLetteredAfterMaxAttempts() {
+        OutboxEvent poison = poison(Instant.now().minusSeconds(60));
+        poison.setAttempts(1);
+        poison = outboxEventRepository.save(poison);
+
+        outboxRelay.relay();
+
+        OutboxEvent failed = outboxEventRepository.findById(poison.getId()).orElseThrow();
+        assertEquals(2, failed.getAttempts());
+        assertNotNull(failed.getFailedAt());
+        assertEquals(0, outboxEventRepository.countBySentAtIsNullAndFailedAtIsNull());
+        assertEquals(1, outboxEventRepository.countByFailedAtIsNotNull());
+    }
+
+    @Test
+    void rolledBackEventIsNeverPublished() {
+        UUID transactionId = UUID.randomUUID();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            outboxService.enqueue(KafkaTopics.TRANSACTIONS_COMPLETED, transactionId.toString(), event(transactionId));
+            status.setRollbackOnly();
+        });
+
+        outboxRelay.relay();
+
+        assertEquals(0, outboxEventRepository.count());
+        assertTrue(KafkaTestUtils.getRecords(consumer, Duration.ofSeconds(2)).isEmpty());
+    }
+
+    // names an event class that does not exist, so the relay can never deserialize it
+    private OutboxEvent poison(Instant createdAt) {
+        return OutboxEvent.builder()
+                .topic(KafkaTopics.TRANSACTIONS_COMPLETED)
+                .eventKey("poison")
+                .eventType("com.example.ppps.event.NoSuchEvent")
+                .payload("{}")
+                .createdAt(createdAt)
+                .nextAttemptAt(createdAt)
+                .build();
+    }
+
+    private TransactionCompletedEvent event(UUID transactionId) {
+        return new TransactionCompletedEvent(transactionId, UUID.randomUUID(), UUID.randomUUID(),
+                new BigDecimal("250.00"), "SUCCESS", Instant.now());
+    }
+}
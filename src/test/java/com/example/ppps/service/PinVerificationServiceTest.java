@@ -0,0 +1,108 @@
+package com.example.ppps.service;
+
+import com.example.ppps.exception.PppsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PinVerificationServiceTest {
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PinVerificationService pinVerificationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        pinVerificationService = new PinVerificationService(passwordEncoder, meterRegistry,
+                1, 1, Duration.ofSeconds(5), Duration.ofMinutes(5), 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pinVerificationService.shutdown();
+    }
+
+    @Test
+    void matches_hashesOncePerSession() {
+        when(passwordEncoder.matches("1234", "hash-v1")).thenReturn(true);
+
+        assertTrue(pinVerificationService.matches("user-1", "1234", "hash-v1"));
+        assertTrue(pinVerificationService.matches("user-1", "1234", "hash-v1"));
+
+        verify(passwordEncoder, times(1)).matches("1234", "hash-v1");
+    }
+
+    @Test
+    void matches_neverCachesWrongPin() {
+        when(passwordEncoder.matches("9999", "hash-v1")).thenReturn(false);
+
+        assertFalse(pinVerificationService.matches("user-1", "9999", "hash-v1"));
+        assertFalse(pinVerificationService.matches("user-1", "9999", "hash-v1"));
+
+        verify(passwordEncoder, times(2)).matches("9999", "hash-v1");
+    }
+
+    @Test
+    void matches_rehashesWhenStoredHashChanges() {
+        when(passwordEncoder.matches("1234", "hash-v1")).thenReturn(true);
+        when(passwordEncoder.matches("1234", "hash-v2")).thenReturn(false);
+        pinVerificationService.matches("user-1", "1234", "hash-v1");
+
+        assertFalse(pinVerificationService.matches("user-1", "1234", "hash-v2"));
+    }
+
+    @Test
+    void invalidate_forcesFullCheck() {
+        when(passwordEncoder.matches("1234", "hash-v1")).thenReturn(true);
+        pinVerificationService.matches("user-1", "1234", "hash-v1");
+
+        pinVerificationService.invalidate("user-1");
+        pinVerificationService.matches("user-1", "1234", "hash-v1");
+
+        verify(passwordEncoder, times(2)).matches("1234", "hash-v1");
+    }
+
+    @Test
+    void matches_rejectsFastWhenPoolIsSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(passwordEncoder.matches(anyString(), anyString())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return true;
+        });
+
+        // one check hashing, one queued
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(
+                () -> pinVerificationService.matches("user-1", "1111", "hash"));
+        CompletableFuture<Boolean> queued = CompletableFuture.supplyAsync(
+                () -> pinVerificationService.matches("user-2", "2222", "hash"));
+        while (meterRegistry.get("ppps.pin.executor.queued").gauge().value() < 1) {
+            Thread.sleep(5);
+        }
+
+        PppsException exception = assertThrows(PppsException.class,
+                () -> pinVerificationService.matches("user-3", "3333", "hash"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        assertEquals(1, meterRegistry.get("ppps.pin.rejected").counter().count());
+
+        release.countDown();
+        assertTrue(running.get(5, TimeUnit.SECONDS));
+        assertTrue(queued.get(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.EntryType;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PlatformWalletServiceTest {
+
+    @Mock private WalletRepository walletRepository;
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private LedgerService ledgerService;
+    @Mock private WalletLockService walletLockService;
+    @Mock private BalanceCache balanceCache;
+
+    private final UUID platformWalletId = UUID.randomUUID();
+    private final Map<UUID, Wallet> wallets = new HashMap<>();
+    private PlatformWalletService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new PlatformWalletService(walletRepository, transactionRepository, ledgerService,
+                walletLockService, balanceCache, platformWalletId.toString(), 3);
+        wallets.put(platformWalletId, wallet(platformWalletId, "100.00"));
+        for (UUID shardId : service.getShardWalletIds()) {
+            wallets.put(shardId, wallet(shardId, "0.00"));
+        }
+        when(walletLockService.lockAll(anyCollection(), anyString())).thenReturn(wallets);
+        when(walletLockService.lock(any(), anyString())).thenAnswer(invocation -> wallets.get(invocation.<UUID>getArgument(0)));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction saved = invocation.getArgument(0);
+            saved.setId(UUID.randomUUID());
+            return saved;
+        });
+    }
+
+    @Test
+    void sweepShards_booksItsEntriesAgainstASavedTransaction() {
+        List<UUID> shards = service.getShardWalletIds();
+        wallets.get(shards.get(0)).setBalance(new BigDecimal("7.50"));
+        wallets.get(shards.get(2)).setBalance(new BigDecimal("2.50"));
+
+        service.sweepShards();
+
+        ArgumentCaptor<Transaction> saved = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository).save(saved.capture());
+        Transaction sweep = saved.getValue();
+        assertEquals(platformWalletId, sweep.getSenderWalletId());
+        assertEquals(platformWalletId, sweep.getReceiverWalletId());
+        assertEquals(0, sweep.getAmount().compareTo(new BigDecimal("10.00")));
+        assertEquals(TransactionStatus.SUCCESS, sweep.getStatus());
+        assertNotNull(sweep.getInitiatedAt());
+
+        // every entry hangs off the saved row, and the debits and credits net to zero
+        verify(ledgerService, times(2)).record(eq(sweep.getId()), any(Wallet.class), any(), any(), eq(EntryType.DEBIT));
+        verify(ledgerService, times(2)).record(eq(sweep.getId()), any(Wallet.class), any(), any(), eq(EntryType.CREDIT));
+        verify(ledgerService, never()).record(argThat(id -> !sweep.getId().equals(id)), any(Wallet.class), any(), any(), any());
+        assertEquals(0, wallets.get(platformWalletId).getBalance().compareTo(new BigDecimal("110.00")));
+
+        verify(balanceCache).evictAfterCommit(shards.get(0));
+        verify(balanceCache).evictAfterCommit(shards.get(2));
+        verify(balanceCache).evictAfterCommit(platformWalletId);
+        verify(balanceCache, never()).evictAfterCommit(shards.get(1));
+    }
+
+    @Test
+    void sweepShards_writesNothingWhenTheShardsAreEmpty() {
+        service.sweepShards();
+
+        verify(transactionRepository, never()).save(any());
+        verifyNoInteractions(ledgerService, balanceCache);
+    }
+
+    @Test
+    void collectAndReverseFee_evictTheShardTheyChange() {
+        UUID transactionId = UUID.randomUUID();
+        UUID feeWalletId = service.feeWalletFor(transactionId);
+
+        service.collectFee(transactionId, new BigDecimal("5.00"));
+        service.reverseFee(transactionId, new BigDecimal("5.00"));
+
+        verify(balanceCache, times(2)).evictAfterCommit(feeWalletId);
+        assertEquals(0, wallets.get(feeWalletId).getBalance().signum());
+    }
+
+    private static Wallet wallet(UUID id, String balance) {
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        wallet.setBalance(new BigDecimal(balance));
+        return wallet;
+    }
+}
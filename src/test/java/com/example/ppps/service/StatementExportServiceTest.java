@@ -0,0 +1,143 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.AuditLogEntry;
+import com.example.ppps.dto.AuditLogFilter;
+import com.example.ppps.dto.TransactionExportRow;
+import com.example.ppps.dto.WalletHistoryRow;
+import com.example.ppps.enums.ActivityDirection;
+import com.example.ppps.enums.StatementFormat;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.AuditLogRepository;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletActivityRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.when;
+
+class StatementExportServiceTest {
+
+    @Mock private WalletActivityRepository walletActivityRepository;
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private AuditLogRepository auditLogRepository;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private SimpleMeterRegistry meterRegistry;
+    private StatementExportService exportService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        exportService = new StatementExportService(walletActivityRepository, transactionRepository,
+                auditLogRepository, objectMapper, transactionManager, meterRegistry, 500);
+    }
+
+    @Test
+    void walletStatement_writesCsvWithHeaderAndRunningBalance() throws Exception {
+        UUID walletId = UUID.randomUUID();
+        WalletHistoryRow row = row(walletId, "-110.00", "890.00");
+        when(walletActivityRepository.streamStatement(eq(walletId), isNull(), isNull(), eq(500)))
+                .thenReturn(Stream.of(row));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.walletStatement(walletId, null, null, StatementFormat.CSV, false).writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("occurredAt,transactionId,direction"));
+        assertTrue(lines[1].contains(",SENT,"));
+        assertTrue(lines[1].contains(",-110.00,890.00,"));
+        assertEquals(1.0, meterRegistry.get("ppps.statement.rows").tag("type", "wallet").counter().count());
+    }
+
+    @Test
+    void transactionsExport_writesGzippedNdjson() throws Exception {
+        TransactionExportRow first = new TransactionExportRow(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                new BigDecimal("100.00"), new BigDecimal("1.50"), "SUCCESS", "COMPLETED", Instant.now());
+        TransactionExportRow second = new TransactionExportRow(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+                new BigDecimal("20.00"), null, "FAILED", null, Instant.now());
+        when(transactionRepository.streamTransactions(any(), any(), anyInt())).thenReturn(Stream.of(first, second));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.transactionsExport(null, null, StatementFormat.NDJSON, true).writeTo(out);
+
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        JsonNode json = objectMapper.readTree(lines[0]);
+        assertEquals(first.transactionId().toString(), json.get("transactionId").asText());
+        assertEquals("COMPLETED", json.get("transferState").asText());
+        assertTrue(objectMapper.readTree(lines[1]).get("fee").isNull());
+    }
+
+    @Test
+    void auditLogExport_quotesDetailsContainingCommas() throws Exception {
+        AuditLogFilter filter = new AuditLogFilter(null, "DEPOSIT_FUNDS", null, null, null, null);
+        AuditLogEntry entry = new AuditLogEntry(UUID.randomUUID(), Instant.parse("2025-03-01T10:15:30Z"),
+                "SYSTEM", "DEPOSIT_FUNDS", "Wallet", UUID.randomUUID().toString(),
+                "Deposited 1,000.00, said \"ok\"");
+        when(auditLogRepository.stream(filter, 500)).thenReturn(Stream.of(entry));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.auditLogExport(filter, StatementFormat.CSV, false).writeTo(out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("timestamp,id,actorId,action,entityName,entityId,details", lines[0]);
+        assertTrue(lines[1].endsWith(",\"Deposited 1,000.00, said \"\"ok\"\"\""));
+        assertEquals(1.0, meterRegistry.get("ppps.statement.rows").tag("type", "audit").counter().count());
+    }
+
+    @Test
+    void walletStatement_rejectsEmptyRange() {
+        Instant now = Instant.now();
+
+        PppsException exception = assertThrows(PppsException.class, () -> exportService.walletStatement(
+                UUID.randomUUID(), now, now.minusSeconds(60), StatementFormat.CSV, false));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    void format_rejectsUnknownFormats() {
+        assertEquals(StatementFormat.NDJSON, StatementExportService.format("ndjson"));
+        assertEquals(StatementFormat.CSV, StatementExportService.format(null));
+        assertThrows(PppsException.class, () -> StatementExportService.format("xlsx"));
+    }
+
+    private static WalletHistoryRow row(UUID walletId, String signedAmount, String balanceAfter) {
+        Instant at = Instant.parse("2025-03-01T10:15:30Z");
+        UUID counterparty = UUID.randomUUID();
+        return new WalletHistoryRow(UUID.randomUUID(), walletId, counterparty, new BigDecimal("100.00"),
+                TransactionStatus.SUCCESS, at, ActivityDirection.SENT, counterparty,
+                new BigDecimal(signedAmount), new BigDecimal(balanceAfter), at);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.ppps.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private static final long TICK = TimeUnit.SECONDS.toNanos(1);
+    // one token every 6s, up to 3 at once
+    private static final RateLimiter.Rule RULE = new RateLimiter.Rule("transfers", 10, 3);
+
+    private AtomicLong now;
+    private TokenBucketRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        now = new AtomicLong(TimeUnit.HOURS.toNanos(1));
+        limiter = new TokenBucketRateLimiter(TICK, 16, now::get);
+    }
+
+    @Test
+    void tryAcquire_allowsBurstThenRefuses() {
+        assertEquals(2, limiter.tryAcquire("user:a", RULE).remaining());
+        assertEquals(1, limiter.tryAcquire("user:a", RULE).remaining());
+        assertEquals(0, limiter.tryAcquire("user:a", RULE).remaining());
+
+        RateLimiter.Decision refused = limiter.tryAcquire("user:a", RULE);
+        assertFalse(refused.allowed());
+        assertEquals(TimeUnit.SECONDS.toNanos(6), refused.retryAfterNanos());
+    }
+
+    @Test
+    void tryAcquire_refillsOverTime() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("user:a", RULE);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(6));
+
+        assertTrue(limiter.tryAcquire("user:a", RULE).allowed());
+        assertFalse(limiter.tryAcquire("user:a", RULE).allowed());
+    }
+
+    @Test
+    void tryAcquire_keepsKeysApart() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("user:a", RULE);
+        }
+
+        assertFalse(limiter.tryAcquire("user:a", RULE).allowed());
+        assertTrue(limiter.tryAcquire("user:b", RULE).allowed());
+    }
+
+    @Test
+    void expireIdleBuckets_dropsOnlyBucketsThatRefilled() {
+        limiter.tryAcquire("user:idle", RULE);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("user:busy", RULE);
+        }
+
+        now.addAndGet(TICK);
+        limiter.expireIdleBuckets();
+        assertEquals(1, limiter.activeBuckets());
+
+        // the busy bucket is full again 18s after its burst
+        now.addAndGet(TimeUnit.SECONDS.toNanos(18));
+        limiter.expireIdleBuckets();
+        assertEquals(0, limiter.activeBuckets());
+    }
+
+    @Test
+    void expiredBucket_startsFullAgain() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire("user:a", RULE);
+        }
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        limiter.expireIdleBuckets();
+
+        assertEquals(2, limiter.tryAcquire("user:a", RULE).remaining());
+    }
+
+    @Test
+    void tryAcquire_neverGrantsMoreThanBurstUnderContention() throws Exception {
+        RateLimiter.Rule rule = new RateLimiter.Rule("login", 1, 50);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(16)) {
+            for (int i = 0; i < 1_000; i++) {
+                results.add(executor.submit(() -> limiter.tryAcquire("ip:10.0.0.1", rule).allowed()));
+            }
+        }
+
+        long allowed = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                allowed++;
+            }
+        }
+        assertEquals(50, allowed);
+    }
+}
@@ -1,18 +1,19 @@
 package com.example.ppps.service;
 
+import com.example.ppps.controller.TransactionHistoryPage;
 import com.example.ppps.controller.TransactionHistoryResponse;
 import com.example.ppps.controller.TransactionSearchRequest;
-import com.example.ppps.entity.Transaction;
+import com.example.ppps.dto.WalletHistoryRow;
+import com.example.ppps.enums.ActivityDirection;
 import com.example.ppps.enums.TransactionStatus;
-import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.exception.PppsException;
+import com.example.ppps.repository.WalletActivityRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 
 import java.math.BigDecimal;
 import java.time.Instant;
@@ -20,14 +21,18 @@ import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class TransactionHistoryServiceTest {
 
     @Mock
-    private TransactionRepository transactionRepository;
+    private WalletActivityRepository walletActivityRepository;
 
     @InjectMocks
     private TransactionHistoryService transactionHistoryService;
@@ -45,21 +50,77 @@ class TransactionHistoryServiceTest {
         filters.setPageNumber(0);
         filters.setPageSize(10);
 
-        Transaction transaction = new Transaction();
-        transaction.setId(UUID.randomUUID());
-        transaction.setSenderWalletId(walletId);
-        transaction.setAmount(BigDecimal.TEN);
-        transaction.setStatus(TransactionStatus.SUCCESS);
-        transaction.setInitiatedAt(Instant.now());
-        Page<Transaction> page = new PageImpl<>(Collections.singletonList(transaction));
+        WalletHistoryRow row = row(walletId, Instant.now());
 
-        when(transactionRepository.findByWalletIdWithFilters(any(UUID.class), any(Instant.class), any(Instant.class),
-                any(String.class), any(BigDecimal.class), any(BigDecimal.class), any(PageRequest.class)))
-                .thenReturn(page);
+        when(walletActivityRepository.findHistoryPage(eq(walletId), any(Instant.class), isNull(), isNull(),
+                isNull(), isNull(), isNull(), isNull(), eq(0), eq(11)))
+                .thenReturn(Collections.singletonList(row));
 
         List<TransactionHistoryResponse> result = transactionHistoryService.getTransactionsForWallet(walletId, filters);
 
         assertEquals(1, result.size());
-        assertEquals(transaction.getId(), result.get(0).getTransactionId());
+        assertEquals(row.transactionId(), result.get(0).getTransactionId());
+        assertEquals("SENT", result.get(0).getDirection());
+        assertEquals(row.balanceAfter(), result.get(0).getBalanceAfter());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTransactionHistory_returnsTokenThatResumesAfterLastRow() {
+        UUID walletId = UUID.randomUUID();
+        Instant now = Instant.parse("2025-03-01T10:15:30.123456Z");
+        WalletHistoryRow first = row(walletId, now);
+        WalletHistoryRow second = row(walletId, now.minusSeconds(1));
+        WalletHistoryRow extra = row(walletId, now.minusSeconds(2));
+        TransactionSearchRequest filters = new TransactionSearchRequest();
+        filters.setPageSize(2);
+
+        when(walletActivityRepository.findHistoryPage(eq(walletId), any(), any(), any(), any(), any(),
+                isNull(), isNull(), eq(0), eq(3)))
+                .thenReturn(List.of(first, second, extra));
+
+        TransactionHistoryPage page = transactionHistoryService.getTransactionHistory(walletId, filters);
+        assertEquals(2, page.getTransactions().size());
+        assertNotNull(page.getNextPageToken());
+
+        filters.setPageToken(page.getNextPageToken());
+        when(walletActivityRepository.findHistoryPage(eq(walletId), any(), any(), any(), any(), any(),
+                eq(second.occurredAt()), eq(second.transactionId()), eq(0), eq(3)))
+                .thenReturn(List.of(extra));
+
+        TransactionHistoryPage last = transactionHistoryService.getTransactionHistory(walletId, filters);
+        assertEquals(extra.transactionId(), last.getTransactions().get(0).getTransactionId());
+        assertNull(last.getNextPageToken());
+    }
+
+    @Test
+    void getTransactionHistory_mapsLegacyPageNumberToOffset() {
+        UUID walletId = UUID.randomUUID();
+        TransactionSearchRequest filters = new TransactionSearchRequest();
+        filters.setPageNumber(3);
+        filters.setPageSize(20);
+        when(walletActivityRepository.findHistoryPage(any(), any(), any(), any(), any(), any(), any(), any(),
+                anyInt(), anyInt())).thenReturn(List.of());
+
+        transactionHistoryService.getTransactionHistory(walletId, filters);
+
+        verify(walletActivityRepository).findHistoryPage(eq(walletId), isNull(), isNull(), isNull(), isNull(),
+                isNull(), isNull(), isNull(), eq(60), eq(21));
+    }
+
+    @Test
+    void getTransactionHistory_rejectsTamperedToken() {
+        TransactionSearchRequest filters = new TransactionSearchRequest();
+        filters.setPageToken("not-a-token");
+
+        PppsException exception = assertThrows(PppsException.class,
+                () -> transactionHistoryService.getTransactionHistory(UUID.randomUUID(), filters));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    private static WalletHistoryRow row(UUID walletId, Instant occurredAt) {
+        UUID counterparty = UUID.randomUUID();
+        return new WalletHistoryRow(UUID.randomUUID(), walletId, counterparty, BigDecimal.TEN,
+                TransactionStatus.SUCCESS, occurredAt, ActivityDirection.SENT, counterparty,
+                BigDecimal.TEN.negate(), new BigDecimal("90.00"), occurredAt);
+    }
+}
@@ -1,11 +1,12 @@
 package com.example.ppps.service;
 
+import com.example.ppps.entity.User;
 import com.example.ppps.entity.Wallet;
 import com.example.ppps.exception.InsufficientFundsException;
-import com.example.ppps.repository.WalletRepository;
+import com.example.ppps.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -14,19 +15,26 @@ import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
 
 class TransferServiceTest {
 
-    @Mock
-    private WalletRepository walletRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private PinVerificationService pinVerificationService;
+    @Mock private FeeService feeService;
+    @Mock private GatewayService gatewayService;
+    @Mock private EscrowService escrowService;
+    @Mock private TransferSettlementService settlementService;
 
-    @InjectMocks
     private TransferService transferService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
+        transferService = new TransferService(userRepository, new SimpleMeterRegistry(), pinVerificationService,
+                feeService, gatewayService, escrowService, settlementService);
     }
 
     @Test
@@ -35,13 +43,25 @@ class TransferServiceTest {
         UUID receiverWalletId = UUID.randomUUID();
         BigDecimal amount = BigDecimal.valueOf(1500.00);
 
-        Wallet senderWallet = new Wallet();
-        senderWallet.setId(senderWalletId);
-        senderWallet.setBalance(BigDecimal.valueOf(1000.00));
-
-        when(walletRepository.findById(senderWalletId)).thenReturn(Optional.of(senderWallet));
+        when(userRepository.findById("sender")).thenReturn(Optional.of(user("sender", senderWalletId)));
+        when(userRepository.findByPhoneNumber("08123456789")).thenReturn(Optional.of(user("receiver", receiverWalletId)));
+        when(pinVerificationService.matches("sender", "1234", "hashed")).thenReturn(true);
+        when(feeService.calculateFee(amount)).thenReturn(BigDecimal.ZERO);
+        when(settlementService.reserve(eq(senderWalletId), eq(receiverWalletId), eq(amount), any(), anyBoolean()))
+                .thenThrow(new InsufficientFundsException("Insufficient funds"));
 
         assertThrows(InsufficientFundsException.class, () ->
-                transferService.executeP2PTransfer(senderWalletId, receiverWalletId, amount, "1234"));
+                transferService.executeP2PTransfer("sender", "08123456789", amount, "1234", null));
+        verifyNoInteractions(gatewayService);
+    }
+
+    private static User user(String userId, UUID walletId) {
+        Wallet wallet = new Wallet();
+        wallet.setId(walletId);
+        User user = new User();
+        user.setUserId(userId);
+        user.setHashedPin("hashed");
+        user.setWallet(wallet);
+        return user;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,309 @@
+package com.example.ppps.service;
+
+import com.example.ppps.dto.WalletBalance;
+import com.example.ppps.entity.EscrowHold;
+import com.example.ppps.entity.LedgerEntry;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.entity.WalletActivity;
+import com.example.ppps.enums.ActivityDirection;
+import com.example.ppps.enums.BalanceUpdateStrategy;
+import com.example.ppps.enums.EntryType;
+import com.example.ppps.enums.TransactionStatus;
+import com.example.ppps.enums.TransferState;
+import com.example.ppps.event.TransactionCompletedEvent;
+import com.example.ppps.exception.InsufficientFundsException;
+import com.example.ppps.repository.LedgerEntryRepository;
+import com.example.ppps.repository.TransactionRepository;
+import com.example.ppps.repository.WalletActivityRepository;
+import com.example.ppps.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransferSettlementServiceTest {
+
+    @Mock private WalletRepository walletRepository;
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private LedgerEntryRepository ledgerEntryRepository;
+    @Mock private EscrowService escrowService;
+    @Mock private OutboxService outboxService;
+    @Mock private LedgerEntryRepository platformLedgerRepository;
+    @Mock private WalletActivityRepository walletActivityRepository;
+    @Mock private BalanceCache balanceCache;
+
+    private TransferSettlementService settlementService;
+    private UUID platformWalletId;
+    private Wallet senderWallet;
+    private Wallet receiverWallet;
+    private Wallet platformWallet;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        TransactionSynchronizationManager.initSynchronization();
+        platformWalletId = UUID.randomUUID();
+        WalletLockService walletLockService = new WalletLockService(
+                walletRepository, new SimpleMeterRegistry(), Duration.ofMillis(20));
+        PlatformWalletService platformWalletService = new PlatformWalletService(
+                walletRepository, transactionRepository, new LedgerService(platformLedgerRepository, walletActivityRepository, transactionRepository),
+                walletLockService, balanceCache, platformWalletId.toString(), 1);
+        settlementService = new TransferSettlementService(
+                walletRepository, transactionRepository, new LedgerService(ledgerEntryRepository, walletActivityRepository, transactionRepository),
+                escrowService, outboxService, platformWalletService, walletLockService,
+                new BalanceMutationService(walletRepository, walletLockService, balanceCache, new SimpleMeterRegistry()),
+                balanceCache, BalanceUpdateStrategy.CONDITIONAL);
+
+        senderWallet = wallet(UUID.randomUUID(), "1000.00");
+        receiverWallet = wallet(UUID.randomUUID(), "500.00");
+        platformWallet = wallet(platformWalletId, "0.00");
+
+        Map<UUID, Wallet> wallets = Map.of(
+                senderWallet.getId(), senderWallet,
+                receiverWallet.getId(), receiverWallet,
+                platformWalletId, platformWallet);
+        when(walletRepository.findAllByIdInWithLockOrderById(anyCollection())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return ids.stream().map(wallets::get).filter(Objects::nonNull).toList();
+        });
+        // the conditional UPDATE, played against the in-memory wallets
+        when(walletRepository.reserveAvailable(any(), any(), any())).thenAnswer(invocation -> {
+            Wallet wallet = wallets.get(invocation.<UUID>getArgument(0));
+            BigDecimal debit = invocation.getArgument(1);
+            BigDecimal hold = invocation.getArgument(2);
+            if (wallet == null || wallet.getAvailableBalance().compareTo(debit.add(hold)) < 0) {
+                return Optional.empty();
+            }
+            wallet.setBalance(wallet.getBalance().subtract(debit));
+            wallet.setHeldBalance(wallet.getHeldBalance().add(hold));
+            return Optional.of(new WalletBalance(wallet.getId(), wallet.getBalance(), wallet.getHeldBalance()));
+        });
+        when(walletRepository.findById(any())).thenAnswer(invocation ->
+                Optional.ofNullable(wallets.get(invocation.<UUID>getArgument(0))));
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction t = invocation.getArgument(0);
+            if (t.getId() == null) t.setId(UUID.randomUUID());
+            return t;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void reserve_debitsSenderOnly_andLeavesTransferReserved() {
+        Transaction transaction = settlementService.reserve(
+                senderWallet.getId(), receiverWallet.getId(), new BigDecimal("100.00"), new BigDecimal("10.00"), false);
+
+        assertEquals(TransferState.RESERVED, transaction.getTransferState());
+        assertEquals(TransactionStatus.PENDING, transaction.getStatus());
+        assertEquals(new BigDecimal("890.00"), senderWallet.getBalance());
+        assertEquals(new BigDecimal("500.00"), receiverWallet.getBalance());
+        // phase one is one conditional update on the sender; no row lock is taken ahead of it
+        verify(walletRepository).reserveAvailable(senderWallet.getId(), new BigDecimal("110.00"), BigDecimal.ZERO);
+        verify(walletRepository, never()).findAllByIdInWithLockOrderById(anyCollection());
+        verify(walletRepository, never()).save(any());
+    }
+
+    @Test
+    void reserve_escrowHoldsThePrincipalAndDebitsOnlyTheFee() {
+        Transaction transaction = settlementService.reserve(
+                senderWallet.getId(), receiverWallet.getId(), new BigDecimal("600.00"), new BigDecimal("10.00"), true);
+
+        assertEquals(new BigDecimal("990.00"), senderWallet.getBalance());
+        assertEquals(new BigDecimal("600.00"), senderWallet.getHeldBalance());
+        verify(escrowService).createEscrowHold(transaction.getId(), new BigDecimal("600.00"));
+
+        // held funds are no longer available to a second transfer
+        InsufficientFundsException exception = assertThrows(InsufficientFundsException.class, () -> settlementService.reserve(
+                senderWallet.getId(), receiverWallet.getId(), new BigDecimal("400.00"), new BigDecimal("10.00"), false));
+        assertTrue(exception.getMessage().contains("Available: 390.00"));
+        assertEquals(new BigDecimal("990.00"), senderWallet.getBalance());
+    }
+
+    @Test
+    void compensate_releasesTheHeldPrincipalOfAnEscrowTransfer() {
+        Transaction reserved = reservedTransfer(true);
+        senderWallet.setBalance(new BigDecimal("990.00"));
+        senderWallet.setHeldBalance(new BigDecimal("100.00"));
+        when(transactionRepository.findByIdWithLock(reserved.getId())).thenReturn(Optional.of(reserved));
+        when(escrowService.dropHold(reserved.getId())).thenReturn(Optional.of(EscrowHold.builder()
+                .transactionId(reserved.getId()).fundsHeld(true).build()));
+
+        settlementService.compensate(reserved.getId(), "declined");
+
+        assertEquals(new BigDecimal("1000.00"), senderWallet.getBalance());
+        assertEquals(new BigDecimal("0.00"), senderWallet.getHeldBalance());
+    }
+
+    @Test
+    void complete_creditsReceiverAndPlatform() {
+        Transaction reserved = reservedTransfer(false);
+        when(transactionRepository.findByIdWithLock(reserved.getId())).thenReturn(Optional.of(reserved));
+
+        Transaction completed = settlementService.complete(reserved.getId());
+
+        assertEquals(TransferState.COMPLETED, completed.getTransferState());
+        assertEquals(TransactionStatus.SUCCESS, completed.getStatus());
+        assertEquals(new BigDecimal("600.00"), receiverWallet.getBalance());
+        assertEquals(new BigDecimal("10.00"), platformWallet.getBalance());
+        // receiver and fee wallet are taken in one ordered lock query
+        verify(walletRepository).findAllByIdInWithLockOrderById(Set.of(receiverWallet.getId(), platformWalletId));
+        // the completion event goes to the outbox inside the same transaction
+        verify(outboxService).enqueue(any(), eq(reserved.getId().toString()), any(TransactionCompletedEvent.class));
+    }
+
+    @Test
+    void complete_isIdempotentOnceSettled() {
+        Transaction reserved = reservedTransfer(false);
+        reserved.transitionTo(TransferState.COMPENSATED);
+        when(transactionRepository.findByIdWithLock(reserved.getId())).thenReturn(Optional.of(reserved));
+
+        Transaction result = settlementService.complete(reserved.getId());
+
+        assertEquals(TransferState.COMPENSATED, result.getTransferState());
+        assertEquals(new BigDecimal("500.00"), receiverWallet.getBalance());
+        verifyNoInteractions(ledgerEntryRepository);
+    }
+
+    @Test
+    void compensate_refundsWhatPhaseOneTook() {
+        Transaction reserved = reservedTransfer(false);
+        when(transactionRepository.findByIdWithLock(reserved.getId())).thenReturn(Optional.of(reserved));
+
+        Transaction compensated = settlementService.compensate(reserved.getId(), "declined");
+        verify(ledgerEntryRepository, never()).saveAll(anyList());
+        commit();
+
+        assertEquals(TransferState.COMPENSATED, compensated.getTransferState());
+        assertEquals(TransactionStatus.FAILED, compensated.getStatus());
+        assertEquals(new BigDecimal("1110.00"), senderWallet.getBalance());
+
+        // ledger entries reach the repository in one batch at commit, not one flush per row
+        ArgumentCaptor<List<LedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository).saveAll(entries.capture());
+        assertEquals(1, entries.getValue().size());
+        assertEquals(EntryType.CREDIT, entries.getValue().get(0).getEntryType());
+        assertEquals(new BigDecimal("110.00"), entries.getValue().get(0).getAmount());
+        verify(ledgerEntryRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void reserve_batchesItsLedgerEntriesUntilCommit() {
+        settlementService.reserve(
+                senderWallet.getId(), receiverWallet.getId(), new BigDecimal("100.00"), new BigDecimal("10.00"), false);
+        verifyNoInteractions(ledgerEntryRepository);
+
+        commit();
+
+        ArgumentCaptor<List<LedgerEntry>> entries = ArgumentCaptor.forClass(List.class);
+        verify(ledgerEntryRepository, times(1)).saveAll(entries.capture());
+        assertEquals(EntryType.DEBIT, entries.getValue().get(0).getEntryType());
+        assertEquals(new BigDecimal("110.00"), entries.getValue().get(0).getAmount());
+    }
+
+    @Test
+    void reserve_projectsSenderActivityWithRunningBalance() {
+        settlementService.reserve(
+                senderWallet.getId(), receiverWallet.getId(), new BigDecimal("100.00"), new BigDecimal("10.00"), false);
+        verifyNoInteractions(walletActivityRepository);
+
+        commit();
+
+        ArgumentCaptor<Collection<WalletActivity>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(walletActivityRepository).upsert(rows.capture());
+        WalletActivity row = rows.getValue().iterator().next();
+        assertEquals(1, rows.getValue().size());
+        assertEquals(senderWallet.getId(), row.getWalletId());
+        assertEquals(ActivityDirection.SENT, row.getDirection());
+        assertEquals(receiverWallet.getId(), row.getCounterpartyWalletId());
+        assertEquals(new BigDecimal("-110.00"), row.getSignedAmount());
+        assertEquals(new BigDecimal("890.00"), row.getBalanceAfter());
+    }
+
+    @Test
+    void complete_projectsReceiverAndFeeShardAsOneRowEach() {
+        Transaction reserved = reservedTransfer(false);
+        when(transactionRepository.findByIdWithLock(reserved.getId())).thenReturn(Optional.of(reserved));
+        when(transactionRepository.findById(reserved.getId())).thenReturn(Optional.of(reserved));
+
+        settlementService.complete(reserved.getId());
+        commit();
+
+        ArgumentCaptor<Collection<WalletActivity>> rows = ArgumentCaptor.forClass(Collection.class);
+        verify(walletActivityRepository, times(2)).upsert(rows.capture());
+        List<WalletActivity> written = rows.getAllValues().stream().flatMap(Collection::stream).toList();
+        WalletActivity receiver = written.stream()
+                .filter(row -> row.getWalletId().equals(receiverWallet.getId())).findFirst().orElseThrow();
+        assertEquals(ActivityDirection.RECEIVED, receiver.getDirection());
+        assertEquals(senderWallet.getId(), receiver.getCounterpartyWalletId());
+        assertEquals(new BigDecimal("100.00"), receiver.getSignedAmount());
+        assertEquals(new BigDecimal("600.00"), receiver.getBalanceAfter());
+        // the partition key the history join needs
+        assertEquals(reserved.getInitiatedAt(), receiver.getTransactionInitiatedAt());
+        WalletActivity fee = written.stream()
+                .filter(row -> row.getWalletId().equals(platformWalletId)).findFirst().orElseThrow();
+        assertEquals(new BigDecimal("10.00"), fee.getBalanceAfter());
+    }
+
+    @Test
+    void transitionTo_rejectsLeavingATerminalState() {
+        Transaction reserved = reservedTransfer(false);
+        reserved.transitionTo(TransferState.COMPLETED);
+
+        assertThrows(IllegalStateException.class, () -> reserved.transitionTo(TransferState.COMPENSATED));
+    }
+
+    private void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+    }
+
+    private Transaction reservedTransfer(boolean escrow) {
+        Transaction transaction = new Transaction();
+        transaction.setId(UUID.randomUUID());
+        transaction.setSenderWalletId(senderWallet.getId());
+        transaction.setReceiverWalletId(receiverWallet.getId());
+        transaction.setAmount(new BigDecimal("100.00"));
+        transaction.setFee(new BigDecimal("10.00"));
+        transaction.setEscrow(escrow);
+        transaction.setStatus(TransactionStatus.PENDING);
+        transaction.setInitiatedAt(Instant.now());
+        transaction.transitionTo(TransferState.RESERVED);
+        return transaction;
+    }
+
+    private Wallet wallet(UUID id, String balance) {
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        wallet.setBalance(new BigDecimal(balance));
+        return wallet;
+    }
+}
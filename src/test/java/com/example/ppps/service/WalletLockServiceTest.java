@@ -0,0 +1,87 @@
+package com.example.ppps.service;
+
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.repository.WalletRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class WalletLockServiceTest {
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private WalletLockService walletLockService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        walletLockService = new WalletLockService(walletRepository, meterRegistry, Duration.ofMillis(20));
+    }
+
+    @Test
+    void lockAll_takesEveryWalletInOneQuery() {
+        Wallet first = wallet(UUID.randomUUID());
+        Wallet second = wallet(UUID.randomUUID());
+        when(walletRepository.findAllByIdInWithLockOrderById(anyCollection())).thenReturn(List.of(first, second));
+
+        Map<UUID, Wallet> locked = walletLockService.lockAll(
+                Arrays.asList(second.getId(), first.getId(), second.getId(), null), "transfer-complete");
+
+        assertSame(first, locked.get(first.getId()));
+        assertSame(second, locked.get(second.getId()));
+        verify(walletRepository, times(1)).findAllByIdInWithLockOrderById(Set.of(first.getId(), second.getId()));
+        assertEquals(1, meterRegistry.get("ppps.wallet.lock.wait").tag("operation", "transfer-complete").timer().count());
+    }
+
+    @Test
+    void lock_returnsNullForMissingWallet() {
+        when(walletRepository.findAllByIdInWithLockOrderById(anyCollection())).thenReturn(List.of());
+
+        assertNull(walletLockService.lock(UUID.randomUUID(), "deposit"));
+    }
+
+    @Test
+    void lockAll_countsContendedAcquisitions() {
+        when(walletRepository.findAllByIdInWithLockOrderById(anyCollection())).thenAnswer(invocation -> {
+            Thread.sleep(30);
+            return List.of();
+        });
+
+        walletLockService.lock(UUID.randomUUID(), "withdrawal");
+
+        assertEquals(1.0, meterRegistry.get("ppps.wallet.lock.contended").tag("operation", "withdrawal").counter().count());
+    }
+
+    @Test
+    void lockAll_countsAndRethrowsLockFailures() {
+        when(walletRepository.findAllByIdInWithLockOrderById(anyCollection()))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"));
+
+        assertThrows(CannotAcquireLockException.class,
+                () -> walletLockService.lock(UUID.randomUUID(), "transfer-reserve"));
+        assertEquals(1.0, meterRegistry.get("ppps.wallet.lock.failures").tag("operation", "transfer-reserve").counter().count());
+    }
+
+    private Wallet wallet(UUID id) {
+        Wallet wallet = new Wallet();
+        wallet.setId(id);
+        return wallet;
+    }
+}
@@ -5,6 +5,8 @@ import com.example.ppps.dto.WithdrawRequest;
 import com.example.ppps.entity.Transaction;
 import com.example.ppps.enums.TransactionStatus;
 import com.example.ppps.entity.Wallet;
+import com.example.ppps.config.KafkaTopics;
+import com.example.ppps.repository.OutboxEventRepository;
 import com.example.ppps.repository.TransactionRepository;
 import com.example.ppps.repository.WalletRepository;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -46,6 +48,9 @@ class WithdrawalIntegrationTest {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
     @Autowired
     private GatewayService gatewayService;
 
@@ -59,6 +64,7 @@ class WithdrawalIntegrationTest {
 
     @BeforeEach
     void setup() {
+        outboxEventRepository.deleteAll();
         transactionRepository.deleteAll();
         walletRepository.deleteAll();
 
@@ -106,7 +112,10 @@ class WithdrawalIntegrationTest {
         assert(txn.getStatus() == TransactionStatus.SUCCESS);
 
         verify(gatewayService, times(1)).processWithdrawal(any());
-        verify(kafkaTemplate, times(1)).send(anyString(), anyString(), any());
+        // the event is committed to the outbox with the debit; OutboxRelay publishes it
+        assert(outboxEventRepository.findAll().stream()
+                .anyMatch(event -> event.getTopic().equals(KafkaTopics.WITHDRAWAL_COMPLETED)
+                        && event.getEventKey().equals(txn.getId().toString())));
     }
 
     @Test
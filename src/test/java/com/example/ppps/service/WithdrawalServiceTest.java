@@ -1,15 +1,29 @@
 package com.example.ppps.service;
 
+import com.example.ppps.dto.GatewayResponse;
+import com.example.ppps.dto.WalletBalance;
+import com.example.ppps.dto.WithdrawRequest;
+import com.example.ppps.entity.Transaction;
+import com.example.ppps.entity.User;
+import com.example.ppps.entity.Wallet;
+import com.example.ppps.enums.BalanceUpdateStrategy;
+import com.example.ppps.enums.TransactionStatus;
 import com.example.ppps.exception.PppsException;
 import com.example.ppps.repository.*;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.springframework.http.HttpStatus;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -17,12 +31,15 @@ import static org.mockito.Mockito.*;
 
 class WithdrawalServiceTest {
 
+    private static final UUID WALLET_ID = UUID.randomUUID();
+    private static final BigDecimal FEE = BigDecimal.TEN;
+
     @Mock
     private WalletRepository walletRepository;
     @Mock
     private TransactionRepository transactionRepository;
     @Mock
-    private LedgerEntryRepository ledgerEntryRepository;
+    private LedgerService ledgerService;
     @Mock
     private UserRepository userRepository;
     @Mock
@@ -30,9 +47,15 @@ class WithdrawalServiceTest {
     @Mock
     private GatewayService gatewayService;
     @Mock
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private OutboxService outboxService;
     @Mock
     private PasswordEncoder passwordEncoder;
+    @Mock
+    private PlatformWalletService platformWalletService;
+    @Mock
+    private BalanceMutationService balanceMutationService;
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
     private WithdrawalService withdrawalService;
 
@@ -42,16 +65,116 @@ class WithdrawalServiceTest {
         withdrawalService = new WithdrawalService(
                 walletRepository,
                 transactionRepository,
-                ledgerEntryRepository,
+                ledgerService,
                 userRepository,
                 feeService,
                 gatewayService,
-                kafkaTemplate,
-                passwordEncoder,
-                UUID.randomUUID().toString()  // dummy platform wallet ID
+                outboxService,
+                new PinVerificationService(passwordEncoder, new SimpleMeterRegistry(),
+                        1, 4, Duration.ofSeconds(5), Duration.ofMinutes(5), 100),
+                platformWalletService,
+                balanceMutationService,
+                transactionManager,
+                BalanceUpdateStrategy.CONDITIONAL
         );
     }
 
+    @Test
+    void withdraw_CollectsFeeOnlyAfterGatewayAnswers_WithDebitAlreadyCommitted() {
+        Transaction tx = givenWithdrawal();
+        when(gatewayService.processWithdrawal(any()))
+                .thenReturn(GatewayResponse.builder().status("SUCCESS").build());
+
+        withdrawalService.withdraw("user-1", request());
+
+        // the debit commits before the gateway is called; the fee shard is touched only afterwards
+        InOrder inOrder = inOrder(balanceMutationService, transactionManager, gatewayService, platformWalletService);
+        inOrder.verify(balanceMutationService).debit(eq(WALLET_ID), eq(new BigDecimal("1010")),
+                eq(BalanceUpdateStrategy.CONDITIONAL), eq("withdrawal"));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(gatewayService).processWithdrawal(any());
+        inOrder.verify(platformWalletService).collectFee(tx.getId(), FEE);
+        inOrder.verify(transactionManager).commit(any());
+        assertEquals(TransactionStatus.SUCCESS, tx.getStatus());
+        verify(outboxService).enqueue(any(), eq(tx.getId().toString()), any());
+    }
+
+    @Test
+    void withdraw_RefundsWholeDebitAndNeverCollectsFee_WhenGatewayFails() {
+        Transaction tx = givenWithdrawal();
+        when(gatewayService.processWithdrawal(any()))
+                .thenReturn(GatewayResponse.builder().status("FAILED").build());
+
+        withdrawalService.withdraw("user-1", request());
+
+        verify(balanceMutationService).credit(eq(WALLET_ID), eq(new BigDecimal("1010")),
+                eq(BalanceUpdateStrategy.CONDITIONAL), eq("withdrawal-revert"));
+        verify(platformWalletService, never()).collectFee(any(), any());
+        verify(platformWalletService, never()).reverseFee(any(), any());
+        assertEquals(TransactionStatus.FAILED, tx.getStatus());
+    }
+
+    @Test
+    void withdraw_RefundsCommittedDebit_WhenGatewayThrows() {
+        Transaction tx = givenWithdrawal();
+        when(gatewayService.processWithdrawal(any())).thenThrow(new IllegalStateException("connection reset"));
+
+        PppsException exception = assertThrows(PppsException.class,
+                () -> withdrawalService.withdraw("user-1", request()));
+
+        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getStatus());
+        verify(balanceMutationService).credit(eq(WALLET_ID), eq(new BigDecimal("1010")),
+                eq(BalanceUpdateStrategy.CONDITIONAL), eq("withdrawal-revert"));
+        verify(platformWalletService, never()).collectFee(any(), any());
+        assertEquals(TransactionStatus.FAILED, tx.getStatus());
+    }
+
+    // a user with a wallet and a matching PIN; returns the transaction the service will save and reload
+    private Transaction givenWithdrawal() {
+        Wallet wallet = new Wallet();
+        wallet.setId(WALLET_ID);
+        wallet.setCurrency("NGN");
+        User user = new User();
+        user.setUserId("user-1");
+        user.setHashedPin("hashed");
+        user.setWallet(wallet);
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(passwordEncoder.matches("1234", "hashed")).thenReturn(true);
+        when(feeService.calculateFee(any())).thenReturn(FEE);
+        when(platformWalletService.getPlatformWalletId()).thenReturn(UUID.randomUUID());
+
+        Transaction tx = new Transaction();
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction saved = invocation.getArgument(0);
+            if (saved.getId() == null) {
+                saved.setId(UUID.randomUUID());
+            }
+            return saved;
+        });
+        when(transactionRepository.findByIdWithLock(any())).thenAnswer(invocation -> {
+            tx.setId(invocation.getArgument(0));
+            tx.setSenderWalletId(WALLET_ID);
+            tx.setAmount(new BigDecimal("1000"));
+            tx.setStatus(TransactionStatus.PENDING);
+            return Optional.of(tx);
+        });
+        when(balanceMutationService.debit(any(), any(), any(), any()))
+                .thenReturn(new WalletBalance(WALLET_ID, new BigDecimal("3990"), BigDecimal.ZERO));
+        when(balanceMutationService.credit(any(), any(), any(), any()))
+                .thenReturn(new WalletBalance(WALLET_ID, new BigDecimal("5000"), BigDecimal.ZERO));
+        return tx;
+    }
+
+    private static WithdrawRequest request() {
+        WithdrawRequest request = new WithdrawRequest();
+        request.setWalletId(WALLET_ID);
+        request.setAmount(new BigDecimal("1000"));
+        request.setSecurePin("1234");
+        request.setBankName("001");
+        request.setAccountNumber("1234567890");
+        return request;
+    }
+
     @Test
     void verifyPin_ShouldReturnTrue_WhenPinMatches() {
         // given
@@ -97,10 +220,17 @@ class WithdrawalServiceTest {
     // helper to call the private method reflectively
     private boolean invokeVerifyPin(String providedPin, String hashedPin) {
         try {
-            var method = WithdrawalService.class.getDeclaredMethod("verifyPin", String.class, String.class);
+            var method = WithdrawalService.class.getDeclaredMethod(
+                    "verifyPin", String.class, String.class, String.class);
             method.setAccessible(true);
-            return (boolean) method.invoke(withdrawalService, providedPin, hashedPin);
-        } catch (Exception e) {
+            return (boolean) method.invoke(withdrawalService, "user-1", providedPin, hashedPin);
+        } catch (InvocationTargetException e) {
+            // surface what verifyPin threw, not the reflection wrapper
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (ReflectiveOperationException e) {
             throw new RuntimeException(e);
         }
     }